@@ -0,0 +1,78 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import androidx.annotation.VisibleForTesting;
+import com.google.android.gms.maps.model.BitmapDescriptor;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Process-wide store of the bitmap descriptors used as marker icons, shared by every map.
+ *
+ * <p>Descriptors created from icon descriptions are kept in a bounded least recently used cache
+ * keyed by the asset key or, for images sent as bytes, by a hash of the bytes, so that markers
+ * sharing an image decode it once. Descriptors registered by id through {@code icons#register}
+ * are kept until they are unregistered.
+ */
+final class BitmapDescriptorCache {
+  @VisibleForTesting static final int MAX_CACHED_DESCRIPTORS = 128;
+
+  private static final Map<String, BitmapDescriptor> cache =
+      new LinkedHashMap<String, BitmapDescriptor>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, BitmapDescriptor> eldest) {
+          return size() > MAX_CACHED_DESCRIPTORS;
+        }
+      };
+  private static final Map<String, BitmapDescriptor> registered = new HashMap<>();
+
+  private BitmapDescriptorCache() {}
+
+  static synchronized BitmapDescriptor get(String key) {
+    return cache.get(key);
+  }
+
+  static synchronized void put(String key, BitmapDescriptor bitmapDescriptor) {
+    cache.put(key, bitmapDescriptor);
+  }
+
+  static synchronized BitmapDescriptor getRegistered(String iconId) {
+    return registered.get(iconId);
+  }
+
+  static synchronized void register(String iconId, BitmapDescriptor bitmapDescriptor) {
+    registered.put(iconId, bitmapDescriptor);
+  }
+
+  static synchronized void unregister(String iconId) {
+    registered.remove(iconId);
+  }
+
+  @VisibleForTesting
+  static synchronized void clear() {
+    cache.clear();
+    registered.clear();
+  }
+
+  /** Returns a key identifying an image by its encoded bytes. */
+  static String contentKey(byte[] bytes) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      byte[] hash = digest.digest(bytes);
+      StringBuilder builder = new StringBuilder(hash.length * 2);
+      for (byte b : hash) {
+        builder.append(Character.forDigit((b >> 4) & 0xf, 16));
+        builder.append(Character.forDigit(b & 0xf, 16));
+      }
+      return builder.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
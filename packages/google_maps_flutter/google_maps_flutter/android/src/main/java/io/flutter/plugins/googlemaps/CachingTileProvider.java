@@ -0,0 +1,20 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import com.google.android.gms.maps.model.TileProvider;
+import java.util.Map;
+
+/** Tile provider of a tile overlay that keeps its own tile cache. */
+interface CachingTileProvider extends TileProvider {
+  /** Drops the natively cached tiles. */
+  void clearTileCache();
+
+  /** Returns counters describing how tile requests were served. */
+  Map<String, Object> getTileCacheMetrics();
+
+  /** Releases the resources held by the provider once its tile overlay is removed. */
+  void dispose();
+}
@@ -0,0 +1,166 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import androidx.annotation.VisibleForTesting;
+import com.google.android.gms.maps.model.CameraPosition;
+
+/**
+ * Decides which camera positions of a camera move are sent to Dart as {@code camera#onMove}.
+ *
+ * <p>A position is sent when it is at least the minimum distance away from the last position sent
+ * and no more than the maximum number of events per second have been sent. A position held back
+ * by the rate limit is sent as soon as the limit allows, unless a newer one replaces it, and the
+ * last position of a move is always sent by {@link #flush} before {@code camera#onIdle}. With the
+ * default options every position is sent. Must be used on the platform thread.
+ */
+class CameraMoveThrottle {
+
+  interface Listener {
+    void onCameraMove(CameraPosition position);
+  }
+
+  @VisibleForTesting
+  interface Clock {
+    long uptimeMillis();
+  }
+
+  private static final double TILE_SIZE = 256;
+  // Changes of zoom, bearing and tilt smaller than this are ignored by the distance threshold.
+  private static final double MIN_CAMERA_CHANGE = 1e-3;
+
+  private final Handler handler;
+  private final Listener listener;
+  private final Clock clock;
+  private final Runnable sendPendingPosition =
+      new Runnable() {
+        @Override
+        public void run() {
+          sendPendingPosition();
+        }
+      };
+  private int maxEventsPerSecond;
+  private float minDistance;
+  private CameraPosition lastSentPosition;
+  private long lastSentAtMillis;
+  private CameraPosition pendingPosition;
+  private boolean sendScheduled;
+
+  CameraMoveThrottle(Listener listener) {
+    this(
+        new Handler(Looper.getMainLooper()),
+        listener,
+        new Clock() {
+          @Override
+          public long uptimeMillis() {
+            return SystemClock.uptimeMillis();
+          }
+        });
+  }
+
+  @VisibleForTesting
+  CameraMoveThrottle(Handler handler, Listener listener, Clock clock) {
+    this.handler = handler;
+    this.listener = listener;
+    this.clock = clock;
+  }
+
+  /**
+   * Sets the maximum number of events per second, or 0 for no limit, and the distance in logical
+   * pixels at the current zoom level the camera target has to move before a position is sent.
+   */
+  void setOptions(int maxEventsPerSecond, float minDistance) {
+    this.maxEventsPerSecond = Math.max(0, maxEventsPerSecond);
+    this.minDistance = Math.max(0, minDistance);
+  }
+
+  void onCameraMove(CameraPosition position) {
+    if (lastSentPosition != null
+        && distance(lastSentPosition, position) < minDistance
+        && !hasTurnedOrZoomed(lastSentPosition, position)) {
+      pendingPosition = position;
+      return;
+    }
+    long delayMillis = maxEventsPerSecond > 0 ? nextEventAtMillis() - clock.uptimeMillis() : 0;
+    if (delayMillis <= 0) {
+      cancelScheduledSend();
+      send(position);
+      return;
+    }
+    pendingPosition = position;
+    if (!sendScheduled) {
+      sendScheduled = true;
+      handler.postDelayed(sendPendingPosition, delayMillis);
+    }
+  }
+
+  /** Sends the last position of the move if it has not been sent yet. */
+  void flush() {
+    cancelScheduledSend();
+    if (pendingPosition != null) {
+      send(pendingPosition);
+    }
+    lastSentPosition = null;
+  }
+
+  void dispose() {
+    cancelScheduledSend();
+    pendingPosition = null;
+  }
+
+  private void sendPendingPosition() {
+    sendScheduled = false;
+    if (pendingPosition != null) {
+      send(pendingPosition);
+    }
+  }
+
+  private void send(CameraPosition position) {
+    pendingPosition = null;
+    lastSentPosition = position;
+    lastSentAtMillis = clock.uptimeMillis();
+    listener.onCameraMove(position);
+  }
+
+  private void cancelScheduledSend() {
+    if (sendScheduled) {
+      sendScheduled = false;
+      handler.removeCallbacks(sendPendingPosition);
+    }
+  }
+
+  private long nextEventAtMillis() {
+    return lastSentPosition == null ? 0 : lastSentAtMillis + 1000 / maxEventsPerSecond;
+  }
+
+  private static boolean hasTurnedOrZoomed(CameraPosition from, CameraPosition to) {
+    return Math.abs(from.zoom - to.zoom) > MIN_CAMERA_CHANGE
+        || Math.abs(from.bearing - to.bearing) > MIN_CAMERA_CHANGE
+        || Math.abs(from.tilt - to.tilt) > MIN_CAMERA_CHANGE;
+  }
+
+  /** Returns the distance in logical pixels between the targets of two positions at to's zoom. */
+  @VisibleForTesting
+  static double distance(CameraPosition from, CameraPosition to) {
+    double worldSize = TILE_SIZE * Math.pow(2, to.zoom);
+    double dx = Math.abs(worldX(from.target.longitude) - worldX(to.target.longitude)) * worldSize;
+    // The shorter way may cross the antimeridian.
+    dx = Math.min(dx, worldSize - dx);
+    double dy = (worldY(from.target.latitude) - worldY(to.target.latitude)) * worldSize;
+    return Math.sqrt(dx * dx + dy * dy);
+  }
+
+  private static double worldX(double longitude) {
+    return (longitude + 180) / 360;
+  }
+
+  private static double worldY(double latitude) {
+    double sinLatitude = Math.min(Math.max(Math.sin(Math.toRadians(latitude)), -0.9999), 0.9999);
+    return 0.5 - Math.log((1 + sinLatitude) / (1 - sinLatitude)) / (4 * Math.PI);
+  }
+}
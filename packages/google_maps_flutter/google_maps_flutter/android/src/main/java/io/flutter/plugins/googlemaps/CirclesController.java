@@ -13,9 +13,11 @@ import java.util.List;
 import java.util.Map;
 
 class CirclesController {
+  private static final String TAG = "CirclesController";
 
   private final Map<String, CircleController> circleIdToController;
   private final Map<String, String> googleMapsCircleIdToDartCircleId;
+  private final VirtualizedShapes<CircleBuilder> circles;
   private final MethodChannel methodChannel;
   private final float density;
   private GoogleMap googleMap;
@@ -25,43 +27,86 @@ class CirclesController {
     this.googleMapsCircleIdToDartCircleId = new HashMap<>();
     this.methodChannel = methodChannel;
     this.density = density;
+    this.circles =
+        new VirtualizedShapes<>(
+            TAG,
+            "circleId",
+            new VirtualizedShapes.Shapes<CircleBuilder>() {
+              @Override
+              public CircleBuilder newBuilder() {
+                return new CircleBuilder(density);
+              }
+
+              @Override
+              public String interpretOptions(Object json, CircleBuilder builder) {
+                return Convert.interpretCircleOptions(json, builder);
+              }
+
+              @Override
+              public boolean changesBounds(Map<String, Object> change) {
+                return change.containsKey("center") || change.containsKey("radius");
+              }
+
+              @Override
+              public void putBounds(
+                  ViewportVirtualizer virtualizer, String circleId, CircleBuilder builder) {
+                CircleOptions options = builder.build();
+                virtualizer.put(circleId, options.getCenter(), options.getRadius());
+              }
+
+              @Override
+              public void addToMap(String circleId, CircleBuilder builder) {
+                addCircle(circleId, builder.build(), builder.consumeTapEvents());
+              }
+
+              @Override
+              public void changeOnMap(String circleId, Object json) {
+                CircleController circleController = circleIdToController.get(circleId);
+                if (circleController != null) {
+                  Convert.interpretCircleOptions(json, circleController);
+                }
+              }
+
+              @Override
+              public void removeFromMap(String circleId) {
+                removeCircle(circleId);
+              }
+
+              @Override
+              public boolean isMapEmpty() {
+                return circleIdToController.isEmpty();
+              }
+            });
   }
 
   void setGoogleMap(GoogleMap googleMap) {
     this.googleMap = googleMap;
   }
 
+  /**
+   * Keeps only the circles within margin times the size of the visible region around it on the
+   * map, or every circle if margin is not positive.
+   *
+   * <p>Virtualization can only be turned on or off while the map has no circles.
+   */
+  void setViewportVirtualizationMargin(float margin) {
+    circles.setViewportVirtualizationMargin(margin);
+  }
+
+  void onCameraIdle() {
+    circles.onCameraIdle(googleMap);
+  }
+
   void addCircles(List<Object> circlesToAdd) {
-    if (circlesToAdd != null) {
-      for (Object circleToAdd : circlesToAdd) {
-        addCircle(circleToAdd);
-      }
-    }
+    circles.add(circlesToAdd);
   }
 
   void changeCircles(List<Object> circlesToChange) {
-    if (circlesToChange != null) {
-      for (Object circleToChange : circlesToChange) {
-        changeCircle(circleToChange);
-      }
-    }
+    circles.change(circlesToChange);
   }
 
   void removeCircles(List<Object> circleIdsToRemove) {
-    if (circleIdsToRemove == null) {
-      return;
-    }
-    for (Object rawCircleId : circleIdsToRemove) {
-      if (rawCircleId == null) {
-        continue;
-      }
-      String circleId = (String) rawCircleId;
-      final CircleController circleController = circleIdToController.remove(circleId);
-      if (circleController != null) {
-        circleController.remove();
-        googleMapsCircleIdToDartCircleId.remove(circleController.getGoogleMapsCircleId());
-      }
-    }
+    circles.remove(circleIdsToRemove);
   }
 
   boolean onCircleTap(String googleCircleId) {
@@ -77,16 +122,6 @@ class CirclesController {
     return false;
   }
 
-  private void addCircle(Object circle) {
-    if (circle == null) {
-      return;
-    }
-    CircleBuilder circleBuilder = new CircleBuilder(density);
-    String circleId = Convert.interpretCircleOptions(circle, circleBuilder);
-    CircleOptions options = circleBuilder.build();
-    addCircle(circleId, options, circleBuilder.consumeTapEvents());
-  }
-
   private void addCircle(String circleId, CircleOptions circleOptions, boolean consumeTapEvents) {
     final Circle circle = googleMap.addCircle(circleOptions);
     CircleController controller = new CircleController(circle, consumeTapEvents, density);
@@ -94,20 +129,11 @@ class CirclesController {
     googleMapsCircleIdToDartCircleId.put(circle.getId(), circleId);
   }
 
-  private void changeCircle(Object circle) {
-    if (circle == null) {
-      return;
-    }
-    String circleId = getCircleId(circle);
-    CircleController circleController = circleIdToController.get(circleId);
+  private void removeCircle(String circleId) {
+    final CircleController circleController = circleIdToController.remove(circleId);
     if (circleController != null) {
-      Convert.interpretCircleOptions(circle, circleController);
+      circleController.remove();
+      googleMapsCircleIdToDartCircleId.remove(circleController.getGoogleMapsCircleId());
     }
   }
-
-  @SuppressWarnings("unchecked")
-  private static String getCircleId(Object circle) {
-    Map<String, Object> circleMap = (Map<String, Object>) circle;
-    return (String) circleMap.get("circleId");
-  }
 }
@@ -25,6 +25,7 @@ import com.google.android.gms.maps.model.RoundCap;
 import com.google.android.gms.maps.model.SquareCap;
 import com.google.android.gms.maps.model.Tile;
 import io.flutter.view.FlutterMain;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -34,10 +35,43 @@ import java.util.Map;
 /** Conversions between JSON-like values and GoogleMaps data types. */
 class Convert {
 
+  static BitmapDescriptor toBitmapDescriptor(Object o) {
+    final List<?> data = toList(o);
+    if ("registered".equals(data.get(0))) {
+      final String iconId = toString(data.get(1));
+      final BitmapDescriptor registered = BitmapDescriptorCache.getRegistered(iconId);
+      if (registered == null) {
+        throw new IllegalArgumentException("No icon was registered with id " + iconId);
+      }
+      return registered;
+    }
+    final String cacheKey = toBitmapDescriptorCacheKey(data);
+    BitmapDescriptor bitmapDescriptor = BitmapDescriptorCache.get(cacheKey);
+    if (bitmapDescriptor == null) {
+      bitmapDescriptor = createBitmapDescriptor(o);
+      BitmapDescriptorCache.put(cacheKey, bitmapDescriptor);
+    }
+    return bitmapDescriptor;
+  }
+
+  private static String toBitmapDescriptorCacheKey(List<?> data) {
+    final StringBuilder key = new StringBuilder(toString(data.get(0)));
+    for (int i = 1; i < data.size(); i++) {
+      final Object argument = data.get(i);
+      key.append('|');
+      if (argument instanceof byte[]) {
+        key.append(BitmapDescriptorCache.contentKey((byte[]) argument));
+      } else {
+        key.append(argument);
+      }
+    }
+    return key.toString();
+  }
+
   // TODO(hamdikahloun): FlutterMain has been deprecated and should be replaced with FlutterLoader
   //  when it's available in Stable channel: https://github.com/flutter/flutter/issues/70923.
   @SuppressWarnings("deprecation")
-  private static BitmapDescriptor toBitmapDescriptor(Object o) {
+  private static BitmapDescriptor createBitmapDescriptor(Object o) {
     final List<?> data = toList(o);
     switch (toString(data.get(0))) {
       case "defaultMarker":
@@ -147,6 +181,10 @@ class Convert {
     return ((Number) o).intValue();
   }
 
+  private static long toLong(Object o) {
+    return ((Number) o).longValue();
+  }
+
   static Object cameraPositionToJson(CameraPosition position) {
     if (position == null) {
       return null;
@@ -376,10 +414,39 @@ class Convert {
     if (buildingsEnabled != null) {
       sink.setBuildingsEnabled(toBoolean(buildingsEnabled));
     }
+    final Object markerClusterGridSize = data.get("markerClusterGridSize");
+    if (markerClusterGridSize != null) {
+      sink.setMarkerClusterGridSize(toFloat(markerClusterGridSize));
+    }
+    final Object viewportVirtualizationMargin = data.get("viewportVirtualizationMargin");
+    if (viewportVirtualizationMargin != null) {
+      sink.setViewportVirtualizationMargin(toFloat(viewportVirtualizationMargin));
+    }
+    final Object cameraMoveThrottle = data.get("cameraMoveThrottle");
+    if (cameraMoveThrottle != null) {
+      final Map<?, ?> throttle = toMap(cameraMoveThrottle);
+      final Object maxEventsPerSecond = throttle.get("maxEventsPerSecond");
+      final Object minDistance = throttle.get("minDistance");
+      sink.setCameraMoveThrottle(
+          maxEventsPerSecond != null ? toInt(maxEventsPerSecond) : 0,
+          minDistance != null ? toFloat(minDistance) : 0);
+    }
   }
 
   /** Returns the dartMarkerId of the interpreted marker. */
   static String interpretMarkerOptions(Object o, MarkerOptionsSink sink) {
+    final Map<?, ?> data = toMap(o);
+    interpretMarkerStyle(data, sink);
+    final String markerId = (String) data.get("markerId");
+    if (markerId == null) {
+      throw new IllegalArgumentException("markerId was null");
+    } else {
+      return markerId;
+    }
+  }
+
+  /** Interprets every marker option except the marker id. */
+  static void interpretMarkerStyle(Object o, MarkerOptionsSink sink) {
     final Map<?, ?> data = toMap(o);
     final Object alpha = data.get("alpha");
     if (alpha != null) {
@@ -427,12 +494,6 @@ class Convert {
     if (zIndex != null) {
       sink.setZIndex(toFloat(zIndex));
     }
-    final String markerId = (String) data.get("markerId");
-    if (markerId == null) {
-      throw new IllegalArgumentException("markerId was null");
-    } else {
-      return markerId;
-    }
   }
 
   private static void interpretInfoWindowOptions(
@@ -480,6 +541,11 @@ class Convert {
     if (zIndex != null) {
       sink.setZIndex(toFloat(zIndex));
     }
+    // Read before the points, which are simplified with it.
+    final Object simplificationTolerance = data.get("simplificationTolerance");
+    if (simplificationTolerance != null) {
+      sink.setSimplificationTolerance(toFloat(simplificationTolerance));
+    }
     final Object points = data.get("points");
     if (points != null) {
       sink.setPoints(toPoints(points));
@@ -534,6 +600,11 @@ class Convert {
     if (zIndex != null) {
       sink.setZIndex(toFloat(zIndex));
     }
+    // Read before the points, which are simplified with it.
+    final Object simplificationTolerance = data.get("simplificationTolerance");
+    if (simplificationTolerance != null) {
+      sink.setSimplificationTolerance(toFloat(simplificationTolerance));
+    }
     final Object points = data.get("points");
     if (points != null) {
       sink.setPoints(toPoints(points));
@@ -592,13 +663,25 @@ class Convert {
     }
   }
 
+  /**
+   * Reads points sent either as a list of [latitude, longitude] lists or packed as a Float64List
+   * of alternating latitudes and longitudes.
+   */
   private static List<LatLng> toPoints(Object o) {
+    if (o instanceof double[]) {
+      final double[] coordinates = (double[]) o;
+      final List<LatLng> points = new ArrayList<>(coordinates.length / 2);
+      for (int i = 0; i + 1 < coordinates.length; i += 2) {
+        points.add(new LatLng(coordinates[i], coordinates[i + 1]));
+      }
+      return points;
+    }
     final List<?> data = toList(o);
     final List<LatLng> points = new ArrayList<>(data.size());
 
     for (Object rawPoint : data) {
       final List<?> point = toList(rawPoint);
-      points.add(new LatLng(toFloat(point.get(0)), toFloat(point.get(1))));
+      points.add(new LatLng(toDouble(point.get(0)), toDouble(point.get(1))));
     }
     return points;
   }
@@ -679,6 +762,10 @@ class Convert {
     if (visible != null) {
       sink.setVisible(toBoolean(visible));
     }
+    final Object tileSource = data.get("tileSource");
+    if (tileSource != null) {
+      sink.setTileSource(toTileSource(tileSource));
+    }
     final String tileOverlayId = (String) data.get("tileOverlayId");
     if (tileOverlayId == null) {
       throw new IllegalArgumentException("tileOverlayId was null");
@@ -687,6 +774,173 @@ class Convert {
     }
   }
 
+  /** Returns the tile cache configured for a tile overlay, or null if it has none. */
+  static TileCache.Options toTileCacheOptions(Object o) {
+    if (o == null) {
+      return null;
+    }
+    final Map<?, ?> data = toMap(o);
+    final Object memoryCacheSizeBytes = data.get("memoryCacheSizeBytes");
+    final Object diskCacheSizeBytes = data.get("diskCacheSizeBytes");
+    final Object timeToLiveMillis = data.get("timeToLiveMillis");
+    return new TileCache.Options(
+        memoryCacheSizeBytes != null
+            ? toLong(memoryCacheSizeBytes)
+            : TileCache.Options.DEFAULT_MEMORY_CACHE_SIZE_BYTES,
+        diskCacheSizeBytes != null ? toLong(diskCacheSizeBytes) : 0,
+        timeToLiveMillis != null ? toLong(timeToLiveMillis) : 0);
+  }
+
+  static long toTileRequestTimeoutMillis(Object o) {
+    return o != null ? toLong(o) : TileProviderController.DEFAULT_TIMEOUT_MILLIS;
+  }
+
+  /** Returns the platform side tile source described by a tileSource tile overlay option. */
+  static TileSource toTileSource(Object o) {
+    final Map<?, ?> data = toMap(o);
+    final Object tileSize = data.get("tileSize");
+    final int size = tileSize != null ? toInt(tileSize) : TileSource.DEFAULT_TILE_SIZE;
+    final Object maxConcurrentReads = data.get("maxConcurrentReads");
+    final int concurrency =
+        maxConcurrentReads != null
+            ? toInt(maxConcurrentReads)
+            : TileSource.DEFAULT_MAX_CONCURRENT_READS;
+    switch (toString(data.get("type"))) {
+      case "urlTemplate":
+        final Map<String, String> headers = new HashMap<>();
+        final Object headersData = data.get("headers");
+        if (headersData != null) {
+          for (Map.Entry<?, ?> header : toMap(headersData).entrySet()) {
+            headers.put(toString(header.getKey()), toString(header.getValue()));
+          }
+        }
+        return new UrlTemplateTileSource(
+            toString(data.get("urlTemplate")), headers, size, concurrency);
+      case "mbtiles":
+        return new MBTilesTileSource(toString(data.get("path")), size, concurrency);
+      case "directory":
+        final Object extension = data.get("extension");
+        return new DirectoryTileSource(
+            new File(toString(data.get("path"))),
+            extension != null ? toString(extension) : DirectoryTileSource.DEFAULT_EXTENSION,
+            size,
+            concurrency);
+      case "heatmap":
+        final Object radius = data.get("radius");
+        final Object gradient = data.get("gradient");
+        final Object opacity = data.get("opacity");
+        final Object maxIntensity = data.get("maxIntensity");
+        final Map<?, ?> gradientData = gradient != null ? toMap(gradient) : null;
+        return new HeatmapTileSource(
+            toWeightedPoints(data.get("points")),
+            radius != null ? toInt(radius) : HeatmapTileSource.DEFAULT_RADIUS,
+            gradientData != null
+                ? toIntArray(gradientData.get("colors"))
+                : HeatmapTileSource.DEFAULT_GRADIENT_COLORS,
+            gradientData != null
+                ? toFloatArray(gradientData.get("startPoints"))
+                : HeatmapTileSource.DEFAULT_GRADIENT_START_POINTS,
+            opacity != null ? toFloat(opacity) : HeatmapTileSource.DEFAULT_OPACITY,
+            maxIntensity != null ? toDouble(maxIntensity) : 0,
+            size,
+            concurrency);
+      default:
+        throw new IllegalArgumentException("Cannot interpret " + o + " as TileSource");
+    }
+  }
+
+  /**
+   * Returns weighted points as consecutive latitude, longitude and weight triples, from either a
+   * packed array of them or a list of [latitude, longitude, weight] lists.
+   */
+  private static double[] toWeightedPoints(Object o) {
+    if (o instanceof double[]) {
+      return (double[]) o;
+    }
+    final List<?> data = toList(o);
+    final double[] points = new double[3 * data.size()];
+    for (int i = 0; i < data.size(); i++) {
+      final List<?> point = toList(data.get(i));
+      points[3 * i] = toDouble(point.get(0));
+      points[3 * i + 1] = toDouble(point.get(1));
+      points[3 * i + 2] = point.size() > 2 ? toDouble(point.get(2)) : 1;
+    }
+    return points;
+  }
+
+  private static int[] toIntArray(Object o) {
+    if (o instanceof int[]) {
+      return (int[]) o;
+    }
+    final List<?> data = toList(o);
+    final int[] values = new int[data.size()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = toInt(data.get(i));
+    }
+    return values;
+  }
+
+  private static float[] toFloatArray(Object o) {
+    if (o instanceof float[]) {
+      return (float[]) o;
+    }
+    final List<?> data = toList(o);
+    final float[] values = new float[data.size()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = toFloat(data.get(i));
+    }
+    return values;
+  }
+
+  static Map<String, Object> tileCacheMetricsToJson(
+      TileCache tileCache, long coalescedRequests, long timeouts) {
+    final long memoryHits = tileCache != null ? tileCache.getMemoryHits() : 0;
+    final long diskHits = tileCache != null ? tileCache.getDiskHits() : 0;
+    final long misses = tileCache != null ? tileCache.getMisses() : 0;
+    final long lookups = memoryHits + diskHits + misses;
+    final Map<String, Object> metrics = new HashMap<>();
+    metrics.put("memoryHits", memoryHits);
+    metrics.put("diskHits", diskHits);
+    metrics.put("misses", misses);
+    metrics.put("hitRate", lookups > 0 ? (double) (memoryHits + diskHits) / lookups : 0.0);
+    metrics.put("coalescedRequests", coalescedRequests);
+    metrics.put("timeouts", timeouts);
+    return metrics;
+  }
+
+  /** Returns the options of a map#takeSnapshot call, whose arguments may be null. */
+  static SnapshotEncoder.Options toSnapshotOptions(Object o) {
+    if (o == null) {
+      return SnapshotEncoder.Options.DEFAULT;
+    }
+    final Map<?, ?> data = toMap(o);
+    final Object format = data.get("format");
+    final Object quality = data.get("quality");
+    final Object scale = data.get("scale");
+    final Object filePath = data.get("filePath");
+    return new SnapshotEncoder.Options(
+        format != null ? toCompressFormat(format) : SnapshotEncoder.Options.DEFAULT.format,
+        quality != null
+            ? Math.max(0, Math.min(100, toInt(quality)))
+            : SnapshotEncoder.Options.DEFAULT.quality,
+        scale != null ? Math.max(0.01f, Math.min(1, toFloat(scale))) : 1,
+        filePath != null ? toString(filePath) : null);
+  }
+
+  @SuppressWarnings("deprecation")
+  private static Bitmap.CompressFormat toCompressFormat(Object o) {
+    switch (toString(o)) {
+      case "png":
+        return Bitmap.CompressFormat.PNG;
+      case "jpeg":
+        return Bitmap.CompressFormat.JPEG;
+      case "webp":
+        return Bitmap.CompressFormat.WEBP;
+      default:
+        throw new IllegalArgumentException("Cannot interpret " + o + " as CompressFormat");
+    }
+  }
+
   static Tile interpretTile(Map<String, ?> data) {
     int width = toInt(data.get("width"));
     int height = toInt(data.get("height"));
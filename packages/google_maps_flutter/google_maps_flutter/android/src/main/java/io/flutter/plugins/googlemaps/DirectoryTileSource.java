@@ -0,0 +1,54 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import androidx.annotation.Nullable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/** Reads tiles from a directory laid out as {@code <zoom>/<x>/<y>.<extension>}. */
+class DirectoryTileSource extends TileSource {
+  static final String DEFAULT_EXTENSION = "png";
+
+  private final File directory;
+  private final String extension;
+
+  DirectoryTileSource(File directory, String extension, int tileSize, int maxConcurrentReads) {
+    super(tileSize, maxConcurrentReads);
+    this.directory = directory;
+    this.extension = extension;
+  }
+
+  @Override
+  String getCacheKey() {
+    return "directory:" + tileSize + ":" + directory.getAbsolutePath() + ":" + extension;
+  }
+
+  @Nullable
+  @Override
+  byte[] readTile(int x, int y, int zoom) throws IOException {
+    File file = new File(directory, zoom + "/" + x + "/" + y + "." + extension);
+    if (!file.isFile()) {
+      return null;
+    }
+    byte[] data = new byte[(int) file.length()];
+    InputStream input = new FileInputStream(file);
+    try {
+      int offset = 0;
+      while (offset < data.length) {
+        int read = input.read(data, offset, data.length - offset);
+        if (read < 0) {
+          throw new IOException("Unexpected end of " + file);
+        }
+        offset += read;
+      }
+    } finally {
+      input.close();
+    }
+    return data;
+  }
+}
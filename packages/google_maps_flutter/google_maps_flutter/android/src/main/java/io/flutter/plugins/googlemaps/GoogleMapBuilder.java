@@ -21,6 +21,10 @@ class GoogleMapBuilder implements GoogleMapOptionsSink {
   private boolean indoorEnabled = true;
   private boolean trafficEnabled = false;
   private boolean buildingsEnabled = true;
+  private float markerClusterGridSize = 0;
+  private float viewportVirtualizationMargin = 0;
+  private int cameraMoveMaxEventsPerSecond = 0;
+  private float cameraMoveMinDistance = 0;
   private Object initialMarkers;
   private Object initialPolygons;
   private Object initialPolylines;
@@ -42,6 +46,9 @@ class GoogleMapBuilder implements GoogleMapOptionsSink {
     controller.setTrafficEnabled(trafficEnabled);
     controller.setBuildingsEnabled(buildingsEnabled);
     controller.setTrackCameraPosition(trackCameraPosition);
+    controller.setCameraMoveThrottle(cameraMoveMaxEventsPerSecond, cameraMoveMinDistance);
+    controller.setMarkerClusterGridSize(markerClusterGridSize);
+    controller.setViewportVirtualizationMargin(viewportVirtualizationMargin);
     controller.setInitialMarkers(initialMarkers);
     controller.setInitialPolygons(initialPolygons);
     controller.setInitialPolylines(initialPolylines);
@@ -140,6 +147,22 @@ class GoogleMapBuilder implements GoogleMapOptionsSink {
     this.myLocationEnabled = myLocationEnabled;
   }
 
+  @Override
+  public void setMarkerClusterGridSize(float gridSize) {
+    this.markerClusterGridSize = gridSize;
+  }
+
+  @Override
+  public void setViewportVirtualizationMargin(float margin) {
+    this.viewportVirtualizationMargin = margin;
+  }
+
+  @Override
+  public void setCameraMoveThrottle(int maxEventsPerSecond, float minDistance) {
+    this.cameraMoveMaxEventsPerSecond = maxEventsPerSecond;
+    this.cameraMoveMinDistance = minDistance;
+  }
+
   @Override
   public void setZoomControlsEnabled(boolean zoomControlsEnabled) {
     options.zoomControlsEnabled(zoomControlsEnabled);
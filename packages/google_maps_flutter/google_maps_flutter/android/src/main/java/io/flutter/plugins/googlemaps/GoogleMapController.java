@@ -37,7 +37,6 @@ import io.flutter.plugin.common.BinaryMessenger;
 import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel;
 import io.flutter.plugin.platform.PlatformView;
-import java.io.ByteArrayOutputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -77,6 +76,9 @@ final class GoogleMapController
   private final PolylinesController polylinesController;
   private final CirclesController circlesController;
   private final TileOverlaysController tileOverlaysController;
+  private final CameraMoveThrottle cameraMoveThrottle;
+  private final ShapeSimplifier shapeSimplifier = new ShapeSimplifier();
+  private final SnapshotEncoder snapshotEncoder = new SnapshotEncoder();
   private List<Object> initialMarkers;
   private List<Object> initialPolygons;
   private List<Object> initialPolylines;
@@ -98,10 +100,19 @@ final class GoogleMapController
     methodChannel.setMethodCallHandler(this);
     this.lifecycleProvider = lifecycleProvider;
     this.markersController = new MarkersController(methodChannel);
-    this.polygonsController = new PolygonsController(methodChannel, density);
-    this.polylinesController = new PolylinesController(methodChannel, density);
+    this.polygonsController = new PolygonsController(methodChannel, density, shapeSimplifier);
+    this.polylinesController = new PolylinesController(methodChannel, density, shapeSimplifier);
     this.circlesController = new CirclesController(methodChannel, density);
-    this.tileOverlaysController = new TileOverlaysController(methodChannel);
+    this.tileOverlaysController =
+        new TileOverlaysController(methodChannel, context.getCacheDir(), id);
+    this.cameraMoveThrottle =
+        new CameraMoveThrottle(
+            new CameraMoveThrottle.Listener() {
+              @Override
+              public void onCameraMove(CameraPosition position) {
+                sendCameraMove(position);
+              }
+            });
   }
 
   @Override
@@ -144,6 +155,7 @@ final class GoogleMapController
     polylinesController.setGoogleMap(googleMap);
     circlesController.setGoogleMap(googleMap);
     tileOverlaysController.setGoogleMap(googleMap);
+    shapeSimplifier.setZoom(googleMap.getCameraPosition().zoom);
     updateInitialMarkers();
     updateInitialPolygons();
     updateInitialPolylines();
@@ -210,15 +222,17 @@ final class GoogleMapController
         {
           if (googleMap != null) {
             final MethodChannel.Result _result = result;
+            final SnapshotEncoder.Options snapshotOptions =
+                Convert.toSnapshotOptions(call.arguments());
             googleMap.snapshot(
                 new SnapshotReadyCallback() {
                   @Override
                   public void onSnapshotReady(Bitmap bitmap) {
-                    ByteArrayOutputStream stream = new ByteArrayOutputStream();
-                    bitmap.compress(Bitmap.CompressFormat.PNG, 100, stream);
-                    byte[] byteArray = stream.toByteArray();
-                    bitmap.recycle();
-                    _result.success(byteArray);
+                    if (bitmap == null) {
+                      _result.error("Snapshot failed", "The map did not provide a snapshot", null);
+                      return;
+                    }
+                    snapshotEncoder.encode(bitmap, snapshotOptions, _result);
                   }
                 });
           } else {
@@ -245,12 +259,20 @@ final class GoogleMapController
       case "markers#update":
         {
           List<Object> markersToAdd = call.argument("markersToAdd");
-          markersController.addMarkers(markersToAdd);
           List<Object> markersToChange = call.argument("markersToChange");
-          markersController.changeMarkers(markersToChange);
           List<Object> markerIdsToRemove = call.argument("markerIdsToRemove");
-          markersController.removeMarkers(markerIdsToRemove);
-          result.success(null);
+          markersController.updateMarkers(
+              markersToAdd, markersToChange, markerIdsToRemove, result);
+          break;
+        }
+      case "markers#bulkUpdate":
+        {
+          if (googleMap != null) {
+            markersController.bulkUpdateMarkers(call.arguments, result);
+          } else {
+            result.error(
+                "GoogleMap uninitialized", "bulkUpdate called prior to map initialization", null);
+          }
           break;
         }
       case "markers#showInfoWindow":
@@ -271,6 +293,38 @@ final class GoogleMapController
           markersController.isInfoWindowShown((String) markerId, result);
           break;
         }
+      case "icons#register":
+        {
+          if (googleMap == null) {
+            // Bitmap descriptors can only be created once the maps SDK is initialized.
+            result.error(
+                "GoogleMap uninitialized",
+                "registerIcons called prior to map initialization",
+                null);
+            break;
+          }
+          Map<?, ?> icons = call.argument("icons");
+          try {
+            for (Map.Entry<?, ?> icon : icons.entrySet()) {
+              BitmapDescriptorCache.register(
+                  (String) icon.getKey(), Convert.toBitmapDescriptor(icon.getValue()));
+            }
+          } catch (IllegalArgumentException e) {
+            result.error("Invalid icon", e.getMessage(), null);
+            break;
+          }
+          result.success(null);
+          break;
+        }
+      case "icons#unregister":
+        {
+          List<String> iconIds = call.argument("iconIds");
+          for (String iconId : iconIds) {
+            BitmapDescriptorCache.unregister(iconId);
+          }
+          result.success(null);
+          break;
+        }
       case "polygons#update":
         {
           List<Object> polygonsToAdd = call.argument("polygonsToAdd");
@@ -408,6 +462,12 @@ final class GoogleMapController
           result.success(null);
           break;
         }
+      case "tileOverlays#getTileCacheMetrics":
+        {
+          String tileOverlayId = call.argument("tileOverlayId");
+          result.success(tileOverlaysController.getTileCacheMetrics(tileOverlayId));
+          break;
+        }
       case "map#getTileOverlayInfo":
         {
           String tileOverlayId = call.argument("tileOverlayId");
@@ -451,13 +511,23 @@ final class GoogleMapController
     if (!trackCameraPosition) {
       return;
     }
+    cameraMoveThrottle.onCameraMove(googleMap.getCameraPosition());
+  }
+
+  private void sendCameraMove(CameraPosition position) {
     final Map<String, Object> arguments = new HashMap<>(2);
-    arguments.put("position", Convert.cameraPositionToJson(googleMap.getCameraPosition()));
+    arguments.put("position", Convert.cameraPositionToJson(position));
     methodChannel.invokeMethod("camera#onMove", arguments);
   }
 
   @Override
   public void onCameraIdle() {
+    cameraMoveThrottle.flush();
+    shapeSimplifier.setZoom(googleMap.getCameraPosition().zoom);
+    markersController.onCameraIdle();
+    polygonsController.onCameraIdle();
+    polylinesController.onCameraIdle();
+    circlesController.onCameraIdle();
     methodChannel.invokeMethod("camera#onIdle", Collections.singletonMap("map", id));
   }
 
@@ -500,6 +570,11 @@ final class GoogleMapController
     disposed = true;
     methodChannel.setMethodCallHandler(null);
     setGoogleMapListener(null);
+    markersController.dispose();
+    tileOverlaysController.dispose();
+    cameraMoveThrottle.dispose();
+    shapeSimplifier.dispose();
+    snapshotEncoder.dispose();
     destroyMapViewIfNecessary();
     Lifecycle lifecycle = lifecycleProvider.getLifecycle();
     if (lifecycle != null) {
@@ -670,6 +745,26 @@ final class GoogleMapController
     googleMap.getUiSettings().setZoomGesturesEnabled(zoomGesturesEnabled);
   }
 
+  /** Turning clustering on or off has no effect once the map has markers. */
+  @Override
+  public void setMarkerClusterGridSize(float gridSize) {
+    markersController.setClusterGridSize(gridSize);
+  }
+
+  /** Turning virtualization on or off has no effect on the kinds of objects the map already has. */
+  @Override
+  public void setViewportVirtualizationMargin(float margin) {
+    markersController.setViewportVirtualizationMargin(margin);
+    polygonsController.setViewportVirtualizationMargin(margin);
+    polylinesController.setViewportVirtualizationMargin(margin);
+    circlesController.setViewportVirtualizationMargin(margin);
+  }
+
+  @Override
+  public void setCameraMoveThrottle(int maxEventsPerSecond, float minDistance) {
+    cameraMoveThrottle.setOptions(maxEventsPerSecond, minDistance);
+  }
+
   /** This call will have no effect on already created map */
   @Override
   public void setLiteModeEnabled(boolean liteModeEnabled) {
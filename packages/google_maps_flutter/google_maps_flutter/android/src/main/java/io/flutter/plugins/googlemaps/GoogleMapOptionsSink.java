@@ -46,6 +46,12 @@ interface GoogleMapOptionsSink {
 
   void setBuildingsEnabled(boolean buildingsEnabled);
 
+  void setMarkerClusterGridSize(float gridSize);
+
+  void setCameraMoveThrottle(int maxEventsPerSecond, float minDistance);
+
+  void setViewportVirtualizationMargin(float margin);
+
   void setInitialMarkers(Object initialMarkers);
 
   void setInitialPolygons(Object initialPolygons);
@@ -0,0 +1,323 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import android.graphics.Bitmap;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Renders heatmap tiles from weighted points.
+ *
+ * <p>Every point is spread over the radius around it by a Gaussian kernel, the spread weights are
+ * summed, and the sums are colored through the gradient relative to the highest sum expected at
+ * the zoom level. Points are bucketed by a fixed grid of world cells, so that rendering a tile only
+ * visits the points near it.
+ */
+class HeatmapTileSource extends TileSource {
+  static final int DEFAULT_RADIUS = 20;
+  static final float DEFAULT_OPACITY = 0.7f;
+  static final int[] DEFAULT_GRADIENT_COLORS = {0xff66e100, 0xffff0000};
+  static final float[] DEFAULT_GRADIENT_START_POINTS = {0.2f, 1};
+  // Rendered tiles are kept in memory unless the overlay configures its own tile cache.
+  static final TileCache.Options DEFAULT_CACHE_OPTIONS =
+      new TileCache.Options(TileCache.Options.DEFAULT_MEMORY_CACHE_SIZE_BYTES, 0, 0);
+
+  // The points are bucketed in a grid of 2^GRID_LEVEL by 2^GRID_LEVEL cells over the world.
+  private static final int GRID_LEVEL = 8;
+  private static final int GRID_SIZE = 1 << GRID_LEVEL;
+  private static final int COLOR_MAP_SIZE = 1000;
+  private static final int MAX_ZOOM_LEVEL = 22;
+
+  private final int radius;
+  private final float[] kernel;
+  private final int[] colorMap;
+  // The world coordinates and weights of the points, ordered by grid cell.
+  private final double[] xs;
+  private final double[] ys;
+  private final double[] weights;
+  // The points of cell i are at cellStarts[i] up to cellStarts[i + 1].
+  private final int[] cellStarts;
+  private final double maxIntensity;
+  private final String cacheKey;
+  // The highest intensity expected at every zoom level, or 0 until it is computed.
+  private final double[] maxIntensities = new double[MAX_ZOOM_LEVEL + 1];
+
+  /**
+   * Creates a heatmap of points given as consecutive latitude, longitude and weight triples.
+   *
+   * <p>If maxIntensity is not positive, the intensity that maps to the last gradient color is
+   * estimated for every zoom level from the densest area of the heatmap.
+   */
+  HeatmapTileSource(
+      double[] points,
+      int radius,
+      int[] gradientColors,
+      float[] gradientStartPoints,
+      float opacity,
+      double maxIntensity,
+      int tileSize,
+      int maxConcurrentReads) {
+    super(tileSize, maxConcurrentReads);
+    if (gradientColors.length == 0 || gradientColors.length != gradientStartPoints.length) {
+      throw new IllegalArgumentException(
+          "A heatmap gradient needs as many start points as colors, and at least one color");
+    }
+    this.radius = Math.max(1, radius);
+    this.kernel = kernel(this.radius);
+    this.colorMap = colorMap(gradientColors, gradientStartPoints, opacity, COLOR_MAP_SIZE);
+    this.maxIntensity = maxIntensity;
+    // The points are only kept reordered, so they are summarized by their hash.
+    this.cacheKey =
+        "heatmap:"
+            + tileSize
+            + ":"
+            + points.length
+            + ":"
+            + Arrays.hashCode(points)
+            + ":"
+            + radius
+            + ":"
+            + Arrays.toString(gradientColors)
+            + ":"
+            + Arrays.toString(gradientStartPoints)
+            + ":"
+            + opacity
+            + ":"
+            + maxIntensity;
+
+    int count = points.length / 3;
+    double[] pointXs = new double[count];
+    double[] pointYs = new double[count];
+    int[] pointCells = new int[count];
+    cellStarts = new int[GRID_SIZE * GRID_SIZE + 1];
+    for (int i = 0; i < count; i++) {
+      pointXs[i] = worldX(points[3 * i + 1]);
+      pointYs[i] = worldY(points[3 * i]);
+      pointCells[i] = gridIndex(pointYs[i]) * GRID_SIZE + gridIndex(pointXs[i]);
+      cellStarts[pointCells[i] + 1]++;
+    }
+    for (int cell = 0; cell < GRID_SIZE * GRID_SIZE; cell++) {
+      cellStarts[cell + 1] += cellStarts[cell];
+    }
+    xs = new double[count];
+    ys = new double[count];
+    weights = new double[count];
+    int[] cellEnds = new int[GRID_SIZE * GRID_SIZE];
+    System.arraycopy(cellStarts, 0, cellEnds, 0, cellEnds.length);
+    for (int i = 0; i < count; i++) {
+      int index = cellEnds[pointCells[i]]++;
+      xs[index] = pointXs[i];
+      ys[index] = pointYs[i];
+      weights[index] = points[3 * i + 2];
+    }
+  }
+
+  @Override
+  String getCacheKey() {
+    return cacheKey;
+  }
+
+  @Nullable
+  @Override
+  byte[] readTile(int x, int y, int zoom) {
+    int[] pixels = renderTile(x, y, zoom);
+    if (pixels == null) {
+      return null;
+    }
+    Bitmap bitmap = Bitmap.createBitmap(pixels, tileSize, tileSize, Bitmap.Config.ARGB_8888);
+    ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    bitmap.compress(Bitmap.CompressFormat.PNG, 100, stream);
+    bitmap.recycle();
+    return stream.toByteArray();
+  }
+
+  /** Returns the ARGB pixels of a tile, or null if no point is near the tile. */
+  @Nullable
+  @VisibleForTesting
+  int[] renderTile(int x, int y, int zoom) {
+    double scale = (double) tileSize * (1L << zoom);
+    // The weights bucketed by pixel, over the tile grown by the radius on every side.
+    int bucketsSize = tileSize + 2 * radius;
+    float[] buckets =
+        bucketWeights(
+            (long) x * tileSize - radius, (long) y * tileSize - radius, bucketsSize, scale);
+    if (buckets == null) {
+      return null;
+    }
+
+    // Spreads the buckets horizontally, keeping only the tile's columns.
+    float[] rows = new float[bucketsSize * tileSize];
+    for (int row = 0; row < bucketsSize; row++) {
+      for (int column = 0; column < bucketsSize; column++) {
+        float weight = buckets[row * bucketsSize + column];
+        if (weight == 0) {
+          continue;
+        }
+        int first = Math.max(0, column - 2 * radius);
+        int last = Math.min(tileSize - 1, column);
+        for (int target = first; target <= last; target++) {
+          rows[row * tileSize + target] += weight * kernel[column - target];
+        }
+      }
+    }
+
+    // Spreads the rows vertically and colors the result.
+    double intensityScale = (COLOR_MAP_SIZE - 1) / maxIntensity(zoom);
+    int[] pixels = new int[tileSize * tileSize];
+    for (int column = 0; column < tileSize; column++) {
+      for (int row = 0; row < tileSize; row++) {
+        double intensity = 0;
+        for (int k = 0; k <= 2 * radius; k++) {
+          intensity += rows[(row + k) * tileSize + column] * kernel[k];
+        }
+        if (intensity > 0) {
+          int color = (int) Math.min(COLOR_MAP_SIZE - 1, intensity * intensityScale);
+          pixels[row * tileSize + column] = colorMap[color];
+        }
+      }
+    }
+    return pixels;
+  }
+
+  /**
+   * Returns the weights of the points in the square of size pixels at the given world pixel
+   * offsets, bucketed by pixel, or null if there are no such points.
+   */
+  @Nullable
+  private float[] bucketWeights(long left, long top, int size, double scale) {
+    double minX = left / scale;
+    double maxX = (left + size) / scale;
+    double minY = Math.max(0, top / scale);
+    double maxY = Math.min(1, (top + size) / scale);
+    if (minY >= maxY) {
+      return null;
+    }
+    float[] buckets = null;
+    int firstRow = gridIndex(minY);
+    int lastRow = gridIndex(maxY);
+    // Columns outside of the world wrap around the antimeridian.
+    long firstColumn = (long) Math.floor(minX * GRID_SIZE);
+    long lastColumn = (long) Math.floor(maxX * GRID_SIZE);
+    for (long column = firstColumn; column <= lastColumn; column++) {
+      int wrappedColumn = (int) (((column % GRID_SIZE) + GRID_SIZE) % GRID_SIZE);
+      double offset = Math.floor((double) column / GRID_SIZE);
+      for (int row = firstRow; row <= lastRow; row++) {
+        int cell = row * GRID_SIZE + wrappedColumn;
+        for (int i = cellStarts[cell]; i < cellStarts[cell + 1]; i++) {
+          int bucketX = (int) Math.floor((xs[i] + offset) * scale - left);
+          int bucketY = (int) Math.floor(ys[i] * scale - top);
+          if (bucketX < 0 || bucketX >= size || bucketY < 0 || bucketY >= size) {
+            continue;
+          }
+          if (buckets == null) {
+            buckets = new float[size * size];
+          }
+          buckets[bucketY * size + bucketX] += weights[i];
+        }
+      }
+    }
+    return buckets;
+  }
+
+  /**
+   * Returns the intensity colored with the last gradient color at zoom: the highest sum of the
+   * weights in a square of the radius's size.
+   */
+  private double maxIntensity(int zoom) {
+    if (maxIntensity > 0) {
+      return maxIntensity;
+    }
+    int zoomLevel = Math.min(zoom, MAX_ZOOM_LEVEL);
+    synchronized (maxIntensities) {
+      if (maxIntensities[zoomLevel] > 0) {
+        return maxIntensities[zoomLevel];
+      }
+      double cellsPerWorld = (double) tileSize * (1L << zoomLevel) / radius;
+      Map<Long, Double> sums = new HashMap<>();
+      double max = 0;
+      for (int i = 0; i < xs.length; i++) {
+        long key =
+            ((long) Math.floor(xs[i] * cellsPerWorld) << 32)
+                | ((long) Math.floor(ys[i] * cellsPerWorld) & 0xffffffffL);
+        Double previous = sums.get(key);
+        double sum = (previous != null ? previous : 0) + weights[i];
+        sums.put(key, sum);
+        max = Math.max(max, sum);
+      }
+      maxIntensities[zoomLevel] = max > 0 ? max : 1;
+      return maxIntensities[zoomLevel];
+    }
+  }
+
+  /** Returns the Gaussian weights at offsets -radius to radius, with a peak of 1. */
+  @VisibleForTesting
+  static float[] kernel(int radius) {
+    float[] kernel = new float[2 * radius + 1];
+    double sigma = radius / 3.0;
+    for (int i = -radius; i <= radius; i++) {
+      kernel[i + radius] = (float) Math.exp(-i * i / (2 * sigma * sigma));
+    }
+    return kernel;
+  }
+
+  /**
+   * Returns size ARGB colors going through the gradient colors at their start points, starting
+   * from a transparent first color, with the alpha scaled by opacity.
+   */
+  @VisibleForTesting
+  static int[] colorMap(int[] colors, float[] startPoints, float opacity, int size) {
+    int[] colorMap = new int[size];
+    for (int i = 0; i < size; i++) {
+      float fraction = (float) i / (size - 1);
+      int from = colors[0] & 0x00ffffff;
+      int to = colors[0];
+      float segmentStart = 0;
+      float segmentEnd = startPoints[0];
+      for (int j = 1; j < colors.length && fraction > startPoints[j - 1]; j++) {
+        from = colors[j - 1];
+        to = colors[j];
+        segmentStart = startPoints[j - 1];
+        segmentEnd = startPoints[j];
+      }
+      float ratio =
+          segmentEnd > segmentStart
+              ? Math.min(1, Math.max(0, (fraction - segmentStart) / (segmentEnd - segmentStart)))
+              : 1;
+      int color = interpolate(from, to, ratio);
+      int alpha = Math.round((color >>> 24) * opacity);
+      colorMap[i] = (alpha << 24) | (color & 0x00ffffff);
+    }
+    return colorMap;
+  }
+
+  private static int interpolate(int from, int to, float ratio) {
+    int color = 0;
+    for (int shift = 0; shift < 32; shift += 8) {
+      int a = (from >>> shift) & 0xff;
+      int b = (to >>> shift) & 0xff;
+      color |= Math.round(a + (b - a) * ratio) << shift;
+    }
+    return color;
+  }
+
+  private static double worldX(double longitude) {
+    double x = (longitude + 180) / 360;
+    return x - Math.floor(x);
+  }
+
+  private static double worldY(double latitude) {
+    double sinLatitude = Math.min(Math.max(Math.sin(Math.toRadians(latitude)), -0.9999), 0.9999);
+    return 0.5 - Math.log((1 + sinLatitude) / (1 - sinLatitude)) / (4 * Math.PI);
+  }
+
+  private static int gridIndex(double coordinate) {
+    return Math.max(0, Math.min(GRID_SIZE - 1, (int) Math.floor(coordinate * GRID_SIZE)));
+  }
+}
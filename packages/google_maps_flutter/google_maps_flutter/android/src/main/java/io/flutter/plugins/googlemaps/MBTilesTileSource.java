@@ -0,0 +1,93 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import java.io.IOException;
+
+/**
+ * Reads tiles from an MBTiles file, the SQLite format described at
+ * https://github.com/mapbox/mbtiles-spec.
+ *
+ * <p>The database is opened read-only on the first read.
+ */
+class MBTilesTileSource extends TileSource {
+  private static final String TILE_QUERY =
+      "SELECT tile_data FROM tiles WHERE zoom_level = ? AND tile_column = ? AND tile_row = ?";
+
+  private final String path;
+  private SQLiteDatabase database;
+  private boolean closed;
+
+  MBTilesTileSource(String path, int tileSize, int maxConcurrentReads) {
+    super(tileSize, maxConcurrentReads);
+    this.path = path;
+  }
+
+  @Override
+  String getCacheKey() {
+    return "mbtiles:" + tileSize + ":" + path;
+  }
+
+  @Nullable
+  @Override
+  byte[] readTile(int x, int y, int zoom) throws IOException {
+    SQLiteDatabase database = getDatabase();
+    if (database == null) {
+      return null;
+    }
+    Cursor cursor = null;
+    try {
+      cursor =
+          database.rawQuery(
+              TILE_QUERY,
+              new String[] {
+                String.valueOf(zoom), String.valueOf(x), String.valueOf(tmsRow(y, zoom))
+              });
+      return cursor.moveToFirst() ? cursor.getBlob(0) : null;
+    } catch (SQLiteException e) {
+      throw new IOException("Can't read tile from " + path, e);
+    } finally {
+      if (cursor != null) {
+        cursor.close();
+      }
+    }
+  }
+
+  @Override
+  synchronized void close() {
+    closed = true;
+    if (database != null) {
+      database.close();
+      database = null;
+    }
+  }
+
+  private synchronized SQLiteDatabase getDatabase() throws IOException {
+    if (closed) {
+      return null;
+    }
+    if (database == null) {
+      try {
+        database =
+            SQLiteDatabase.openDatabase(
+                path, null, SQLiteDatabase.OPEN_READONLY | SQLiteDatabase.NO_LOCALIZED_COLLATORS);
+      } catch (SQLiteException e) {
+        throw new IOException("Can't open " + path, e);
+      }
+    }
+    return database;
+  }
+
+  /** MBTiles numbers rows from the south, as in the TMS specification. */
+  @VisibleForTesting
+  static int tmsRow(int y, int zoom) {
+    return (1 << zoom) - 1 - y;
+  }
+}
@@ -16,6 +16,11 @@ class MarkerBuilder implements MarkerOptionsSink {
     this.markerOptions = new MarkerOptions();
   }
 
+  MarkerBuilder(MarkerOptions markerOptions, boolean consumeTapEvents) {
+    this.markerOptions = markerOptions;
+    this.consumeTapEvents = consumeTapEvents;
+  }
+
   MarkerOptions build() {
     return markerOptions;
   }
@@ -0,0 +1,310 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import android.os.Handler;
+import android.os.Looper;
+import androidx.annotation.VisibleForTesting;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.MarkerOptions;
+import io.flutter.plugin.common.MethodChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies markers sent in the packed bulk format without stalling the platform thread.
+ *
+ * <p>A bulk update carries a small table of shared marker styles and, for the markers to add and
+ * to change, a list of marker ids, a flat array of latitude/longitude pairs and an optional array
+ * of indices into the style table:
+ *
+ * <pre>
+ * {
+ *   "styles": [{...marker options without markerId and position...}, ...],
+ *   "markersToAdd": {"markerIds": [...], "positions": Float64List, "styleIndices": Int32List},
+ *   "markersToChange": {"markerIds": [...], "positions": Float64List, "styleIndices": Int32List},
+ *   "markerIdsToRemove": [...]
+ * }
+ * </pre>
+ *
+ * <p>Styles are interpreted once and every {@link MarkerOptions} is built on a background thread.
+ * The decoded markers are then applied to the map on the platform thread in slices of at most
+ * {@link #SLICE_BUDGET_NANOS}, so frames keep being rendered while thousands of markers load.
+ * Bulk updates are applied in the order they were received, and the result of each one is only
+ * sent once all of its markers are on the map. Plain marker updates received meanwhile are queued
+ * through {@link #enqueue}, so they can't be undone by an earlier bulk update applied after them.
+ */
+class MarkerBulkLoader {
+  @VisibleForTesting static final long SLICE_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(8);
+
+  private final MarkersController markersController;
+  private final ExecutorService decodeExecutor;
+  private final Executor platformThreadExecutor;
+  // Only accessed on the platform thread.
+  private final ArrayDeque<Job> jobs = new ArrayDeque<>();
+  private boolean applying;
+  private boolean disposed;
+
+  MarkerBulkLoader(MarkersController markersController) {
+    this(markersController, Executors.newSingleThreadExecutor(), createPlatformThreadExecutor());
+  }
+
+  @VisibleForTesting
+  MarkerBulkLoader(
+      MarkersController markersController,
+      ExecutorService decodeExecutor,
+      Executor platformThreadExecutor) {
+    this.markersController = markersController;
+    this.decodeExecutor = decodeExecutor;
+    this.platformThreadExecutor = platformThreadExecutor;
+  }
+
+  private static Executor createPlatformThreadExecutor() {
+    final Handler handler = new Handler(Looper.getMainLooper());
+    return new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        handler.post(command);
+      }
+    };
+  }
+
+  /** Decodes and applies the bulk update in arguments, then completes result. */
+  void load(Object arguments, MethodChannel.Result result) {
+    final Job job = new Job(arguments, result);
+    jobs.add(job);
+    decodeExecutor.execute(
+        new Runnable() {
+          @Override
+          public void run() {
+            try {
+              job.batch = decode(job.arguments);
+            } catch (RuntimeException e) {
+              job.error = e;
+            }
+            platformThreadExecutor.execute(
+                new Runnable() {
+                  @Override
+                  public void run() {
+                    job.decoded = true;
+                    applyNextJob();
+                  }
+                });
+          }
+        });
+  }
+
+  /**
+   * Runs update once every update received before it has been applied, then completes result. Runs
+   * it right away if no update is pending.
+   */
+  void enqueue(Runnable update, MethodChannel.Result result) {
+    Job job = new Job(update, result);
+    job.decoded = true;
+    jobs.add(job);
+    applyNextJob();
+  }
+
+  /** Fails every pending update and stops decoding. */
+  void dispose() {
+    disposed = true;
+    for (Job job : jobs) {
+      job.result.error(
+          "GoogleMap disposed", "The map was disposed before the markers were updated", null);
+    }
+    jobs.clear();
+    decodeExecutor.shutdownNow();
+  }
+
+  private void applyNextJob() {
+    if (disposed || applying) {
+      return;
+    }
+    Job job = jobs.peek();
+    if (job == null || !job.decoded) {
+      return;
+    }
+    if (job.error != null) {
+      jobs.poll();
+      job.result.error("Invalid markers", job.error.getMessage(), null);
+      applyNextJob();
+      return;
+    }
+    if (job.update != null) {
+      jobs.poll();
+      job.update.run();
+      job.result.success(null);
+      applyNextJob();
+      return;
+    }
+    applying = true;
+    markersController.removeMarkers(job.batch.markerIdsToRemove);
+    applySlice(job);
+  }
+
+  private void applySlice(final Job job) {
+    if (disposed) {
+      return;
+    }
+    List<Update> updates = job.batch.updates;
+    long deadline = System.nanoTime() + SLICE_BUDGET_NANOS;
+    while (job.next < updates.size() && System.nanoTime() < deadline) {
+      apply(updates.get(job.next++));
+    }
+    if (job.next < updates.size()) {
+      // Posting the rest lets the pending frame render before the next slice.
+      platformThreadExecutor.execute(
+          new Runnable() {
+            @Override
+            public void run() {
+              applySlice(job);
+            }
+          });
+      return;
+    }
+    jobs.poll();
+    applying = false;
+    job.result.success(null);
+    applyNextJob();
+  }
+
+  private void apply(Update update) {
+    if (update.options != null) {
+      markersController.addMarker(update.markerId, update.options, update.consumeTapEvents);
+      return;
+    }
+    MarkerOptionsSink sink = markersController.getMarkerOptionsSink(update.markerId);
+    if (sink != null) {
+      update.style.applyTo(sink);
+      sink.setPosition(update.position);
+    }
+  }
+
+  @VisibleForTesting
+  static Batch decode(Object arguments) {
+    final Map<?, ?> data = (Map<?, ?>) arguments;
+    final List<?> rawStyles = (List<?>) data.get("styles");
+    final MarkerStyle[] styles;
+    if (rawStyles == null || rawStyles.isEmpty()) {
+      styles = new MarkerStyle[] {new MarkerStyle()};
+    } else {
+      styles = new MarkerStyle[rawStyles.size()];
+      for (int i = 0; i < styles.length; i++) {
+        styles[i] = MarkerStyle.fromJson(rawStyles.get(i));
+      }
+    }
+    final List<Update> updates = new ArrayList<>();
+    decodeMarkers(data.get("markersToAdd"), styles, true, updates);
+    decodeMarkers(data.get("markersToChange"), styles, false, updates);
+    @SuppressWarnings("unchecked")
+    final List<Object> markerIdsToRemove = (List<Object>) data.get("markerIdsToRemove");
+    return new Batch(markerIdsToRemove, updates);
+  }
+
+  private static void decodeMarkers(
+      Object o, MarkerStyle[] styles, boolean isNew, List<Update> updates) {
+    if (o == null) {
+      return;
+    }
+    final Map<?, ?> data = (Map<?, ?>) o;
+    final List<?> markerIds = (List<?>) data.get("markerIds");
+    final double[] positions = (double[]) data.get("positions");
+    final int[] styleIndices = (int[]) data.get("styleIndices");
+    final int count = markerIds.size();
+    if (positions == null || positions.length != count * 2) {
+      throw new IllegalArgumentException("Expected a latitude and a longitude for every marker");
+    }
+    if (styleIndices != null && styleIndices.length != count) {
+      throw new IllegalArgumentException("Expected a style index for every marker");
+    }
+    for (int i = 0; i < count; i++) {
+      final String markerId = (String) markerIds.get(i);
+      if (markerId == null) {
+        throw new IllegalArgumentException("markerId was null");
+      }
+      final int styleIndex = styleIndices != null ? styleIndices[i] : 0;
+      if (styleIndex < 0 || styleIndex >= styles.length) {
+        throw new IllegalArgumentException("Invalid style index " + styleIndex);
+      }
+      final MarkerStyle style = styles[styleIndex];
+      final LatLng position = new LatLng(positions[2 * i], positions[2 * i + 1]);
+      if (isNew) {
+        MarkerBuilder markerBuilder = new MarkerBuilder();
+        style.applyTo(markerBuilder);
+        markerBuilder.setPosition(position);
+        MarkerOptions options = markerBuilder.build();
+        updates.add(
+            new Update(markerId, style, position, options, markerBuilder.consumeTapEvents()));
+      } else {
+        updates.add(new Update(markerId, style, position, null, false));
+      }
+    }
+  }
+
+  /** A decoded bulk update. */
+  @VisibleForTesting
+  static final class Batch {
+    final List<Object> markerIdsToRemove;
+    final List<Update> updates;
+
+    Batch(List<Object> markerIdsToRemove, List<Update> updates) {
+      this.markerIdsToRemove = markerIdsToRemove;
+      this.updates = updates;
+    }
+  }
+
+  /** A single marker to add, when options is set, or to change. */
+  @VisibleForTesting
+  static final class Update {
+    final String markerId;
+    final MarkerStyle style;
+    final LatLng position;
+    final MarkerOptions options;
+    final boolean consumeTapEvents;
+
+    Update(
+        String markerId,
+        MarkerStyle style,
+        LatLng position,
+        MarkerOptions options,
+        boolean consumeTapEvents) {
+      this.markerId = markerId;
+      this.style = style;
+      this.position = position;
+      this.options = options;
+      this.consumeTapEvents = consumeTapEvents;
+    }
+  }
+
+  /** A bulk update to decode and apply, or a plain update to run, when update is set. */
+  private static final class Job {
+    final Object arguments;
+    final Runnable update;
+    final MethodChannel.Result result;
+    // Written on the decode thread before decoded is set on the platform thread.
+    volatile Batch batch;
+    volatile RuntimeException error;
+    boolean decoded;
+    int next;
+
+    Job(Object arguments, MethodChannel.Result result) {
+      this.arguments = arguments;
+      this.update = null;
+      this.result = result;
+    }
+
+    Job(Runnable update, MethodChannel.Result result) {
+      this.arguments = null;
+      this.update = update;
+      this.result = result;
+    }
+  }
+}
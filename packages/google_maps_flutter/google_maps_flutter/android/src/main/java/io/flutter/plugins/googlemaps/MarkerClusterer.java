@@ -0,0 +1,530 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.os.Handler;
+import android.os.Looper;
+import androidx.annotation.VisibleForTesting;
+import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.BitmapDescriptor;
+import com.google.android.gms.maps.model.BitmapDescriptorFactory;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+import com.google.android.gms.maps.model.Marker;
+import com.google.android.gms.maps.model.MarkerOptions;
+import io.flutter.plugin.common.MethodChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Groups nearby markers into clusters so that only the visible clusters and single markers are
+ * added to the map.
+ *
+ * <p>Every marker is kept here as options only. The background thread keeps an index of the
+ * positions of the visible markers, to which only the positions changed since the previous pass are
+ * sent. Whenever the camera becomes idle or the markers change, the markers in and around the
+ * visible region are bucketed on that thread into a grid of square cells of {@code gridSize}
+ * logical pixels at the current zoom level. Cells holding a single marker are materialized as that
+ * marker through the {@link MarkersController}, and every other cell is shown as one cluster marker
+ * labelled with its size. Taps on cluster markers are sent to Dart as {@code cluster#onTap}.
+ */
+class MarkerClusterer {
+  // The size of the whole world at zoom level 0, in logical pixels.
+  private static final double WORLD_SIZE = 256;
+  private static final int CLUSTER_COLOR = 0xFF1A73E8;
+  private static final float CLUSTER_ICON_SIZE = 40;
+  private static final float CLUSTER_TEXT_SIZE = 14;
+
+  private final MarkersController markersController;
+  private final MethodChannel methodChannel;
+  private final ExecutorService clusteringExecutor = Executors.newSingleThreadExecutor();
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private final Map<String, MarkerItem> items = new HashMap<>();
+  private final Set<String> materializedMarkerIds = new HashSet<>();
+  private final Map<String, ClusterMarker> clusterMarkers = new HashMap<>();
+  private final Map<String, String> googleMapsMarkerIdToClusterKey = new HashMap<>();
+  private final Map<String, BitmapDescriptor> clusterIcons = new HashMap<>();
+  // Only used on the clustering thread.
+  private final PositionIndex positionIndex = new PositionIndex();
+  // Positions changed since the last clustering pass, null for markers to drop from the index.
+  private Map<String, LatLng> changedPositions = new LinkedHashMap<>();
+  private GoogleMap googleMap;
+  private float gridSize;
+  private int generation;
+  private boolean clusteringScheduled;
+  private boolean disposed;
+
+  MarkerClusterer(MarkersController markersController, MethodChannel methodChannel) {
+    this.markersController = markersController;
+    this.methodChannel = methodChannel;
+  }
+
+  void setGoogleMap(GoogleMap googleMap) {
+    this.googleMap = googleMap;
+    scheduleClustering();
+  }
+
+  void setGridSize(float gridSize) {
+    this.gridSize = gridSize;
+    scheduleClustering();
+  }
+
+  boolean isEmpty() {
+    return items.isEmpty();
+  }
+
+  void addItem(final String markerId, MarkerOptions markerOptions, boolean consumeTapEvents) {
+    removeItem(markerId);
+    final MarkerBuilder markerBuilder = new MarkerBuilder(markerOptions, consumeTapEvents);
+    items.put(
+        markerId,
+        new MarkerItem(
+            markerId,
+            markerBuilder,
+            markersController,
+            new Runnable() {
+              @Override
+              public void run() {
+                onPositionChanged(markerId, markerBuilder.build());
+              }
+            }));
+    onPositionChanged(markerId, markerOptions);
+  }
+
+  /** Returns the sink to apply changes of the marker to, or null if there is no such marker. */
+  MarkerOptionsSink getItem(String markerId) {
+    return items.get(markerId);
+  }
+
+  void removeItem(String markerId) {
+    if (items.remove(markerId) == null) {
+      return;
+    }
+    if (materializedMarkerIds.remove(markerId)) {
+      markersController.removeMaterializedMarker(markerId);
+    }
+    changedPositions.put(markerId, null);
+    scheduleClustering();
+  }
+
+  /** Records the new position of a materialized marker that was dragged. */
+  void onMarkerDragEnd(String markerId, LatLng position) {
+    MarkerItem item = items.get(markerId);
+    if (item != null) {
+      item.markerBuilder.setPosition(position);
+      onPositionChanged(markerId, item.markerBuilder.build());
+    }
+  }
+
+  /** Records the position to index for the marker, which is only indexed while visible. */
+  private void onPositionChanged(String markerId, MarkerOptions options) {
+    changedPositions.put(markerId, options.isVisible() ? options.getPosition() : null);
+    scheduleClustering();
+  }
+
+  /** Returns true if googleMarkerId is a cluster marker, after notifying Dart of the tap. */
+  boolean onMarkerTap(String googleMarkerId) {
+    String clusterKey = googleMapsMarkerIdToClusterKey.get(googleMarkerId);
+    if (clusterKey == null) {
+      return false;
+    }
+    Cluster cluster = clusterMarkers.get(clusterKey).cluster;
+    final Map<String, Object> data = new HashMap<>();
+    data.put("position", Convert.latLngToJson(new LatLng(cluster.latitude, cluster.longitude)));
+    data.put(
+        "bounds",
+        Convert.latlngBoundsToJson(
+            new LatLngBounds(
+                new LatLng(cluster.south, cluster.west),
+                new LatLng(cluster.north, cluster.east))));
+    data.put("markerIds", cluster.markerIds);
+    methodChannel.invokeMethod("cluster#onTap", data);
+    return true;
+  }
+
+  void dispose() {
+    disposed = true;
+    clusteringExecutor.shutdownNow();
+    handler.removeCallbacksAndMessages(null);
+  }
+
+  /** Coalesces every change made during the current message into a single clustering pass. */
+  private void scheduleClustering() {
+    if (clusteringScheduled || googleMap == null) {
+      return;
+    }
+    clusteringScheduled = true;
+    handler.post(
+        new Runnable() {
+          @Override
+          public void run() {
+            clusteringScheduled = false;
+            cluster();
+          }
+        });
+  }
+
+  /** Recomputes the clusters for the current camera position. */
+  void cluster() {
+    if (googleMap == null || disposed) {
+      return;
+    }
+    final int clusteringGeneration = ++generation;
+    final float zoom = googleMap.getCameraPosition().zoom;
+    final LatLngBounds visibleBounds =
+        googleMap.getProjection().getVisibleRegion().latLngBounds;
+    final double cellSize = gridSize;
+    final Map<String, LatLng> changes = changedPositions;
+    changedPositions = new LinkedHashMap<>();
+    clusteringExecutor.execute(
+        new Runnable() {
+          @Override
+          public void run() {
+            positionIndex.apply(changes);
+            final List<Cluster> clusters =
+                computeClusters(
+                    positionIndex.markerIds,
+                    positionIndex.latitudes,
+                    positionIndex.longitudes,
+                    positionIndex.size,
+                    visibleBounds.southwest.latitude,
+                    visibleBounds.southwest.longitude,
+                    visibleBounds.northeast.latitude,
+                    visibleBounds.northeast.longitude,
+                    zoom,
+                    cellSize);
+            handler.post(
+                new Runnable() {
+                  @Override
+                  public void run() {
+                    if (!disposed && clusteringGeneration == generation) {
+                      render(clusters);
+                    }
+                  }
+                });
+          }
+        });
+  }
+
+  private void render(List<Cluster> clusters) {
+    Set<String> singleMarkerIds = new HashSet<>();
+    Map<String, Cluster> newClusters = new HashMap<>();
+    for (Cluster cluster : clusters) {
+      if (cluster.markerIds.size() == 1) {
+        singleMarkerIds.add(cluster.markerIds.get(0));
+      } else {
+        newClusters.put(cluster.key, cluster);
+      }
+    }
+
+    Iterator<String> materialized = materializedMarkerIds.iterator();
+    while (materialized.hasNext()) {
+      String markerId = materialized.next();
+      if (!singleMarkerIds.contains(markerId)) {
+        markersController.removeMaterializedMarker(markerId);
+        materialized.remove();
+      }
+    }
+    for (String markerId : singleMarkerIds) {
+      MarkerItem item = items.get(markerId);
+      if (item != null && materializedMarkerIds.add(markerId)) {
+        markersController.materializeMarker(
+            markerId, item.markerBuilder.build(), item.markerBuilder.consumeTapEvents());
+      }
+    }
+
+    Iterator<Map.Entry<String, ClusterMarker>> shown = clusterMarkers.entrySet().iterator();
+    while (shown.hasNext()) {
+      Map.Entry<String, ClusterMarker> entry = shown.next();
+      Cluster cluster = newClusters.remove(entry.getKey());
+      if (cluster != null) {
+        // Same cell and size as before: keep the marker, but refresh the members, which may have
+        // moved the center of the cluster.
+        entry.getValue().cluster = cluster;
+        entry.getValue().marker.setPosition(new LatLng(cluster.latitude, cluster.longitude));
+        continue;
+      }
+      Marker marker = entry.getValue().marker;
+      googleMapsMarkerIdToClusterKey.remove(marker.getId());
+      marker.remove();
+      shown.remove();
+    }
+    for (Cluster cluster : newClusters.values()) {
+      Marker marker =
+          googleMap.addMarker(
+              new MarkerOptions()
+                  .position(new LatLng(cluster.latitude, cluster.longitude))
+                  .anchor(0.5f, 0.5f)
+                  .icon(clusterIcon(cluster.markerIds.size())));
+      clusterMarkers.put(cluster.key, new ClusterMarker(marker, cluster));
+      googleMapsMarkerIdToClusterKey.put(marker.getId(), cluster.key);
+    }
+  }
+
+  private BitmapDescriptor clusterIcon(int size) {
+    String label = clusterLabel(size);
+    BitmapDescriptor icon = clusterIcons.get(label);
+    if (icon != null) {
+      return icon;
+    }
+    float density = Resources.getSystem().getDisplayMetrics().density;
+    int iconSize = (int) (CLUSTER_ICON_SIZE * density);
+    Bitmap bitmap = Bitmap.createBitmap(iconSize, iconSize, Bitmap.Config.ARGB_8888);
+    Canvas canvas = new Canvas(bitmap);
+    Paint circlePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    circlePaint.setColor(0xFFFFFFFF);
+    canvas.drawCircle(iconSize / 2f, iconSize / 2f, iconSize / 2f, circlePaint);
+    circlePaint.setColor(CLUSTER_COLOR);
+    canvas.drawCircle(iconSize / 2f, iconSize / 2f, iconSize / 2f - 2 * density, circlePaint);
+    Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    textPaint.setColor(0xFFFFFFFF);
+    textPaint.setFakeBoldText(true);
+    textPaint.setTextAlign(Paint.Align.CENTER);
+    textPaint.setTextSize(CLUSTER_TEXT_SIZE * density);
+    float baseline = iconSize / 2f - (textPaint.descent() + textPaint.ascent()) / 2f;
+    canvas.drawText(label, iconSize / 2f, baseline, textPaint);
+    icon = BitmapDescriptorFactory.fromBitmap(bitmap);
+    bitmap.recycle();
+    clusterIcons.put(label, icon);
+    return icon;
+  }
+
+  /** Rounds large cluster sizes down so that a handful of icons serves every cluster. */
+  @VisibleForTesting
+  static String clusterLabel(int size) {
+    if (size < 10) {
+      return String.valueOf(size);
+    } else if (size < 100) {
+      return (size / 10 * 10) + "+";
+    } else if (size < 1000) {
+      return (size / 100 * 100) + "+";
+    } else {
+      return (size / 1000) + "k+";
+    }
+  }
+
+  /**
+   * Buckets the first count markers into a grid of cells of cellSize logical pixels at the given
+   * zoom level.
+   *
+   * <p>Only markers within the visible bounds, extended by half their size in every direction so
+   * that panning does not immediately reveal unclustered space, are considered.
+   */
+  @VisibleForTesting
+  static List<Cluster> computeClusters(
+      String[] markerIds,
+      double[] latitudes,
+      double[] longitudes,
+      int count,
+      double south,
+      double west,
+      double north,
+      double east,
+      float zoom,
+      double cellSize) {
+    double latitudeMargin = (north - south) / 2;
+    double longitudeSpan = east >= west ? east - west : east + 360 - west;
+    double longitudeMargin = longitudeSpan / 2;
+    double minLatitude = south - latitudeMargin;
+    double maxLatitude = north + latitudeMargin;
+    double worldSize = WORLD_SIZE * Math.pow(2, zoom);
+    boolean wholeWorld = longitudeSpan + 2 * longitudeMargin >= 360;
+
+    Map<String, ClusterBuilder> cells = new LinkedHashMap<>();
+    for (int i = 0; i < count; i++) {
+      double latitude = latitudes[i];
+      double longitude = longitudes[i];
+      if (latitude < minLatitude || latitude > maxLatitude) {
+        continue;
+      }
+      if (!wholeWorld
+          && !isWithinLongitudes(longitude, west - longitudeMargin, east + longitudeMargin)) {
+        continue;
+      }
+      double x = (longitude + 180) / 360 * worldSize;
+      double sinLatitude = Math.min(Math.max(Math.sin(Math.toRadians(latitude)), -0.9999), 0.9999);
+      double y =
+          (0.5 - Math.log((1 + sinLatitude) / (1 - sinLatitude)) / (4 * Math.PI)) * worldSize;
+      // Cells of different zoom levels cover different areas, so the zoom is part of the key.
+      String key =
+          (int) zoom
+              + ":"
+              + (long) Math.floor(x / cellSize)
+              + ":"
+              + (long) Math.floor(y / cellSize);
+      ClusterBuilder cell = cells.get(key);
+      if (cell == null) {
+        cell = new ClusterBuilder(key);
+        cells.put(key, cell);
+      }
+      cell.add(markerIds[i], latitude, longitude);
+    }
+
+    List<Cluster> clusters = new ArrayList<>(cells.size());
+    for (ClusterBuilder cell : cells.values()) {
+      clusters.add(cell.build());
+    }
+    return clusters;
+  }
+
+  private static boolean isWithinLongitudes(double longitude, double west, double east) {
+    // Normalize everything relative to west so that ranges crossing the antimeridian work.
+    double offset = ((longitude - west) % 360 + 360) % 360;
+    double span = ((east - west) % 360 + 360) % 360;
+    return offset <= span;
+  }
+
+  /**
+   * The positions of the markers to cluster, in arrays that are updated in place and can be passed
+   * to {@link #computeClusters}.
+   */
+  @VisibleForTesting
+  static final class PositionIndex {
+    private final Map<String, Integer> slots = new HashMap<>();
+    String[] markerIds = new String[16];
+    double[] latitudes = new double[16];
+    double[] longitudes = new double[16];
+    int size;
+
+    /** Indexes the markers with a position in changes, and drops those with null. */
+    void apply(Map<String, LatLng> changes) {
+      for (Map.Entry<String, LatLng> change : changes.entrySet()) {
+        LatLng position = change.getValue();
+        if (position == null) {
+          remove(change.getKey());
+        } else {
+          put(change.getKey(), position.latitude, position.longitude);
+        }
+      }
+    }
+
+    private void put(String markerId, double latitude, double longitude) {
+      Integer slot = slots.get(markerId);
+      if (slot == null) {
+        if (size == markerIds.length) {
+          int capacity = size * 2;
+          markerIds = Arrays.copyOf(markerIds, capacity);
+          latitudes = Arrays.copyOf(latitudes, capacity);
+          longitudes = Arrays.copyOf(longitudes, capacity);
+        }
+        slot = size++;
+        slots.put(markerId, slot);
+        markerIds[slot] = markerId;
+      }
+      latitudes[slot] = latitude;
+      longitudes[slot] = longitude;
+    }
+
+    private void remove(String markerId) {
+      Integer slot = slots.remove(markerId);
+      if (slot == null) {
+        return;
+      }
+      // Moves the last marker into the freed slot to keep the arrays dense.
+      int last = --size;
+      if (slot != last) {
+        markerIds[slot] = markerIds[last];
+        latitudes[slot] = latitudes[last];
+        longitudes[slot] = longitudes[last];
+        slots.put(markerIds[slot], slot);
+      }
+      markerIds[last] = null;
+    }
+  }
+
+  /** A group of markers that fall into the same grid cell. */
+  @VisibleForTesting
+  static final class Cluster {
+    final String key;
+    final double latitude;
+    final double longitude;
+    final double south;
+    final double west;
+    final double north;
+    final double east;
+    final List<String> markerIds;
+
+    Cluster(
+        String key,
+        double latitude,
+        double longitude,
+        double south,
+        double west,
+        double north,
+        double east,
+        List<String> markerIds) {
+      this.key = key;
+      this.latitude = latitude;
+      this.longitude = longitude;
+      this.south = south;
+      this.west = west;
+      this.north = north;
+      this.east = east;
+      this.markerIds = markerIds;
+    }
+  }
+
+  private static final class ClusterBuilder {
+    private final String cellKey;
+    private final List<String> markerIds = new ArrayList<>();
+    private double latitudeSum;
+    private double longitudeSum;
+    private double south = Double.MAX_VALUE;
+    private double west = Double.MAX_VALUE;
+    private double north = -Double.MAX_VALUE;
+    private double east = -Double.MAX_VALUE;
+
+    ClusterBuilder(String cellKey) {
+      this.cellKey = cellKey;
+    }
+
+    void add(String markerId, double latitude, double longitude) {
+      markerIds.add(markerId);
+      latitudeSum += latitude;
+      longitudeSum += longitude;
+      south = Math.min(south, latitude);
+      west = Math.min(west, longitude);
+      north = Math.max(north, latitude);
+      east = Math.max(east, longitude);
+    }
+
+    Cluster build() {
+      int size = markerIds.size();
+      // The key includes the size so that a cluster marker is only reused with the same label.
+      return new Cluster(
+          cellKey + ":" + size,
+          latitudeSum / size,
+          longitudeSum / size,
+          south,
+          west,
+          north,
+          east,
+          markerIds);
+    }
+  }
+
+  private static final class ClusterMarker {
+    final Marker marker;
+    Cluster cluster;
+
+    ClusterMarker(Marker marker, Cluster cluster) {
+      this.marker = marker;
+      this.cluster = cluster;
+    }
+  }
+}
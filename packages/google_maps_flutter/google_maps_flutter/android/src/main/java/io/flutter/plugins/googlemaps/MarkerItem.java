@@ -0,0 +1,145 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import com.google.android.gms.maps.model.BitmapDescriptor;
+import com.google.android.gms.maps.model.LatLng;
+
+/**
+ * A marker kept as options while it may not be on the map, which forwards changes to the map while
+ * it is.
+ */
+class MarkerItem implements MarkerOptionsSink {
+  final String markerId;
+  final MarkerBuilder markerBuilder;
+  private final MarkersController markersController;
+  private final Runnable onLayoutChanged;
+
+  /** onLayoutChanged is run when the position or visibility of the marker changes. */
+  MarkerItem(
+      String markerId,
+      MarkerBuilder markerBuilder,
+      MarkersController markersController,
+      Runnable onLayoutChanged) {
+    this.markerId = markerId;
+    this.markerBuilder = markerBuilder;
+    this.markersController = markersController;
+    this.onLayoutChanged = onLayoutChanged;
+  }
+
+  private MarkerOptionsSink materializedMarker() {
+    return markersController.getMarkerController(markerId);
+  }
+
+  @Override
+  public void setAlpha(float alpha) {
+    markerBuilder.setAlpha(alpha);
+    MarkerOptionsSink marker = materializedMarker();
+    if (marker != null) {
+      marker.setAlpha(alpha);
+    }
+  }
+
+  @Override
+  public void setAnchor(float u, float v) {
+    markerBuilder.setAnchor(u, v);
+    MarkerOptionsSink marker = materializedMarker();
+    if (marker != null) {
+      marker.setAnchor(u, v);
+    }
+  }
+
+  @Override
+  public void setConsumeTapEvents(boolean consumeTapEvents) {
+    markerBuilder.setConsumeTapEvents(consumeTapEvents);
+    MarkerOptionsSink marker = materializedMarker();
+    if (marker != null) {
+      marker.setConsumeTapEvents(consumeTapEvents);
+    }
+  }
+
+  @Override
+  public void setDraggable(boolean draggable) {
+    markerBuilder.setDraggable(draggable);
+    MarkerOptionsSink marker = materializedMarker();
+    if (marker != null) {
+      marker.setDraggable(draggable);
+    }
+  }
+
+  @Override
+  public void setFlat(boolean flat) {
+    markerBuilder.setFlat(flat);
+    MarkerOptionsSink marker = materializedMarker();
+    if (marker != null) {
+      marker.setFlat(flat);
+    }
+  }
+
+  @Override
+  public void setIcon(BitmapDescriptor bitmapDescriptor) {
+    markerBuilder.setIcon(bitmapDescriptor);
+    MarkerOptionsSink marker = materializedMarker();
+    if (marker != null) {
+      marker.setIcon(bitmapDescriptor);
+    }
+  }
+
+  @Override
+  public void setInfoWindowAnchor(float u, float v) {
+    markerBuilder.setInfoWindowAnchor(u, v);
+    MarkerOptionsSink marker = materializedMarker();
+    if (marker != null) {
+      marker.setInfoWindowAnchor(u, v);
+    }
+  }
+
+  @Override
+  public void setInfoWindowText(String title, String snippet) {
+    markerBuilder.setInfoWindowText(title, snippet);
+    MarkerOptionsSink marker = materializedMarker();
+    if (marker != null) {
+      marker.setInfoWindowText(title, snippet);
+    }
+  }
+
+  @Override
+  public void setPosition(LatLng position) {
+    markerBuilder.setPosition(position);
+    MarkerOptionsSink marker = materializedMarker();
+    if (marker != null) {
+      marker.setPosition(position);
+    }
+    onLayoutChanged.run();
+  }
+
+  @Override
+  public void setRotation(float rotation) {
+    markerBuilder.setRotation(rotation);
+    MarkerOptionsSink marker = materializedMarker();
+    if (marker != null) {
+      marker.setRotation(rotation);
+    }
+  }
+
+  @Override
+  public void setVisible(boolean visible) {
+    markerBuilder.setVisible(visible);
+    MarkerOptionsSink marker = materializedMarker();
+    if (marker != null) {
+      marker.setVisible(visible);
+    }
+    onLayoutChanged.run();
+  }
+
+  @Override
+  public void setZIndex(float zIndex) {
+    markerBuilder.setZIndex(zIndex);
+    MarkerOptionsSink marker = materializedMarker();
+    if (marker != null) {
+      marker.setZIndex(zIndex);
+    }
+  }
+}
@@ -0,0 +1,139 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import com.google.android.gms.maps.model.BitmapDescriptor;
+import com.google.android.gms.maps.model.LatLng;
+
+/**
+ * Marker options shared by many markers of a bulk update.
+ *
+ * <p>A style is interpreted once, including decoding its icon, and then replayed onto the sink of
+ * every marker that uses it. Only the options that were set on the style are replayed.
+ */
+class MarkerStyle implements MarkerOptionsSink {
+  private Float alpha;
+  private float[] anchor;
+  private Boolean consumeTapEvents;
+  private Boolean draggable;
+  private Boolean flat;
+  private BitmapDescriptor icon;
+  private float[] infoWindowAnchor;
+  private boolean hasInfoWindowText;
+  private String title;
+  private String snippet;
+  private LatLng position;
+  private Float rotation;
+  private Boolean visible;
+  private Float zIndex;
+
+  /** Returns the style described by the given marker options, ignoring any marker id. */
+  static MarkerStyle fromJson(Object o) {
+    MarkerStyle style = new MarkerStyle();
+    Convert.interpretMarkerStyle(o, style);
+    return style;
+  }
+
+  void applyTo(MarkerOptionsSink sink) {
+    if (alpha != null) {
+      sink.setAlpha(alpha);
+    }
+    if (anchor != null) {
+      sink.setAnchor(anchor[0], anchor[1]);
+    }
+    if (consumeTapEvents != null) {
+      sink.setConsumeTapEvents(consumeTapEvents);
+    }
+    if (draggable != null) {
+      sink.setDraggable(draggable);
+    }
+    if (flat != null) {
+      sink.setFlat(flat);
+    }
+    if (icon != null) {
+      sink.setIcon(icon);
+    }
+    if (infoWindowAnchor != null) {
+      sink.setInfoWindowAnchor(infoWindowAnchor[0], infoWindowAnchor[1]);
+    }
+    if (hasInfoWindowText) {
+      sink.setInfoWindowText(title, snippet);
+    }
+    if (position != null) {
+      sink.setPosition(position);
+    }
+    if (rotation != null) {
+      sink.setRotation(rotation);
+    }
+    if (visible != null) {
+      sink.setVisible(visible);
+    }
+    if (zIndex != null) {
+      sink.setZIndex(zIndex);
+    }
+  }
+
+  @Override
+  public void setAlpha(float alpha) {
+    this.alpha = alpha;
+  }
+
+  @Override
+  public void setAnchor(float u, float v) {
+    this.anchor = new float[] {u, v};
+  }
+
+  @Override
+  public void setConsumeTapEvents(boolean consumeTapEvents) {
+    this.consumeTapEvents = consumeTapEvents;
+  }
+
+  @Override
+  public void setDraggable(boolean draggable) {
+    this.draggable = draggable;
+  }
+
+  @Override
+  public void setFlat(boolean flat) {
+    this.flat = flat;
+  }
+
+  @Override
+  public void setIcon(BitmapDescriptor bitmapDescriptor) {
+    this.icon = bitmapDescriptor;
+  }
+
+  @Override
+  public void setInfoWindowAnchor(float u, float v) {
+    this.infoWindowAnchor = new float[] {u, v};
+  }
+
+  @Override
+  public void setInfoWindowText(String title, String snippet) {
+    this.hasInfoWindowText = true;
+    this.title = title;
+    this.snippet = snippet;
+  }
+
+  @Override
+  public void setPosition(LatLng position) {
+    this.position = position;
+  }
+
+  @Override
+  public void setRotation(float rotation) {
+    this.rotation = rotation;
+  }
+
+  @Override
+  public void setVisible(boolean visible) {
+    this.visible = visible;
+  }
+
+  @Override
+  public void setZIndex(float zIndex) {
+    this.zIndex = zIndex;
+  }
+}
@@ -4,34 +4,148 @@
 
 package io.flutter.plugins.googlemaps;
 
+import android.util.Log;
 import com.google.android.gms.maps.GoogleMap;
 import com.google.android.gms.maps.model.LatLng;
 import com.google.android.gms.maps.model.Marker;
 import com.google.android.gms.maps.model.MarkerOptions;
 import io.flutter.plugin.common.MethodChannel;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 class MarkersController {
+  private static final String TAG = "MarkersController";
 
   private final Map<String, MarkerController> markerIdToController;
   private final Map<String, String> googleMapsMarkerIdToDartMarkerId;
   private final MethodChannel methodChannel;
+  // The markers while clustering is off.
+  private final VirtualizedShapes<MarkerBuilder> markers;
   private GoogleMap googleMap;
+  private MarkerBulkLoader bulkLoader;
+  private MarkerClusterer clusterer;
 
   MarkersController(MethodChannel methodChannel) {
     this.markerIdToController = new HashMap<>();
     this.googleMapsMarkerIdToDartMarkerId = new HashMap<>();
     this.methodChannel = methodChannel;
+    this.markers =
+        new VirtualizedShapes<>(
+            TAG,
+            "markerId",
+            new VirtualizedShapes.Shapes<MarkerBuilder>() {
+              @Override
+              public MarkerBuilder newBuilder() {
+                return new MarkerBuilder();
+              }
+
+              @Override
+              public String interpretOptions(Object json, MarkerBuilder builder) {
+                return Convert.interpretMarkerOptions(json, builder);
+              }
+
+              @Override
+              public boolean changesBounds(Map<String, Object> change) {
+                return change.containsKey("position");
+              }
+
+              @Override
+              public void putBounds(
+                  ViewportVirtualizer virtualizer, String markerId, MarkerBuilder builder) {
+                LatLng position = builder.build().getPosition();
+                virtualizer.put(
+                    markerId,
+                    Collections.singletonList(position != null ? position : new LatLng(0, 0)));
+              }
+
+              @Override
+              public void addToMap(String markerId, MarkerBuilder builder) {
+                materializeMarker(markerId, builder.build(), builder.consumeTapEvents());
+              }
+
+              @Override
+              public void changeOnMap(String markerId, Object json) {
+                MarkerController markerController = markerIdToController.get(markerId);
+                if (markerController != null) {
+                  Convert.interpretMarkerOptions(json, markerController);
+                }
+              }
+
+              @Override
+              public void removeFromMap(String markerId) {
+                removeMaterializedMarker(markerId);
+              }
+
+              @Override
+              public boolean isMapEmpty() {
+                return markerIdToController.isEmpty()
+                    && (clusterer == null || clusterer.isEmpty());
+              }
+            });
   }
 
   void setGoogleMap(GoogleMap googleMap) {
     this.googleMap = googleMap;
+    if (clusterer != null) {
+      clusterer.setGoogleMap(googleMap);
+    }
+  }
+
+  /**
+   * Enables clustering of markers into cells of gridSize logical pixels, or disables it if
+   * gridSize is not positive.
+   *
+   * <p>Clustering can only be turned on or off while the map has no markers.
+   */
+  void setClusterGridSize(float gridSize) {
+    boolean enable = gridSize > 0;
+    if (enable && clusterer != null) {
+      clusterer.setGridSize(gridSize);
+      return;
+    }
+    if (enable == (clusterer != null)) {
+      return;
+    }
+    if (!markerIdToController.isEmpty()
+        || !markers.isEmpty()
+        || (clusterer != null && !clusterer.isEmpty())) {
+      Log.w(TAG, "Marker clustering can only be changed while the map has no markers");
+      return;
+    }
+    if (enable) {
+      clusterer = new MarkerClusterer(this, methodChannel);
+      clusterer.setGridSize(gridSize);
+      clusterer.setGoogleMap(googleMap);
+    } else {
+      clusterer.dispose();
+      clusterer = null;
+    }
+  }
+
+  /**
+   * Keeps only the markers within margin times the size of the visible region around it on the
+   * map, or every marker if margin is not positive. Ignored while markers are clustered.
+   *
+   * <p>Virtualization can only be turned on or off while the map has no markers.
+   */
+  void setViewportVirtualizationMargin(float margin) {
+    markers.setViewportVirtualizationMargin(margin);
+  }
+
+  void onCameraIdle() {
+    if (clusterer != null) {
+      clusterer.cluster();
+    } else {
+      markers.onCameraIdle(googleMap);
+    }
   }
 
   void addMarkers(List<Object> markersToAdd) {
-    if (markersToAdd != null) {
+    if (clusterer == null) {
+      markers.add(markersToAdd);
+    } else if (markersToAdd != null) {
       for (Object markerToAdd : markersToAdd) {
         addMarker(markerToAdd);
       }
@@ -39,35 +153,124 @@ class MarkersController {
   }
 
   void changeMarkers(List<Object> markersToChange) {
-    if (markersToChange != null) {
+    if (clusterer == null) {
+      markers.change(markersToChange);
+    } else if (markersToChange != null) {
       for (Object markerToChange : markersToChange) {
         changeMarker(markerToChange);
       }
     }
   }
 
+  /**
+   * Adds, changes and removes markers, then completes result. Waits for the bulk updates received
+   * before, so that they can't undo this update.
+   */
+  void updateMarkers(
+      final List<Object> markersToAdd,
+      final List<Object> markersToChange,
+      final List<Object> markerIdsToRemove,
+      MethodChannel.Result result) {
+    Runnable update =
+        new Runnable() {
+          @Override
+          public void run() {
+            addMarkers(markersToAdd);
+            changeMarkers(markersToChange);
+            removeMarkers(markerIdsToRemove);
+          }
+        };
+    if (bulkLoader != null) {
+      bulkLoader.enqueue(update, result);
+    } else {
+      update.run();
+      result.success(null);
+    }
+  }
+
+  /**
+   * Applies a bulk update in the packed format described in {@link MarkerBulkLoader}.
+   *
+   * <p>result is completed once every marker of the update is on the map.
+   */
+  void bulkUpdateMarkers(Object arguments, MethodChannel.Result result) {
+    if (bulkLoader == null) {
+      bulkLoader = new MarkerBulkLoader(this);
+    }
+    bulkLoader.load(arguments, result);
+  }
+
+  void dispose() {
+    if (bulkLoader != null) {
+      bulkLoader.dispose();
+      bulkLoader = null;
+    }
+    if (clusterer != null) {
+      clusterer.dispose();
+    }
+  }
+
+  MarkerController getMarkerController(String markerId) {
+    return markerIdToController.get(markerId);
+  }
+
+  /**
+   * Returns the sink to apply changes of the marker to, whether or not it is currently on the map,
+   * or null if there is no such marker.
+   */
+  MarkerOptionsSink getMarkerOptionsSink(final String markerId) {
+    if (clusterer != null) {
+      return clusterer.getItem(markerId);
+    }
+    MarkerBuilder builder = markers.getBuilder(markerId);
+    if (builder == null) {
+      return markerIdToController.get(markerId);
+    }
+    return new MarkerItem(
+        markerId,
+        builder,
+        this,
+        new Runnable() {
+          @Override
+          public void run() {
+            markers.updateBounds(markerId);
+          }
+        });
+  }
+
   void removeMarkers(List<Object> markerIdsToRemove) {
+    if (clusterer == null) {
+      markers.remove(markerIdsToRemove);
+      return;
+    }
     if (markerIdsToRemove == null) {
       return;
     }
     for (Object rawMarkerId : markerIdsToRemove) {
-      if (rawMarkerId == null) {
-        continue;
-      }
-      String markerId = (String) rawMarkerId;
-      final MarkerController markerController = markerIdToController.remove(markerId);
-      if (markerController != null) {
-        markerController.remove();
-        googleMapsMarkerIdToDartMarkerId.remove(markerController.getGoogleMapsMarkerId());
+      if (rawMarkerId != null) {
+        clusterer.removeItem((String) rawMarkerId);
       }
     }
   }
 
+  /** Removes the marker from the map, without removing it from the clusterer or virtualizer. */
+  void removeMaterializedMarker(String markerId) {
+    final MarkerController markerController = markerIdToController.remove(markerId);
+    if (markerController != null) {
+      markerController.remove();
+      googleMapsMarkerIdToDartMarkerId.remove(markerController.getGoogleMapsMarkerId());
+    }
+  }
+
+  // Info windows of markers kept off the map by clustering or virtualization can't be shown, so
+  // they are treated as hidden rather than as unknown markers.
   void showMarkerInfoWindow(String markerId, MethodChannel.Result result) {
     MarkerController markerController = markerIdToController.get(markerId);
     if (markerController != null) {
       markerController.showInfoWindow();
       result.success(null);
+    } else if (isOffMap(markerId)) {
+      result.success(null);
     } else {
       result.error("Invalid markerId", "showInfoWindow called with invalid markerId", null);
     }
@@ -78,6 +281,8 @@ class MarkersController {
     if (markerController != null) {
       markerController.hideInfoWindow();
       result.success(null);
+    } else if (isOffMap(markerId)) {
+      result.success(null);
     } else {
       result.error("Invalid markerId", "hideInfoWindow called with invalid markerId", null);
     }
@@ -87,12 +292,22 @@ class MarkersController {
     MarkerController markerController = markerIdToController.get(markerId);
     if (markerController != null) {
       result.success(markerController.isInfoWindowShown());
+    } else if (isOffMap(markerId)) {
+      result.success(false);
     } else {
       result.error("Invalid markerId", "isInfoWindowShown called with invalid markerId", null);
     }
   }
 
+  /** Returns true if the marker exists but is kept off the map. */
+  private boolean isOffMap(String markerId) {
+    return clusterer != null ? clusterer.getItem(markerId) != null : markers.contains(markerId);
+  }
+
   boolean onMarkerTap(String googleMarkerId) {
+    if (clusterer != null && clusterer.onMarkerTap(googleMarkerId)) {
+      return true;
+    }
     String markerId = googleMapsMarkerIdToDartMarkerId.get(googleMarkerId);
     if (markerId == null) {
       return false;
@@ -110,6 +325,15 @@ class MarkersController {
     if (markerId == null) {
       return;
     }
+    if (clusterer != null) {
+      clusterer.onMarkerDragEnd(markerId, latLng);
+    } else {
+      MarkerBuilder builder = markers.getBuilder(markerId);
+      if (builder != null) {
+        builder.setPosition(latLng);
+        markers.updateBounds(markerId);
+      }
+    }
     final Map<String, Object> data = new HashMap<>();
     data.put("markerId", markerId);
     data.put("position", Convert.latLngToJson(latLng));
@@ -134,7 +358,16 @@ class MarkersController {
     addMarker(markerId, options, markerBuilder.consumeTapEvents());
   }
 
-  private void addMarker(String markerId, MarkerOptions markerOptions, boolean consumeTapEvents) {
+  void addMarker(String markerId, MarkerOptions markerOptions, boolean consumeTapEvents) {
+    if (clusterer != null) {
+      clusterer.addItem(markerId, markerOptions, consumeTapEvents);
+    } else {
+      markers.addInterpreted(markerId, new MarkerBuilder(markerOptions, consumeTapEvents));
+    }
+  }
+
+  /** Adds the marker to the map, bypassing the clusterer. */
+  void materializeMarker(String markerId, MarkerOptions markerOptions, boolean consumeTapEvents) {
     final Marker marker = googleMap.addMarker(markerOptions);
     MarkerController controller = new MarkerController(marker, consumeTapEvents);
     markerIdToController.put(markerId, controller);
@@ -146,9 +379,9 @@ class MarkersController {
       return;
     }
     String markerId = getMarkerId(marker);
-    MarkerController markerController = markerIdToController.get(markerId);
-    if (markerController != null) {
-      Convert.interpretMarkerOptions(marker, markerController);
+    MarkerOptionsSink markerOptionsSink = getMarkerOptionsSink(markerId);
+    if (markerOptionsSink != null) {
+      Convert.interpretMarkerOptions(marker, markerOptionsSink);
     }
   }
 
@@ -0,0 +1,161 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import android.util.Log;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import com.google.android.gms.maps.model.Tile;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serves the tiles of a tile overlay from a {@link TileSource}, entirely on the platform side.
+ *
+ * <p>Tiles are read on a pool of up to {@link TileSource#maxConcurrentReads} threads, so that the
+ * map's tile threads can have several downloads in flight. Concurrent requests for the same tile
+ * share one read, and the tiles read are put in the tile cache even if the request that started the
+ * read has timed out.
+ */
+class NativeTileProvider implements CachingTileProvider {
+  private static final String TAG = "NativeTileProvider";
+
+  private final TileSource tileSource;
+  @Nullable private final TileCache tileCache;
+  private final long timeoutMillis;
+  private final ExecutorService executor;
+  private final ConcurrentHashMap<String, Future<Tile>> pendingReads = new ConcurrentHashMap<>();
+  private final AtomicLong coalescedRequests = new AtomicLong();
+  private final AtomicLong timeouts = new AtomicLong();
+
+  NativeTileProvider(TileSource tileSource, @Nullable TileCache tileCache, long timeoutMillis) {
+    this(
+        tileSource,
+        tileCache,
+        timeoutMillis,
+        Executors.newFixedThreadPool(Math.max(1, tileSource.maxConcurrentReads)));
+  }
+
+  @VisibleForTesting
+  NativeTileProvider(
+      TileSource tileSource,
+      @Nullable TileCache tileCache,
+      long timeoutMillis,
+      ExecutorService executor) {
+    this.tileSource = tileSource;
+    this.tileCache = tileCache;
+    this.timeoutMillis = timeoutMillis;
+    this.executor = executor;
+  }
+
+  @Override
+  public Tile getTile(final int x, final int y, final int zoom) {
+    if (tileCache != null) {
+      Tile cachedTile = tileCache.get(x, y, zoom);
+      if (cachedTile != null) {
+        return cachedTile;
+      }
+    }
+    final String key = TileCache.key(x, y, zoom);
+    FutureTask<Tile> read =
+        new FutureTask<Tile>(
+            new Callable<Tile>() {
+              @Override
+              public Tile call() throws IOException {
+                return readTile(x, y, zoom);
+              }
+            }) {
+          @Override
+          protected void done() {
+            pendingReads.remove(key, this);
+          }
+        };
+    Future<Tile> pendingRead = pendingReads.putIfAbsent(key, read);
+    if (pendingRead != null) {
+      coalescedRequests.incrementAndGet();
+      return awaitTile(pendingRead, x, y, zoom);
+    }
+    try {
+      executor.execute(read);
+    } catch (RejectedExecutionException e) {
+      // The overlay has been removed.
+      pendingReads.remove(key, read);
+      return NO_TILE;
+    }
+    return awaitTile(read, x, y, zoom);
+  }
+
+  @Override
+  public void clearTileCache() {
+    if (tileCache != null) {
+      tileCache.clear();
+    }
+  }
+
+  @Override
+  public Map<String, Object> getTileCacheMetrics() {
+    return Convert.tileCacheMetricsToJson(tileCache, coalescedRequests.get(), timeouts.get());
+  }
+
+  @Override
+  public void dispose() {
+    executor.shutdownNow();
+    for (Future<Tile> pendingRead : pendingReads.values()) {
+      pendingRead.cancel(true);
+    }
+    tileSource.close();
+  }
+
+  private Tile readTile(int x, int y, int zoom) throws IOException {
+    byte[] data = tileSource.readTile(x, y, zoom);
+    if (data == null) {
+      return NO_TILE;
+    }
+    Tile tile = new Tile(tileSource.tileSize, tileSource.tileSize, data);
+    if (tileCache != null) {
+      tileCache.put(x, y, zoom, tile);
+    }
+    return tile;
+  }
+
+  /**
+   * Waits for a tile read.
+   *
+   * <p>Returns null, so that the map requests the tile again later, if the read fails or does not
+   * finish in time.
+   */
+  private Tile awaitTile(Future<Tile> read, int x, int y, int zoom) {
+    try {
+      return read.get(timeoutMillis, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      timeouts.incrementAndGet();
+      Log.w(TAG, String.format("Timed out reading tile: x = %d, y= %d, zoom = %d", x, y, zoom));
+      return null;
+    } catch (ExecutionException e) {
+      Log.w(
+          TAG,
+          String.format("Can't read tile: x = %d, y= %d, zoom = %d", x, y, zoom),
+          e.getCause());
+      return null;
+    } catch (CancellationException e) {
+      return NO_TILE;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return NO_TILE;
+    }
+  }
+}
@@ -6,10 +6,13 @@ package io.flutter.plugins.googlemaps;
 
 import com.google.android.gms.maps.model.LatLng;
 import com.google.android.gms.maps.model.PolygonOptions;
+import java.util.Collections;
 import java.util.List;
 
 class PolygonBuilder implements PolygonOptionsSink {
   private final PolygonOptions polygonOptions;
+  private List<LatLng> points = Collections.emptyList();
+  private float simplificationTolerance;
   private final float density;
   private boolean consumeTapEvents;
 
@@ -26,6 +29,14 @@ class PolygonBuilder implements PolygonOptionsSink {
     return consumeTapEvents;
   }
 
+  List<LatLng> getPoints() {
+    return points;
+  }
+
+  float simplificationTolerance() {
+    return simplificationTolerance;
+  }
+
   @Override
   public void setFillColor(int color) {
     polygonOptions.fillColor(color);
@@ -38,7 +49,16 @@ class PolygonBuilder implements PolygonOptionsSink {
 
   @Override
   public void setPoints(List<LatLng> points) {
-    polygonOptions.addAll(points);
+    this.points = points;
+    // Simplified points are set once the polygon is on the map.
+    if (simplificationTolerance <= 0) {
+      polygonOptions.addAll(points);
+    }
+  }
+
+  @Override
+  public void setSimplificationTolerance(float tolerance) {
+    this.simplificationTolerance = tolerance;
   }
 
   @Override
@@ -4,26 +4,43 @@
 
 package io.flutter.plugins.googlemaps;
 
+import androidx.annotation.Nullable;
 import com.google.android.gms.maps.model.LatLng;
 import com.google.android.gms.maps.model.Polygon;
 import java.util.List;
 
 /** Controller of a single Polygon on the map. */
-class PolygonController implements PolygonOptionsSink {
+class PolygonController implements PolygonOptionsSink, ShapeSimplifier.Shape {
   private final Polygon polygon;
   private final String googleMapsPolygonId;
   private final float density;
   private boolean consumeTapEvents;
+  @Nullable private final ShapeSimplifier shapeSimplifier;
+  private float simplificationTolerance;
+  // The points before simplification, while they are simplified.
+  private List<LatLng> points;
 
   PolygonController(Polygon polygon, boolean consumeTapEvents, float density) {
+    this(polygon, consumeTapEvents, density, null);
+  }
+
+  PolygonController(
+      Polygon polygon,
+      boolean consumeTapEvents,
+      float density,
+      @Nullable ShapeSimplifier shapeSimplifier) {
     this.polygon = polygon;
     this.density = density;
     this.consumeTapEvents = consumeTapEvents;
     this.googleMapsPolygonId = polygon.getId();
+    this.shapeSimplifier = shapeSimplifier;
   }
 
   void remove() {
     polygon.remove();
+    if (shapeSimplifier != null) {
+      shapeSimplifier.remove(this);
+    }
   }
 
   @Override
@@ -49,6 +66,29 @@ class PolygonController implements PolygonOptionsSink {
 
   @Override
   public void setPoints(List<LatLng> points) {
+    if (simplificationTolerance > 0 && shapeSimplifier != null) {
+      this.points = points;
+      shapeSimplifier.setPoints(this, points, simplificationTolerance);
+    } else {
+      this.points = null;
+      polygon.setPoints(points);
+    }
+  }
+
+  @Override
+  public void setSimplificationTolerance(float tolerance) {
+    if (tolerance == simplificationTolerance) {
+      return;
+    }
+    simplificationTolerance = tolerance;
+    if (tolerance <= 0 && shapeSimplifier != null) {
+      shapeSimplifier.remove(this);
+    }
+    setPoints(points != null ? points : polygon.getPoints());
+  }
+
+  @Override
+  public void setSimplifiedPoints(List<LatLng> points) {
     polygon.setPoints(points);
   }
 
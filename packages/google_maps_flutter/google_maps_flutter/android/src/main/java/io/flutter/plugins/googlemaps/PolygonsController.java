@@ -6,62 +6,108 @@ package io.flutter.plugins.googlemaps;
 
 import com.google.android.gms.maps.GoogleMap;
 import com.google.android.gms.maps.model.Polygon;
-import com.google.android.gms.maps.model.PolygonOptions;
 import io.flutter.plugin.common.MethodChannel;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 class PolygonsController {
+  private static final String TAG = "PolygonsController";
 
   private final Map<String, PolygonController> polygonIdToController;
   private final Map<String, String> googleMapsPolygonIdToDartPolygonId;
+  private final VirtualizedShapes<PolygonBuilder> polygons;
   private final MethodChannel methodChannel;
   private final float density;
+  private final ShapeSimplifier shapeSimplifier;
   private GoogleMap googleMap;
 
-  PolygonsController(MethodChannel methodChannel, float density) {
+  PolygonsController(
+      MethodChannel methodChannel, float density, ShapeSimplifier shapeSimplifier) {
     this.polygonIdToController = new HashMap<>();
     this.googleMapsPolygonIdToDartPolygonId = new HashMap<>();
     this.methodChannel = methodChannel;
     this.density = density;
+    this.shapeSimplifier = shapeSimplifier;
+    this.polygons =
+        new VirtualizedShapes<>(
+            TAG,
+            "polygonId",
+            new VirtualizedShapes.Shapes<PolygonBuilder>() {
+              @Override
+              public PolygonBuilder newBuilder() {
+                return new PolygonBuilder(density);
+              }
+
+              @Override
+              public String interpretOptions(Object json, PolygonBuilder builder) {
+                return Convert.interpretPolygonOptions(json, builder);
+              }
+
+              @Override
+              public boolean changesBounds(Map<String, Object> change) {
+                return change.containsKey("points");
+              }
+
+              @Override
+              public void putBounds(
+                  ViewportVirtualizer virtualizer, String polygonId, PolygonBuilder builder) {
+                virtualizer.put(polygonId, builder.getPoints());
+              }
+
+              @Override
+              public void addToMap(String polygonId, PolygonBuilder builder) {
+                addPolygon(polygonId, builder);
+              }
+
+              @Override
+              public void changeOnMap(String polygonId, Object json) {
+                PolygonController polygonController = polygonIdToController.get(polygonId);
+                if (polygonController != null) {
+                  Convert.interpretPolygonOptions(json, polygonController);
+                }
+              }
+
+              @Override
+              public void removeFromMap(String polygonId) {
+                removePolygon(polygonId);
+              }
+
+              @Override
+              public boolean isMapEmpty() {
+                return polygonIdToController.isEmpty();
+              }
+            });
   }
 
   void setGoogleMap(GoogleMap googleMap) {
     this.googleMap = googleMap;
   }
 
+  /**
+   * Keeps only the polygons within margin times the size of the visible region around it on the
+   * map, or every polygon if margin is not positive.
+   *
+   * <p>Virtualization can only be turned on or off while the map has no polygons.
+   */
+  void setViewportVirtualizationMargin(float margin) {
+    polygons.setViewportVirtualizationMargin(margin);
+  }
+
+  void onCameraIdle() {
+    polygons.onCameraIdle(googleMap);
+  }
+
   void addPolygons(List<Object> polygonsToAdd) {
-    if (polygonsToAdd != null) {
-      for (Object polygonToAdd : polygonsToAdd) {
-        addPolygon(polygonToAdd);
-      }
-    }
+    polygons.add(polygonsToAdd);
   }
 
   void changePolygons(List<Object> polygonsToChange) {
-    if (polygonsToChange != null) {
-      for (Object polygonToChange : polygonsToChange) {
-        changePolygon(polygonToChange);
-      }
-    }
+    polygons.change(polygonsToChange);
   }
 
   void removePolygons(List<Object> polygonIdsToRemove) {
-    if (polygonIdsToRemove == null) {
-      return;
-    }
-    for (Object rawPolygonId : polygonIdsToRemove) {
-      if (rawPolygonId == null) {
-        continue;
-      }
-      String polygonId = (String) rawPolygonId;
-      final PolygonController polygonController = polygonIdToController.remove(polygonId);
-      if (polygonController != null) {
-        polygonController.remove();
-        googleMapsPolygonIdToDartPolygonId.remove(polygonController.getGoogleMapsPolygonId());
-      }
-    }
+    polygons.remove(polygonIdsToRemove);
   }
 
   boolean onPolygonTap(String googlePolygonId) {
@@ -77,38 +123,23 @@ class PolygonsController {
     return false;
   }
 
-  private void addPolygon(Object polygon) {
-    if (polygon == null) {
-      return;
+  private void addPolygon(String polygonId, PolygonBuilder polygonBuilder) {
+    final Polygon polygon = googleMap.addPolygon(polygonBuilder.build());
+    PolygonController controller =
+        new PolygonController(polygon, polygonBuilder.consumeTapEvents(), density, shapeSimplifier);
+    if (polygonBuilder.simplificationTolerance() > 0) {
+      controller.setSimplificationTolerance(polygonBuilder.simplificationTolerance());
+      controller.setPoints(polygonBuilder.getPoints());
     }
-    PolygonBuilder polygonBuilder = new PolygonBuilder(density);
-    String polygonId = Convert.interpretPolygonOptions(polygon, polygonBuilder);
-    PolygonOptions options = polygonBuilder.build();
-    addPolygon(polygonId, options, polygonBuilder.consumeTapEvents());
-  }
-
-  private void addPolygon(
-      String polygonId, PolygonOptions polygonOptions, boolean consumeTapEvents) {
-    final Polygon polygon = googleMap.addPolygon(polygonOptions);
-    PolygonController controller = new PolygonController(polygon, consumeTapEvents, density);
     polygonIdToController.put(polygonId, controller);
     googleMapsPolygonIdToDartPolygonId.put(polygon.getId(), polygonId);
   }
 
-  private void changePolygon(Object polygon) {
-    if (polygon == null) {
-      return;
-    }
-    String polygonId = getPolygonId(polygon);
-    PolygonController polygonController = polygonIdToController.get(polygonId);
+  private void removePolygon(String polygonId) {
+    final PolygonController polygonController = polygonIdToController.remove(polygonId);
     if (polygonController != null) {
-      Convert.interpretPolygonOptions(polygon, polygonController);
+      polygonController.remove();
+      googleMapsPolygonIdToDartPolygonId.remove(polygonController.getGoogleMapsPolygonId());
     }
   }
-
-  @SuppressWarnings("unchecked")
-  private static String getPolygonId(Object polygon) {
-    Map<String, Object> polygonMap = (Map<String, Object>) polygon;
-    return (String) polygonMap.get("polygonId");
-  }
 }
@@ -8,10 +8,13 @@ import com.google.android.gms.maps.model.Cap;
 import com.google.android.gms.maps.model.LatLng;
 import com.google.android.gms.maps.model.PatternItem;
 import com.google.android.gms.maps.model.PolylineOptions;
+import java.util.Collections;
 import java.util.List;
 
 class PolylineBuilder implements PolylineOptionsSink {
   private final PolylineOptions polylineOptions;
+  private List<LatLng> points = Collections.emptyList();
+  private float simplificationTolerance;
   private boolean consumeTapEvents;
   private final float density;
 
@@ -28,6 +31,14 @@ class PolylineBuilder implements PolylineOptionsSink {
     return consumeTapEvents;
   }
 
+  List<LatLng> getPoints() {
+    return points;
+  }
+
+  float simplificationTolerance() {
+    return simplificationTolerance;
+  }
+
   @Override
   public void setColor(int color) {
     polylineOptions.color(color);
@@ -50,7 +61,16 @@ class PolylineBuilder implements PolylineOptionsSink {
 
   @Override
   public void setPoints(List<LatLng> points) {
-    polylineOptions.addAll(points);
+    this.points = points;
+    // Simplified points are set once the polyline is on the map.
+    if (simplificationTolerance <= 0) {
+      polylineOptions.addAll(points);
+    }
+  }
+
+  @Override
+  public void setSimplificationTolerance(float tolerance) {
+    this.simplificationTolerance = tolerance;
   }
 
   @Override
@@ -4,6 +4,7 @@
 
 package io.flutter.plugins.googlemaps;
 
+import androidx.annotation.Nullable;
 import com.google.android.gms.maps.model.Cap;
 import com.google.android.gms.maps.model.LatLng;
 import com.google.android.gms.maps.model.PatternItem;
@@ -11,21 +12,37 @@ import com.google.android.gms.maps.model.Polyline;
 import java.util.List;
 
 /** Controller of a single Polyline on the map. */
-class PolylineController implements PolylineOptionsSink {
+class PolylineController implements PolylineOptionsSink, ShapeSimplifier.Shape {
   private final Polyline polyline;
   private final String googleMapsPolylineId;
   private boolean consumeTapEvents;
   private final float density;
+  @Nullable private final ShapeSimplifier shapeSimplifier;
+  private float simplificationTolerance;
+  // The points before simplification, while they are simplified.
+  private List<LatLng> points;
 
   PolylineController(Polyline polyline, boolean consumeTapEvents, float density) {
+    this(polyline, consumeTapEvents, density, null);
+  }
+
+  PolylineController(
+      Polyline polyline,
+      boolean consumeTapEvents,
+      float density,
+      @Nullable ShapeSimplifier shapeSimplifier) {
     this.polyline = polyline;
     this.consumeTapEvents = consumeTapEvents;
     this.density = density;
     this.googleMapsPolylineId = polyline.getId();
+    this.shapeSimplifier = shapeSimplifier;
   }
 
   void remove() {
     polyline.remove();
+    if (shapeSimplifier != null) {
+      shapeSimplifier.remove(this);
+    }
   }
 
   @Override
@@ -61,6 +78,29 @@ class PolylineController implements PolylineOptionsSink {
 
   @Override
   public void setPoints(List<LatLng> points) {
+    if (simplificationTolerance > 0 && shapeSimplifier != null) {
+      this.points = points;
+      shapeSimplifier.setPoints(this, points, simplificationTolerance);
+    } else {
+      this.points = null;
+      polyline.setPoints(points);
+    }
+  }
+
+  @Override
+  public void setSimplificationTolerance(float tolerance) {
+    if (tolerance == simplificationTolerance) {
+      return;
+    }
+    simplificationTolerance = tolerance;
+    if (tolerance <= 0 && shapeSimplifier != null) {
+      shapeSimplifier.remove(this);
+    }
+    setPoints(points != null ? points : polyline.getPoints());
+  }
+
+  @Override
+  public void setSimplifiedPoints(List<LatLng> points) {
     polyline.setPoints(points);
   }
 
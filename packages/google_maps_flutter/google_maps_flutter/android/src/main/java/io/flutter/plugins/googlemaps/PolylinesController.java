@@ -6,62 +6,108 @@ package io.flutter.plugins.googlemaps;
 
 import com.google.android.gms.maps.GoogleMap;
 import com.google.android.gms.maps.model.Polyline;
-import com.google.android.gms.maps.model.PolylineOptions;
 import io.flutter.plugin.common.MethodChannel;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 class PolylinesController {
+  private static final String TAG = "PolylinesController";
 
   private final Map<String, PolylineController> polylineIdToController;
   private final Map<String, String> googleMapsPolylineIdToDartPolylineId;
+  private final VirtualizedShapes<PolylineBuilder> polylines;
   private final MethodChannel methodChannel;
   private GoogleMap googleMap;
   private final float density;
+  private final ShapeSimplifier shapeSimplifier;
 
-  PolylinesController(MethodChannel methodChannel, float density) {
+  PolylinesController(
+      MethodChannel methodChannel, float density, ShapeSimplifier shapeSimplifier) {
     this.polylineIdToController = new HashMap<>();
     this.googleMapsPolylineIdToDartPolylineId = new HashMap<>();
     this.methodChannel = methodChannel;
     this.density = density;
+    this.shapeSimplifier = shapeSimplifier;
+    this.polylines =
+        new VirtualizedShapes<>(
+            TAG,
+            "polylineId",
+            new VirtualizedShapes.Shapes<PolylineBuilder>() {
+              @Override
+              public PolylineBuilder newBuilder() {
+                return new PolylineBuilder(density);
+              }
+
+              @Override
+              public String interpretOptions(Object json, PolylineBuilder builder) {
+                return Convert.interpretPolylineOptions(json, builder);
+              }
+
+              @Override
+              public boolean changesBounds(Map<String, Object> change) {
+                return change.containsKey("points");
+              }
+
+              @Override
+              public void putBounds(
+                  ViewportVirtualizer virtualizer, String polylineId, PolylineBuilder builder) {
+                virtualizer.put(polylineId, builder.getPoints());
+              }
+
+              @Override
+              public void addToMap(String polylineId, PolylineBuilder builder) {
+                addPolyline(polylineId, builder);
+              }
+
+              @Override
+              public void changeOnMap(String polylineId, Object json) {
+                PolylineController polylineController = polylineIdToController.get(polylineId);
+                if (polylineController != null) {
+                  Convert.interpretPolylineOptions(json, polylineController);
+                }
+              }
+
+              @Override
+              public void removeFromMap(String polylineId) {
+                removePolyline(polylineId);
+              }
+
+              @Override
+              public boolean isMapEmpty() {
+                return polylineIdToController.isEmpty();
+              }
+            });
   }
 
   void setGoogleMap(GoogleMap googleMap) {
     this.googleMap = googleMap;
   }
 
+  /**
+   * Keeps only the polylines within margin times the size of the visible region around it on the
+   * map, or every polyline if margin is not positive.
+   *
+   * <p>Virtualization can only be turned on or off while the map has no polylines.
+   */
+  void setViewportVirtualizationMargin(float margin) {
+    polylines.setViewportVirtualizationMargin(margin);
+  }
+
+  void onCameraIdle() {
+    polylines.onCameraIdle(googleMap);
+  }
+
   void addPolylines(List<Object> polylinesToAdd) {
-    if (polylinesToAdd != null) {
-      for (Object polylineToAdd : polylinesToAdd) {
-        addPolyline(polylineToAdd);
-      }
-    }
+    polylines.add(polylinesToAdd);
   }
 
   void changePolylines(List<Object> polylinesToChange) {
-    if (polylinesToChange != null) {
-      for (Object polylineToChange : polylinesToChange) {
-        changePolyline(polylineToChange);
-      }
-    }
+    polylines.change(polylinesToChange);
   }
 
   void removePolylines(List<Object> polylineIdsToRemove) {
-    if (polylineIdsToRemove == null) {
-      return;
-    }
-    for (Object rawPolylineId : polylineIdsToRemove) {
-      if (rawPolylineId == null) {
-        continue;
-      }
-      String polylineId = (String) rawPolylineId;
-      final PolylineController polylineController = polylineIdToController.remove(polylineId);
-      if (polylineController != null) {
-        polylineController.remove();
-        googleMapsPolylineIdToDartPolylineId.remove(polylineController.getGoogleMapsPolylineId());
-      }
-    }
+    polylines.remove(polylineIdsToRemove);
   }
 
   boolean onPolylineTap(String googlePolylineId) {
@@ -77,38 +123,24 @@ class PolylinesController {
     return false;
   }
 
-  private void addPolyline(Object polyline) {
-    if (polyline == null) {
-      return;
+  private void addPolyline(String polylineId, PolylineBuilder polylineBuilder) {
+    final Polyline polyline = googleMap.addPolyline(polylineBuilder.build());
+    PolylineController controller =
+        new PolylineController(
+            polyline, polylineBuilder.consumeTapEvents(), density, shapeSimplifier);
+    if (polylineBuilder.simplificationTolerance() > 0) {
+      controller.setSimplificationTolerance(polylineBuilder.simplificationTolerance());
+      controller.setPoints(polylineBuilder.getPoints());
     }
-    PolylineBuilder polylineBuilder = new PolylineBuilder(density);
-    String polylineId = Convert.interpretPolylineOptions(polyline, polylineBuilder);
-    PolylineOptions options = polylineBuilder.build();
-    addPolyline(polylineId, options, polylineBuilder.consumeTapEvents());
-  }
-
-  private void addPolyline(
-      String polylineId, PolylineOptions polylineOptions, boolean consumeTapEvents) {
-    final Polyline polyline = googleMap.addPolyline(polylineOptions);
-    PolylineController controller = new PolylineController(polyline, consumeTapEvents, density);
     polylineIdToController.put(polylineId, controller);
     googleMapsPolylineIdToDartPolylineId.put(polyline.getId(), polylineId);
   }
 
-  private void changePolyline(Object polyline) {
-    if (polyline == null) {
-      return;
-    }
-    String polylineId = getPolylineId(polyline);
-    PolylineController polylineController = polylineIdToController.get(polylineId);
+  private void removePolyline(String polylineId) {
+    final PolylineController polylineController = polylineIdToController.remove(polylineId);
     if (polylineController != null) {
-      Convert.interpretPolylineOptions(polyline, polylineController);
+      polylineController.remove();
+      googleMapsPolylineIdToDartPolylineId.remove(polylineController.getGoogleMapsPolylineId());
     }
   }
-
-  @SuppressWarnings("unchecked")
-  private static String getPolylineId(Object polyline) {
-    Map<String, Object> polylineMap = (Map<String, Object>) polyline;
-    return (String) polylineMap.get("polylineId");
-  }
 }
@@ -0,0 +1,207 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import android.os.Handler;
+import android.os.Looper;
+import androidx.annotation.VisibleForTesting;
+import com.google.android.gms.maps.model.LatLng;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Simplifies the points of polylines and polygons for the zoom level of the map.
+ *
+ * <p>The first time a shape is simplified, a Douglas-Peucker pass on a background thread ranks
+ * every point by the tolerance at which it would be dropped. Simplifying for a zoom level then
+ * keeps the points ranked above the tolerance at that level, so a shape is simplified for every
+ * whole zoom level from a single pass. The simplified points are set on the shape on the platform
+ * thread whenever a new zoom level is reached.
+ */
+class ShapeSimplifier {
+
+  /** A polyline or polygon whose points are replaced by simplified ones. */
+  interface Shape {
+    void setSimplifiedPoints(List<LatLng> points);
+  }
+
+  // The size of the whole world at zoom level 0, in logical pixels.
+  private static final double WORLD_SIZE = 256;
+  private static final int MAX_ZOOM_LEVEL = 22;
+
+  private final ExecutorService simplificationExecutor = Executors.newSingleThreadExecutor();
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private final Map<Shape, Entry> entries = new HashMap<>();
+  private int zoomLevel;
+  private boolean disposed;
+
+  /** Simplifies every shape again if zoom is in a different whole zoom level. */
+  void setZoom(float zoom) {
+    int zoomLevel = Math.max(0, Math.min(MAX_ZOOM_LEVEL, (int) Math.floor(zoom)));
+    if (zoomLevel == this.zoomLevel) {
+      return;
+    }
+    this.zoomLevel = zoomLevel;
+    for (Map.Entry<Shape, Entry> entry : entries.entrySet()) {
+      simplify(entry.getKey(), entry.getValue());
+    }
+  }
+
+  /**
+   * Simplifies points so that no point of the shape moves by more than tolerance logical pixels,
+   * and sets the result on the shape.
+   */
+  void setPoints(Shape shape, List<LatLng> points, float tolerance) {
+    Entry entry = new Entry(points, tolerance);
+    entries.put(shape, entry);
+    simplify(shape, entry);
+  }
+
+  void remove(Shape shape) {
+    entries.remove(shape);
+  }
+
+  void dispose() {
+    disposed = true;
+    entries.clear();
+    simplificationExecutor.shutdownNow();
+    handler.removeCallbacksAndMessages(null);
+  }
+
+  private void simplify(final Shape shape, final Entry entry) {
+    if (disposed) {
+      return;
+    }
+    final int generation = ++entry.generation;
+    final int zoomLevel = this.zoomLevel;
+    simplificationExecutor.execute(
+        new Runnable() {
+          @Override
+          public void run() {
+            final List<LatLng> points = entry.simplify(zoomLevel);
+            handler.post(
+                new Runnable() {
+                  @Override
+                  public void run() {
+                    // Drop results for points or zoom levels that have been replaced since.
+                    if (entries.get(shape) == entry && entry.generation == generation) {
+                      shape.setSimplifiedPoints(points);
+                    }
+                  }
+                });
+          }
+        });
+  }
+
+  /**
+   * Returns for every point the largest distance, in the units of x and y, by which the line
+   * through the points can be simplified while keeping the point. The first and last points are
+   * always kept.
+   *
+   * <p>A point is never ranked above the point whose split made it a candidate, so that the points
+   * kept for a tolerance are exactly those Douglas-Peucker would keep.
+   */
+  @VisibleForTesting
+  static float[] rankPoints(double[] x, double[] y) {
+    int count = x.length;
+    float[] ranks = new float[count];
+    if (count == 0) {
+      return ranks;
+    }
+    ranks[0] = Float.POSITIVE_INFINITY;
+    ranks[count - 1] = Float.POSITIVE_INFINITY;
+    // Ranges left to split, as first and last index and the rank of the point that bounds them.
+    int[] firsts = new int[count];
+    int[] lasts = new int[count];
+    float[] parentRanks = new float[count];
+    int size = 0;
+    firsts[size] = 0;
+    lasts[size] = count - 1;
+    parentRanks[size] = Float.POSITIVE_INFINITY;
+    size++;
+    while (size > 0) {
+      size--;
+      int first = firsts[size];
+      int last = lasts[size];
+      float parentRank = parentRanks[size];
+      if (last - first < 2) {
+        continue;
+      }
+      int farthest = first + 1;
+      double farthestDistance = -1;
+      for (int i = first + 1; i < last; i++) {
+        double distance = distanceToSegment(x[i], y[i], x[first], y[first], x[last], y[last]);
+        if (distance > farthestDistance) {
+          farthest = i;
+          farthestDistance = distance;
+        }
+      }
+      float rank = Math.min((float) farthestDistance, parentRank);
+      ranks[farthest] = rank;
+      firsts[size] = first;
+      lasts[size] = farthest;
+      parentRanks[size] = rank;
+      size++;
+      firsts[size] = farthest;
+      lasts[size] = last;
+      parentRanks[size] = rank;
+      size++;
+    }
+    return ranks;
+  }
+
+  private static double distanceToSegment(
+      double x, double y, double x1, double y1, double x2, double y2) {
+    double dx = x2 - x1;
+    double dy = y2 - y1;
+    double lengthSquared = dx * dx + dy * dy;
+    double t = lengthSquared > 0 ? ((x - x1) * dx + (y - y1) * dy) / lengthSquared : 0;
+    t = Math.max(0, Math.min(1, t));
+    double px = x1 + t * dx - x;
+    double py = y1 + t * dy - y;
+    return Math.sqrt(px * px + py * py);
+  }
+
+  private static final class Entry {
+    final List<LatLng> points;
+    final float tolerance;
+    // Only touched on the platform thread.
+    int generation;
+    // Only touched on the simplification thread.
+    private float[] ranks;
+
+    Entry(List<LatLng> points, float tolerance) {
+      this.points = points;
+      this.tolerance = tolerance;
+    }
+
+    List<LatLng> simplify(int zoomLevel) {
+      if (ranks == null) {
+        double[] x = new double[points.size()];
+        double[] y = new double[points.size()];
+        for (int i = 0; i < x.length; i++) {
+          LatLng point = points.get(i);
+          x[i] = (point.longitude + 180) / 360;
+          double sinLatitude =
+              Math.min(Math.max(Math.sin(Math.toRadians(point.latitude)), -0.9999), 0.9999);
+          y[i] = 0.5 - Math.log((1 + sinLatitude) / (1 - sinLatitude)) / (4 * Math.PI);
+        }
+        ranks = rankPoints(x, y);
+      }
+      double worldTolerance = tolerance / (WORLD_SIZE * Math.pow(2, zoomLevel));
+      List<LatLng> simplified = new ArrayList<>();
+      for (int i = 0; i < ranks.length; i++) {
+        if (ranks[i] > worldTolerance) {
+          simplified.add(points.get(i));
+        }
+      }
+      return simplified;
+    }
+  }
+}
@@ -0,0 +1,126 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import androidx.annotation.Nullable;
+import io.flutter.plugin.common.MethodChannel;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Scales and encodes map snapshots on a background thread, so that the platform thread only takes
+ * the snapshot.
+ */
+class SnapshotEncoder {
+
+  /** How a snapshot is encoded and where it goes. */
+  static final class Options {
+    static final Options DEFAULT = new Options(Bitmap.CompressFormat.PNG, 100, 1, null);
+
+    final Bitmap.CompressFormat format;
+    final int quality;
+    final float scale;
+    // The file the snapshot is written to, or null to send the encoded bytes to Dart.
+    @Nullable final String filePath;
+
+    Options(Bitmap.CompressFormat format, int quality, float scale, @Nullable String filePath) {
+      this.format = format;
+      this.quality = quality;
+      this.scale = scale;
+      this.filePath = filePath;
+    }
+  }
+
+  private final ExecutorService encodingExecutor = Executors.newSingleThreadExecutor();
+  private final Handler handler = new Handler(Looper.getMainLooper());
+
+  /**
+   * Encodes bitmap, which is recycled afterwards, and completes result with the encoded bytes or
+   * with the path of the file they were written to. Fails result if the encoder was disposed.
+   */
+  void encode(final Bitmap bitmap, final Options options, final MethodChannel.Result result) {
+    try {
+      encodingExecutor.execute(
+          new Runnable() {
+            @Override
+            public void run() {
+              try {
+                final Object encoded = encode(bitmap, options);
+                handler.post(
+                    new Runnable() {
+                      @Override
+                      public void run() {
+                        result.success(encoded);
+                      }
+                    });
+              } catch (IOException | RuntimeException e) {
+                handler.post(
+                    new Runnable() {
+                      @Override
+                      public void run() {
+                        result.error("Snapshot failed", e.getMessage(), null);
+                      }
+                    });
+              } finally {
+                bitmap.recycle();
+              }
+            }
+          });
+    } catch (RejectedExecutionException e) {
+      // The snapshot arrived after the map was disposed.
+      bitmap.recycle();
+      result.error("Snapshot failed", "The map was disposed before the snapshot was encoded", null);
+    }
+  }
+
+  /** Lets the snapshots already taken finish encoding, and stops the encoding thread. */
+  void dispose() {
+    encodingExecutor.shutdown();
+  }
+
+  private static Object encode(Bitmap bitmap, Options options) throws IOException {
+    Bitmap scaled = bitmap;
+    if (options.scale < 1) {
+      scaled =
+          Bitmap.createScaledBitmap(
+              bitmap,
+              Math.max(1, Math.round(bitmap.getWidth() * options.scale)),
+              Math.max(1, Math.round(bitmap.getHeight() * options.scale)),
+              true);
+    }
+    try {
+      if (options.filePath == null) {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        if (!scaled.compress(options.format, options.quality, stream)) {
+          throw new IOException("Can't encode snapshot");
+        }
+        return stream.toByteArray();
+      }
+      File file = new File(options.filePath);
+      OutputStream stream = new FileOutputStream(file);
+      try {
+        if (!scaled.compress(options.format, options.quality, stream)) {
+          throw new IOException("Can't encode snapshot to " + file);
+        }
+      } finally {
+        stream.close();
+      }
+      return file.getAbsolutePath();
+    } finally {
+      if (scaled != bitmap) {
+        scaled.recycle();
+      }
+    }
+  }
+}
@@ -0,0 +1,331 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import android.util.Log;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import com.google.android.gms.maps.model.Tile;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Memory and disk cache of the tiles of a single tile overlay.
+ *
+ * <p>Both levels are bounded by the total size of the tile data they hold and evict the least
+ * recently used tiles first. Tiles older than the time to live, when one is set, are treated as
+ * missing. Tiles found on disk are promoted to memory. All methods may be called from any thread.
+ */
+class TileCache {
+  private static final String TAG = "TileCache";
+  // Accounts for the bookkeeping of tiles without data.
+  private static final int TILE_OVERHEAD_BYTES = 64;
+
+  /** Configuration of a tile cache. */
+  static final class Options {
+    static final long DEFAULT_MEMORY_CACHE_SIZE_BYTES = 8 * 1024 * 1024;
+
+    final long memoryCacheSizeBytes;
+    final long diskCacheSizeBytes;
+    final long timeToLiveMillis;
+
+    Options(long memoryCacheSizeBytes, long diskCacheSizeBytes, long timeToLiveMillis) {
+      this.memoryCacheSizeBytes = memoryCacheSizeBytes;
+      this.diskCacheSizeBytes = diskCacheSizeBytes;
+      this.timeToLiveMillis = timeToLiveMillis;
+    }
+  }
+
+  private final Options options;
+  @Nullable private final File directory;
+  // Ordered from least to most recently used.
+  private final LinkedHashMap<String, MemoryEntry> memoryEntries =
+      new LinkedHashMap<>(16, 0.75f, true);
+  private final LinkedHashMap<String, File> diskEntries = new LinkedHashMap<>(16, 0.75f, true);
+  private long memorySizeBytes;
+  private long diskSizeBytes;
+  private boolean diskLoaded;
+  private volatile boolean deleted;
+  private final AtomicLong memoryHits = new AtomicLong();
+  private final AtomicLong diskHits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  /**
+   * Creates a cache that stores tiles in directory, or only in memory if directory is null or the
+   * disk cache size is not positive.
+   */
+  TileCache(@Nullable File directory, Options options) {
+    this.options = options;
+    this.directory = options.diskCacheSizeBytes > 0 ? directory : null;
+  }
+
+  /** Returns the cached tile, or null if it is not cached or has expired. */
+  @Nullable
+  Tile get(int x, int y, int zoom) {
+    String key = key(x, y, zoom);
+    long now = System.currentTimeMillis();
+    synchronized (memoryEntries) {
+      MemoryEntry entry = memoryEntries.get(key);
+      if (entry != null) {
+        if (!isExpired(entry.createdAtMillis, now)) {
+          memoryHits.incrementAndGet();
+          return entry.tile;
+        }
+        memoryEntries.remove(key);
+        memorySizeBytes -= sizeOf(entry.tile);
+      }
+    }
+    Tile tile = readFromDisk(key, now);
+    if (tile == null) {
+      misses.incrementAndGet();
+      return null;
+    }
+    diskHits.incrementAndGet();
+    putInMemory(key, tile, now);
+    return tile;
+  }
+
+  void put(int x, int y, int zoom, Tile tile) {
+    String key = key(x, y, zoom);
+    long now = System.currentTimeMillis();
+    putInMemory(key, tile, now);
+    if (tile.data != null) {
+      writeToDisk(key, tile);
+    }
+  }
+
+  /** Drops every cached tile, from memory and from disk. */
+  void clear() {
+    synchronized (memoryEntries) {
+      memoryEntries.clear();
+      memorySizeBytes = 0;
+    }
+    if (directory == null) {
+      return;
+    }
+    synchronized (diskEntries) {
+      loadDiskIfNeeded();
+      for (File file : diskEntries.values()) {
+        file.delete();
+      }
+      diskEntries.clear();
+      diskSizeBytes = 0;
+    }
+  }
+
+  /**
+   * Drops every cached tile and deletes the cache directory. Tiles put afterwards are only kept in
+   * memory.
+   */
+  void delete() {
+    deleted = true;
+    clear();
+    if (directory == null) {
+      return;
+    }
+    synchronized (diskEntries) {
+      File[] files = directory.listFiles();
+      if (files != null) {
+        for (File file : files) {
+          file.delete();
+        }
+      }
+      directory.delete();
+    }
+  }
+
+  long getMemoryHits() {
+    return memoryHits.get();
+  }
+
+  long getDiskHits() {
+    return diskHits.get();
+  }
+
+  long getMisses() {
+    return misses.get();
+  }
+
+  private void putInMemory(String key, Tile tile, long now) {
+    if (options.memoryCacheSizeBytes <= 0) {
+      return;
+    }
+    synchronized (memoryEntries) {
+      MemoryEntry previous = memoryEntries.put(key, new MemoryEntry(tile, now));
+      if (previous != null) {
+        memorySizeBytes -= sizeOf(previous.tile);
+      }
+      memorySizeBytes += sizeOf(tile);
+      Iterator<MemoryEntry> iterator = memoryEntries.values().iterator();
+      while (memorySizeBytes > options.memoryCacheSizeBytes && iterator.hasNext()) {
+        memorySizeBytes -= sizeOf(iterator.next().tile);
+        iterator.remove();
+      }
+    }
+  }
+
+  @Nullable
+  private Tile readFromDisk(String key, long now) {
+    if (directory == null) {
+      return null;
+    }
+    File file;
+    synchronized (diskEntries) {
+      loadDiskIfNeeded();
+      file = diskEntries.get(key);
+      if (file == null) {
+        return null;
+      }
+      if (isExpired(file.lastModified(), now)) {
+        diskEntries.remove(key);
+        diskSizeBytes -= file.length();
+        file.delete();
+        return null;
+      }
+    }
+    DataInputStream input = null;
+    try {
+      input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      int width = input.readInt();
+      int height = input.readInt();
+      byte[] data = new byte[(int) file.length() - 8];
+      input.readFully(data);
+      return new Tile(width, height, data);
+    } catch (IOException e) {
+      Log.w(TAG, "Can't read cached tile " + file, e);
+      return null;
+    } finally {
+      closeQuietly(input);
+    }
+  }
+
+  private void writeToDisk(String key, Tile tile) {
+    if (directory == null || deleted || (!directory.exists() && !directory.mkdirs())) {
+      return;
+    }
+    synchronized (diskEntries) {
+      // Loading deletes temporary files, so it must not happen while this tile is being written.
+      loadDiskIfNeeded();
+    }
+    // Written to a temporary file first so that readers never see a partial tile.
+    File temporaryFile = new File(directory, key + ".tmp");
+    DataOutputStream output = null;
+    try {
+      output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)));
+      output.writeInt(tile.width);
+      output.writeInt(tile.height);
+      output.write(tile.data);
+      output.close();
+    } catch (IOException e) {
+      Log.w(TAG, "Can't cache tile " + key, e);
+      closeQuietly(output);
+      temporaryFile.delete();
+      return;
+    }
+    File file = new File(directory, key);
+    synchronized (diskEntries) {
+      loadDiskIfNeeded();
+      File previous = diskEntries.remove(key);
+      if (previous != null) {
+        diskSizeBytes -= previous.length();
+      }
+      if (deleted || !temporaryFile.renameTo(file)) {
+        temporaryFile.delete();
+        return;
+      }
+      diskEntries.put(key, file);
+      diskSizeBytes += file.length();
+      trimDisk();
+    }
+  }
+
+  // Must be called while holding the diskEntries lock. After a restart, tiles are ordered by the
+  // time they were written, as the modification time is also what the time to live is based on.
+  private void loadDiskIfNeeded() {
+    if (diskLoaded) {
+      return;
+    }
+    diskLoaded = true;
+    File[] files = directory.listFiles();
+    if (files == null) {
+      return;
+    }
+    Arrays.sort(
+        files,
+        new Comparator<File>() {
+          @Override
+          public int compare(File a, File b) {
+            long difference = a.lastModified() - b.lastModified();
+            return difference < 0 ? -1 : (difference > 0 ? 1 : 0);
+          }
+        });
+    for (File file : files) {
+      if (file.getName().endsWith(".tmp")) {
+        file.delete();
+        continue;
+      }
+      diskEntries.put(file.getName(), file);
+      diskSizeBytes += file.length();
+    }
+    trimDisk();
+  }
+
+  // Must be called while holding the diskEntries lock.
+  private void trimDisk() {
+    Iterator<File> iterator = diskEntries.values().iterator();
+    while (diskSizeBytes > options.diskCacheSizeBytes && iterator.hasNext()) {
+      File file = iterator.next();
+      iterator.remove();
+      diskSizeBytes -= file.length();
+      file.delete();
+    }
+  }
+
+  private boolean isExpired(long createdAtMillis, long now) {
+    return options.timeToLiveMillis > 0 && now - createdAtMillis > options.timeToLiveMillis;
+  }
+
+  @VisibleForTesting
+  static String key(int x, int y, int zoom) {
+    return zoom + "_" + x + "_" + y;
+  }
+
+  private static long sizeOf(Tile tile) {
+    return TILE_OVERHEAD_BYTES + (tile.data != null ? tile.data.length : 0);
+  }
+
+  private static void closeQuietly(@Nullable Closeable closeable) {
+    if (closeable == null) {
+      return;
+    }
+    try {
+      closeable.close();
+    } catch (IOException e) {
+      // Nothing left to do with the stream.
+    }
+  }
+
+  private static final class MemoryEntry {
+    final Tile tile;
+    final long createdAtMillis;
+
+    MemoryEntry(Tile tile, long createdAtMillis) {
+      this.tile = tile;
+      this.createdAtMillis = createdAtMillis;
+    }
+  }
+}
@@ -10,6 +10,7 @@ import com.google.android.gms.maps.model.TileProvider;
 class TileOverlayBuilder implements TileOverlaySink {
 
   private final TileOverlayOptions tileOverlayOptions;
+  private TileSource tileSource;
 
   TileOverlayBuilder() {
     this.tileOverlayOptions = new TileOverlayOptions();
@@ -19,6 +20,11 @@ class TileOverlayBuilder implements TileOverlaySink {
     return tileOverlayOptions;
   }
 
+  /** Returns the platform side tile source, or null if tiles are requested from Dart. */
+  TileSource getTileSource() {
+    return tileSource;
+  }
+
   @Override
   public void setFadeIn(boolean fadeIn) {
     tileOverlayOptions.fadeIn(fadeIn);
@@ -43,4 +49,9 @@ class TileOverlayBuilder implements TileOverlaySink {
   public void setTileProvider(TileProvider tileProvider) {
     tileOverlayOptions.tileProvider(tileProvider);
   }
+
+  @Override
+  public void setTileSource(TileSource tileSource) {
+    this.tileSource = tileSource;
+  }
 }
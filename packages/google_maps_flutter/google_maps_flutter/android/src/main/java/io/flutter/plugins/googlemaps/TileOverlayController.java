@@ -4,6 +4,7 @@
 
 package io.flutter.plugins.googlemaps;
 
+import androidx.annotation.Nullable;
 import com.google.android.gms.maps.model.TileOverlay;
 import com.google.android.gms.maps.model.TileProvider;
 import java.util.HashMap;
@@ -12,19 +13,49 @@ import java.util.Map;
 class TileOverlayController implements TileOverlaySink {
 
   private final TileOverlay tileOverlay;
+  private final CachingTileProvider tileProvider;
+  @Nullable private final TileCache tileCache;
+  @Nullable private final String tileSourceKey;
 
-  TileOverlayController(TileOverlay tileOverlay) {
+  TileOverlayController(
+      TileOverlay tileOverlay,
+      CachingTileProvider tileProvider,
+      @Nullable TileCache tileCache,
+      @Nullable String tileSourceKey) {
     this.tileOverlay = tileOverlay;
+    this.tileProvider = tileProvider;
+    this.tileCache = tileCache;
+    this.tileSourceKey = tileSourceKey;
+  }
+
+  /** Returns the cache key of the platform side tile source, or null if Dart provides tiles. */
+  @Nullable
+  String getTileSourceKey() {
+    return tileSourceKey;
   }
 
   void remove() {
     tileOverlay.remove();
+    dispose();
+  }
+
+  /** Releases the tile provider and deletes the tiles cached on disk. */
+  void dispose() {
+    tileProvider.dispose();
+    if (tileCache != null) {
+      tileCache.delete();
+    }
   }
 
   void clearTileCache() {
+    tileProvider.clearTileCache();
     tileOverlay.clearTileCache();
   }
 
+  Map<String, Object> getTileCacheMetrics() {
+    return tileProvider.getTileCacheMetrics();
+  }
+
   Map<String, Object> getTileOverlayInfo() {
     Map<String, Object> tileOverlayInfo = new HashMap<>();
     tileOverlayInfo.put("fadeIn", tileOverlay.getFadeIn());
@@ -59,4 +90,9 @@ class TileOverlayController implements TileOverlaySink {
   public void setTileProvider(TileProvider tileProvider) {
     // You can not change tile provider after creation
   }
+
+  @Override
+  public void setTileSource(TileSource tileSource) {
+    // You can not change tile source after creation
+  }
 }
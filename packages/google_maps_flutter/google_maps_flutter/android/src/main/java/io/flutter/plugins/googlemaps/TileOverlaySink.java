@@ -17,4 +17,6 @@ interface TileOverlaySink {
   void setVisible(boolean visible);
 
   void setTileProvider(TileProvider tileProvider);
+
+  void setTileSource(TileSource tileSource);
 }
@@ -4,23 +4,32 @@
 
 package io.flutter.plugins.googlemaps;
 
+import androidx.annotation.Nullable;
 import com.google.android.gms.maps.GoogleMap;
 import com.google.android.gms.maps.model.TileOverlay;
 import com.google.android.gms.maps.model.TileOverlayOptions;
 import io.flutter.plugin.common.MethodChannel;
+import java.io.File;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 class TileOverlaysController {
+  private static final String TILE_CACHE_DIRECTORY_NAME = "google_maps_tiles";
 
   private final Map<String, TileOverlayController> tileOverlayIdToController;
   private final MethodChannel methodChannel;
+  private final File cacheDirectory;
+  private final int mapId;
   private GoogleMap googleMap;
 
-  TileOverlaysController(MethodChannel methodChannel) {
+  TileOverlaysController(MethodChannel methodChannel, File cacheDirectory, int mapId) {
     this.tileOverlayIdToController = new HashMap<>();
     this.methodChannel = methodChannel;
+    this.cacheDirectory = cacheDirectory;
+    this.mapId = mapId;
   }
 
   void setGoogleMap(GoogleMap googleMap) {
@@ -78,6 +87,23 @@ class TileOverlaysController {
     return tileOverlayController.getTileOverlayInfo();
   }
 
+  Map<String, Object> getTileCacheMetrics(String tileOverlayId) {
+    if (tileOverlayId == null) {
+      return null;
+    }
+    TileOverlayController tileOverlayController = tileOverlayIdToController.get(tileOverlayId);
+    if (tileOverlayController == null) {
+      return null;
+    }
+    return tileOverlayController.getTileCacheMetrics();
+  }
+
+  void dispose() {
+    for (TileOverlayController tileOverlayController : tileOverlayIdToController.values()) {
+      tileOverlayController.dispose();
+    }
+  }
+
   private void addTileOverlay(Map<String, ?> tileOverlayOptions) {
     if (tileOverlayOptions == null) {
       return;
@@ -85,24 +111,78 @@ class TileOverlaysController {
     TileOverlayBuilder tileOverlayOptionsBuilder = new TileOverlayBuilder();
     String tileOverlayId =
         Convert.interpretTileOverlayOptions(tileOverlayOptions, tileOverlayOptionsBuilder);
-    TileProviderController tileProviderController =
-        new TileProviderController(methodChannel, tileOverlayId);
-    tileOverlayOptionsBuilder.setTileProvider(tileProviderController);
+    TileSource tileSource = tileOverlayOptionsBuilder.getTileSource();
+    TileCache.Options tileCacheOptions =
+        Convert.toTileCacheOptions(tileOverlayOptions.get("tileCache"));
+    if (tileCacheOptions == null && tileSource instanceof UrlTemplateTileSource) {
+      tileCacheOptions = UrlTemplateTileSource.DEFAULT_CACHE_OPTIONS;
+    } else if (tileCacheOptions == null && tileSource instanceof HeatmapTileSource) {
+      tileCacheOptions = HeatmapTileSource.DEFAULT_CACHE_OPTIONS;
+    }
+    String tileSourceKey = tileSource != null ? tileSource.getCacheKey() : null;
+    TileCache tileCache =
+        tileCacheOptions != null
+            ? new TileCache(tileCacheDirectory(tileOverlayId, tileSourceKey), tileCacheOptions)
+            : null;
+    long timeoutMillis =
+        Convert.toTileRequestTimeoutMillis(tileOverlayOptions.get("tileRequestTimeoutMillis"));
+    CachingTileProvider tileProvider =
+        tileSource != null
+            ? new NativeTileProvider(tileSource, tileCache, timeoutMillis)
+            : new TileProviderController(methodChannel, tileOverlayId, tileCache, timeoutMillis);
+    tileOverlayOptionsBuilder.setTileProvider(tileProvider);
     TileOverlayOptions options = tileOverlayOptionsBuilder.build();
     TileOverlay tileOverlay = googleMap.addTileOverlay(options);
-    TileOverlayController tileOverlayController = new TileOverlayController(tileOverlay);
+    TileOverlayController tileOverlayController =
+        new TileOverlayController(tileOverlay, tileProvider, tileCache, tileSourceKey);
     tileOverlayIdToController.put(tileOverlayId, tileOverlayController);
   }
 
+  /**
+   * Returns the directory of the disk cache of an overlay. Overlays with the same id on other maps,
+   * or with another tile source, get another directory. Tiles provided by Dart can only be told
+   * apart by overlay id and map.
+   */
+  private File tileCacheDirectory(String tileOverlayId, @Nullable String tileSourceKey) {
+    try {
+      String sourceKey = mapId + "\n" + (tileSourceKey != null ? tileSourceKey : "dart");
+      return new File(
+          new File(cacheDirectory, TILE_CACHE_DIRECTORY_NAME),
+          URLEncoder.encode(tileOverlayId, "UTF-8")
+              + "_"
+              + BitmapDescriptorCache.contentKey(sourceKey.getBytes("UTF-8")));
+    } catch (UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
   private void changeTileOverlay(Map<String, ?> tileOverlayOptions) {
     if (tileOverlayOptions == null) {
       return;
     }
     String tileOverlayId = getTileOverlayId(tileOverlayOptions);
     TileOverlayController tileOverlayController = tileOverlayIdToController.get(tileOverlayId);
-    if (tileOverlayController != null) {
-      Convert.interpretTileOverlayOptions(tileOverlayOptions, tileOverlayController);
+    if (tileOverlayController == null) {
+      return;
+    }
+    Object tileSourceOptions = tileOverlayOptions.get("tileSource");
+    TileSource tileSource =
+        tileSourceOptions != null ? Convert.toTileSource(tileSourceOptions) : null;
+    String tileSourceKey = tileSource != null ? tileSource.getCacheKey() : null;
+    if (tileSource != null) {
+      tileSource.close();
+    }
+    if (tileSourceKey == null
+        ? tileOverlayController.getTileSourceKey() != null
+        : !tileSourceKey.equals(tileOverlayController.getTileSourceKey())) {
+      // The tile provider can't be swapped, so the overlay is added again with the new source.
+      removeTileOverlay(tileOverlayId);
+      addTileOverlay(tileOverlayOptions);
+      return;
     }
+    Map<String, Object> otherOptions = new HashMap<>(tileOverlayOptions);
+    otherOptions.remove("tileSource");
+    Convert.interpretTileOverlayOptions(otherOptions, tileOverlayController);
   }
 
   private void removeTileOverlay(String tileOverlayId) {
@@ -7,32 +7,88 @@ package io.flutter.plugins.googlemaps;
 import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
-import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import com.google.android.gms.maps.model.Tile;
 import com.google.android.gms.maps.model.TileProvider;
 import io.flutter.plugin.common.MethodChannel;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
-class TileProviderController implements TileProvider {
+class TileProviderController implements CachingTileProvider {
 
   private static final String TAG = "TileProviderController";
+  static final long DEFAULT_TIMEOUT_MILLIS = 30000;
 
   private final String tileOverlayId;
   private final MethodChannel methodChannel;
   private final Handler handler = new Handler(Looper.getMainLooper());
+  @Nullable private final TileCache tileCache;
+  private final long timeoutMillis;
+  // Requests to Dart that are in flight, so that concurrent requests for a tile share one.
+  private final ConcurrentHashMap<String, Worker> pendingWorkers = new ConcurrentHashMap<>();
+  private final AtomicLong coalescedRequests = new AtomicLong();
+  private final AtomicLong timeouts = new AtomicLong();
 
   TileProviderController(MethodChannel methodChannel, String tileOverlayId) {
+    this(methodChannel, tileOverlayId, null, DEFAULT_TIMEOUT_MILLIS);
+  }
+
+  TileProviderController(
+      MethodChannel methodChannel,
+      String tileOverlayId,
+      @Nullable TileCache tileCache,
+      long timeoutMillis) {
     this.tileOverlayId = tileOverlayId;
     this.methodChannel = methodChannel;
+    this.tileCache = tileCache;
+    this.timeoutMillis = timeoutMillis;
   }
 
   @Override
   public Tile getTile(final int x, final int y, final int zoom) {
+    if (tileCache != null) {
+      Tile cachedTile = tileCache.get(x, y, zoom);
+      if (cachedTile != null) {
+        return cachedTile;
+      }
+    }
+    String key = TileCache.key(x, y, zoom);
     Worker worker = new Worker(x, y, zoom);
-    return worker.getTile();
+    Worker pendingWorker = pendingWorkers.putIfAbsent(key, worker);
+    if (pendingWorker != null) {
+      coalescedRequests.incrementAndGet();
+      return pendingWorker.awaitTile();
+    }
+    try {
+      worker.requestTile();
+      Tile tile = worker.awaitTile();
+      if (tileCache != null && tile != null && tile != TileProvider.NO_TILE) {
+        tileCache.put(x, y, zoom, tile);
+      }
+      return tile;
+    } finally {
+      pendingWorkers.remove(key, worker);
+    }
   }
 
+  @Override
+  public void clearTileCache() {
+    if (tileCache != null) {
+      tileCache.clear();
+    }
+  }
+
+  @Override
+  public Map<String, Object> getTileCacheMetrics() {
+    return Convert.tileCacheMetricsToJson(tileCache, coalescedRequests.get(), timeouts.get());
+  }
+
+  @Override
+  public void dispose() {}
+
   private final class Worker implements MethodChannel.Result {
 
     private final CountDownLatch countDownLatch = new CountDownLatch(1);
@@ -40,6 +96,7 @@ class TileProviderController implements TileProvider {
     private final int y;
     private final int zoom;
     private Map<String, ?> result;
+    private volatile Tile tile;
 
     Worker(int x, int y, int zoom) {
       this.x = x;
@@ -47,17 +104,32 @@ class TileProviderController implements TileProvider {
       this.zoom = zoom;
     }
 
-    @NonNull
-    Tile getTile() {
+    void requestTile() {
       handler.post(
           () ->
               methodChannel.invokeMethod(
                   "tileOverlay#getTile",
                   Convert.tileOverlayArgumentsToJson(tileOverlayId, x, y, zoom),
                   this));
+    }
+
+    /**
+     * Waits for the tile requested by requestTile.
+     *
+     * <p>Returns null, so that the map requests the tile again later, if Dart does not answer in
+     * time.
+     */
+    Tile awaitTile() {
       try {
         // Because `methodChannel.invokeMethod` is async, we use a `countDownLatch` make it synchronized.
-        countDownLatch.await();
+        if (!countDownLatch.await(timeoutMillis, TimeUnit.MILLISECONDS)) {
+          timeouts.incrementAndGet();
+          Log.w(
+              TAG,
+              String.format(
+                  "Timed out waiting for tile: x = %d, y= %d, zoom = %d", x, y, zoom));
+          return null;
+        }
       } catch (InterruptedException e) {
         Log.e(
             TAG,
@@ -65,18 +137,23 @@ class TileProviderController implements TileProvider {
             e);
         return TileProvider.NO_TILE;
       }
+      return tile;
+    }
+
+    private void finish() {
       try {
-        return Convert.interpretTile(result);
+        tile = Convert.interpretTile(result);
       } catch (Exception e) {
         Log.e(TAG, "Can't parse tile data", e);
-        return TileProvider.NO_TILE;
+        tile = TileProvider.NO_TILE;
       }
+      countDownLatch.countDown();
     }
 
     @Override
     public void success(Object data) {
       result = (Map<String, ?>) data;
-      countDownLatch.countDown();
+      finish();
     }
 
     @Override
@@ -87,14 +164,14 @@ class TileProviderController implements TileProvider {
               "Can't get tile: errorCode = %s, errorMessage = %s, date = %s",
               errorCode, errorCode, data));
       result = null;
-      countDownLatch.countDown();
+      finish();
     }
 
     @Override
     public void notImplemented() {
       Log.e(TAG, "Can't get tile: notImplemented");
       result = null;
-      countDownLatch.countDown();
+      finish();
     }
   }
 }
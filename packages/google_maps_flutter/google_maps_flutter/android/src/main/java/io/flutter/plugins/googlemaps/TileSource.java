@@ -0,0 +1,40 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import androidx.annotation.Nullable;
+import java.io.IOException;
+
+/**
+ * Source of tile images read on the platform side, without asking Dart for every tile.
+ *
+ * <p>Tiles are addressed like the tiles of a {@code TileProvider}, with y growing southwards.
+ * Implementations are called from several threads at once.
+ */
+abstract class TileSource {
+  static final int DEFAULT_TILE_SIZE = 256;
+  static final int DEFAULT_MAX_CONCURRENT_READS = 4;
+
+  final int tileSize;
+  final int maxConcurrentReads;
+
+  TileSource(int tileSize, int maxConcurrentReads) {
+    this.tileSize = tileSize;
+    this.maxConcurrentReads = maxConcurrentReads;
+  }
+
+  /** Returns the encoded image of a tile, or null if the source has no such tile. */
+  @Nullable
+  abstract byte[] readTile(int x, int y, int zoom) throws IOException;
+
+  /**
+   * Returns a description of everything the tiles of the source depend on, which tells cached
+   * tiles of different sources apart.
+   */
+  abstract String getCacheKey();
+
+  /** Releases the resources held by the source. Called once the tile overlay is removed. */
+  void close() {}
+}
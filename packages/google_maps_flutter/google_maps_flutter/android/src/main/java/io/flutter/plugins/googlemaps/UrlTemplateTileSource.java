@@ -0,0 +1,98 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Downloads tiles from a URL template such as {@code https://tile.example.com/{z}/{x}/{y}.png}.
+ *
+ * <p>Tiles the server answers with 404 or 204 are treated as missing, other failures as errors so
+ * that the tile is requested again later.
+ */
+class UrlTemplateTileSource extends TileSource {
+  static final int CONNECT_TIMEOUT_MILLIS = 10000;
+  static final int READ_TIMEOUT_MILLIS = 15000;
+  // Downloaded tiles are kept on disk for a week unless the overlay configures its own tile cache.
+  static final TileCache.Options DEFAULT_CACHE_OPTIONS =
+      new TileCache.Options(
+          TileCache.Options.DEFAULT_MEMORY_CACHE_SIZE_BYTES,
+          64 * 1024 * 1024,
+          7 * 24 * 60 * 60 * 1000L);
+
+  private final String urlTemplate;
+  private final Map<String, String> headers;
+
+  UrlTemplateTileSource(
+      String urlTemplate, Map<String, String> headers, int tileSize, int maxConcurrentReads) {
+    super(tileSize, maxConcurrentReads);
+    this.urlTemplate = urlTemplate;
+    this.headers = headers;
+  }
+
+  @Override
+  String getCacheKey() {
+    // Sorted so that the key does not depend on the order of the headers.
+    return "urlTemplate:" + tileSize + ":" + urlTemplate + ":" + new TreeMap<>(headers);
+  }
+
+  @Nullable
+  @Override
+  byte[] readTile(int x, int y, int zoom) throws IOException {
+    HttpURLConnection connection =
+        (HttpURLConnection) new URL(tileUrl(urlTemplate, x, y, zoom)).openConnection();
+    try {
+      connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+      connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+      for (Map.Entry<String, String> header : headers.entrySet()) {
+        connection.setRequestProperty(header.getKey(), header.getValue());
+      }
+      int responseCode = connection.getResponseCode();
+      if (responseCode == HttpURLConnection.HTTP_NOT_FOUND
+          || responseCode == HttpURLConnection.HTTP_NO_CONTENT) {
+        return null;
+      }
+      if (responseCode != HttpURLConnection.HTTP_OK) {
+        throw new IOException(
+            "Unexpected response " + responseCode + " from " + connection.getURL());
+      }
+      InputStream input = connection.getInputStream();
+      try {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[16 * 1024];
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+          output.write(buffer, 0, read);
+        }
+        return output.toByteArray();
+      } finally {
+        input.close();
+      }
+    } finally {
+      connection.disconnect();
+    }
+  }
+
+  /**
+   * Fills in the {x}, {y} and {z} placeholders of a URL template. A {-y} placeholder is replaced
+   * by the row numbered from the south, for TMS servers.
+   */
+  @VisibleForTesting
+  static String tileUrl(String urlTemplate, int x, int y, int zoom) {
+    return urlTemplate
+        .replace("{x}", String.valueOf(x))
+        .replace("{-y}", String.valueOf(MBTilesTileSource.tmsRow(y, zoom)))
+        .replace("{y}", String.valueOf(y))
+        .replace("{z}", String.valueOf(zoom));
+  }
+}
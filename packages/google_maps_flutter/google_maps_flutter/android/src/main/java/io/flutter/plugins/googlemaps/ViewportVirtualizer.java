@@ -0,0 +1,298 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import androidx.annotation.VisibleForTesting;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps only the map objects of one kind that are in or near the visible region on the map.
+ *
+ * <p>Every object is indexed by its bounding box in a hierarchical grid: an object is stored in
+ * the cell containing its south west corner, at the finest level whose cells are at least as large
+ * as the object. Whenever the visible region changes, the objects intersecting it, grown by the
+ * margin on every side, are materialized through the {@link Delegate} and the others are
+ * dematerialized. Objects added or moved while a visible region is known are materialized or
+ * dematerialized right away. Must be used on the platform thread.
+ */
+class ViewportVirtualizer {
+
+  /** Adds objects to and removes them from the map. */
+  interface Delegate {
+    void materialize(String id);
+
+    void dematerialize(String id);
+  }
+
+  // The finest level has cells of about 0.005 degrees, which holds every point.
+  private static final int LEVEL_COUNT = 17;
+  private static final double METERS_PER_DEGREE = 111320;
+
+  private final Delegate delegate;
+  private final Map<String, Entry> entries = new HashMap<>();
+  private final List<Map<Long, List<Entry>>> levels = new ArrayList<>(LEVEL_COUNT);
+  private final Set<String> materializedIds = new HashSet<>();
+  private float margin;
+  // The regions objects are materialized in, or null until the visible region is known.
+  private List<double[]> regions;
+
+  ViewportVirtualizer(Delegate delegate, float margin) {
+    this.delegate = delegate;
+    this.margin = margin;
+    for (int level = 0; level < LEVEL_COUNT; level++) {
+      levels.add(new HashMap<Long, List<Entry>>());
+    }
+  }
+
+  /** Sets the part of the visible region's size added on every side of it. */
+  void setMargin(float margin) {
+    this.margin = margin;
+  }
+
+  boolean isEmpty() {
+    return entries.isEmpty();
+  }
+
+  /** Adds or moves an object spanning points. */
+  void put(String id, List<LatLng> points) {
+    double south = 90;
+    double west = 180;
+    double north = -90;
+    double east = -180;
+    for (LatLng point : points) {
+      south = Math.min(south, point.latitude);
+      north = Math.max(north, point.latitude);
+      west = Math.min(west, point.longitude);
+      east = Math.max(east, point.longitude);
+    }
+    if (south > north) {
+      // No points: the object is never visible.
+      south = north = west = east = 0;
+    }
+    put(id, south, west, north, east);
+  }
+
+  /** Adds or moves a circle. */
+  void put(String id, LatLng center, double radiusMeters) {
+    double latitudeRadius = radiusMeters / METERS_PER_DEGREE;
+    double south = Math.max(-90, center.latitude - latitudeRadius);
+    double north = Math.min(90, center.latitude + latitudeRadius);
+    double cosLatitude = Math.cos(Math.toRadians(Math.max(Math.abs(south), Math.abs(north))));
+    double longitudeRadius =
+        cosLatitude > 1e-6 ? radiusMeters / (METERS_PER_DEGREE * cosLatitude) : 180;
+    if (longitudeRadius >= 180) {
+      put(id, south, -180, north, 180);
+    } else {
+      put(
+          id,
+          south,
+          Math.max(-180, center.longitude - longitudeRadius),
+          north,
+          Math.min(180, center.longitude + longitudeRadius));
+    }
+  }
+
+  @VisibleForTesting
+  void put(String id, double south, double west, double north, double east) {
+    Entry entry = new Entry(id, south, west, north, east);
+    removeFromIndex(id);
+    entries.put(id, entry);
+    Map<Long, List<Entry>> cells = levels.get(entry.level);
+    List<Entry> cell = cells.get(entry.cell);
+    if (cell == null) {
+      cell = new ArrayList<>();
+      cells.put(entry.cell, cell);
+    }
+    cell.add(entry);
+    if (regions == null) {
+      return;
+    }
+    boolean visible = entry.intersectsAny(regions);
+    boolean materialized = materializedIds.contains(id);
+    if (visible && !materialized) {
+      materializedIds.add(id);
+      delegate.materialize(id);
+    } else if (!visible && materialized) {
+      materializedIds.remove(id);
+      delegate.dematerialize(id);
+    }
+  }
+
+  void remove(String id) {
+    removeFromIndex(id);
+    if (materializedIds.remove(id)) {
+      delegate.dematerialize(id);
+    }
+  }
+
+  /** Materializes the objects near visibleBounds and dematerializes the others. */
+  void setVisibleRegion(LatLngBounds visibleBounds) {
+    regions =
+        regionsAround(
+            visibleBounds.southwest.latitude,
+            visibleBounds.southwest.longitude,
+            visibleBounds.northeast.latitude,
+            visibleBounds.northeast.longitude,
+            margin);
+    Set<String> visibleIds = query(regions);
+    Iterator<String> materialized = materializedIds.iterator();
+    while (materialized.hasNext()) {
+      String id = materialized.next();
+      if (!visibleIds.contains(id)) {
+        materialized.remove();
+        delegate.dematerialize(id);
+      }
+    }
+    for (String id : visibleIds) {
+      if (materializedIds.add(id)) {
+        delegate.materialize(id);
+      }
+    }
+  }
+
+  /**
+   * Returns the regions, as {south, west, north, east} arrays that do not cross the antimeridian,
+   * covering the visible bounds grown by margin times their size on every side.
+   */
+  @VisibleForTesting
+  static List<double[]> regionsAround(
+      double south, double west, double north, double east, float margin) {
+    double latitudeSpan = north - south;
+    double longitudeSpan = east >= west ? east - west : east - west + 360;
+    south = Math.max(-90, south - latitudeSpan * margin);
+    north = Math.min(90, north + latitudeSpan * margin);
+    List<double[]> regions = new ArrayList<>(2);
+    if (longitudeSpan * (1 + 2 * margin) >= 360) {
+      regions.add(new double[] {south, -180, north, 180});
+      return regions;
+    }
+    west -= longitudeSpan * margin;
+    east = west + longitudeSpan * (1 + 2 * margin);
+    if (west < -180) {
+      regions.add(new double[] {south, west + 360, north, 180});
+      regions.add(new double[] {south, -180, north, east});
+    } else if (east > 180) {
+      regions.add(new double[] {south, west, north, 180});
+      regions.add(new double[] {south, -180, north, east - 360});
+    } else {
+      regions.add(new double[] {south, west, north, east});
+    }
+    return regions;
+  }
+
+  @VisibleForTesting
+  Set<String> query(List<double[]> regions) {
+    Set<String> ids = new HashSet<>();
+    for (int level = 0; level < LEVEL_COUNT; level++) {
+      Map<Long, List<Entry>> cells = levels.get(level);
+      if (cells.isEmpty()) {
+        continue;
+      }
+      double cellSize = cellSize(level);
+      for (double[] region : regions) {
+        // Objects extend up to one cell beyond the cell they are stored in.
+        long minX = cellIndex(region[1] + 180 - cellSize, cellSize);
+        long maxX = cellIndex(region[3] + 180, cellSize);
+        long minY = cellIndex(region[0] + 90 - cellSize, cellSize);
+        long maxY = cellIndex(region[2] + 90, cellSize);
+        if ((maxX - minX + 1) * (maxY - minY + 1) > cells.size()) {
+          for (List<Entry> cell : cells.values()) {
+            addIntersecting(cell, region, ids);
+          }
+          continue;
+        }
+        for (long x = minX; x <= maxX; x++) {
+          for (long y = minY; y <= maxY; y++) {
+            List<Entry> cell = cells.get(cellKey(x, y));
+            if (cell != null) {
+              addIntersecting(cell, region, ids);
+            }
+          }
+        }
+      }
+    }
+    return ids;
+  }
+
+  private void removeFromIndex(String id) {
+    Entry entry = entries.remove(id);
+    if (entry == null) {
+      return;
+    }
+    Map<Long, List<Entry>> cells = levels.get(entry.level);
+    List<Entry> cell = cells.get(entry.cell);
+    cell.remove(entry);
+    if (cell.isEmpty()) {
+      cells.remove(entry.cell);
+    }
+  }
+
+  private static void addIntersecting(List<Entry> cell, double[] region, Set<String> ids) {
+    for (Entry entry : cell) {
+      if (entry.intersects(region)) {
+        ids.add(entry.id);
+      }
+    }
+  }
+
+  private static double cellSize(int level) {
+    return 360.0 / (1 << level);
+  }
+
+  private static long cellIndex(double coordinate, double cellSize) {
+    return (long) Math.floor(coordinate / cellSize);
+  }
+
+  private static long cellKey(long x, long y) {
+    return (x << 32) | (y & 0xffffffffL);
+  }
+
+  private static final class Entry {
+    final String id;
+    final double south;
+    final double west;
+    final double north;
+    final double east;
+    final int level;
+    final long cell;
+
+    Entry(String id, double south, double west, double north, double east) {
+      this.id = id;
+      this.south = south;
+      this.west = west;
+      this.north = north;
+      this.east = east;
+      double extent = Math.max(north - south, east - west);
+      int level = LEVEL_COUNT - 1;
+      while (level > 0 && cellSize(level) < extent) {
+        level--;
+      }
+      this.level = level;
+      double cellSize = cellSize(level);
+      this.cell = cellKey(cellIndex(west + 180, cellSize), cellIndex(south + 90, cellSize));
+    }
+
+    boolean intersects(double[] region) {
+      return south <= region[2] && north >= region[0] && west <= region[3] && east >= region[1];
+    }
+
+    boolean intersectsAny(List<double[]> regions) {
+      for (double[] region : regions) {
+        if (intersects(region)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+}
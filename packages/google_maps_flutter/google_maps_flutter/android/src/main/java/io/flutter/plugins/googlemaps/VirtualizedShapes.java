@@ -0,0 +1,265 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import android.util.Log;
+import com.google.android.gms.maps.GoogleMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Adds, changes and removes the shapes of one kind sent by Dart, optionally keeping only the ones
+ * in or near the visible region on the map through a {@link ViewportVirtualizer}.
+ *
+ * <p>While virtualization is on, the definition of every shape is kept as last sent by Dart,
+ * together with the builder it was interpreted into, so that a shape coming back into view is
+ * added to the map without interpreting its options again. Shapes added already interpreted, or
+ * whose builder was handed out to be changed directly, are only kept as their builder. The shapes
+ * on the map are managed by the {@link Shapes} of the controller. Must be used on the platform
+ * thread.
+ *
+ * @param <B> the builder the options of a shape are interpreted into.
+ */
+class VirtualizedShapes<B> implements ViewportVirtualizer.Delegate {
+
+  /** The shapes of one kind on the map. */
+  interface Shapes<B> {
+    B newBuilder();
+
+    /** Interprets the options in json into builder, returning the id of the shape. */
+    String interpretOptions(Object json, B builder);
+
+    /** Returns true if applying change moves or resizes the shape. */
+    boolean changesBounds(Map<String, Object> change);
+
+    /** Records the bounds of the shape built by builder. */
+    void putBounds(ViewportVirtualizer virtualizer, String id, B builder);
+
+    void addToMap(String id, B builder);
+
+    /** Applies the options in json to the shape on the map, if there is one. */
+    void changeOnMap(String id, Object json);
+
+    void removeFromMap(String id);
+
+    boolean isMapEmpty();
+  }
+
+  private static final class Definition<B> {
+    // The options as last sent by Dart, or null if the builder is the only definition.
+    Map<String, Object> json;
+    // The interpreted json, or null until the shape is added to the map again.
+    B builder;
+
+    Definition(Map<String, Object> json, B builder) {
+      this.json = json;
+      this.builder = builder;
+    }
+  }
+
+  private final String tag;
+  private final String idKey;
+  private final Shapes<B> shapes;
+  // Every shape, while viewport virtualization is on.
+  private final Map<String, Definition<B>> definitions = new HashMap<>();
+  private ViewportVirtualizer virtualizer;
+
+  /** @param idKey the key of the shape id in the JSON definition of a shape. */
+  VirtualizedShapes(String tag, String idKey, Shapes<B> shapes) {
+    this.tag = tag;
+    this.idKey = idKey;
+    this.shapes = shapes;
+  }
+
+  /**
+   * Keeps only the shapes within margin times the size of the visible region around it on the
+   * map, or every shape if margin is not positive.
+   *
+   * <p>Virtualization can only be turned on or off while the map has no shapes of this kind.
+   */
+  void setViewportVirtualizationMargin(float margin) {
+    boolean enable = margin > 0;
+    if (enable && virtualizer != null) {
+      virtualizer.setMargin(margin);
+      return;
+    }
+    if (enable == (virtualizer != null)) {
+      return;
+    }
+    if (!shapes.isMapEmpty() || !definitions.isEmpty()) {
+      Log.w(tag, "Viewport virtualization can only be changed while the map has no shapes");
+      return;
+    }
+    virtualizer = enable ? new ViewportVirtualizer(this, margin) : null;
+  }
+
+  void onCameraIdle(GoogleMap googleMap) {
+    if (virtualizer != null && googleMap != null) {
+      virtualizer.setVisibleRegion(googleMap.getProjection().getVisibleRegion().latLngBounds);
+    }
+  }
+
+  void add(List<Object> shapesToAdd) {
+    if (shapesToAdd == null) {
+      return;
+    }
+    for (Object shape : shapesToAdd) {
+      if (shape == null) {
+        continue;
+      }
+      if (virtualizer != null) {
+        addVirtual(shape);
+        continue;
+      }
+      B builder = shapes.newBuilder();
+      String id = shapes.interpretOptions(shape, builder);
+      shapes.addToMap(id, builder);
+    }
+  }
+
+  /** Adds a shape whose options were already interpreted into builder. */
+  void addInterpreted(String id, B builder) {
+    if (virtualizer == null) {
+      shapes.addToMap(id, builder);
+      return;
+    }
+    if (definitions.containsKey(id)) {
+      virtualizer.remove(id);
+    }
+    definitions.put(id, new Definition<>(null, builder));
+    shapes.putBounds(virtualizer, id, builder);
+  }
+
+  /** Returns true if virtualization is on and the shape is known, on the map or not. */
+  boolean contains(String id) {
+    return definitions.containsKey(id);
+  }
+
+  /** Returns true if no shape is kept for virtualization. */
+  boolean isEmpty() {
+    return definitions.isEmpty();
+  }
+
+  /**
+   * Returns the builder of a shape while virtualization is on, or null if there is no such shape.
+   *
+   * <p>The builder becomes the only definition of the shape, so it can be changed directly as long
+   * as {@link #updateBounds} is called when the bounds of the shape change.
+   */
+  B getBuilder(String id) {
+    Definition<B> definition = definitions.get(id);
+    if (definition == null) {
+      return null;
+    }
+    if (definition.builder == null) {
+      definition.builder = shapes.newBuilder();
+      shapes.interpretOptions(definition.json, definition.builder);
+    }
+    definition.json = null;
+    return definition.builder;
+  }
+
+  /** Records the bounds of a shape whose builder was changed directly. */
+  void updateBounds(String id) {
+    Definition<B> definition = definitions.get(id);
+    if (definition != null) {
+      shapes.putBounds(virtualizer, id, definition.builder);
+    }
+  }
+
+  void change(List<Object> shapesToChange) {
+    if (shapesToChange == null) {
+      return;
+    }
+    for (Object shape : shapesToChange) {
+      if (shape == null) {
+        continue;
+      }
+      String id = getId(shape);
+      if (virtualizer != null) {
+        changeVirtual(id, shape);
+      } else {
+        shapes.changeOnMap(id, shape);
+      }
+    }
+  }
+
+  void remove(List<Object> idsToRemove) {
+    if (idsToRemove == null) {
+      return;
+    }
+    for (Object rawId : idsToRemove) {
+      if (rawId == null) {
+        continue;
+      }
+      String id = (String) rawId;
+      if (virtualizer != null) {
+        definitions.remove(id);
+        virtualizer.remove(id);
+      } else {
+        shapes.removeFromMap(id);
+      }
+    }
+  }
+
+  @Override
+  public void materialize(String id) {
+    Definition<B> definition = definitions.get(id);
+    if (definition.builder == null) {
+      definition.builder = shapes.newBuilder();
+      shapes.interpretOptions(definition.json, definition.builder);
+    }
+    shapes.addToMap(id, definition.builder);
+  }
+
+  @Override
+  public void dematerialize(String id) {
+    shapes.removeFromMap(id);
+  }
+
+  @SuppressWarnings("unchecked")
+  private void addVirtual(Object shape) {
+    Map<String, Object> json = new HashMap<>((Map<String, Object>) shape);
+    B builder = shapes.newBuilder();
+    String id = shapes.interpretOptions(json, builder);
+    if (definitions.containsKey(id)) {
+      virtualizer.remove(id);
+    }
+    definitions.put(id, new Definition<>(json, builder));
+    shapes.putBounds(virtualizer, id, builder);
+  }
+
+  @SuppressWarnings("unchecked")
+  private void changeVirtual(String id, Object shape) {
+    Definition<B> definition = definitions.get(id);
+    if (definition == null) {
+      return;
+    }
+    Map<String, Object> change = (Map<String, Object>) shape;
+    shapes.changeOnMap(id, change);
+    if (definition.json == null) {
+      shapes.interpretOptions(change, definition.builder);
+      if (shapes.changesBounds(change)) {
+        shapes.putBounds(virtualizer, id, definition.builder);
+      }
+      return;
+    }
+    definition.json.putAll(change);
+    // Builders only accumulate options, so the whole definition is interpreted again.
+    if (shapes.changesBounds(change)) {
+      definition.builder = shapes.newBuilder();
+      shapes.interpretOptions(definition.json, definition.builder);
+      shapes.putBounds(virtualizer, id, definition.builder);
+    } else {
+      definition.builder = null;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private String getId(Object shape) {
+    return (String) ((Map<String, Object>) shape).get(idKey);
+  }
+}
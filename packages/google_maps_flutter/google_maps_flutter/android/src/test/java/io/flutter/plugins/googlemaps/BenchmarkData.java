@@ -0,0 +1,148 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Map objects shaped like the ones sent by the Dart side, for the benchmarks.
+ *
+ * <p>The data is generated from a fixed seed so that every run measures the same work.
+ */
+final class BenchmarkData {
+  static final String SIZES_PROPERTY = "benchmark.sizes";
+  static final String REPORTS_DIRECTORY_PROPERTY = "benchmark.reportsDir";
+  static final String[] DEFAULT_SIZES = {"1000", "10000", "100000"};
+
+  private BenchmarkData() {}
+
+  /** Returns the object counts to benchmark, from the benchmark.sizes system property. */
+  static String[] sizes() {
+    String sizes = System.getProperty(SIZES_PROPERTY);
+    return sizes != null && !sizes.isEmpty() ? sizes.split(",") : DEFAULT_SIZES;
+  }
+
+  static File reportsDirectory() {
+    File directory = new File(System.getProperty(REPORTS_DIRECTORY_PROPERTY, "build/reports"));
+    directory.mkdirs();
+    return directory;
+  }
+
+  static List<Object> markers(int count, long seed) {
+    Random random = new Random(seed);
+    List<Object> markers = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      Map<String, Object> infoWindow = new HashMap<>();
+      infoWindow.put("title", "Marker " + i);
+      infoWindow.put("snippet", "Snippet " + i);
+      infoWindow.put("anchor", Arrays.asList(0.5, 0.0));
+      Map<String, Object> marker = new HashMap<>();
+      marker.put("markerId", "marker_" + i);
+      marker.put("alpha", 1.0);
+      marker.put("anchor", Arrays.asList(0.5, 1.0));
+      marker.put("consumeTapEvents", false);
+      marker.put("draggable", false);
+      marker.put("flat", false);
+      marker.put("infoWindow", infoWindow);
+      marker.put("position", randomLatLng(random));
+      marker.put("rotation", 0.0);
+      marker.put("visible", true);
+      marker.put("zIndex", 0.0);
+      markers.add(marker);
+    }
+    return markers;
+  }
+
+  /** Returns polylines whose points are lists of [latitude, longitude] or a packed array. */
+  static List<Object> polylines(int count, int pointCount, boolean packed, long seed) {
+    Random random = new Random(seed);
+    List<Object> polylines = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      Map<String, Object> polyline = new HashMap<>();
+      polyline.put("polylineId", "polyline_" + i);
+      polyline.put("color", 0xff0000ff);
+      polyline.put("consumeTapEvents", false);
+      polyline.put("geodesic", false);
+      polyline.put("jointType", 0);
+      polyline.put("visible", true);
+      polyline.put("width", 4);
+      polyline.put("zIndex", 0.0);
+      polyline.put("points", points(pointCount, packed, random));
+      polylines.add(polyline);
+    }
+    return polylines;
+  }
+
+  static List<Object> polygons(int count, int pointCount, long seed) {
+    Random random = new Random(seed);
+    List<Object> polygons = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      Map<String, Object> polygon = new HashMap<>();
+      polygon.put("polygonId", "polygon_" + i);
+      polygon.put("consumeTapEvents", false);
+      polygon.put("fillColor", 0x800000ff);
+      polygon.put("geodesic", false);
+      polygon.put("strokeColor", 0xff0000ff);
+      polygon.put("strokeWidth", 2);
+      polygon.put("visible", true);
+      polygon.put("zIndex", 0.0);
+      polygon.put("points", points(pointCount, false, random));
+      polygons.add(polygon);
+    }
+    return polygons;
+  }
+
+  static List<Object> circles(int count, long seed) {
+    Random random = new Random(seed);
+    List<Object> circles = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      Map<String, Object> circle = new HashMap<>();
+      circle.put("circleId", "circle_" + i);
+      circle.put("center", randomLatLng(random));
+      circle.put("consumeTapEvents", false);
+      circle.put("fillColor", 0x800000ff);
+      circle.put("radius", 100 + random.nextDouble() * 1000);
+      circle.put("strokeColor", 0xff0000ff);
+      circle.put("strokeWidth", 2);
+      circle.put("visible", true);
+      circle.put("zIndex", 0.0);
+      circles.add(circle);
+    }
+    return circles;
+  }
+
+  static List<Object> ids(String prefix, int count) {
+    List<Object> ids = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      ids.add(prefix + i);
+    }
+    return ids;
+  }
+
+  private static Object points(int count, boolean packed, Random random) {
+    double latitude = random.nextDouble() * 160 - 80;
+    double longitude = random.nextDouble() * 340 - 170;
+    double[] packedPoints = new double[2 * count];
+    List<Object> points = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      latitude += random.nextDouble() * 0.01 - 0.005;
+      longitude += random.nextDouble() * 0.01 - 0.005;
+      packedPoints[2 * i] = latitude;
+      packedPoints[2 * i + 1] = longitude;
+      points.add(Arrays.asList(latitude, longitude));
+    }
+    return packed ? packedPoints : points;
+  }
+
+  private static List<Double> randomLatLng(Random random) {
+    return Arrays.asList(random.nextDouble() * 160 - 80, random.nextDouble() * 360 - 180);
+  }
+}
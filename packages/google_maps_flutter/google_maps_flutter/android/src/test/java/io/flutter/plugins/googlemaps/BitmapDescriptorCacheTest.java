@@ -0,0 +1,93 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+
+import com.google.android.gms.maps.model.BitmapDescriptor;
+import java.util.Arrays;
+import org.junit.After;
+import org.junit.Test;
+
+public class BitmapDescriptorCacheTest {
+
+  @After
+  public void tearDown() {
+    BitmapDescriptorCache.clear();
+  }
+
+  @Test
+  public void contentKey_DependsOnlyOnContent() {
+    String first = BitmapDescriptorCache.contentKey(new byte[] {1, 2, 3});
+    String second = BitmapDescriptorCache.contentKey(new byte[] {1, 2, 3});
+    String other = BitmapDescriptorCache.contentKey(new byte[] {1, 2, 4});
+
+    assertEquals(first, second);
+    assertNotEquals(first, other);
+    assertEquals(40, first.length());
+  }
+
+  // Decoding needs an initialized BitmapDescriptorFactory, which is not available in unit tests,
+  // so these only pass if the cached descriptor is returned without decoding the image again.
+  @Test
+  public void toBitmapDescriptor_WhenBytesAreCached_ReturnsCachedDescriptor() {
+    BitmapDescriptor descriptor = mock(BitmapDescriptor.class);
+    BitmapDescriptorCache.put(
+        "fromBytes|" + BitmapDescriptorCache.contentKey(new byte[] {1, 2, 3}), descriptor);
+
+    BitmapDescriptor result =
+        Convert.toBitmapDescriptor(Arrays.asList("fromBytes", new byte[] {1, 2, 3}));
+
+    assertSame(descriptor, result);
+  }
+
+  @Test
+  public void toBitmapDescriptor_WhenAssetIsCached_ReturnsCachedDescriptor() {
+    BitmapDescriptor descriptor = mock(BitmapDescriptor.class);
+    BitmapDescriptorCache.put("fromAsset|icons/pin.png", descriptor);
+
+    BitmapDescriptor result =
+        Convert.toBitmapDescriptor(Arrays.asList("fromAsset", "icons/pin.png"));
+
+    assertSame(descriptor, result);
+  }
+
+  @Test
+  public void toBitmapDescriptor_ReturnsRegisteredIcon() {
+    BitmapDescriptor descriptor = mock(BitmapDescriptor.class);
+    BitmapDescriptorCache.register("pin", descriptor);
+
+    assertSame(descriptor, Convert.toBitmapDescriptor(Arrays.asList("registered", "pin")));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void toBitmapDescriptor_WhenIconIsNotRegistered_Throws() {
+    BitmapDescriptorCache.register("pin", mock(BitmapDescriptor.class));
+    BitmapDescriptorCache.unregister("pin");
+
+    Convert.toBitmapDescriptor(Arrays.asList("registered", "pin"));
+  }
+
+  @Test
+  public void put_WhenFull_EvictsLeastRecentlyUsedDescriptor() {
+    for (int i = 0; i < BitmapDescriptorCache.MAX_CACHED_DESCRIPTORS; i++) {
+      BitmapDescriptorCache.put("key" + i, mock(BitmapDescriptor.class));
+    }
+    // Makes key1 the least recently used descriptor.
+    assertNotNull(BitmapDescriptorCache.get("key0"));
+
+    BitmapDescriptorCache.put("new", mock(BitmapDescriptor.class));
+
+    assertNotNull(BitmapDescriptorCache.get("key0"));
+    assertNull(BitmapDescriptorCache.get("key1"));
+    assertNotNull(BitmapDescriptorCache.get("key2"));
+    assertNotNull(BitmapDescriptorCache.get("new"));
+  }
+}
@@ -0,0 +1,108 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import android.os.Handler;
+import com.google.android.gms.maps.model.CameraPosition;
+import com.google.android.gms.maps.model.LatLng;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CameraMoveThrottleTest {
+  private final List<CameraPosition> sentPositions = new ArrayList<>();
+  private Handler handler;
+  private long now;
+  private CameraMoveThrottle throttle;
+
+  @Before
+  public void setUp() {
+    handler = mock(Handler.class);
+    throttle =
+        new CameraMoveThrottle(
+            handler,
+            new CameraMoveThrottle.Listener() {
+              @Override
+              public void onCameraMove(CameraPosition position) {
+                sentPositions.add(position);
+              }
+            },
+            new CameraMoveThrottle.Clock() {
+              @Override
+              public long uptimeMillis() {
+                return now;
+              }
+            });
+  }
+
+  @Test
+  public void onCameraMove_WithDefaultOptions_SendsEveryPosition() {
+    throttle.onCameraMove(position(0, 0, 10));
+    throttle.onCameraMove(position(0, 0, 10));
+
+    assertEquals(2, sentPositions.size());
+  }
+
+  @Test
+  public void onCameraMove_WithRateLimit_DefersPositionsUntilFlush() {
+    throttle.setOptions(10, 0);
+    CameraPosition last = position(0.2, 0, 10);
+
+    throttle.onCameraMove(position(0, 0, 10));
+    now = 40;
+    throttle.onCameraMove(position(0.1, 0, 10));
+    throttle.onCameraMove(last);
+
+    assertEquals(1, sentPositions.size());
+    verify(handler).postDelayed(any(Runnable.class), eq(60L));
+
+    throttle.flush();
+
+    assertEquals(2, sentPositions.size());
+    assertEquals(last, sentPositions.get(1));
+  }
+
+  @Test
+  public void onCameraMove_WithMinDistance_SkipsSmallMoves() {
+    throttle.setOptions(0, 10);
+
+    throttle.onCameraMove(position(0, 0, 10));
+    // About 7 logical pixels at zoom 10.
+    throttle.onCameraMove(position(0, 0.01, 10));
+    // About 73 logical pixels at zoom 10.
+    throttle.onCameraMove(position(0, 0.1, 10));
+
+    assertEquals(2, sentPositions.size());
+  }
+
+  @Test
+  public void onCameraMove_WithMinDistance_SendsZoomChanges() {
+    throttle.setOptions(0, 10);
+
+    throttle.onCameraMove(position(0, 0, 10));
+    throttle.onCameraMove(position(0, 0, 10.5f));
+
+    assertEquals(2, sentPositions.size());
+  }
+
+  @Test
+  public void distance_TakesTheShorterWayAcrossTheAntimeridian() {
+    double distance =
+        CameraMoveThrottle.distance(position(0, 179.9, 0), position(0, -179.9, 0));
+
+    assertEquals(256 * 0.2 / 360, distance, 1e-6);
+  }
+
+  private static CameraPosition position(double latitude, double longitude, float zoom) {
+    return new CameraPosition(new LatLng(latitude, longitude), zoom, 0, 0);
+  }
+}
@@ -0,0 +1,355 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.Circle;
+import com.google.android.gms.maps.model.CircleOptions;
+import com.google.android.gms.maps.model.Marker;
+import com.google.android.gms.maps.model.MarkerOptions;
+import com.google.android.gms.maps.model.Polygon;
+import com.google.android.gms.maps.model.PolygonOptions;
+import com.google.android.gms.maps.model.Polyline;
+import com.google.android.gms.maps.model.PolylineOptions;
+import io.flutter.plugin.common.MethodChannel;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+/**
+ * Measures the throughput of the add/change/remove diffs of the map object controllers against a
+ * fake {@link GoogleMap}. Only run with {@code -Pbenchmark}, see build.gradle.
+ *
+ * <p>For each dataset size, the diffs are run on a fresh controller a few times to warm up at that
+ * size, then measured over several more runs. Results are printed and written as CSV to the
+ * benchmark reports directory, with the mean and standard deviation of the objects processed per
+ * second and the mean bytes allocated per object.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ControllersBenchmarkTest {
+  private static final int SHAPE_POINT_COUNT = 16;
+  private static final int WARM_UP_ITERATIONS = 3;
+  private static final int MEASURED_ITERATIONS = 10;
+
+  private GoogleMap googleMap;
+  private MethodChannel methodChannel;
+  private ShapeSimplifier shapeSimplifier;
+  private Writer report;
+
+  @Before
+  public void setUp() throws IOException {
+    // Stub-only mocks don't record invocations, which would otherwise dominate the allocations.
+    googleMap = mock(GoogleMap.class, withSettings().stubOnly());
+    Marker marker = mock(Marker.class, withSettings().stubOnly());
+    Polyline polyline = mock(Polyline.class, withSettings().stubOnly());
+    Polygon polygon = mock(Polygon.class, withSettings().stubOnly());
+    Circle circle = mock(Circle.class, withSettings().stubOnly());
+    when(googleMap.addMarker(any(MarkerOptions.class))).thenReturn(marker);
+    when(googleMap.addPolyline(any(PolylineOptions.class))).thenReturn(polyline);
+    when(googleMap.addPolygon(any(PolygonOptions.class))).thenReturn(polygon);
+    when(googleMap.addCircle(any(CircleOptions.class))).thenReturn(circle);
+    methodChannel = mock(MethodChannel.class, withSettings().stubOnly());
+    shapeSimplifier = new ShapeSimplifier();
+    report = new FileWriter(new File(BenchmarkData.reportsDirectory(), "controllers.csv"), true);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    shapeSimplifier.dispose();
+    report.close();
+  }
+
+  @Test
+  public void markersController() throws IOException {
+    for (String size : BenchmarkData.sizes()) {
+      benchmarkMarkers(Integer.parseInt(size));
+    }
+  }
+
+  @Test
+  public void polylinesController() throws IOException {
+    for (String size : BenchmarkData.sizes()) {
+      benchmarkPolylines(Integer.parseInt(size));
+    }
+  }
+
+  @Test
+  public void polygonsController() throws IOException {
+    for (String size : BenchmarkData.sizes()) {
+      benchmarkPolygons(Integer.parseInt(size));
+    }
+  }
+
+  @Test
+  public void circlesController() throws IOException {
+    for (String size : BenchmarkData.sizes()) {
+      benchmarkCircles(Integer.parseInt(size));
+    }
+  }
+
+  private void benchmarkMarkers(int size) throws IOException {
+    final List<Object> markers = BenchmarkData.markers(size, 1);
+    final List<Object> changedMarkers = BenchmarkData.markers(size, 2);
+    final List<Object> ids = BenchmarkData.ids("marker_", size);
+    measure(
+        "markers",
+        size,
+        new Diffs() {
+          private MarkersController controller;
+
+          @Override
+          void reset() {
+            if (controller != null) {
+              controller.dispose();
+            }
+            controller = new MarkersController(methodChannel);
+            controller.setGoogleMap(googleMap);
+          }
+
+          @Override
+          void add() {
+            controller.addMarkers(markers);
+          }
+
+          @Override
+          void change() {
+            controller.changeMarkers(changedMarkers);
+          }
+
+          @Override
+          void remove() {
+            controller.removeMarkers(ids);
+          }
+        });
+  }
+
+  private void benchmarkPolylines(int size) throws IOException {
+    final List<Object> polylines = BenchmarkData.polylines(size, SHAPE_POINT_COUNT, false, 1);
+    final List<Object> changedPolylines = BenchmarkData.polylines(size, SHAPE_POINT_COUNT, true, 2);
+    final List<Object> ids = BenchmarkData.ids("polyline_", size);
+    measure(
+        "polylines",
+        size,
+        new Diffs() {
+          private PolylinesController controller;
+
+          @Override
+          void reset() {
+            controller = new PolylinesController(methodChannel, 1, shapeSimplifier);
+            controller.setGoogleMap(googleMap);
+          }
+
+          @Override
+          void add() {
+            controller.addPolylines(polylines);
+          }
+
+          @Override
+          void change() {
+            controller.changePolylines(changedPolylines);
+          }
+
+          @Override
+          void remove() {
+            controller.removePolylines(ids);
+          }
+        });
+  }
+
+  private void benchmarkPolygons(int size) throws IOException {
+    final List<Object> polygons = BenchmarkData.polygons(size, SHAPE_POINT_COUNT, 1);
+    final List<Object> changedPolygons = BenchmarkData.polygons(size, SHAPE_POINT_COUNT, 2);
+    final List<Object> ids = BenchmarkData.ids("polygon_", size);
+    measure(
+        "polygons",
+        size,
+        new Diffs() {
+          private PolygonsController controller;
+
+          @Override
+          void reset() {
+            controller = new PolygonsController(methodChannel, 1, shapeSimplifier);
+            controller.setGoogleMap(googleMap);
+          }
+
+          @Override
+          void add() {
+            controller.addPolygons(polygons);
+          }
+
+          @Override
+          void change() {
+            controller.changePolygons(changedPolygons);
+          }
+
+          @Override
+          void remove() {
+            controller.removePolygons(ids);
+          }
+        });
+  }
+
+  private void benchmarkCircles(int size) throws IOException {
+    final List<Object> circles = BenchmarkData.circles(size, 1);
+    final List<Object> changedCircles = BenchmarkData.circles(size, 2);
+    final List<Object> ids = BenchmarkData.ids("circle_", size);
+    measure(
+        "circles",
+        size,
+        new Diffs() {
+          private CirclesController controller;
+
+          @Override
+          void reset() {
+            controller = new CirclesController(methodChannel, 1);
+            controller.setGoogleMap(googleMap);
+          }
+
+          @Override
+          void add() {
+            controller.addCircles(circles);
+          }
+
+          @Override
+          void change() {
+            controller.changeCircles(changedCircles);
+          }
+
+          @Override
+          void remove() {
+            controller.removeCircles(ids);
+          }
+        });
+  }
+
+  private void measure(String kind, int size, Diffs diffs) throws IOException {
+    Samples addSamples = new Samples(kind + "#add");
+    Samples changeSamples = new Samples(kind + "#change");
+    Samples removeSamples = new Samples(kind + "#remove");
+    for (int iteration = 0; iteration < WARM_UP_ITERATIONS + MEASURED_ITERATIONS; iteration++) {
+      boolean record = iteration >= WARM_UP_ITERATIONS;
+      diffs.reset();
+      addSamples.start();
+      diffs.add();
+      addSamples.stop(size, record);
+      changeSamples.start();
+      diffs.change();
+      changeSamples.stop(size, record);
+      removeSamples.start();
+      diffs.remove();
+      removeSamples.stop(size, record);
+    }
+    addSamples.report(size);
+    changeSamples.report(size);
+    removeSamples.report(size);
+  }
+
+  /** The diffs of one kind of map object, run in order on the controller created by reset. */
+  private abstract static class Diffs {
+    abstract void reset();
+
+    abstract void add();
+
+    abstract void change();
+
+    abstract void remove();
+  }
+
+  /** The measurements of one diff. */
+  private final class Samples {
+    private final String name;
+    private final List<Double> opsPerSecond = new ArrayList<>();
+    private final List<Double> bytesPerOp = new ArrayList<>();
+    private long startNanos;
+    private long allocatedBefore;
+
+    Samples(String name) {
+      this.name = name;
+    }
+
+    void start() {
+      System.gc();
+      allocatedBefore = allocatedBytes();
+      startNanos = System.nanoTime();
+    }
+
+    void stop(int size, boolean record) {
+      long elapsedNanos = System.nanoTime() - startNanos;
+      long allocated = allocatedBytes() - allocatedBefore;
+      if (record) {
+        opsPerSecond.add(size * 1e9 / elapsedNanos);
+        bytesPerOp.add((double) allocated / size);
+      }
+    }
+
+    void report(int size) throws IOException {
+      double meanOpsPerSecond = mean(opsPerSecond);
+      double deviation = standardDeviation(opsPerSecond, meanOpsPerSecond);
+      double meanBytesPerOp = mean(bytesPerOp);
+      System.out.println(
+          String.format(
+              Locale.US,
+              "%-18s %7d objects: %,12.0f +/- %,10.0f ops/s %,10.0f B/op",
+              name,
+              size,
+              meanOpsPerSecond,
+              deviation,
+              meanBytesPerOp));
+      report.write(
+          String.format(
+              Locale.US,
+              "%s,%d,%.0f,%.0f,%.0f%n",
+              name,
+              size,
+              meanOpsPerSecond,
+              deviation,
+              meanBytesPerOp));
+    }
+  }
+
+  private static double mean(List<Double> samples) {
+    double sum = 0;
+    for (double sample : samples) {
+      sum += sample;
+    }
+    return sum / samples.size();
+  }
+
+  private static double standardDeviation(List<Double> samples, double mean) {
+    if (samples.size() < 2) {
+      return 0;
+    }
+    double sumOfSquares = 0;
+    for (double sample : samples) {
+      sumOfSquares += (sample - mean) * (sample - mean);
+    }
+    return Math.sqrt(sumOfSquares / (samples.size() - 1));
+  }
+
+  /** Returns the bytes allocated so far by the current thread, or 0 if the JVM can't tell. */
+  private static long allocatedBytes() {
+    java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+      return 0;
+    }
+    return ((com.sun.management.ThreadMXBean) threads)
+        .getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+}
@@ -0,0 +1,120 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import static org.mockito.Mockito.mock;
+
+import com.google.android.gms.maps.model.BitmapDescriptor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * JMH benchmarks of the conversion of map objects sent by Dart.
+ *
+ * <p>Every benchmark converts a whole dataset of {@link #size} objects per operation, so the
+ * reported ops/sec are datasets per second. Run through {@link ConvertBenchmarkTest}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ConvertBenchmark {
+  // The number of distinct images among the marker icons.
+  private static final int ICON_COUNT = 64;
+  private static final int POLYLINE_POINT_COUNT = 16;
+
+  @Param({"1000", "10000", "100000"})
+  public int size;
+
+  private List<Object> markers;
+  private List<Object> polylines;
+  private Object longPolyline;
+  private Object longPackedPolyline;
+  private List<Object> icons;
+
+  @Setup
+  public void setUp() {
+    markers = BenchmarkData.markers(size, 1);
+    polylines = BenchmarkData.polylines(size, POLYLINE_POINT_COUNT, false, 2);
+    // A single polyline of size points, in both encodings.
+    longPolyline = BenchmarkData.polylines(1, size, false, 3).get(0);
+    longPackedPolyline = BenchmarkData.polylines(1, size, true, 3).get(0);
+
+    // Icons sent as bytes, already decoded once, as after the first frame that shows them.
+    Random random = new Random(4);
+    List<Object> images = new ArrayList<>(ICON_COUNT);
+    for (int i = 0; i < ICON_COUNT; i++) {
+      byte[] bytes = new byte[2048];
+      random.nextBytes(bytes);
+      images.add(Arrays.asList("fromBytes", bytes));
+      BitmapDescriptorCache.put(
+          "fromBytes|" + BitmapDescriptorCache.contentKey(bytes), mock(BitmapDescriptor.class));
+    }
+    icons = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      icons.add(images.get(i % ICON_COUNT));
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    BitmapDescriptorCache.clear();
+  }
+
+  @Benchmark
+  public void interpretMarkerOptions(Blackhole blackhole) {
+    for (Object marker : markers) {
+      MarkerBuilder builder = new MarkerBuilder();
+      blackhole.consume(Convert.interpretMarkerOptions(marker, builder));
+      blackhole.consume(builder.build());
+    }
+  }
+
+  @Benchmark
+  public void interpretPolylineOptions(Blackhole blackhole) {
+    for (Object polyline : polylines) {
+      PolylineBuilder builder = new PolylineBuilder(1);
+      blackhole.consume(Convert.interpretPolylineOptions(polyline, builder));
+      blackhole.consume(builder.build());
+    }
+  }
+
+  @Benchmark
+  public void toPoints_Lists(Blackhole blackhole) {
+    PolylineBuilder builder = new PolylineBuilder(1);
+    Convert.interpretPolylineOptions(longPolyline, builder);
+    blackhole.consume(builder.getPoints());
+  }
+
+  @Benchmark
+  public void toPoints_Packed(Blackhole blackhole) {
+    PolylineBuilder builder = new PolylineBuilder(1);
+    Convert.interpretPolylineOptions(longPackedPolyline, builder);
+    blackhole.consume(builder.getPoints());
+  }
+
+  @Benchmark
+  public void toBitmapDescriptor(Blackhole blackhole) {
+    for (Object icon : icons) {
+      blackhole.consume(Convert.toBitmapDescriptor(icon));
+    }
+  }
+}
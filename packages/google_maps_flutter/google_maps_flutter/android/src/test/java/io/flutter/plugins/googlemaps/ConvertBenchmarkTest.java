@@ -0,0 +1,38 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import java.io.File;
+import org.junit.Test;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs {@link ConvertBenchmark}. Only run with {@code -Pbenchmark}, see build.gradle.
+ *
+ * <p>The benchmarks run in the test JVM, as the Gradle test classpath can't be handed to forked
+ * JVMs. The GC profiler adds the allocation rate, {@code gc.alloc.rate.norm} being the bytes
+ * allocated per operation. Results are also written as JSON to the benchmark reports directory.
+ */
+public class ConvertBenchmarkTest {
+
+  @Test
+  public void runConvertBenchmark() throws RunnerException {
+    Options options =
+        new OptionsBuilder()
+            .include(ConvertBenchmark.class.getName())
+            .param("size", BenchmarkData.sizes())
+            .forks(0)
+            .addProfiler(GCProfiler.class)
+            .resultFormat(ResultFormatType.JSON)
+            .result(new File(BenchmarkData.reportsDirectory(), "convert.json").getPath())
+            .build();
+    new Runner(options).run();
+  }
+}
@@ -0,0 +1,72 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import android.graphics.Bitmap;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class ConvertTest {
+
+  @Test
+  public void toSnapshotOptions_WithoutArguments_ReturnsDefaults() {
+    assertSame(SnapshotEncoder.Options.DEFAULT, Convert.toSnapshotOptions(null));
+
+    SnapshotEncoder.Options options = Convert.toSnapshotOptions(new HashMap<String, Object>());
+
+    assertEquals(Bitmap.CompressFormat.PNG, options.format);
+    assertEquals(100, options.quality);
+    assertEquals(1, options.scale, 0);
+    assertNull(options.filePath);
+  }
+
+  @Test
+  public void toSnapshotOptions_ReadsAllArguments() {
+    Map<String, Object> arguments = new HashMap<>();
+    arguments.put("format", "jpeg");
+    arguments.put("quality", 80);
+    arguments.put("scale", 0.5);
+    arguments.put("filePath", "/tmp/snapshot.jpg");
+
+    SnapshotEncoder.Options options = Convert.toSnapshotOptions(arguments);
+
+    assertEquals(Bitmap.CompressFormat.JPEG, options.format);
+    assertEquals(80, options.quality);
+    assertEquals(0.5, options.scale, 0);
+    assertEquals("/tmp/snapshot.jpg", options.filePath);
+  }
+
+  @Test
+  public void toSnapshotOptions_ClampsQualityAndScale() {
+    Map<String, Object> arguments = new HashMap<>();
+    arguments.put("quality", 150);
+    arguments.put("scale", 2.0);
+    SnapshotEncoder.Options high = Convert.toSnapshotOptions(arguments);
+    arguments.put("quality", -5);
+    arguments.put("scale", 0.0);
+    SnapshotEncoder.Options low = Convert.toSnapshotOptions(arguments);
+
+    assertEquals(100, high.quality);
+    assertEquals(1, high.scale, 0);
+    assertEquals(0, low.quality);
+    assertEquals(0.01, low.scale, 1e-6);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void toSnapshotOptions_WhenFormatIsUnknown_Throws() {
+    Map<String, Object> arguments = new HashMap<>();
+    arguments.put("format", "gif");
+
+    Convert.toSnapshotOptions(arguments);
+  }
+}
@@ -0,0 +1,78 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+public class HeatmapTileSourceTest {
+  private static final int RADIUS = 20;
+  private static final int[] COLORS = {0xff00ff00, 0xffff0000};
+  private static final float[] START_POINTS = {0.5f, 1};
+
+  @Test
+  public void renderTile_WithoutPointsNearTile_ReturnsNull() {
+    HeatmapTileSource source = heatmap(new double[] {0, 0, 1});
+
+    assertNull(source.renderTile(0, 0, 3));
+  }
+
+  @Test
+  public void renderTile_ColorsPointWithHighestColor() {
+    HeatmapTileSource source = heatmap(new double[] {0, 0, 1});
+
+    // At zoom 1, the point is at the top left corner of tile (1, 1).
+    int[] pixels = source.renderTile(1, 1, 1);
+
+    assertNotNull(pixels);
+    assertEquals(0xffff0000, pixels[0]);
+  }
+
+  @Test
+  public void renderTile_SpreadsPointOverRadius() {
+    HeatmapTileSource source = heatmap(new double[] {0, 0, 1});
+
+    int[] pixels = source.renderTile(1, 1, 1);
+
+    assertNotEquals(0, pixels[(RADIUS - 1) * 256]);
+    assertEquals(0, pixels[(RADIUS + 1) * 256]);
+  }
+
+  @Test
+  public void renderTile_SpreadsPointAcrossAntimeridian() {
+    HeatmapTileSource source = heatmap(new double[] {0, 179.99, 1});
+
+    int[] pixels = source.renderTile(0, 1, 1);
+
+    assertNotNull(pixels);
+    assertNotEquals(0, pixels[0]);
+  }
+
+  @Test
+  public void kernel_PeaksAtCenter() {
+    float[] kernel = HeatmapTileSource.kernel(3);
+
+    assertEquals(7, kernel.length);
+    assertEquals(1, kernel[3], 0);
+    assertEquals(kernel[0], kernel[6], 0);
+  }
+
+  @Test
+  public void colorMap_GoesFromTransparentToLastColor() {
+    int[] colorMap = HeatmapTileSource.colorMap(COLORS, START_POINTS, 0.5f, 101);
+
+    assertEquals(0x0000ff00, colorMap[0]);
+    assertEquals(0x8000ff00, colorMap[50]);
+    assertEquals(0x80ff0000, colorMap[100]);
+  }
+
+  private static HeatmapTileSource heatmap(double[] points) {
+    return new HeatmapTileSource(points, RADIUS, COLORS, START_POINTS, 1, 0, 256, 1);
+  }
+}
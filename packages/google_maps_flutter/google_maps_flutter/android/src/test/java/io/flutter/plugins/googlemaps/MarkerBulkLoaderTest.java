@@ -0,0 +1,239 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import com.google.android.gms.maps.model.MarkerOptions;
+import io.flutter.plugin.common.MethodChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+public class MarkerBulkLoaderTest {
+
+  @Test
+  public void decode_SharesStylesAndUnpacksPositions() {
+    Map<String, Object> arguments = new HashMap<>();
+    arguments.put(
+        "styles",
+        Arrays.asList(
+            Collections.singletonMap("alpha", 0.5), Collections.singletonMap("zIndex", 2.0)));
+    arguments.put(
+        "markersToAdd",
+        packedMarkers(
+            Arrays.asList("a", "b"), new double[] {1.0, 2.0, 3.0, 4.0}, new int[] {1, 0}));
+
+    MarkerBulkLoader.Batch batch = MarkerBulkLoader.decode(arguments);
+
+    assertEquals(2, batch.updates.size());
+    MarkerOptions first = batch.updates.get(0).options;
+    assertEquals("a", batch.updates.get(0).markerId);
+    assertEquals(1.0, first.getPosition().latitude, 0);
+    assertEquals(2.0, first.getPosition().longitude, 0);
+    assertEquals(2.0f, first.getZIndex(), 0);
+    MarkerOptions second = batch.updates.get(1).options;
+    assertEquals(3.0, second.getPosition().latitude, 0);
+    assertEquals(0.5f, second.getAlpha(), 0);
+  }
+
+  @Test
+  public void decode_MarkersToChangeHaveNoOptions() {
+    Map<String, Object> arguments = new HashMap<>();
+    arguments.put(
+        "markersToChange",
+        packedMarkers(Collections.singletonList("a"), new double[] {1.0, 2.0}, null));
+
+    MarkerBulkLoader.Batch batch = MarkerBulkLoader.decode(arguments);
+
+    assertNull(batch.updates.get(0).options);
+    assertEquals(2.0, batch.updates.get(0).position.longitude, 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void decode_RejectsMismatchedPositions() {
+    Map<String, Object> arguments = new HashMap<>();
+    arguments.put(
+        "markersToAdd", packedMarkers(Arrays.asList("a", "b"), new double[] {1.0, 2.0}, null));
+
+    MarkerBulkLoader.decode(arguments);
+  }
+
+  @Test
+  public void load_AddsMarkersThenCompletes() {
+    MarkersController markersController = mock(MarkersController.class);
+    MethodChannel.Result result = mock(MethodChannel.Result.class);
+    MarkerBulkLoader loader =
+        new MarkerBulkLoader(
+            markersController, new DirectExecutorService(), new DirectExecutorService());
+    Map<String, Object> arguments = new HashMap<>();
+    arguments.put(
+        "markersToAdd",
+        packedMarkers(Arrays.asList("a", "b"), new double[] {1.0, 2.0, 3.0, 4.0}, null));
+
+    loader.load(arguments, result);
+
+    verify(markersController).addMarker(eq("a"), any(MarkerOptions.class), eq(false));
+    verify(markersController).addMarker(eq("b"), any(MarkerOptions.class), eq(false));
+    verify(result).success(null);
+  }
+
+  @Test
+  public void load_WhenArgumentsAreInvalid_CompletesWithError() {
+    MarkersController markersController = mock(MarkersController.class);
+    MethodChannel.Result result = mock(MethodChannel.Result.class);
+    MarkerBulkLoader loader =
+        new MarkerBulkLoader(
+            markersController, new DirectExecutorService(), new DirectExecutorService());
+    Map<String, Object> arguments = new HashMap<>();
+    arguments.put("markersToAdd", packedMarkers(Arrays.asList("a"), new double[] {1.0}, null));
+
+    loader.load(arguments, result);
+
+    verify(markersController, never()).addMarker(anyString(), any(), anyBoolean());
+    verify(result).error(eq("Invalid markers"), anyString(), any());
+  }
+
+  @Test
+  public void enqueue_WhileBulkUpdateIsDecoding_RunsAfterIt() {
+    MarkersController markersController = mock(MarkersController.class);
+    QueueingExecutorService decodeExecutor = new QueueingExecutorService();
+    MarkerBulkLoader loader =
+        new MarkerBulkLoader(markersController, decodeExecutor, new DirectExecutorService());
+    Map<String, Object> arguments = new HashMap<>();
+    arguments.put(
+        "markersToAdd", packedMarkers(Arrays.asList("a"), new double[] {1.0, 2.0}, null));
+    MethodChannel.Result bulkResult = mock(MethodChannel.Result.class);
+    Runnable update = mock(Runnable.class);
+    MethodChannel.Result updateResult = mock(MethodChannel.Result.class);
+
+    loader.load(arguments, bulkResult);
+    loader.enqueue(update, updateResult);
+    verify(update, never()).run();
+    decodeExecutor.runPending();
+
+    InOrder inOrder = inOrder(markersController, bulkResult, update, updateResult);
+    inOrder.verify(markersController).addMarker(eq("a"), any(MarkerOptions.class), eq(false));
+    inOrder.verify(bulkResult).success(null);
+    inOrder.verify(update).run();
+    inOrder.verify(updateResult).success(null);
+  }
+
+  @Test
+  public void enqueue_WhenNothingIsPending_RunsRightAway() {
+    MarkerBulkLoader loader =
+        new MarkerBulkLoader(
+            mock(MarkersController.class),
+            new DirectExecutorService(),
+            new DirectExecutorService());
+    Runnable update = mock(Runnable.class);
+    MethodChannel.Result result = mock(MethodChannel.Result.class);
+
+    loader.enqueue(update, result);
+
+    verify(update).run();
+    verify(result).success(null);
+  }
+
+  @Test
+  public void dispose_FailsPendingUpdates() {
+    MarkersController markersController = mock(MarkersController.class);
+    MarkerBulkLoader loader =
+        new MarkerBulkLoader(
+            markersController, new QueueingExecutorService(), new DirectExecutorService());
+    Map<String, Object> arguments = new HashMap<>();
+    arguments.put(
+        "markersToAdd", packedMarkers(Arrays.asList("a"), new double[] {1.0, 2.0}, null));
+    MethodChannel.Result bulkResult = mock(MethodChannel.Result.class);
+    Runnable update = mock(Runnable.class);
+    MethodChannel.Result updateResult = mock(MethodChannel.Result.class);
+    loader.load(arguments, bulkResult);
+    loader.enqueue(update, updateResult);
+
+    loader.dispose();
+
+    verify(bulkResult).error(eq("GoogleMap disposed"), anyString(), any());
+    verify(updateResult).error(eq("GoogleMap disposed"), anyString(), any());
+    verify(update, never()).run();
+  }
+
+  private static Map<String, Object> packedMarkers(
+      List<String> markerIds, double[] positions, int[] styleIndices) {
+    Map<String, Object> packed = new HashMap<>();
+    packed.put("markerIds", markerIds);
+    packed.put("positions", positions);
+    packed.put("styleIndices", styleIndices);
+    return packed;
+  }
+
+  private static class DirectExecutorService extends AbstractExecutorService {
+    private boolean shutdown;
+
+    @Override
+    public void execute(Runnable command) {
+      command.run();
+    }
+
+    @Override
+    public void shutdown() {
+      shutdown = true;
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+      shutdown = true;
+      return Collections.emptyList();
+    }
+
+    @Override
+    public boolean isShutdown() {
+      return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+      return shutdown;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) {
+      return true;
+    }
+  }
+
+  /** Holds the tasks it is given until runPending is called. */
+  private static class QueueingExecutorService extends DirectExecutorService {
+    private final List<Runnable> pending = new ArrayList<>();
+
+    @Override
+    public void execute(Runnable command) {
+      pending.add(command);
+    }
+
+    void runPending() {
+      List<Runnable> tasks = new ArrayList<>(pending);
+      pending.clear();
+      for (Runnable task : tasks) {
+        task.run();
+      }
+    }
+  }
+}
@@ -0,0 +1,109 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import com.google.android.gms.maps.model.LatLng;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class MarkerClustererTest {
+
+  private static final String[] MARKER_IDS = {"a", "b", "c"};
+  // a and b are a few meters apart, c is in another city.
+  private static final double[] LATITUDES = {52.5200, 52.5201, 48.8566};
+  private static final double[] LONGITUDES = {13.4050, 13.4051, 2.3522};
+
+  @Test
+  public void computeClusters_GroupsNearbyMarkers() {
+    List<MarkerClusterer.Cluster> clusters =
+        MarkerClusterer.computeClusters(
+            MARKER_IDS, LATITUDES, LONGITUDES, 3, 40, -10, 60, 30, 5, 60);
+
+    assertEquals(2, clusters.size());
+    assertEquals(Arrays.asList("a", "b"), clusters.get(0).markerIds);
+    assertEquals(52.52005, clusters.get(0).latitude, 1e-9);
+    assertEquals(Arrays.asList("c"), clusters.get(1).markerIds);
+  }
+
+  @Test
+  public void computeClusters_SeparatesMarkersAtHighZoom() {
+    List<MarkerClusterer.Cluster> clusters =
+        MarkerClusterer.computeClusters(
+            MARKER_IDS, LATITUDES, LONGITUDES, 2, 52.5, 13.4, 52.53, 13.41, 21, 60);
+
+    assertEquals(2, clusters.size());
+  }
+
+  @Test
+  public void computeClusters_SkipsMarkersFarOutsideTheVisibleRegion() {
+    List<MarkerClusterer.Cluster> clusters =
+        MarkerClusterer.computeClusters(
+            MARKER_IDS, LATITUDES, LONGITUDES, 3, 52, 13, 53, 14, 8, 60);
+
+    assertEquals(1, clusters.size());
+    assertEquals(Arrays.asList("a", "b"), clusters.get(0).markerIds);
+  }
+
+  @Test
+  public void computeClusters_AtNewZoom_UsesNewClusterKeys() {
+    // Cells this large hold every marker at both zoom levels.
+    List<MarkerClusterer.Cluster> before =
+        MarkerClusterer.computeClusters(
+            MARKER_IDS, LATITUDES, LONGITUDES, 3, 40, -10, 60, 30, 3, 1e6);
+    List<MarkerClusterer.Cluster> after =
+        MarkerClusterer.computeClusters(
+            MARKER_IDS, LATITUDES, LONGITUDES, 3, 40, -10, 60, 30, 4.5f, 1e6);
+
+    assertEquals(1, before.size());
+    assertEquals(1, after.size());
+    assertEquals(before.get(0).markerIds, after.get(0).markerIds);
+    assertNotEquals(before.get(0).key, after.get(0).key);
+  }
+
+  @Test
+  public void positionIndex_AppliesOnlyTheChanges() {
+    MarkerClusterer.PositionIndex index = new MarkerClusterer.PositionIndex();
+    Map<String, LatLng> changes = new LinkedHashMap<>();
+    for (int i = 0; i < MARKER_IDS.length; i++) {
+      changes.put(MARKER_IDS[i], new LatLng(LATITUDES[i], LONGITUDES[i]));
+    }
+    index.apply(changes);
+
+    changes.clear();
+    changes.put("a", null);
+    changes.put("c", new LatLng(52.5202, 13.4052));
+    index.apply(changes);
+
+    assertEquals(2, index.size);
+    List<MarkerClusterer.Cluster> clusters =
+        MarkerClusterer.computeClusters(
+            index.markerIds,
+            index.latitudes,
+            index.longitudes,
+            index.size,
+            40,
+            -10,
+            60,
+            30,
+            5,
+            60);
+    assertEquals(1, clusters.size());
+    assertEquals(Arrays.asList("c", "b"), clusters.get(0).markerIds);
+  }
+
+  @Test
+  public void clusterLabel_RoundsLargeSizesDown() {
+    assertEquals("7", MarkerClusterer.clusterLabel(7));
+    assertEquals("40+", MarkerClusterer.clusterLabel(42));
+    assertEquals("900+", MarkerClusterer.clusterLabel(987));
+    assertEquals("12k+", MarkerClusterer.clusterLabel(12345));
+  }
+}
@@ -0,0 +1,102 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.google.android.gms.maps.model.Tile;
+import com.google.android.gms.maps.model.TileProvider;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NativeTileProviderTest {
+  private FakeTileSource tileSource;
+  private NativeTileProvider tileProvider;
+
+  @Before
+  public void setUp() {
+    tileSource = new FakeTileSource();
+    tileProvider =
+        new NativeTileProvider(
+            tileSource,
+            new TileCache(null, new TileCache.Options(1024, 0, 0)),
+            1000,
+            Executors.newSingleThreadExecutor());
+  }
+
+  @After
+  public void tearDown() {
+    tileProvider.dispose();
+  }
+
+  @Test
+  public void getTile_ReadsTileFromSource() {
+    Tile tile = tileProvider.getTile(1, 2, 3);
+
+    assertEquals(512, tile.width);
+    assertArrayEquals(new byte[] {1, 2, 3}, tile.data);
+  }
+
+  @Test
+  public void getTile_ServesRepeatedRequestsFromCache() {
+    Tile tile = tileProvider.getTile(1, 2, 3);
+
+    assertSame(tile, tileProvider.getTile(1, 2, 3));
+    assertEquals(1, tileSource.reads.get());
+    assertEquals(1L, tileProvider.getTileCacheMetrics().get("memoryHits"));
+  }
+
+  @Test
+  public void getTile_WithMissingTile_ReturnsNoTile() {
+    assertSame(TileProvider.NO_TILE, tileProvider.getTile(0, 0, 0));
+  }
+
+  @Test
+  public void dispose_ClosesSource() {
+    tileProvider.dispose();
+
+    assertTrue(tileSource.closed);
+    assertSame(TileProvider.NO_TILE, tileProvider.getTile(1, 2, 3));
+  }
+
+  @Test
+  public void tileUrl_FillsInPlaceholders() {
+    assertEquals(
+        "https://tiles.example.com/3/1/2.png?tms=5",
+        UrlTemplateTileSource.tileUrl(
+            "https://tiles.example.com/{z}/{x}/{y}.png?tms={-y}", 1, 2, 3));
+  }
+
+  private static final class FakeTileSource extends TileSource {
+    final AtomicInteger reads = new AtomicInteger();
+    volatile boolean closed;
+
+    FakeTileSource() {
+      super(512, 1);
+    }
+
+    @Override
+    String getCacheKey() {
+      return "fake";
+    }
+
+    @Override
+    byte[] readTile(int x, int y, int zoom) {
+      reads.incrementAndGet();
+      return zoom == 0 ? null : new byte[] {(byte) x, (byte) y, (byte) zoom};
+    }
+
+    @Override
+    void close() {
+      closed = true;
+    }
+  }
+}
@@ -0,0 +1,74 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.android.gms.maps.model.LatLng;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class ShapeSimplifierTest {
+
+  @Test
+  public void rankPoints_RanksPointsByDistanceFromTheSimplifiedLine() {
+    double[] x = {0, 1, 2, 3, 4};
+    double[] y = {0, 0.1, 3, 0.2, 0};
+
+    float[] ranks = ShapeSimplifier.rankPoints(x, y);
+
+    assertTrue(Float.isInfinite(ranks[0]));
+    assertEquals(3, ranks[2], 1e-6);
+    assertEquals(2.8 / Math.sqrt(13), ranks[1], 1e-6);
+    assertEquals(2.6 / Math.sqrt(13), ranks[3], 1e-6);
+    assertTrue(Float.isInfinite(ranks[4]));
+  }
+
+  @Test
+  public void rankPoints_NeverRanksPointsAboveTheirParent() {
+    // The point at index 1 is closer to the whole line than index 2, but farther from the segment
+    // ending at index 2.
+    double[] x = {0, 1, 2, 4};
+    double[] y = {0, -0.4, 0.5, 0};
+
+    float[] ranks = ShapeSimplifier.rankPoints(x, y);
+
+    assertEquals(0.5, ranks[2], 1e-6);
+    assertEquals(0.5, ranks[1], 1e-6);
+  }
+
+  @Test
+  public void interpretPolylineOptions_ReadsPackedPointsWithoutLosingPrecision() {
+    Map<String, Object> data = new HashMap<>();
+    data.put("polylineId", "polyline");
+    data.put("points", new double[] {52.520008, 13.404954, 48.856613, 2.352222});
+    PolylineBuilder builder = new PolylineBuilder(1);
+
+    Convert.interpretPolylineOptions(data, builder);
+
+    List<LatLng> points = builder.build().getPoints();
+    assertEquals(2, points.size());
+    assertEquals(52.520008, points.get(0).latitude, 1e-12);
+    assertEquals(2.352222, points.get(1).longitude, 1e-12);
+  }
+
+  @Test
+  public void interpretPolylineOptions_WithSimplification_DefersPoints() {
+    Map<String, Object> data = new HashMap<>();
+    data.put("polylineId", "polyline");
+    data.put("simplificationTolerance", 1.5);
+    data.put("points", new double[] {52.520008, 13.404954, 48.856613, 2.352222});
+    PolylineBuilder builder = new PolylineBuilder(1);
+
+    Convert.interpretPolylineOptions(data, builder);
+
+    assertTrue(builder.build().getPoints().isEmpty());
+    assertEquals(2, builder.getPoints().size());
+    assertEquals(1.5f, builder.simplificationTolerance(), 0);
+  }
+}
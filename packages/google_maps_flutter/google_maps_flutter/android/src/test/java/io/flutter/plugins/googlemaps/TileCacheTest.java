@@ -0,0 +1,90 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import com.google.android.gms.maps.model.Tile;
+import java.io.File;
+import java.io.IOException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TileCacheTest {
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void get_AfterPut_ReturnsTileFromMemory() {
+    TileCache cache = new TileCache(null, new TileCache.Options(1024, 0, 0));
+    Tile tile = new Tile(256, 256, new byte[] {1, 2, 3});
+
+    cache.put(1, 2, 3, tile);
+
+    assertSame(tile, cache.get(1, 2, 3));
+    assertNull(cache.get(2, 1, 3));
+    assertEquals(1, cache.getMemoryHits());
+    assertEquals(1, cache.getMisses());
+  }
+
+  @Test
+  public void get_WithEmptyMemory_ReadsTileFromDisk() throws IOException {
+    File directory = temporaryFolder.newFolder("tiles");
+    new TileCache(directory, new TileCache.Options(1024, 1024, 0))
+        .put(1, 2, 3, new Tile(256, 128, new byte[] {4, 5, 6}));
+
+    TileCache cache = new TileCache(directory, new TileCache.Options(1024, 1024, 0));
+    Tile tile = cache.get(1, 2, 3);
+
+    assertEquals(256, tile.width);
+    assertEquals(128, tile.height);
+    assertArrayEquals(new byte[] {4, 5, 6}, tile.data);
+    assertEquals(1, cache.getDiskHits());
+  }
+
+  @Test
+  public void put_WhenMemoryIsFull_EvictsLeastRecentlyUsedTile() {
+    // Every tile takes 64 bytes of overhead plus its data.
+    TileCache cache = new TileCache(null, new TileCache.Options(200, 0, 0));
+    cache.put(0, 0, 0, new Tile(1, 1, new byte[10]));
+    cache.put(1, 0, 0, new Tile(1, 1, new byte[10]));
+    cache.get(0, 0, 0);
+
+    cache.put(2, 0, 0, new Tile(1, 1, new byte[10]));
+
+    assertNull(cache.get(1, 0, 0));
+    assertEquals(1, cache.get(0, 0, 0).width);
+  }
+
+  @Test
+  public void clear_RemovesTilesFromDisk() throws IOException {
+    File directory = temporaryFolder.newFolder("tiles");
+    TileCache cache = new TileCache(directory, new TileCache.Options(1024, 1024, 0));
+    cache.put(1, 2, 3, new Tile(256, 256, new byte[] {1}));
+
+    cache.clear();
+
+    assertNull(cache.get(1, 2, 3));
+    assertEquals(0, directory.listFiles().length);
+  }
+
+  @Test
+  public void delete_RemovesDirectoryAndKeepsLaterTilesInMemory() throws IOException {
+    File directory = temporaryFolder.newFolder("tiles");
+    TileCache cache = new TileCache(directory, new TileCache.Options(1024, 1024, 0));
+    cache.put(1, 2, 3, new Tile(256, 256, new byte[] {1, 2, 3}));
+
+    cache.delete();
+    cache.put(2, 3, 4, new Tile(256, 256, new byte[] {4, 5, 6}));
+
+    assertFalse(directory.exists());
+    assertNull(cache.get(1, 2, 3));
+    assertArrayEquals(new byte[] {4, 5, 6}, cache.get(2, 3, 4).data);
+  }
+}
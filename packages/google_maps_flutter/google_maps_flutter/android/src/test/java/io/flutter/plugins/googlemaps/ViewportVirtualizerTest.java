@@ -0,0 +1,109 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ViewportVirtualizerTest {
+  private final Set<String> materializedIds = new HashSet<>();
+  private ViewportVirtualizer virtualizer;
+
+  @Before
+  public void setUp() {
+    virtualizer =
+        new ViewportVirtualizer(
+            new ViewportVirtualizer.Delegate() {
+              @Override
+              public void materialize(String id) {
+                assertTrue(materializedIds.add(id));
+              }
+
+              @Override
+              public void dematerialize(String id) {
+                assertTrue(materializedIds.remove(id));
+              }
+            },
+            0.5f);
+  }
+
+  @Test
+  public void setVisibleRegion_MaterializesObjectsNearTheVisibleRegion() {
+    virtualizer.put("inside", Collections.singletonList(new LatLng(52.52, 13.40)));
+    virtualizer.put("margin", Collections.singletonList(new LatLng(52.52, 13.56)));
+    virtualizer.put("outside", Collections.singletonList(new LatLng(48.85, 2.35)));
+    virtualizer.put("crossing", Arrays.asList(new LatLng(40, 0), new LatLng(60, 30)));
+
+    virtualizer.setVisibleRegion(bounds(52.4, 13.3, 52.6, 13.5));
+
+    assertEquals(new HashSet<>(Arrays.asList("inside", "margin", "crossing")), materializedIds);
+  }
+
+  @Test
+  public void setVisibleRegion_DematerializesObjectsLeavingTheVisibleRegion() {
+    virtualizer.put("a", Collections.singletonList(new LatLng(52.52, 13.40)));
+    virtualizer.setVisibleRegion(bounds(52.4, 13.3, 52.6, 13.5));
+
+    virtualizer.setVisibleRegion(bounds(48.8, 2.3, 48.9, 2.4));
+
+    assertTrue(materializedIds.isEmpty());
+  }
+
+  @Test
+  public void put_AfterVisibleRegionIsKnown_MaterializesAndMovesObjects() {
+    virtualizer.setVisibleRegion(bounds(52.4, 13.3, 52.6, 13.5));
+
+    virtualizer.put("a", Collections.singletonList(new LatLng(52.52, 13.40)));
+    assertEquals(Collections.singleton("a"), materializedIds);
+
+    virtualizer.put("a", Collections.singletonList(new LatLng(48.85, 2.35)));
+    assertTrue(materializedIds.isEmpty());
+  }
+
+  @Test
+  public void remove_DematerializesObject() {
+    virtualizer.put("a", new LatLng(52.52, 13.40), 1000);
+    virtualizer.setVisibleRegion(bounds(52.4, 13.3, 52.6, 13.5));
+
+    virtualizer.remove("a");
+
+    assertTrue(materializedIds.isEmpty());
+    assertTrue(virtualizer.isEmpty());
+  }
+
+  @Test
+  public void regionsAround_SplitsRegionsCrossingTheAntimeridian() {
+    List<double[]> regions = ViewportVirtualizer.regionsAround(-10, 170, 10, -170, 0.5f);
+
+    assertEquals(2, regions.size());
+    assertArrayEquals(new double[] {-20, 160, 20, 180}, regions.get(0), 1e-9);
+    assertArrayEquals(new double[] {-20, -180, 20, -160}, regions.get(1), 1e-9);
+  }
+
+  @Test
+  public void setVisibleRegion_AcrossTheAntimeridian_MaterializesObjectsOnBothSides() {
+    virtualizer.put("east", Collections.singletonList(new LatLng(0, 179)));
+    virtualizer.put("west", Collections.singletonList(new LatLng(0, -179)));
+
+    virtualizer.setVisibleRegion(bounds(-10, 175, 10, -175));
+
+    assertEquals(new HashSet<>(Arrays.asList("east", "west")), materializedIds);
+  }
+
+  private static LatLngBounds bounds(double south, double west, double north, double east) {
+    return new LatLngBounds(new LatLng(south, west), new LatLng(north, east));
+  }
+}
@@ -0,0 +1,116 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.imagepicker;
+
+import android.graphics.Bitmap;
+import android.os.Build;
+import androidx.annotation.Nullable;
+import java.util.Iterator;
+import java.util.LinkedList;
+
+/**
+ * A size-bounded pool of mutable bitmaps that can be decoded into through {@link
+ * android.graphics.BitmapFactory.Options#inBitmap}.
+ *
+ * <p>Reusing the pixel memory of a previous pick avoids a large allocation, and the garbage
+ * collection that follows it, for every image that is resized. Bitmaps are evicted in least
+ * recently returned order once the pool grows past its maximum size.
+ */
+class BitmapPool {
+  private final long maxSizeBytes;
+  private final LinkedList<Bitmap> bitmaps = new LinkedList<>();
+  private long currentSizeBytes;
+
+  BitmapPool(long maxSizeBytes) {
+    this.maxSizeBytes = maxSizeBytes;
+  }
+
+  /** Returns the default pool size: an eighth of the maximum heap size. */
+  static long defaultMaxSizeBytes() {
+    return Runtime.getRuntime().maxMemory() / 8;
+  }
+
+  /**
+   * Removes and returns a bitmap that can be used as {@code inBitmap} to decode an image of the
+   * given size, or null if the pool holds no suitable bitmap.
+   */
+  @Nullable
+  synchronized Bitmap get(int width, int height, int inSampleSize) {
+    Iterator<Bitmap> iterator = bitmaps.descendingIterator();
+    while (iterator.hasNext()) {
+      Bitmap candidate = iterator.next();
+      if (canUseForInBitmap(candidate, width, height, inSampleSize)) {
+        iterator.remove();
+        currentSizeBytes -= sizeOf(candidate);
+        return candidate;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Hands a bitmap that is no longer used to the pool.
+   *
+   * <p>Bitmaps that cannot be reused are recycled right away.
+   */
+  synchronized void put(@Nullable Bitmap bitmap) {
+    if (bitmap == null || bitmap.isRecycled() || bitmaps.contains(bitmap)) {
+      return;
+    }
+    long size = sizeOf(bitmap);
+    if (!bitmap.isMutable() || size > maxSizeBytes) {
+      bitmap.recycle();
+      return;
+    }
+    bitmaps.addLast(bitmap);
+    currentSizeBytes += size;
+    trimToSize(maxSizeBytes);
+  }
+
+  /** Recycles pooled bitmaps, least recently returned first, until at most sizeBytes are held. */
+  synchronized void trimToSize(long sizeBytes) {
+    while (currentSizeBytes > sizeBytes && !bitmaps.isEmpty()) {
+      Bitmap evicted = bitmaps.removeFirst();
+      currentSizeBytes -= sizeOf(evicted);
+      evicted.recycle();
+    }
+  }
+
+  /** Returns the number of bytes held by the pooled bitmaps. */
+  synchronized long getSizeBytes() {
+    return currentSizeBytes;
+  }
+
+  /** Recycles every pooled bitmap. */
+  synchronized void clear() {
+    for (Bitmap bitmap : bitmaps) {
+      bitmap.recycle();
+    }
+    bitmaps.clear();
+    currentSizeBytes = 0;
+  }
+
+  private static boolean canUseForInBitmap(
+      Bitmap candidate, int width, int height, int inSampleSize) {
+    if (candidate.getConfig() != Bitmap.Config.ARGB_8888) {
+      return false;
+    }
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+      // From KitKat on, any mutable bitmap that is at least as large as the decoded image works.
+      int sampleSize = Math.max(1, inSampleSize);
+      long byteCount = 4L * (width / sampleSize) * (height / sampleSize);
+      return byteCount <= candidate.getAllocationByteCount();
+    }
+    // Before KitKat, the sizes must match exactly and no subsampling may be applied.
+    return candidate.getWidth() == width && candidate.getHeight() == height && inSampleSize <= 1;
+  }
+
+  private static long sizeOf(Bitmap bitmap) {
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+      return bitmap.getAllocationByteCount();
+    }
+    return bitmap.getByteCount();
+  }
+}
@@ -25,8 +25,12 @@ package io.flutter.plugins.imagepicker;
 
 import android.content.ContentResolver;
 import android.content.Context;
+import android.database.Cursor;
 import android.net.Uri;
+import android.provider.MediaStore;
+import android.provider.OpenableColumns;
 import android.webkit.MimeTypeMap;
+import androidx.annotation.Nullable;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -34,6 +38,8 @@ import java.io.InputStream;
 import java.io.OutputStream;
 
 class FileUtils {
+  // DocumentsContract.Document.COLUMN_LAST_MODIFIED, which is only available from API 19 on.
+  private static final String COLUMN_DOCUMENT_LAST_MODIFIED = "last_modified";
 
   String getPathFromUri(final Context context, final Uri uri) {
     File file = null;
@@ -68,6 +74,50 @@ class FileUtils {
     return success ? file.getPath() : null;
   }
 
+  /**
+   * Returns a string that identifies the content behind uri, built from the uri, its size and its
+   * last modification time.
+   *
+   * <p>Returns null if the size or the modification time cannot be determined, in which case the
+   * content must not be assumed to be unchanged between two picks.
+   */
+  @Nullable
+  String getSourceFingerprint(final Context context, final Uri uri) {
+    if (uri == null) {
+      return null;
+    }
+    if (ContentResolver.SCHEME_FILE.equals(uri.getScheme())) {
+      return ResizedImageCache.fingerprintFile(uri.getPath());
+    }
+    Cursor cursor = null;
+    try {
+      cursor = context.getContentResolver().query(uri, null, null, null, null);
+      if (cursor == null || !cursor.moveToFirst()) {
+        return null;
+      }
+      int sizeIndex = cursor.getColumnIndex(OpenableColumns.SIZE);
+      int lastModifiedIndex = cursor.getColumnIndex(COLUMN_DOCUMENT_LAST_MODIFIED);
+      if (lastModifiedIndex == -1) {
+        lastModifiedIndex = cursor.getColumnIndex(MediaStore.MediaColumns.DATE_MODIFIED);
+      }
+      if (sizeIndex == -1
+          || lastModifiedIndex == -1
+          || cursor.isNull(sizeIndex)
+          || cursor.isNull(lastModifiedIndex)) {
+        return null;
+      }
+      return ResizedImageCache.fingerprint(
+          uri.toString(), cursor.getLong(sizeIndex), cursor.getLong(lastModifiedIndex));
+    } catch (RuntimeException e) {
+      // Some providers throw for queries they do not support; treat the content as unknown.
+      return null;
+    } finally {
+      if (cursor != null) {
+        cursor.close();
+      }
+    }
+  }
+
   /** @return extension of image with dot, or default .jpg if it none. */
   private static String getImageExtension(Context context, Uri uriImage) {
     String extension = null;
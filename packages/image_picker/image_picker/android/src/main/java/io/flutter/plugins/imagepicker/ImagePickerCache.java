@@ -19,6 +19,8 @@ class ImagePickerCache {
   static final String MAP_KEY_MAX_WIDTH = "maxWidth";
   static final String MAP_KEY_MAX_HEIGHT = "maxHeight";
   static final String MAP_KEY_IMAGE_QUALITY = "imageQuality";
+  static final String MAP_KEY_OUTPUT_FORMAT = "outputFormat";
+  static final String MAP_KEY_CROP_RECT = "cropRect";
   private static final String MAP_KEY_TYPE = "type";
   private static final String MAP_KEY_ERROR_CODE = "errorCode";
   private static final String MAP_KEY_ERROR_MESSAGE = "errorMessage";
@@ -36,9 +38,18 @@ class ImagePickerCache {
   private static final String SHARED_PREFERENCE_IMAGE_QUALITY_KEY =
       "flutter_image_picker_image_quality";
 
+  private static final String SHARED_PREFERENCE_OUTPUT_FORMAT_KEY =
+      "flutter_image_picker_output_format";
+
+  private static final String SHARED_PREFERENCE_CROP_RECT_KEY = "flutter_image_picker_crop_rect";
+
   private static final String SHARED_PREFERENCE_TYPE_KEY = "flutter_image_picker_type";
   private static final String SHARED_PREFERENCE_PENDING_IMAGE_URI_PATH_KEY =
       "flutter_image_picker_pending_image_uri";
+  private static final String SHARED_PREFERENCE_SOURCE_FINGERPRINT_KEY =
+      "flutter_image_picker_source_fingerprint";
+
+  private static final String[] CROP_RECT_KEYS = {"x", "y", "width", "height"};
 
   @VisibleForTesting
   static final String SHARED_PREFERENCES_NAME = "flutter_image_picker_shared_preference";
@@ -71,6 +82,53 @@ class ImagePickerCache {
             : (int) methodCall.argument(MAP_KEY_IMAGE_QUALITY);
 
     setMaxDimension(maxWidth, maxHeight, imageQuality);
+    setOutputOptions(
+        (String) methodCall.argument(MAP_KEY_OUTPUT_FORMAT),
+        (Map<?, ?>) methodCall.argument(MAP_KEY_CROP_RECT));
+  }
+
+  // The crop rectangle is saved as "x,y,width,height".
+  private void setOutputOptions(@Nullable String outputFormat, @Nullable Map<?, ?> cropRect) {
+    SharedPreferences.Editor editor = prefs.edit();
+    if (outputFormat != null) {
+      editor.putString(SHARED_PREFERENCE_OUTPUT_FORMAT_KEY, outputFormat);
+    }
+    if (cropRect != null) {
+      StringBuilder value = new StringBuilder();
+      for (String key : CROP_RECT_KEYS) {
+        Object entry = cropRect.get(key);
+        if (!(entry instanceof Number)) {
+          // Rejected when the picker was launched, so there is nothing to crop to.
+          value = null;
+          break;
+        }
+        if (value.length() > 0) {
+          value.append(',');
+        }
+        value.append(((Number) entry).intValue());
+      }
+      if (value != null) {
+        editor.putString(SHARED_PREFERENCE_CROP_RECT_KEY, value.toString());
+      }
+    }
+    editor.apply();
+  }
+
+  @Nullable
+  private static Map<String, Object> parseCropRect(String value) {
+    String[] parts = value.split(",");
+    if (parts.length != CROP_RECT_KEYS.length) {
+      return null;
+    }
+    Map<String, Object> cropRect = new HashMap<>();
+    try {
+      for (int i = 0; i < parts.length; i++) {
+        cropRect.put(CROP_RECT_KEYS[i], Integer.parseInt(parts[i]));
+      }
+    } catch (NumberFormatException e) {
+      return null;
+    }
+    return cropRect;
   }
 
   private void setMaxDimension(Double maxWidth, Double maxHeight, int imageQuality) {
@@ -98,6 +156,19 @@ class ImagePickerCache {
     return prefs.getString(SHARED_PREFERENCE_PENDING_IMAGE_URI_PATH_KEY, "");
   }
 
+  /**
+   * Saves the fingerprint of the picked source, so that the resized image cache can be looked up
+   * with the same key as at pick time when the lost image is retrieved.
+   */
+  void saveSourceFingerprint(String sourceFingerprint) {
+    prefs.edit().putString(SHARED_PREFERENCE_SOURCE_FINGERPRINT_KEY, sourceFingerprint).apply();
+  }
+
+  @Nullable
+  String retrieveSourceFingerprint() {
+    return prefs.getString(SHARED_PREFERENCE_SOURCE_FINGERPRINT_KEY, null);
+  }
+
   void saveResult(
       @Nullable String path, @Nullable String errorCode, @Nullable String errorMessage) {
 
@@ -158,6 +229,19 @@ class ImagePickerCache {
       } else {
         resultMap.put(MAP_KEY_IMAGE_QUALITY, 100);
       }
+      if (prefs.contains(SHARED_PREFERENCE_OUTPUT_FORMAT_KEY)) {
+        final String outputFormat = prefs.getString(SHARED_PREFERENCE_OUTPUT_FORMAT_KEY, "");
+        if (!outputFormat.isEmpty()) {
+          resultMap.put(MAP_KEY_OUTPUT_FORMAT, outputFormat);
+        }
+      }
+      if (prefs.contains(SHARED_PREFERENCE_CROP_RECT_KEY)) {
+        final Map<String, Object> cropRect =
+            parseCropRect(prefs.getString(SHARED_PREFERENCE_CROP_RECT_KEY, ""));
+        if (cropRect != null) {
+          resultMap.put(MAP_KEY_CROP_RECT, cropRect);
+        }
+      }
     }
 
     return resultMap;
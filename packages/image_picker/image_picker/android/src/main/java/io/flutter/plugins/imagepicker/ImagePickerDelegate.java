@@ -6,13 +6,17 @@ package io.flutter.plugins.imagepicker;
 
 import android.Manifest;
 import android.app.Activity;
+import android.content.ClipData;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.content.pm.ResolveInfo;
+import android.graphics.Rect;
 import android.hardware.camera2.CameraCharacteristics;
 import android.media.MediaScannerConnection;
 import android.net.Uri;
 import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
 import android.provider.MediaStore;
 import androidx.annotation.VisibleForTesting;
 import androidx.core.app.ActivityCompat;
@@ -22,9 +26,11 @@ import io.flutter.plugin.common.MethodChannel;
 import io.flutter.plugin.common.PluginRegistry;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Executor;
 
 enum CameraDevice {
   REAR,
@@ -78,6 +84,8 @@ public class ImagePickerDelegate
   @VisibleForTesting static final int REQUEST_CODE_TAKE_IMAGE_WITH_CAMERA = 2343;
   @VisibleForTesting static final int REQUEST_EXTERNAL_IMAGE_STORAGE_PERMISSION = 2344;
   @VisibleForTesting static final int REQUEST_CAMERA_IMAGE_PERMISSION = 2345;
+  @VisibleForTesting static final int REQUEST_CODE_CHOOSE_MULTI_IMAGE_FROM_GALLERY = 2346;
+  @VisibleForTesting static final int REQUEST_EXTERNAL_MULTI_IMAGE_STORAGE_PERMISSION = 2347;
   @VisibleForTesting static final int REQUEST_CODE_CHOOSE_VIDEO_FROM_GALLERY = 2352;
   @VisibleForTesting static final int REQUEST_CODE_TAKE_VIDEO_WITH_CAMERA = 2353;
   @VisibleForTesting static final int REQUEST_EXTERNAL_VIDEO_STORAGE_PERMISSION = 2354;
@@ -93,7 +101,12 @@ public class ImagePickerDelegate
   private final IntentResolver intentResolver;
   private final FileUriResolver fileUriResolver;
   private final FileUtils fileUtils;
+  private final MultiImageProcessor multiImageProcessor;
+  private final ResizedImageCache resizedImageCache;
+  private final VideoTranscoder videoTranscoder;
   private CameraDevice cameraDevice;
+  private MultiImageListener multiImageListener;
+  private VideoCompressionListener videoCompressionListener;
 
   interface PermissionManager {
     boolean isPermissionGranted(String permissionName);
@@ -117,6 +130,16 @@ public class ImagePickerDelegate
     void onPathReady(String path);
   }
 
+  /** Notified on the platform thread about every image of a multi-image pick as it finishes. */
+  interface MultiImageListener {
+    void onImageProcessed(int index, String path);
+  }
+
+  /** Notified on the platform thread about the progress of a video compression. */
+  interface VideoCompressionListener {
+    void onProgress(double progress);
+  }
+
   private Uri pendingCameraMediaUri;
   private MethodChannel.Result pendingResult;
   private MethodCall methodCall;
@@ -126,6 +149,23 @@ public class ImagePickerDelegate
       final File externalFilesDirectory,
       final ImageResizer imageResizer,
       final ImagePickerCache cache) {
+    this(
+        activity,
+        externalFilesDirectory,
+        imageResizer,
+        cache,
+        externalFilesDirectory != null
+            ? new ResizedImageCache(
+                externalFilesDirectory, ResizedImageCache.DEFAULT_MAX_SIZE_BYTES)
+            : null);
+  }
+
+  private ImagePickerDelegate(
+      final Activity activity,
+      final File externalFilesDirectory,
+      final ImageResizer imageResizer,
+      final ImagePickerCache cache,
+      final ResizedImageCache resizedImageCache) {
     this(
         activity,
         externalFilesDirectory,
@@ -176,7 +216,25 @@ public class ImagePickerDelegate
                 });
           }
         },
-        new FileUtils());
+        new FileUtils(),
+        new MultiImageProcessor(
+            activity,
+            imageResizer,
+            new FileUtils(),
+            resizedImageCache,
+            createPlatformThreadExecutor()),
+        resizedImageCache,
+        new VideoTranscoder(createPlatformThreadExecutor()));
+  }
+
+  private static Executor createPlatformThreadExecutor() {
+    final Handler handler = new Handler(Looper.getMainLooper());
+    return new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        handler.post(command);
+      }
+    };
   }
 
   /**
@@ -195,6 +253,37 @@ public class ImagePickerDelegate
       final IntentResolver intentResolver,
       final FileUriResolver fileUriResolver,
       final FileUtils fileUtils) {
+    this(
+        activity,
+        externalFilesDirectory,
+        imageResizer,
+        result,
+        methodCall,
+        cache,
+        permissionManager,
+        intentResolver,
+        fileUriResolver,
+        fileUtils,
+        null,
+        null,
+        null);
+  }
+
+  @VisibleForTesting
+  ImagePickerDelegate(
+      final Activity activity,
+      final File externalFilesDirectory,
+      final ImageResizer imageResizer,
+      final MethodChannel.Result result,
+      final MethodCall methodCall,
+      final ImagePickerCache cache,
+      final PermissionManager permissionManager,
+      final IntentResolver intentResolver,
+      final FileUriResolver fileUriResolver,
+      final FileUtils fileUtils,
+      final MultiImageProcessor multiImageProcessor,
+      final ResizedImageCache resizedImageCache,
+      final VideoTranscoder videoTranscoder) {
     this.activity = activity;
     this.externalFilesDirectory = externalFilesDirectory;
     this.imageResizer = imageResizer;
@@ -205,6 +294,9 @@ public class ImagePickerDelegate
     this.intentResolver = intentResolver;
     this.fileUriResolver = fileUriResolver;
     this.fileUtils = fileUtils;
+    this.multiImageProcessor = multiImageProcessor;
+    this.resizedImageCache = resizedImageCache;
+    this.videoTranscoder = videoTranscoder;
     this.cache = cache;
   }
 
@@ -216,6 +308,30 @@ public class ImagePickerDelegate
     return cameraDevice;
   }
 
+  void setMultiImageListener(MultiImageListener listener) {
+    multiImageListener = listener;
+  }
+
+  void setVideoCompressionListener(VideoCompressionListener listener) {
+    videoCompressionListener = listener;
+  }
+
+  /**
+   * Releases the background thread of video compression and the pooled bitmaps, once the delegate
+   * is no longer used.
+   */
+  void dispose() {
+    if (videoTranscoder != null) {
+      videoTranscoder.dispose();
+    }
+    imageResizer.clearBitmapPool();
+  }
+
+  /** Recycles the pooled bitmaps when the system runs low on memory. */
+  void onTrimMemory() {
+    imageResizer.clearBitmapPool();
+  }
+
   // Save the state of the image picker so it can be retrieved with `retrieveLostImage`.
   void saveStateBeforeResult() {
     if (methodCall == null) {
@@ -239,8 +355,23 @@ public class ImagePickerDelegate
           resultMap.get(cache.MAP_KEY_IMAGE_QUALITY) == null
               ? 100
               : (int) resultMap.get(cache.MAP_KEY_IMAGE_QUALITY);
-
-      String newPath = imageResizer.resizeImageIfNeeded(path, maxWidth, maxHeight, imageQuality);
+      String outputFormat = (String) resultMap.get(cache.MAP_KEY_OUTPUT_FORMAT);
+      Rect cropRect =
+          ImageResizer.cropRectFromArguments((Map<?, ?>) resultMap.get(cache.MAP_KEY_CROP_RECT));
+
+      String sourceFingerprint = cache.retrieveSourceFingerprint();
+      if (sourceFingerprint == null) {
+        // Camera images are saved as they are, so the path is the source itself.
+        sourceFingerprint = ResizedImageCache.fingerprintFile(path);
+      }
+      String cacheKey =
+          resizedImageCache != null
+              ? ResizedImageCache.keyFor(
+                  sourceFingerprint, maxWidth, maxHeight, imageQuality, outputFormat, cropRect)
+              : null;
+      String newPath =
+          resizeImageWithCache(
+              path, maxWidth, maxHeight, imageQuality, outputFormat, cropRect, cacheKey);
       resultMap.put(cache.MAP_KEY_PATH, newPath);
     }
     if (resultMap.isEmpty()) {
@@ -322,6 +453,10 @@ public class ImagePickerDelegate
       return;
     }
 
+    if (!isCropRectArgumentValid()) {
+      return;
+    }
+
     if (!permissionManager.isPermissionGranted(Manifest.permission.READ_EXTERNAL_STORAGE)) {
       permissionManager.askForPermission(
           Manifest.permission.READ_EXTERNAL_STORAGE, REQUEST_EXTERNAL_IMAGE_STORAGE_PERMISSION);
@@ -338,12 +473,46 @@ public class ImagePickerDelegate
     activity.startActivityForResult(pickImageIntent, REQUEST_CODE_CHOOSE_IMAGE_FROM_GALLERY);
   }
 
+  public void chooseMultiImageFromGallery(MethodCall methodCall, MethodChannel.Result result) {
+    if (!setPendingMethodCallAndResult(methodCall, result)) {
+      finishWithAlreadyActiveError(result);
+      return;
+    }
+
+    if (!isCropRectArgumentValid()) {
+      return;
+    }
+
+    if (!permissionManager.isPermissionGranted(Manifest.permission.READ_EXTERNAL_STORAGE)) {
+      permissionManager.askForPermission(
+          Manifest.permission.READ_EXTERNAL_STORAGE,
+          REQUEST_EXTERNAL_MULTI_IMAGE_STORAGE_PERMISSION);
+      return;
+    }
+
+    launchMultiPickImageFromGalleryIntent();
+  }
+
+  private void launchMultiPickImageFromGalleryIntent() {
+    Intent pickImageIntent = new Intent(Intent.ACTION_GET_CONTENT);
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+      pickImageIntent.putExtra(Intent.EXTRA_ALLOW_MULTIPLE, true);
+    }
+    pickImageIntent.setType("image/*");
+
+    activity.startActivityForResult(pickImageIntent, REQUEST_CODE_CHOOSE_MULTI_IMAGE_FROM_GALLERY);
+  }
+
   public void takeImageWithCamera(MethodCall methodCall, MethodChannel.Result result) {
     if (!setPendingMethodCallAndResult(methodCall, result)) {
       finishWithAlreadyActiveError(result);
       return;
     }
 
+    if (!isCropRectArgumentValid()) {
+      return;
+    }
+
     if (needRequestCameraPermission()
         && !permissionManager.isPermissionGranted(Manifest.permission.CAMERA)) {
       permissionManager.askForPermission(
@@ -429,6 +598,11 @@ public class ImagePickerDelegate
           launchPickImageFromGalleryIntent();
         }
         break;
+      case REQUEST_EXTERNAL_MULTI_IMAGE_STORAGE_PERMISSION:
+        if (permissionGranted) {
+          launchMultiPickImageFromGalleryIntent();
+        }
+        break;
       case REQUEST_EXTERNAL_VIDEO_STORAGE_PERMISSION:
         if (permissionGranted) {
           launchPickVideoFromGalleryIntent();
@@ -451,6 +625,7 @@ public class ImagePickerDelegate
     if (!permissionGranted) {
       switch (requestCode) {
         case REQUEST_EXTERNAL_IMAGE_STORAGE_PERMISSION:
+        case REQUEST_EXTERNAL_MULTI_IMAGE_STORAGE_PERMISSION:
         case REQUEST_EXTERNAL_VIDEO_STORAGE_PERMISSION:
           finishWithError("photo_access_denied", "The user did not allow photo access.");
           break;
@@ -470,6 +645,9 @@ public class ImagePickerDelegate
       case REQUEST_CODE_CHOOSE_IMAGE_FROM_GALLERY:
         handleChooseImageResult(resultCode, data);
         break;
+      case REQUEST_CODE_CHOOSE_MULTI_IMAGE_FROM_GALLERY:
+        handleChooseMultiImageResult(resultCode, data);
+        break;
       case REQUEST_CODE_TAKE_IMAGE_WITH_CAMERA:
         handleCaptureImageResult(resultCode);
         break;
@@ -488,8 +666,20 @@ public class ImagePickerDelegate
 
   private void handleChooseImageResult(int resultCode, Intent data) {
     if (resultCode == Activity.RESULT_OK && data != null) {
+      String sourceFingerprint = fileUtils.getSourceFingerprint(activity, data.getData());
+      if (pendingResult == null && sourceFingerprint != null) {
+        // The image is saved for `retrieveLostImage`, from a copy whose fingerprint differs.
+        cache.saveSourceFingerprint(sourceFingerprint);
+      }
+      String cacheKey = resizedImageCacheKey(sourceFingerprint);
+      String cachedPath = cacheKey != null ? resizedImageCache.get(cacheKey) : null;
+      if (cachedPath != null) {
+        // The same item was picked before with the same options; skip copying and resizing.
+        finishWithSuccess(cachedPath);
+        return;
+      }
       String path = fileUtils.getPathFromUri(activity, data.getData());
-      handleImageResult(path, false);
+      handleImageResult(path, false, cacheKey);
       return;
     }
 
@@ -497,10 +687,29 @@ public class ImagePickerDelegate
     finishWithSuccess(null);
   }
 
+  private void handleChooseMultiImageResult(int resultCode, Intent data) {
+    if (resultCode == Activity.RESULT_OK && data != null) {
+      List<Uri> uris = new ArrayList<>();
+      ClipData clipData = data.getClipData();
+      if (clipData != null) {
+        for (int i = 0; i < clipData.getItemCount(); i++) {
+          uris.add(clipData.getItemAt(i).getUri());
+        }
+      } else if (data.getData() != null) {
+        uris.add(data.getData());
+      }
+      handleMultiImageResult(uris);
+      return;
+    }
+
+    // User cancelled choosing pictures.
+    finishWithSuccess(null);
+  }
+
   private void handleChooseVideoResult(int resultCode, Intent data) {
     if (resultCode == Activity.RESULT_OK && data != null) {
       String path = fileUtils.getPathFromUri(activity, data.getData());
-      handleVideoResult(path);
+      handleVideoResult(path, false);
       return;
     }
 
@@ -536,7 +745,7 @@ public class ImagePickerDelegate
           new OnPathReadyListener() {
             @Override
             public void onPathReady(String path) {
-              handleVideoResult(path);
+              handleVideoResult(path, true);
             }
           });
       return;
@@ -547,13 +756,27 @@ public class ImagePickerDelegate
   }
 
   private void handleImageResult(String path, boolean shouldDeleteOriginalIfScaled) {
+    handleImageResult(path, shouldDeleteOriginalIfScaled, null);
+  }
+
+  private void handleImageResult(
+      String path, boolean shouldDeleteOriginalIfScaled, String resizedImageCacheKey) {
     if (methodCall != null) {
       Double maxWidth = methodCall.argument("maxWidth");
       Double maxHeight = methodCall.argument("maxHeight");
       Integer imageQuality = methodCall.argument("imageQuality");
+      String outputFormat = methodCall.argument("outputFormat");
+      Rect cropRect = cropRectArgument();
 
       String finalImagePath =
-          imageResizer.resizeImageIfNeeded(path, maxWidth, maxHeight, imageQuality);
+          resizeImageWithCache(
+              path,
+              maxWidth,
+              maxHeight,
+              imageQuality,
+              outputFormat,
+              cropRect,
+              resizedImageCacheKey);
 
       finishWithSuccess(finalImagePath);
 
@@ -566,8 +789,150 @@ public class ImagePickerDelegate
     }
   }
 
-  private void handleVideoResult(String path) {
-    finishWithSuccess(path);
+  /**
+   * Returns the key of the resized image cache entry for the current method call, or null if the
+   * result of the call must not be cached.
+   */
+  private String resizedImageCacheKey(String sourceFingerprint) {
+    if (resizedImageCache == null || methodCall == null) {
+      return null;
+    }
+    return ResizedImageCache.keyFor(
+        sourceFingerprint,
+        (Double) methodCall.argument("maxWidth"),
+        (Double) methodCall.argument("maxHeight"),
+        (Integer) methodCall.argument("imageQuality"),
+        (String) methodCall.argument("outputFormat"),
+        cropRectArgument());
+  }
+
+  /** Finishes with an invalid_crop error and returns false if the cropRect argument is invalid. */
+  private boolean isCropRectArgumentValid() {
+    try {
+      cropRectArgument();
+      return true;
+    } catch (IllegalArgumentException e) {
+      finishWithError("invalid_crop", e.getMessage());
+      return false;
+    }
+  }
+
+  private Rect cropRectArgument() {
+    return ImageResizer.cropRectFromArguments((Map<?, ?>) methodCall.argument("cropRect"));
+  }
+
+  private String resizeImageWithCache(
+      String path,
+      Double maxWidth,
+      Double maxHeight,
+      Integer imageQuality,
+      String outputFormat,
+      Rect cropRect,
+      String resizedImageCacheKey) {
+    if (resizedImageCacheKey != null) {
+      String cachedPath = resizedImageCache.get(resizedImageCacheKey);
+      if (cachedPath != null) {
+        return cachedPath;
+      }
+    }
+    String resizedPath =
+        imageResizer.resizeImageIfNeeded(
+            path, maxWidth, maxHeight, imageQuality, outputFormat, cropRect);
+    if (resizedImageCacheKey != null && resizedPath != null && !resizedPath.equals(path)) {
+      resizedPath = resizedImageCache.put(resizedImageCacheKey, resizedPath);
+    }
+    return resizedPath;
+  }
+
+  private void handleMultiImageResult(List<Uri> uris) {
+    Double maxWidth = null;
+    Double maxHeight = null;
+    Integer imageQuality = null;
+    String outputFormat = null;
+    Rect cropRect = null;
+    long memoryBudgetBytes = MultiImageProcessor.defaultMemoryBudgetBytes();
+    boolean streamResults = false;
+    if (methodCall != null) {
+      maxWidth = methodCall.argument("maxWidth");
+      maxHeight = methodCall.argument("maxHeight");
+      imageQuality = methodCall.argument("imageQuality");
+      outputFormat = methodCall.argument("outputFormat");
+      cropRect = cropRectArgument();
+      Number requestedBudget = methodCall.argument("memoryBudgetBytes");
+      if (requestedBudget != null && requestedBudget.longValue() > 0) {
+        memoryBudgetBytes = requestedBudget.longValue();
+      }
+      streamResults = Boolean.TRUE.equals(methodCall.argument("streamResults"));
+    }
+
+    final boolean shouldStreamResults = streamResults;
+    multiImageProcessor.process(
+        uris,
+        maxWidth,
+        maxHeight,
+        imageQuality,
+        outputFormat,
+        cropRect,
+        memoryBudgetBytes,
+        new MultiImageProcessor.Callback() {
+          @Override
+          public void onImageProcessed(int index, String path) {
+            if (shouldStreamResults && multiImageListener != null) {
+              multiImageListener.onImageProcessed(index, path);
+            }
+          }
+
+          @Override
+          public void onComplete(List<String> paths) {
+            finishWithListSuccess(paths);
+          }
+
+          @Override
+          public void onError(String errorCode, String errorMessage) {
+            finishWithError(errorCode, errorMessage);
+          }
+        });
+  }
+
+  private void handleVideoResult(
+      final String path, final boolean shouldDeleteOriginalIfTranscoded) {
+    VideoTranscoder.Options options = null;
+    if (methodCall != null) {
+      options =
+          VideoTranscoder.Options.fromArguments(
+              (Map<?, ?>) methodCall.argument("videoCompression"));
+    }
+    if (path == null || options == null || videoTranscoder == null) {
+      finishWithSuccess(path);
+      return;
+    }
+
+    File outputFile = createTemporaryWritableVideoFile();
+    videoTranscoder.transcode(
+        path,
+        outputFile.getPath(),
+        options,
+        new VideoTranscoder.Callback() {
+          @Override
+          public void onProgress(double progress) {
+            if (videoCompressionListener != null) {
+              videoCompressionListener.onProgress(progress);
+            }
+          }
+
+          @Override
+          public void onComplete(String outputPath) {
+            if (shouldDeleteOriginalIfTranscoded) {
+              new File(path).delete();
+            }
+            finishWithSuccess(outputPath);
+          }
+
+          @Override
+          public void onError(String errorCode, String errorMessage) {
+            finishWithError(errorCode, errorMessage);
+          }
+        });
   }
 
   private boolean setPendingMethodCallAndResult(
@@ -594,6 +959,16 @@ public class ImagePickerDelegate
     clearMethodCallAndResult();
   }
 
+  private void finishWithListSuccess(List<String> imagePaths) {
+    if (pendingResult == null) {
+      // The lost data cache only holds a single path, so there is nothing to restore a
+      // multi-image pick from.
+      return;
+    }
+    pendingResult.success(imagePaths);
+    clearMethodCallAndResult();
+  }
+
   private void finishWithAlreadyActiveError(MethodChannel.Result result) {
     result.error("already_active", "Image picker is already active", null);
   }
@@ -610,6 +985,8 @@ public class ImagePickerDelegate
   private void clearMethodCallAndResult() {
     methodCall = null;
     pendingResult = null;
+    // Pooled bitmaps are only reused within a pick, so they are not kept for the next one.
+    imageResizer.clearBitmapPool();
   }
 
   private void useFrontCamera(Intent intent) {
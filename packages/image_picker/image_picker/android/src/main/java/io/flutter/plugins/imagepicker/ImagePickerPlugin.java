@@ -6,6 +6,8 @@ package io.flutter.plugins.imagepicker;
 
 import android.app.Activity;
 import android.app.Application;
+import android.content.ComponentCallbacks2;
+import android.content.res.Configuration;
 import android.os.Bundle;
 import android.os.Environment;
 import android.os.Handler;
@@ -24,13 +26,17 @@ import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel;
 import io.flutter.plugin.common.PluginRegistry;
 import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
 
 @SuppressWarnings("deprecation")
 public class ImagePickerPlugin
     implements MethodChannel.MethodCallHandler, FlutterPlugin, ActivityAware {
 
   private class LifeCycleObserver
-      implements Application.ActivityLifecycleCallbacks, DefaultLifecycleObserver {
+      implements Application.ActivityLifecycleCallbacks,
+          DefaultLifecycleObserver,
+          ComponentCallbacks2 {
     private final Activity thisActivity;
 
     LifeCycleObserver(Activity activity) {
@@ -89,11 +95,29 @@ public class ImagePickerPlugin
         delegate.saveStateBeforeResult();
       }
     }
+
+    @Override
+    public void onTrimMemory(int level) {
+      if (delegate != null) {
+        delegate.onTrimMemory();
+      }
+    }
+
+    @Override
+    public void onLowMemory() {
+      onTrimMemory(TRIM_MEMORY_COMPLETE);
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {}
   }
 
   static final String METHOD_CALL_IMAGE = "pickImage";
+  static final String METHOD_CALL_MULTI_IMAGE = "pickMultiImage";
   static final String METHOD_CALL_VIDEO = "pickVideo";
   private static final String METHOD_CALL_RETRIEVE = "retrieve";
+  private static final String METHOD_ON_MULTI_IMAGE_PROCESSED = "multiImage#onImageProcessed";
+  private static final String METHOD_ON_VIDEO_COMPRESSION_PROGRESS = "video#onCompressionProgress";
   private static final int CAMERA_DEVICE_FRONT = 1;
   private static final int CAMERA_DEVICE_REAR = 0;
   private static final String CHANNEL = "plugins.flutter.io/image_picker";
@@ -188,7 +212,30 @@ public class ImagePickerPlugin
     this.delegate = constructDelegate(activity);
     channel = new MethodChannel(messenger, CHANNEL);
     channel.setMethodCallHandler(this);
+    final MethodChannel methodChannel = channel;
+    delegate.setMultiImageListener(
+        new ImagePickerDelegate.MultiImageListener() {
+          @Override
+          public void onImageProcessed(int index, String path) {
+            Map<String, Object> arguments = new HashMap<>();
+            arguments.put("index", index);
+            arguments.put("path", path);
+            methodChannel.invokeMethod(METHOD_ON_MULTI_IMAGE_PROCESSED, arguments);
+          }
+        });
+    delegate.setVideoCompressionListener(
+        new ImagePickerDelegate.VideoCompressionListener() {
+          @Override
+          public void onProgress(double progress) {
+            Map<String, Object> arguments = new HashMap<>();
+            arguments.put("progress", progress);
+            methodChannel.invokeMethod(METHOD_ON_VIDEO_COMPRESSION_PROGRESS, arguments);
+          }
+        });
     observer = new LifeCycleObserver(activity);
+    if (application != null) {
+      application.registerComponentCallbacks(observer);
+    }
     if (registrar != null) {
       // V1 embedding setup for activity listeners.
       application.registerActivityLifecycleCallbacks(observer);
@@ -209,10 +256,12 @@ public class ImagePickerPlugin
     activityBinding = null;
     lifecycle.removeObserver(observer);
     lifecycle = null;
+    delegate.dispose();
     delegate = null;
     channel.setMethodCallHandler(null);
     channel = null;
     application.unregisterActivityLifecycleCallbacks(observer);
+    application.unregisterComponentCallbacks(observer);
     application = null;
   }
 
@@ -303,6 +352,9 @@ public class ImagePickerPlugin
             throw new IllegalArgumentException("Invalid image source: " + imageSource);
         }
         break;
+      case METHOD_CALL_MULTI_IMAGE:
+        delegate.chooseMultiImageFromGallery(call, result);
+        break;
       case METHOD_CALL_VIDEO:
         imageSource = call.argument("source");
         switch (imageSource) {
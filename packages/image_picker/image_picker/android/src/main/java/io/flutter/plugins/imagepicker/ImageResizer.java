@@ -6,20 +6,37 @@ package io.flutter.plugins.imagepicker;
 
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Rect;
 import android.util.Log;
 import androidx.annotation.Nullable;
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
 
 class ImageResizer {
+  private static final int BYTES_PER_ARGB_8888_PIXEL = 4;
+  private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
+  static final String OUTPUT_FORMAT_JPEG = "jpeg";
+  static final String OUTPUT_FORMAT_PNG = "png";
+  static final String OUTPUT_FORMAT_WEBP = "webp";
+
   private final File externalFilesDirectory;
   private final ExifDataCopier exifDataCopier;
+  private final BitmapPool bitmapPool;
 
   ImageResizer(File externalFilesDirectory, ExifDataCopier exifDataCopier) {
+    this(externalFilesDirectory, exifDataCopier, new BitmapPool(BitmapPool.defaultMaxSizeBytes()));
+  }
+
+  ImageResizer(File externalFilesDirectory, ExifDataCopier exifDataCopier, BitmapPool bitmapPool) {
     this.externalFilesDirectory = externalFilesDirectory;
     this.exifDataCopier = exifDataCopier;
+    this.bitmapPool = bitmapPool;
   }
 
   /**
@@ -33,28 +50,106 @@ class ImageResizer {
       @Nullable Double maxWidth,
       @Nullable Double maxHeight,
       @Nullable Integer imageQuality) {
-    Bitmap bmp = decodeFile(imagePath);
-    if (bmp == null) {
-      return null;
-    }
+    return resizeImageIfNeeded(imagePath, maxWidth, maxHeight, imageQuality, null);
+  }
+
+  /**
+   * If necessary, resizes the image located in imagePath, encodes it with outputFormat and then
+   * returns the path for the scaled image.
+   *
+   * <p>outputFormat is one of {@link #OUTPUT_FORMAT_JPEG}, {@link #OUTPUT_FORMAT_PNG} or {@link
+   * #OUTPUT_FORMAT_WEBP}. When it is null, images with an alpha channel are saved as PNG and all
+   * others as JPEG.
+   *
+   * <p>If no resizing or re-encoding is needed, returns the path for the original image.
+   */
+  String resizeImageIfNeeded(
+      String imagePath,
+      @Nullable Double maxWidth,
+      @Nullable Double maxHeight,
+      @Nullable Integer imageQuality,
+      @Nullable String outputFormat) {
+    return resizeImageIfNeeded(imagePath, maxWidth, maxHeight, imageQuality, outputFormat, null);
+  }
+
+  /**
+   * If necessary, crops the image located in imagePath to cropRect, resizes it, encodes it with
+   * outputFormat and then returns the path for the scaled image.
+   *
+   * <p>cropRect is given in the pixel coordinates of the stored image, before any EXIF rotation is
+   * applied, and is clamped to the image bounds. Only the requested region is decoded, subsampled
+   * as far as the requested size allows, so memory use is bounded by the size of the output rather
+   * than the size of the source.
+   *
+   * <p>If no cropping, resizing or re-encoding is needed, returns the path for the original image.
+   */
+  String resizeImageIfNeeded(
+      String imagePath,
+      @Nullable Double maxWidth,
+      @Nullable Double maxHeight,
+      @Nullable Integer imageQuality,
+      @Nullable String outputFormat,
+      @Nullable Rect cropRect) {
     boolean shouldScale =
-        maxWidth != null || maxHeight != null || isImageQualityValid(imageQuality);
+        maxWidth != null
+            || maxHeight != null
+            || isImageQualityValid(imageQuality)
+            || outputFormat != null
+            || cropRect != null;
     if (!shouldScale) {
-      return imagePath;
+      return isDecodable(imagePath) ? imagePath : null;
+    }
+    Bitmap bmp =
+        cropRect != null
+            ? decodeRegion(imagePath, cropRect, maxWidth, maxHeight)
+            : decodeFile(imagePath, maxWidth, maxHeight);
+    if (bmp == null) {
+      return null;
     }
     try {
       String[] pathParts = imagePath.split("/");
       String imageName = pathParts[pathParts.length - 1];
-      File file = resizedImage(bmp, maxWidth, maxHeight, imageQuality, imageName);
+      File file = resizedImage(bmp, maxWidth, maxHeight, imageQuality, outputFormat, imageName);
       copyExif(imagePath, file.getPath());
       return file.getPath();
     } catch (IOException e) {
       throw new RuntimeException(e);
+    } finally {
+      bitmapPool.put(bmp);
+    }
+  }
+
+  /** Returns the pool the bitmaps decoded by this resizer are recycled through. */
+  BitmapPool getBitmapPool() {
+    return bitmapPool;
+  }
+
+  /** Recycles the bitmaps kept for reuse, once no more images are resized for a while. */
+  void clearBitmapPool() {
+    bitmapPool.clear();
+  }
+
+  /**
+   * Returns an upper bound of the heap memory needed to resize the image located in imagePath.
+   *
+   * <p>The bound covers the fully decoded ARGB_8888 original plus a scaled copy of at most the same
+   * size. Only the image header is read.
+   */
+  long estimateDecodedBytes(String imagePath) {
+    BitmapFactory.Options options = decodeBounds(imagePath);
+    if (options.outWidth <= 0 || options.outHeight <= 0) {
+      return 0;
     }
+    return 2L * BYTES_PER_ARGB_8888_PIXEL * options.outWidth * options.outHeight;
   }
 
   private File resizedImage(
-      Bitmap bmp, Double maxWidth, Double maxHeight, Integer imageQuality, String outputImageName)
+      Bitmap bmp,
+      Double maxWidth,
+      Double maxHeight,
+      Integer imageQuality,
+      String outputFormat,
+      String outputImageName)
       throws IOException {
     double originalWidth = bmp.getWidth() * 1.0;
     double originalHeight = bmp.getHeight() * 1.0;
@@ -99,9 +194,20 @@ class ImageResizer {
     }
 
     Bitmap scaledBmp = createScaledBitmap(bmp, width.intValue(), height.intValue(), false);
-    File file =
-        createImageOnExternalDirectory("/scaled_" + outputImageName, scaledBmp, imageQuality);
-    return file;
+    try {
+      Bitmap.CompressFormat format = compressFormatFor(scaledBmp, outputFormat);
+      String name = "/scaled_" + outputImageName;
+      if (outputFormat != null) {
+        name = replaceExtension(name, extensionFor(format));
+      }
+      return createImageOnExternalDirectory(name, scaledBmp, format, imageQuality);
+    } finally {
+      // createScaledBitmap returns the source itself when no scaling is needed; that one is
+      // handed back to the pool by the caller.
+      if (scaledBmp != bmp) {
+        bitmapPool.put(scaledBmp);
+      }
+    }
   }
 
   private File createFile(File externalFilesDirectory, String child) {
@@ -120,8 +226,134 @@ class ImageResizer {
     exifDataCopier.copyExif(filePathOri, filePathDest);
   }
 
-  private Bitmap decodeFile(String path) {
-    return BitmapFactory.decodeFile(path);
+  private BitmapFactory.Options decodeBounds(String path) {
+    BitmapFactory.Options options = new BitmapFactory.Options();
+    options.inJustDecodeBounds = true;
+    BitmapFactory.decodeFile(path, options);
+    return options;
+  }
+
+  private boolean isDecodable(String path) {
+    BitmapFactory.Options options = decodeBounds(path);
+    return options.outWidth > 0 && options.outHeight > 0;
+  }
+
+  /**
+   * Parses a crop rectangle sent by the Dart side as a map with {@code x}, {@code y}, {@code
+   * width} and {@code height} entries, or returns null if arguments is null.
+   *
+   * @throws IllegalArgumentException if an entry is missing or the rectangle is empty.
+   */
+  @Nullable
+  static Rect cropRectFromArguments(@Nullable Map<?, ?> arguments) {
+    if (arguments == null) {
+      return null;
+    }
+    int x = cropRectEntry(arguments, "x");
+    int y = cropRectEntry(arguments, "y");
+    int width = cropRectEntry(arguments, "width");
+    int height = cropRectEntry(arguments, "height");
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException(
+          "cropRect must have a positive width and height, got " + width + "x" + height);
+    }
+    return new Rect(x, y, x + width, y + height);
+  }
+
+  private static int cropRectEntry(Map<?, ?> arguments, String key) {
+    Object value = arguments.get(key);
+    if (!(value instanceof Number)) {
+      throw new IllegalArgumentException("cropRect is missing a numeric " + key);
+    }
+    return ((Number) value).intValue();
+  }
+
+  /**
+   * Returns the largest power of two by which an image of the given size can be subsampled while
+   * still being at least as large as the size it is going to be scaled down to.
+   */
+  static int calculateInSampleSize(
+      int width, int height, @Nullable Double maxWidth, @Nullable Double maxHeight) {
+    double scale = 1.0;
+    if (maxWidth != null && maxWidth > 0) {
+      scale = Math.min(scale, maxWidth / width);
+    }
+    if (maxHeight != null && maxHeight > 0) {
+      scale = Math.min(scale, maxHeight / height);
+    }
+    int targetWidth = (int) Math.ceil(width * scale);
+    int targetHeight = (int) Math.ceil(height * scale);
+    int inSampleSize = 1;
+    while (width / (inSampleSize * 2) >= targetWidth
+        && height / (inSampleSize * 2) >= targetHeight) {
+      inSampleSize *= 2;
+    }
+    return inSampleSize;
+  }
+
+  private Bitmap decodeRegion(
+      String path, Rect cropRect, @Nullable Double maxWidth, @Nullable Double maxHeight) {
+    BitmapFactory.Options bounds = decodeBounds(path);
+    Rect region = new Rect(cropRect);
+    if (bounds.outWidth <= 0
+        || bounds.outHeight <= 0
+        || !region.intersect(0, 0, bounds.outWidth, bounds.outHeight)) {
+      return null;
+    }
+    BitmapFactory.Options options = new BitmapFactory.Options();
+    options.inSampleSize =
+        calculateInSampleSize(region.width(), region.height(), maxWidth, maxHeight);
+    BitmapRegionDecoder regionDecoder;
+    try {
+      regionDecoder = BitmapRegionDecoder.newInstance(path, false);
+    } catch (IOException e) {
+      // Region decoding is not supported for every format; crop a subsampled full decode instead.
+      return cropSubsampledImage(path, region, options.inSampleSize);
+    }
+    try {
+      return regionDecoder.decodeRegion(region, options);
+    } finally {
+      regionDecoder.recycle();
+    }
+  }
+
+  private Bitmap cropSubsampledImage(String path, Rect region, int inSampleSize) {
+    BitmapFactory.Options options = new BitmapFactory.Options();
+    options.inSampleSize = inSampleSize;
+    Bitmap full = BitmapFactory.decodeFile(path, options);
+    if (full == null) {
+      return null;
+    }
+    int left = Math.min(region.left / inSampleSize, full.getWidth() - 1);
+    int top = Math.min(region.top / inSampleSize, full.getHeight() - 1);
+    int width = Math.max(1, Math.min(region.width() / inSampleSize, full.getWidth() - left));
+    int height = Math.max(1, Math.min(region.height() / inSampleSize, full.getHeight() - top));
+    Bitmap cropped = Bitmap.createBitmap(full, left, top, width, height);
+    if (cropped != full) {
+      full.recycle();
+    }
+    return cropped;
+  }
+
+  private Bitmap decodeFile(String path, @Nullable Double maxWidth, @Nullable Double maxHeight) {
+    BitmapFactory.Options bounds = decodeBounds(path);
+    if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+      return null;
+    }
+    BitmapFactory.Options options = new BitmapFactory.Options();
+    options.inSampleSize =
+        calculateInSampleSize(bounds.outWidth, bounds.outHeight, maxWidth, maxHeight);
+    options.inMutable = true;
+    options.inBitmap = bitmapPool.get(bounds.outWidth, bounds.outHeight, options.inSampleSize);
+    try {
+      return BitmapFactory.decodeFile(path, options);
+    } catch (IllegalArgumentException e) {
+      // The pooled bitmap did not fit after all (for example because the image is decoded with a
+      // different config). Fall back to a fresh allocation.
+      bitmapPool.put(options.inBitmap);
+      options.inBitmap = null;
+      return BitmapFactory.decodeFile(path, options);
+    }
   }
 
   private Bitmap createScaledBitmap(Bitmap bmp, int width, int height, boolean filter) {
@@ -132,23 +364,54 @@ class ImageResizer {
     return imageQuality != null && imageQuality > 0 && imageQuality < 100;
   }
 
-  private File createImageOnExternalDirectory(String name, Bitmap bitmap, int imageQuality)
+  private Bitmap.CompressFormat compressFormatFor(Bitmap bitmap, @Nullable String outputFormat) {
+    if (OUTPUT_FORMAT_WEBP.equals(outputFormat)) {
+      return Bitmap.CompressFormat.WEBP;
+    } else if (OUTPUT_FORMAT_PNG.equals(outputFormat)) {
+      return Bitmap.CompressFormat.PNG;
+    } else if (OUTPUT_FORMAT_JPEG.equals(outputFormat)) {
+      return Bitmap.CompressFormat.JPEG;
+    }
+    return bitmap.hasAlpha() ? Bitmap.CompressFormat.PNG : Bitmap.CompressFormat.JPEG;
+  }
+
+  private static String extensionFor(Bitmap.CompressFormat format) {
+    switch (format) {
+      case PNG:
+        return ".png";
+      case WEBP:
+        return ".webp";
+      default:
+        return ".jpg";
+    }
+  }
+
+  private static String replaceExtension(String name, String extension) {
+    int dot = name.lastIndexOf('.');
+    int slash = name.lastIndexOf('/');
+    if (dot > slash) {
+      name = name.substring(0, dot);
+    }
+    return name + extension;
+  }
+
+  private File createImageOnExternalDirectory(
+      String name, Bitmap bitmap, Bitmap.CompressFormat format, int imageQuality)
       throws IOException {
-    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-    boolean saveAsPNG = bitmap.hasAlpha();
-    if (saveAsPNG) {
+    if (format == Bitmap.CompressFormat.PNG && imageQuality < 100) {
       Log.d(
           "ImageResizer",
           "image_picker: compressing is not supported for type PNG. Returning the image with original quality");
     }
-    bitmap.compress(
-        saveAsPNG ? Bitmap.CompressFormat.PNG : Bitmap.CompressFormat.JPEG,
-        imageQuality,
-        outputStream);
     File imageFile = createFile(externalFilesDirectory, name);
-    FileOutputStream fileOutput = createOutputStream(imageFile);
-    fileOutput.write(outputStream.toByteArray());
-    fileOutput.close();
+    // Encode straight into the file instead of buffering the whole image in memory first.
+    OutputStream outputStream =
+        new BufferedOutputStream(createOutputStream(imageFile), OUTPUT_BUFFER_SIZE);
+    try {
+      bitmap.compress(format, imageQuality, outputStream);
+    } finally {
+      outputStream.close();
+    }
     return imageFile;
   }
 }
@@ -0,0 +1,286 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.imagepicker;
+
+import android.content.Context;
+import android.graphics.Rect;
+import android.net.Uri;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Copies and resizes a batch of picked images on a bounded pool of worker threads.
+ *
+ * <p>The number of images processed at the same time is limited by a {@link MemoryBudget} of
+ * decoded pixel bytes rather than by the thread count alone, so a batch of small thumbnails runs
+ * fully in parallel while a batch of camera-sized photos is processed a few at a time.
+ *
+ * <p>All {@link Callback} methods are invoked on the callback executor passed to the constructor.
+ */
+class MultiImageProcessor {
+  private static final int MAX_WORKER_THREADS = 4;
+  private static final long WORKER_KEEP_ALIVE_SECONDS = 30;
+
+  /** Receives the results of a {@link #process} call. */
+  interface Callback {
+    /** Called once for every image, in completion order, as soon as it has been processed. */
+    void onImageProcessed(int index, String path);
+
+    /** Called once after every image of the batch has been processed, in picking order. */
+    void onComplete(List<String> paths);
+
+    /** Called at most once if any image of the batch could not be processed. */
+    void onError(String errorCode, String errorMessage);
+  }
+
+  private final Context context;
+  private final ImageResizer imageResizer;
+  private final FileUtils fileUtils;
+  @Nullable private final ResizedImageCache resizedImageCache;
+  private final ExecutorService workerExecutor;
+  private final Executor callbackExecutor;
+
+  MultiImageProcessor(
+      Context context,
+      ImageResizer imageResizer,
+      FileUtils fileUtils,
+      @Nullable ResizedImageCache resizedImageCache,
+      Executor callbackExecutor) {
+    this(
+        context,
+        imageResizer,
+        fileUtils,
+        resizedImageCache,
+        createWorkerExecutor(),
+        callbackExecutor);
+  }
+
+  @VisibleForTesting
+  MultiImageProcessor(
+      Context context,
+      ImageResizer imageResizer,
+      FileUtils fileUtils,
+      @Nullable ResizedImageCache resizedImageCache,
+      ExecutorService workerExecutor,
+      Executor callbackExecutor) {
+    this.context = context;
+    this.imageResizer = imageResizer;
+    this.fileUtils = fileUtils;
+    this.resizedImageCache = resizedImageCache;
+    this.workerExecutor = workerExecutor;
+    this.callbackExecutor = callbackExecutor;
+  }
+
+  private static ExecutorService createWorkerExecutor() {
+    int threadCount =
+        Math.max(1, Math.min(MAX_WORKER_THREADS, Runtime.getRuntime().availableProcessors()));
+    ThreadPoolExecutor executor =
+        new ThreadPoolExecutor(
+            threadCount,
+            threadCount,
+            WORKER_KEEP_ALIVE_SECONDS,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>());
+    // Idle workers die so that a delegate that is no longer used does not pin threads.
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  /** Returns the default decoded pixel budget: a quarter of the maximum heap size. */
+  static long defaultMemoryBudgetBytes() {
+    return Runtime.getRuntime().maxMemory() / 4;
+  }
+
+  /**
+   * Copies every uri into the app cache and resizes it if needed.
+   *
+   * @param cropRect the region of every image to keep, or null to keep whole images.
+   * @param memoryBudgetBytes the maximum number of decoded pixel bytes in flight at any time.
+   */
+  void process(
+      final List<Uri> uris,
+      @Nullable final Double maxWidth,
+      @Nullable final Double maxHeight,
+      @Nullable final Integer imageQuality,
+      @Nullable final String outputFormat,
+      @Nullable final Rect cropRect,
+      long memoryBudgetBytes,
+      final Callback callback) {
+    final int count = uris.size();
+    if (count == 0) {
+      callbackExecutor.execute(
+          new Runnable() {
+            @Override
+            public void run() {
+              callback.onComplete(new ArrayList<String>());
+            }
+          });
+      return;
+    }
+
+    final MemoryBudget budget = new MemoryBudget(memoryBudgetBytes, imageResizer.getBitmapPool());
+    final String[] results = new String[count];
+    final AtomicInteger delivered = new AtomicInteger(0);
+    final AtomicBoolean failed = new AtomicBoolean(false);
+
+    for (int i = 0; i < count; i++) {
+      final int index = i;
+      final Uri uri = uris.get(i);
+      workerExecutor.execute(
+          new Runnable() {
+            @Override
+            public void run() {
+              if (failed.get()) {
+                return;
+              }
+              final String path;
+              try {
+                path =
+                    processImage(
+                        uri, maxWidth, maxHeight, imageQuality, outputFormat, cropRect, budget);
+              } catch (RuntimeException e) {
+                reportError(failed, callback, e.getMessage());
+                return;
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                reportError(failed, callback, "Interrupted while waiting for memory budget.");
+                return;
+              }
+              if (path == null) {
+                reportError(failed, callback, "Could not read the picked image.");
+                return;
+              }
+              callbackExecutor.execute(
+                  new Runnable() {
+                    @Override
+                    public void run() {
+                      if (failed.get()) {
+                        return;
+                      }
+                      results[index] = path;
+                      callback.onImageProcessed(index, path);
+                      if (delivered.incrementAndGet() == count) {
+                        callback.onComplete(new ArrayList<>(Arrays.asList(results)));
+                      }
+                    }
+                  });
+            }
+          });
+    }
+  }
+
+  private String processImage(
+      Uri uri,
+      @Nullable Double maxWidth,
+      @Nullable Double maxHeight,
+      @Nullable Integer imageQuality,
+      @Nullable String outputFormat,
+      @Nullable Rect cropRect,
+      MemoryBudget budget)
+      throws InterruptedException {
+    String cacheKey = null;
+    if (resizedImageCache != null) {
+      cacheKey =
+          ResizedImageCache.keyFor(
+              fileUtils.getSourceFingerprint(context, uri),
+              maxWidth,
+              maxHeight,
+              imageQuality,
+              outputFormat,
+              cropRect);
+      String cachedPath = cacheKey != null ? resizedImageCache.get(cacheKey) : null;
+      if (cachedPath != null) {
+        return cachedPath;
+      }
+    }
+    String path = fileUtils.getPathFromUri(context, uri);
+    if (path == null) {
+      return null;
+    }
+    long cost = imageResizer.estimateDecodedBytes(path);
+    long acquired = budget.acquire(cost);
+    String resizedPath;
+    try {
+      resizedPath =
+          imageResizer.resizeImageIfNeeded(
+              path, maxWidth, maxHeight, imageQuality, outputFormat, cropRect);
+    } finally {
+      budget.release(acquired);
+    }
+    if (cacheKey != null && resizedPath != null && !resizedPath.equals(path)) {
+      resizedPath = resizedImageCache.put(cacheKey, resizedPath);
+    }
+    return resizedPath;
+  }
+
+  private void reportError(
+      AtomicBoolean failed, final Callback callback, final String errorMessage) {
+    if (!failed.compareAndSet(false, true)) {
+      return;
+    }
+    callbackExecutor.execute(
+        new Runnable() {
+          @Override
+          public void run() {
+            callback.onError("multi_image_processing_failed", errorMessage);
+          }
+        });
+  }
+
+  /**
+   * A counting limit on the number of decoded pixel bytes that may be in use at the same time.
+   *
+   * <p>A single request larger than the whole budget is clamped to the budget, so it still runs,
+   * but only once nothing else is in flight. The bitmaps kept in the pool count against the budget
+   * too, and are recycled to make room for a request before it waits.
+   */
+  @VisibleForTesting
+  static class MemoryBudget {
+    private final long capacity;
+    @Nullable private final BitmapPool bitmapPool;
+    private long inUse;
+
+    MemoryBudget(long capacity) {
+      this(capacity, null);
+    }
+
+    MemoryBudget(long capacity, @Nullable BitmapPool bitmapPool) {
+      this.capacity = Math.max(1, capacity);
+      this.bitmapPool = bitmapPool;
+    }
+
+    /** Blocks until {@code bytes} are available and returns the amount actually reserved. */
+    synchronized long acquire(long bytes) throws InterruptedException {
+      long requested = Math.max(0, Math.min(bytes, capacity));
+      if (bitmapPool != null) {
+        bitmapPool.trimToSize(Math.max(0, capacity - inUse - requested));
+      }
+      while (inUse > 0 && inUse + requested > capacity) {
+        wait();
+      }
+      inUse += requested;
+      return requested;
+    }
+
+    synchronized void release(long bytes) {
+      inUse = Math.max(0, inUse - bytes);
+      notifyAll();
+    }
+
+    synchronized long getInUse() {
+      return inUse;
+    }
+  }
+}
@@ -0,0 +1,264 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.imagepicker;
+
+import android.graphics.Rect;
+import androidx.annotation.Nullable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A content-addressed disk cache of resized images.
+ *
+ * <p>Entries are keyed by a fingerprint of the source image (its uri, size and last modification
+ * time) together with the resize options, so picking the same gallery item again with the same
+ * options returns the previously resized file without decoding anything. The cache is bounded by
+ * the total size of its files and evicts the least recently used entries first.
+ *
+ * <p>The cached files are private to the cache: every hit is returned as a new copy in the output
+ * directory, so the app may move or delete the files it is handed and eviction never removes a
+ * file the app holds.
+ */
+class ResizedImageCache {
+  static final long DEFAULT_MAX_SIZE_BYTES = 50 * 1024 * 1024;
+  private static final String CACHE_DIRECTORY_NAME = "image_picker_resized";
+  private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+  private final File outputDirectory;
+  private final File directory;
+  private final long maxSizeBytes;
+  // Ordered from least to most recently used.
+  private final LinkedHashMap<String, File> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long currentSizeBytes;
+  private boolean loaded;
+
+  ResizedImageCache(File parentDirectory, long maxSizeBytes) {
+    this.outputDirectory = parentDirectory;
+    this.directory = new File(parentDirectory, CACHE_DIRECTORY_NAME);
+    this.maxSizeBytes = maxSizeBytes;
+  }
+
+  /** Returns a fingerprint of the file located at path, or null if the file does not exist. */
+  @Nullable
+  static String fingerprintFile(String path) {
+    File file = new File(path);
+    if (!file.isFile()) {
+      return null;
+    }
+    return fingerprint(file.toURI().toString(), file.length(), file.lastModified());
+  }
+
+  static String fingerprint(String source, long sizeBytes, long lastModified) {
+    return source + "|" + sizeBytes + "|" + lastModified;
+  }
+
+  /**
+   * Returns the cache key for the given source fingerprint and resize options, or null if the
+   * options do not require any processing.
+   */
+  @Nullable
+  static String keyFor(
+      @Nullable String sourceFingerprint,
+      @Nullable Double maxWidth,
+      @Nullable Double maxHeight,
+      @Nullable Integer imageQuality,
+      @Nullable String outputFormat) {
+    return keyFor(sourceFingerprint, maxWidth, maxHeight, imageQuality, outputFormat, null);
+  }
+
+  /**
+   * Returns the cache key for the given source fingerprint, resize options and crop rectangle, or
+   * null if the options do not require any processing.
+   */
+  @Nullable
+  static String keyFor(
+      @Nullable String sourceFingerprint,
+      @Nullable Double maxWidth,
+      @Nullable Double maxHeight,
+      @Nullable Integer imageQuality,
+      @Nullable String outputFormat,
+      @Nullable Rect cropRect) {
+    // Qualities outside of (0, 100) are ignored by the resizer, so they share the key of no
+    // quality; a retrieved lost image always comes with a quality of 100.
+    if (imageQuality != null && (imageQuality <= 0 || imageQuality >= 100)) {
+      imageQuality = null;
+    }
+    boolean hasOptions =
+        maxWidth != null
+            || maxHeight != null
+            || imageQuality != null
+            || outputFormat != null
+            || cropRect != null;
+    if (sourceFingerprint == null || !hasOptions) {
+      return null;
+    }
+    String description =
+        sourceFingerprint
+            + "|"
+            + maxWidth
+            + "|"
+            + maxHeight
+            + "|"
+            + imageQuality
+            + "|"
+            + outputFormat
+            + "|"
+            + describe(cropRect);
+    return sha256(description);
+  }
+
+  private static String describe(@Nullable Rect rect) {
+    if (rect == null) {
+      return "null";
+    }
+    return rect.left + "," + rect.top + "," + rect.right + "," + rect.bottom;
+  }
+
+  /**
+   * Returns the path of a new copy of the cached image for key in the output directory, or null if
+   * there is none.
+   */
+  @Nullable
+  synchronized String get(String key) {
+    loadIfNeeded();
+    File file = entries.get(key);
+    if (file == null) {
+      return null;
+    }
+    if (!file.isFile()) {
+      entries.remove(key);
+      return null;
+    }
+    // Persist the recency so that the order survives a process restart.
+    file.setLastModified(System.currentTimeMillis());
+    File copy =
+        new File(outputDirectory, "scaled_" + UUID.randomUUID() + extensionOf(file.getName()));
+    if (!copy(file, copy)) {
+      return null;
+    }
+    return copy.getPath();
+  }
+
+  /**
+   * Copies the resized image at resizedPath into the cache under key and returns resizedPath, which
+   * stays owned by the caller.
+   *
+   * <p>If the image cannot be copied, nothing is cached.
+   */
+  synchronized String put(String key, String resizedPath) {
+    loadIfNeeded();
+    File source = new File(resizedPath);
+    if (!directory.exists() && !directory.mkdirs()) {
+      return resizedPath;
+    }
+    File destination = new File(directory, key + extensionOf(source.getName()));
+    File previous = entries.remove(key);
+    if (previous != null) {
+      currentSizeBytes -= previous.length();
+      previous.delete();
+    }
+    if (!copy(source, destination)) {
+      return resizedPath;
+    }
+    entries.put(key, destination);
+    currentSizeBytes += destination.length();
+    trimToSize();
+    return resizedPath;
+  }
+
+  private void trimToSize() {
+    Iterator<Map.Entry<String, File>> iterator = entries.entrySet().iterator();
+    while (currentSizeBytes > maxSizeBytes && iterator.hasNext()) {
+      File evicted = iterator.next().getValue();
+      iterator.remove();
+      currentSizeBytes -= evicted.length();
+      evicted.delete();
+    }
+  }
+
+  private void loadIfNeeded() {
+    if (loaded) {
+      return;
+    }
+    loaded = true;
+    File[] files = directory.listFiles();
+    if (files == null) {
+      return;
+    }
+    Arrays.sort(
+        files,
+        new Comparator<File>() {
+          @Override
+          public int compare(File a, File b) {
+            long difference = a.lastModified() - b.lastModified();
+            return difference < 0 ? -1 : (difference > 0 ? 1 : 0);
+          }
+        });
+    for (File file : files) {
+      String name = file.getName();
+      int dot = name.lastIndexOf('.');
+      entries.put(dot == -1 ? name : name.substring(0, dot), file);
+      currentSizeBytes += file.length();
+    }
+    trimToSize();
+  }
+
+  // Deletes a partial destination, so that it is never mistaken for a complete image.
+  private static boolean copy(File source, File destination) {
+    try {
+      InputStream inputStream = new FileInputStream(source);
+      try {
+        OutputStream outputStream = new FileOutputStream(destination);
+        try {
+          byte[] buffer = new byte[COPY_BUFFER_SIZE];
+          int read;
+          while ((read = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, read);
+          }
+        } finally {
+          outputStream.close();
+        }
+      } finally {
+        inputStream.close();
+      }
+      return true;
+    } catch (IOException e) {
+      destination.delete();
+      return false;
+    }
+  }
+
+  private static String extensionOf(String name) {
+    int dot = name.lastIndexOf('.');
+    return dot == -1 ? "" : name.substring(dot);
+  }
+
+  private static String sha256(String value) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      byte[] hash = digest.digest(value.getBytes(Charset.forName("UTF-8")));
+      StringBuilder builder = new StringBuilder(hash.length * 2);
+      for (byte b : hash) {
+        builder.append(String.format("%02x", b));
+      }
+      return builder.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+  }
+}
@@ -0,0 +1,808 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.imagepicker;
+
+import android.graphics.SurfaceTexture;
+import android.media.MediaCodec;
+import android.media.MediaCodecInfo;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.media.MediaMetadataRetriever;
+import android.media.MediaMuxer;
+import android.opengl.EGL14;
+import android.opengl.EGLConfig;
+import android.opengl.EGLContext;
+import android.opengl.EGLDisplay;
+import android.opengl.EGLExt;
+import android.opengl.EGLSurface;
+import android.opengl.GLES11Ext;
+import android.opengl.GLES20;
+import android.os.Build;
+import android.view.Surface;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+import androidx.annotation.VisibleForTesting;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Re-encodes picked or captured videos to a smaller resolution, bitrate or codec.
+ *
+ * <p>Decoded frames never leave the GPU: the decoder renders into a {@link SurfaceTexture} which is
+ * drawn with OpenGL ES onto the encoder's input {@link Surface}. Audio samples are copied to the
+ * output untouched.
+ *
+ * <p>Transcoding requires API 18; on older devices every call finishes with an error.
+ */
+class VideoTranscoder {
+  static final String CODEC_H264 = "h264";
+  static final String CODEC_HEVC = "hevc";
+
+  /** Receives the progress and the result of a {@link #transcode} call. */
+  interface Callback {
+    /** Called with the fraction of the source that has been encoded, between 0 and 1. */
+    void onProgress(double progress);
+
+    void onComplete(String outputPath);
+
+    void onError(String errorCode, String errorMessage);
+  }
+
+  /** The transcoding parameters requested by the Dart side. */
+  static class Options {
+    private static final String KEY_MAX_RESOLUTION = "maxResolution";
+    private static final String KEY_BITRATE = "bitrate";
+    private static final String KEY_CODEC = "codec";
+
+    @Nullable final Integer maxResolution;
+    @Nullable final Integer bitrate;
+    final String codec;
+
+    Options(@Nullable Integer maxResolution, @Nullable Integer bitrate, @Nullable String codec) {
+      this.maxResolution = maxResolution;
+      this.bitrate = bitrate;
+      this.codec = codec != null ? codec : CODEC_H264;
+    }
+
+    /** Returns the options described by arguments, or null if no transcoding was requested. */
+    @Nullable
+    static Options fromArguments(@Nullable Map<?, ?> arguments) {
+      if (arguments == null) {
+        return null;
+      }
+      Integer maxResolution = toInteger(arguments.get(KEY_MAX_RESOLUTION));
+      Integer bitrate = toInteger(arguments.get(KEY_BITRATE));
+      String codec = (String) arguments.get(KEY_CODEC);
+      if (maxResolution == null && bitrate == null && codec == null) {
+        return null;
+      }
+      return new Options(maxResolution, bitrate, codec);
+    }
+
+    private static Integer toInteger(Object value) {
+      return value instanceof Number ? ((Number) value).intValue() : null;
+    }
+
+    String mimeType() {
+      return CODEC_HEVC.equals(codec) ? "video/hevc" : "video/avc";
+    }
+  }
+
+  private final ExecutorService workerExecutor;
+  private final Executor callbackExecutor;
+
+  VideoTranscoder(Executor callbackExecutor) {
+    this(Executors.newSingleThreadExecutor(), callbackExecutor);
+  }
+
+  @VisibleForTesting
+  VideoTranscoder(ExecutorService workerExecutor, Executor callbackExecutor) {
+    this.workerExecutor = workerExecutor;
+    this.callbackExecutor = callbackExecutor;
+  }
+
+  /**
+   * Transcodes the video at inputPath into outputPath on a background thread.
+   *
+   * <p>All callback methods are invoked on the callback executor passed to the constructor.
+   */
+  void transcode(
+      final String inputPath,
+      final String outputPath,
+      final Options options,
+      final Callback callback) {
+    workerExecutor.execute(
+        new Runnable() {
+          @Override
+          public void run() {
+            try {
+              if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR2) {
+                throw new IOException("Video compression requires Android 4.3 or newer.");
+              }
+              new TranscodingSession(inputPath, outputPath, options, callback).run();
+              postComplete(callback, outputPath);
+            } catch (IOException | RuntimeException e) {
+              // Leaves no partially written video behind.
+              new File(outputPath).delete();
+              postError(callback, e.getMessage());
+            }
+          }
+        });
+  }
+
+  /**
+   * Stops the background thread once the transcoding in progress, if any, is done. No video can be
+   * transcoded afterwards.
+   */
+  void dispose() {
+    workerExecutor.shutdown();
+  }
+
+  private void postProgress(final Callback callback, final double progress) {
+    callbackExecutor.execute(
+        new Runnable() {
+          @Override
+          public void run() {
+            callback.onProgress(progress);
+          }
+        });
+  }
+
+  private void postComplete(final Callback callback, final String outputPath) {
+    callbackExecutor.execute(
+        new Runnable() {
+          @Override
+          public void run() {
+            callback.onComplete(outputPath);
+          }
+        });
+  }
+
+  private void postError(final Callback callback, final String errorMessage) {
+    callbackExecutor.execute(
+        new Runnable() {
+          @Override
+          public void run() {
+            callback.onError("video_compression_failed", errorMessage);
+          }
+        });
+  }
+
+  /** Returns the output size for a source of the given size, keeping the aspect ratio. */
+  @VisibleForTesting
+  static int[] scaledSize(int width, int height, @Nullable Integer maxResolution) {
+    double scale = 1.0;
+    int longestSide = Math.max(width, height);
+    if (maxResolution != null && maxResolution > 0 && longestSide > maxResolution) {
+      scale = maxResolution / (double) longestSide;
+    }
+    // Most encoders only accept even dimensions.
+    int scaledWidth = Math.max(2, ((int) Math.round(width * scale)) & ~1);
+    int scaledHeight = Math.max(2, ((int) Math.round(height * scale)) & ~1);
+    return new int[] {scaledWidth, scaledHeight};
+  }
+
+  @RequiresApi(api = Build.VERSION_CODES.JELLY_BEAN_MR2)
+  private class TranscodingSession {
+    private static final long TIMEOUT_US = 10000;
+    private static final int DEFAULT_FRAME_RATE = 30;
+    private static final int I_FRAME_INTERVAL_SECONDS = 1;
+    private static final double DEFAULT_BITS_PER_PIXEL = 0.1;
+
+    private final String inputPath;
+    private final String outputPath;
+    private final Options options;
+    private final Callback callback;
+    private int lastReportedPercent = -1;
+
+    TranscodingSession(String inputPath, String outputPath, Options options, Callback callback) {
+      this.inputPath = inputPath;
+      this.outputPath = outputPath;
+      this.options = options;
+      this.callback = callback;
+    }
+
+    void run() throws IOException {
+      MediaExtractor videoExtractor = new MediaExtractor();
+      MediaExtractor audioExtractor = new MediaExtractor();
+      MediaCodec decoder = null;
+      MediaCodec encoder = null;
+      MediaMuxer muxer = null;
+      InputSurface inputSurface = null;
+      OutputSurface outputSurface = null;
+      try {
+        videoExtractor.setDataSource(inputPath);
+        int videoTrack = selectTrack(videoExtractor, "video/");
+        if (videoTrack < 0) {
+          throw new IOException("The picked file does not contain a video track.");
+        }
+        videoExtractor.selectTrack(videoTrack);
+        MediaFormat inputFormat = videoExtractor.getTrackFormat(videoTrack);
+
+        audioExtractor.setDataSource(inputPath);
+        int audioTrack = selectTrack(audioExtractor, "audio/");
+        MediaFormat audioFormat = null;
+        if (audioTrack >= 0) {
+          audioExtractor.selectTrack(audioTrack);
+          audioFormat = audioExtractor.getTrackFormat(audioTrack);
+        }
+
+        int frameRate =
+            inputFormat.containsKey(MediaFormat.KEY_FRAME_RATE)
+                ? inputFormat.getInteger(MediaFormat.KEY_FRAME_RATE)
+                : DEFAULT_FRAME_RATE;
+        long durationUs =
+            inputFormat.containsKey(MediaFormat.KEY_DURATION)
+                ? inputFormat.getLong(MediaFormat.KEY_DURATION)
+                : 0;
+        int[] size =
+            scaledSize(
+                inputFormat.getInteger(MediaFormat.KEY_WIDTH),
+                inputFormat.getInteger(MediaFormat.KEY_HEIGHT),
+                options.maxResolution);
+        int bitrate =
+            options.bitrate != null
+                ? options.bitrate
+                : (int) (size[0] * size[1] * frameRate * DEFAULT_BITS_PER_PIXEL);
+
+        MediaFormat outputFormat =
+            MediaFormat.createVideoFormat(options.mimeType(), size[0], size[1]);
+        outputFormat.setInteger(
+            MediaFormat.KEY_COLOR_FORMAT,
+            MediaCodecInfo.CodecCapabilities.COLOR_FormatSurface);
+        outputFormat.setInteger(MediaFormat.KEY_BIT_RATE, bitrate);
+        outputFormat.setInteger(MediaFormat.KEY_FRAME_RATE, frameRate);
+        outputFormat.setInteger(MediaFormat.KEY_I_FRAME_INTERVAL, I_FRAME_INTERVAL_SECONDS);
+
+        encoder = MediaCodec.createEncoderByType(options.mimeType());
+        encoder.configure(outputFormat, null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
+        inputSurface = new InputSurface(encoder.createInputSurface());
+        inputSurface.makeCurrent();
+        encoder.start();
+
+        // The texture of the output surface is created in the EGL context made current above.
+        outputSurface = new OutputSurface(size[0], size[1]);
+        decoder = MediaCodec.createDecoderByType(inputFormat.getString(MediaFormat.KEY_MIME));
+        decoder.configure(inputFormat, outputSurface.getSurface(), null, 0);
+        decoder.start();
+
+        muxer = new MediaMuxer(outputPath, MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4);
+        muxer.setOrientationHint(readRotation());
+
+        transcodeVideo(
+            videoExtractor,
+            decoder,
+            encoder,
+            inputSurface,
+            outputSurface,
+            muxer,
+            audioExtractor,
+            audioFormat,
+            durationUs);
+        reportProgress(1.0);
+      } finally {
+        videoExtractor.release();
+        audioExtractor.release();
+        releaseCodec(decoder);
+        releaseCodec(encoder);
+        if (outputSurface != null) {
+          outputSurface.release();
+        }
+        if (inputSurface != null) {
+          inputSurface.release();
+        }
+        if (muxer != null) {
+          try {
+            muxer.stop();
+          } catch (IllegalStateException ignored) {
+            // The muxer was never started because no frame was encoded.
+          }
+          muxer.release();
+        }
+      }
+    }
+
+    /**
+     * Runs the decode-render-encode loop, copying the audio samples, if any, into the muxer as the
+     * video reaches their presentation time so that the two tracks are interleaved.
+     */
+    private void transcodeVideo(
+        MediaExtractor extractor,
+        MediaCodec decoder,
+        MediaCodec encoder,
+        InputSurface inputSurface,
+        OutputSurface outputSurface,
+        MediaMuxer muxer,
+        MediaExtractor audioExtractor,
+        @Nullable MediaFormat audioFormat,
+        long durationUs)
+        throws IOException {
+      MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+      CodecBuffers decoderBuffers = new CodecBuffers(decoder);
+      CodecBuffers encoderBuffers = new CodecBuffers(encoder);
+      int videoTrackIndex = -1;
+      AudioCopier audioCopier = null;
+      boolean muxerStarted = false;
+      boolean inputDone = false;
+      boolean decoderDone = false;
+      boolean encoderDone = false;
+
+      while (!encoderDone) {
+        if (!inputDone) {
+          int inputIndex = decoder.dequeueInputBuffer(TIMEOUT_US);
+          if (inputIndex >= 0) {
+            ByteBuffer inputBuffer = decoderBuffers.getInputBuffer(inputIndex);
+            int sampleSize = extractor.readSampleData(inputBuffer, 0);
+            if (sampleSize < 0) {
+              decoder.queueInputBuffer(
+                  inputIndex, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+              inputDone = true;
+            } else {
+              decoder.queueInputBuffer(inputIndex, 0, sampleSize, extractor.getSampleTime(), 0);
+              extractor.advance();
+            }
+          }
+        }
+
+        boolean encoderOutputAvailable = true;
+        boolean decoderOutputAvailable = !decoderDone;
+        while (encoderOutputAvailable || decoderOutputAvailable) {
+          int encoderIndex = encoder.dequeueOutputBuffer(info, TIMEOUT_US);
+          if (encoderIndex == MediaCodec.INFO_TRY_AGAIN_LATER) {
+            encoderOutputAvailable = false;
+          } else if (encoderIndex == MediaCodec.INFO_OUTPUT_BUFFERS_CHANGED) {
+            encoderBuffers.refreshOutputBuffers();
+          } else if (encoderIndex == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+            if (muxerStarted) {
+              throw new IOException("The encoder output format changed twice.");
+            }
+            videoTrackIndex = muxer.addTrack(encoder.getOutputFormat());
+            if (audioFormat != null) {
+              audioCopier =
+                  new AudioCopier(audioExtractor, muxer, muxer.addTrack(audioFormat), audioFormat);
+            }
+            muxer.start();
+            muxerStarted = true;
+          } else if (encoderIndex >= 0) {
+            ByteBuffer encodedData = encoderBuffers.getOutputBuffer(encoderIndex);
+            if ((info.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) != 0) {
+              // The codec config is part of the format passed to addTrack.
+              info.size = 0;
+            }
+            if (info.size > 0 && muxerStarted) {
+              encodedData.position(info.offset);
+              encodedData.limit(info.offset + info.size);
+              muxer.writeSampleData(videoTrackIndex, encodedData, info);
+              if (audioCopier != null) {
+                audioCopier.copyUntil(info.presentationTimeUs);
+              }
+              if (durationUs > 0) {
+                reportProgress(Math.min(1.0, info.presentationTimeUs / (double) durationUs));
+              }
+            }
+            encoder.releaseOutputBuffer(encoderIndex, false);
+            if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+              encoderDone = true;
+              break;
+            }
+          }
+          if (encoderIndex != MediaCodec.INFO_TRY_AGAIN_LATER) {
+            // Keep draining the encoder before feeding it more frames.
+            continue;
+          }
+
+          if (!decoderDone) {
+            int decoderIndex = decoder.dequeueOutputBuffer(info, TIMEOUT_US);
+            if (decoderIndex == MediaCodec.INFO_TRY_AGAIN_LATER) {
+              decoderOutputAvailable = false;
+            } else if (decoderIndex >= 0) {
+              boolean render = info.size != 0;
+              decoder.releaseOutputBuffer(decoderIndex, render);
+              if (render) {
+                outputSurface.awaitNewImage();
+                outputSurface.drawImage();
+                inputSurface.setPresentationTime(info.presentationTimeUs * 1000);
+                inputSurface.swapBuffers();
+              }
+              if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                encoder.signalEndOfInputStream();
+                decoderDone = true;
+                decoderOutputAvailable = false;
+              }
+            }
+          }
+        }
+      }
+
+      if (!muxerStarted) {
+        throw new IOException("No video frame could be encoded.");
+      }
+      if (audioCopier != null) {
+        audioCopier.copyUntil(Long.MAX_VALUE);
+      }
+    }
+
+    private void releaseCodec(@Nullable MediaCodec codec) {
+      if (codec == null) {
+        return;
+      }
+      try {
+        codec.stop();
+      } catch (IllegalStateException ignored) {
+        // The codec failed before it was started.
+      }
+      codec.release();
+    }
+
+
+    private int readRotation() {
+      MediaMetadataRetriever retriever = new MediaMetadataRetriever();
+      try {
+        retriever.setDataSource(inputPath);
+        String rotation =
+            retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_VIDEO_ROTATION);
+        return rotation != null ? Integer.parseInt(rotation) : 0;
+      } catch (RuntimeException e) {
+        return 0;
+      } finally {
+        retriever.release();
+      }
+    }
+
+    private int selectTrack(MediaExtractor extractor, String mimePrefix) {
+      for (int i = 0; i < extractor.getTrackCount(); i++) {
+        String mime = extractor.getTrackFormat(i).getString(MediaFormat.KEY_MIME);
+        if (mime != null && mime.startsWith(mimePrefix)) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    private void reportProgress(double progress) {
+      int percent = (int) (progress * 100);
+      if (percent == lastReportedPercent) {
+        return;
+      }
+      lastReportedPercent = percent;
+      postProgress(callback, progress);
+    }
+  }
+
+  /** Copies the samples of an audio track into a muxer as they are, in presentation order. */
+  @RequiresApi(api = Build.VERSION_CODES.JELLY_BEAN_MR2)
+  private static class AudioCopier {
+    private static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+
+    private final MediaExtractor extractor;
+    private final MediaMuxer muxer;
+    private final int trackIndex;
+    private final ByteBuffer buffer;
+    private final MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+
+    AudioCopier(MediaExtractor extractor, MediaMuxer muxer, int trackIndex, MediaFormat format) {
+      this.extractor = extractor;
+      this.muxer = muxer;
+      this.trackIndex = trackIndex;
+      int bufferSize =
+          format.containsKey(MediaFormat.KEY_MAX_INPUT_SIZE)
+              ? format.getInteger(MediaFormat.KEY_MAX_INPUT_SIZE)
+              : DEFAULT_BUFFER_SIZE;
+      buffer = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /** Copies the samples presented up to presentationTimeUs that were not copied yet. */
+    @SuppressWarnings("deprecation")
+    void copyUntil(long presentationTimeUs) {
+      long sampleTime;
+      while ((sampleTime = extractor.getSampleTime()) >= 0 && sampleTime <= presentationTimeUs) {
+        int sampleSize = extractor.readSampleData(buffer, 0);
+        if (sampleSize < 0) {
+          return;
+        }
+        int flags =
+            (extractor.getSampleFlags() & MediaExtractor.SAMPLE_FLAG_SYNC) != 0
+                ? MediaCodec.BUFFER_FLAG_SYNC_FRAME
+                : 0;
+        info.set(0, sampleSize, sampleTime, flags);
+        muxer.writeSampleData(trackIndex, buffer, info);
+        extractor.advance();
+      }
+    }
+  }
+
+  /** Gives access to the buffers of a codec on all API levels. */
+  @RequiresApi(api = Build.VERSION_CODES.JELLY_BEAN_MR2)
+  @SuppressWarnings("deprecation")
+  private static class CodecBuffers {
+    private final MediaCodec codec;
+    private ByteBuffer[] inputBuffers;
+    private ByteBuffer[] outputBuffers;
+
+    CodecBuffers(MediaCodec codec) {
+      this.codec = codec;
+      if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+        inputBuffers = codec.getInputBuffers();
+        outputBuffers = codec.getOutputBuffers();
+      }
+    }
+
+    ByteBuffer getInputBuffer(int index) {
+      if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+        return codec.getInputBuffer(index);
+      }
+      ByteBuffer buffer = inputBuffers[index];
+      buffer.clear();
+      return buffer;
+    }
+
+    ByteBuffer getOutputBuffer(int index) {
+      if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+        return codec.getOutputBuffer(index);
+      }
+      return outputBuffers[index];
+    }
+
+    void refreshOutputBuffers() {
+      if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+        outputBuffers = codec.getOutputBuffers();
+      }
+    }
+  }
+
+  /** An EGL window surface on top of the encoder's input surface. */
+  @RequiresApi(api = Build.VERSION_CODES.JELLY_BEAN_MR2)
+  private static class InputSurface {
+    private static final int EGL_RECORDABLE_ANDROID = 0x3142;
+
+    private final Surface surface;
+    private EGLDisplay eglDisplay;
+    private EGLContext eglContext;
+    private EGLSurface eglSurface;
+
+    InputSurface(Surface surface) {
+      this.surface = surface;
+      eglDisplay = EGL14.eglGetDisplay(EGL14.EGL_DEFAULT_DISPLAY);
+      int[] version = new int[2];
+      if (!EGL14.eglInitialize(eglDisplay, version, 0, version, 1)) {
+        throw new RuntimeException("Unable to initialize EGL.");
+      }
+      int[] configAttributes = {
+        EGL14.EGL_RED_SIZE, 8,
+        EGL14.EGL_GREEN_SIZE, 8,
+        EGL14.EGL_BLUE_SIZE, 8,
+        EGL14.EGL_RENDERABLE_TYPE, EGL14.EGL_OPENGL_ES2_BIT,
+        EGL_RECORDABLE_ANDROID, 1,
+        EGL14.EGL_NONE
+      };
+      EGLConfig[] configs = new EGLConfig[1];
+      int[] configCount = new int[1];
+      if (!EGL14.eglChooseConfig(
+              eglDisplay, configAttributes, 0, configs, 0, 1, configCount, 0)
+          || configCount[0] == 0) {
+        throw new RuntimeException("Unable to find a recordable EGL config.");
+      }
+      int[] contextAttributes = {EGL14.EGL_CONTEXT_CLIENT_VERSION, 2, EGL14.EGL_NONE};
+      eglContext =
+          EGL14.eglCreateContext(
+              eglDisplay, configs[0], EGL14.EGL_NO_CONTEXT, contextAttributes, 0);
+      int[] surfaceAttributes = {EGL14.EGL_NONE};
+      eglSurface =
+          EGL14.eglCreateWindowSurface(eglDisplay, configs[0], surface, surfaceAttributes, 0);
+      if (eglContext == null || eglSurface == null) {
+        throw new RuntimeException("Unable to create the EGL surface.");
+      }
+    }
+
+    void makeCurrent() {
+      if (!EGL14.eglMakeCurrent(eglDisplay, eglSurface, eglSurface, eglContext)) {
+        throw new RuntimeException("eglMakeCurrent failed.");
+      }
+    }
+
+    void setPresentationTime(long nanoseconds) {
+      EGLExt.eglPresentationTimeANDROID(eglDisplay, eglSurface, nanoseconds);
+    }
+
+    void swapBuffers() {
+      EGL14.eglSwapBuffers(eglDisplay, eglSurface);
+    }
+
+    void release() {
+      if (eglDisplay != EGL14.EGL_NO_DISPLAY) {
+        EGL14.eglMakeCurrent(
+            eglDisplay, EGL14.EGL_NO_SURFACE, EGL14.EGL_NO_SURFACE, EGL14.EGL_NO_CONTEXT);
+        EGL14.eglDestroySurface(eglDisplay, eglSurface);
+        EGL14.eglDestroyContext(eglDisplay, eglContext);
+        EGL14.eglReleaseThread();
+        EGL14.eglTerminate(eglDisplay);
+      }
+      surface.release();
+      eglDisplay = EGL14.EGL_NO_DISPLAY;
+      eglContext = EGL14.EGL_NO_CONTEXT;
+      eglSurface = EGL14.EGL_NO_SURFACE;
+    }
+  }
+
+  /**
+   * The surface the decoder renders into, backed by an external OES texture that is drawn as a
+   * full-screen quad onto the current EGL surface.
+   */
+  @RequiresApi(api = Build.VERSION_CODES.JELLY_BEAN_MR2)
+  private static class OutputSurface implements SurfaceTexture.OnFrameAvailableListener {
+    private static final long FRAME_TIMEOUT_MS = 2500;
+    private static final String VERTEX_SHADER =
+        "uniform mat4 uSTMatrix;\n"
+            + "attribute vec4 aPosition;\n"
+            + "attribute vec4 aTextureCoord;\n"
+            + "varying vec2 vTextureCoord;\n"
+            + "void main() {\n"
+            + "  gl_Position = aPosition;\n"
+            + "  vTextureCoord = (uSTMatrix * aTextureCoord).xy;\n"
+            + "}\n";
+    private static final String FRAGMENT_SHADER =
+        "#extension GL_OES_EGL_image_external : require\n"
+            + "precision mediump float;\n"
+            + "varying vec2 vTextureCoord;\n"
+            + "uniform samplerExternalOES sTexture;\n"
+            + "void main() {\n"
+            + "  gl_FragColor = texture2D(sTexture, vTextureCoord);\n"
+            + "}\n";
+    // X, Y, U, V for a triangle strip covering the viewport.
+    private static final float[] QUAD = {
+      -1f, -1f, 0f, 0f,
+      1f, -1f, 1f, 0f,
+      -1f, 1f, 0f, 1f,
+      1f, 1f, 1f, 1f,
+    };
+    private static final int FLOAT_SIZE_BYTES = 4;
+    private static final int QUAD_STRIDE_BYTES = 4 * FLOAT_SIZE_BYTES;
+
+    private final Object frameSyncObject = new Object();
+    private final float[] textureMatrix = new float[16];
+    private final FloatBuffer quad;
+    private final int width;
+    private final int height;
+    private final int program;
+    private final int textureId;
+    private final SurfaceTexture surfaceTexture;
+    private final Surface surface;
+    private boolean frameAvailable;
+
+    OutputSurface(int width, int height) {
+      this.width = width;
+      this.height = height;
+      quad =
+          ByteBuffer.allocateDirect(QUAD.length * FLOAT_SIZE_BYTES)
+              .order(ByteOrder.nativeOrder())
+              .asFloatBuffer();
+      quad.put(QUAD).position(0);
+      program = createProgram();
+
+      int[] textures = new int[1];
+      GLES20.glGenTextures(1, textures, 0);
+      textureId = textures[0];
+      GLES20.glBindTexture(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, textureId);
+      GLES20.glTexParameteri(
+          GLES11Ext.GL_TEXTURE_EXTERNAL_OES, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_LINEAR);
+      GLES20.glTexParameteri(
+          GLES11Ext.GL_TEXTURE_EXTERNAL_OES, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
+      GLES20.glTexParameteri(
+          GLES11Ext.GL_TEXTURE_EXTERNAL_OES, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
+      GLES20.glTexParameteri(
+          GLES11Ext.GL_TEXTURE_EXTERNAL_OES, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
+
+      surfaceTexture = new SurfaceTexture(textureId);
+      // This thread has no looper, so frame callbacks arrive on the main looper.
+      surfaceTexture.setOnFrameAvailableListener(this);
+      surface = new Surface(surfaceTexture);
+    }
+
+    Surface getSurface() {
+      return surface;
+    }
+
+    @Override
+    public void onFrameAvailable(SurfaceTexture surfaceTexture) {
+      synchronized (frameSyncObject) {
+        frameAvailable = true;
+        frameSyncObject.notifyAll();
+      }
+    }
+
+    /** Waits for the decoder to render the next frame and latches it into the texture. */
+    void awaitNewImage() throws IOException {
+      synchronized (frameSyncObject) {
+        long deadline = System.currentTimeMillis() + FRAME_TIMEOUT_MS;
+        while (!frameAvailable) {
+          long remaining = deadline - System.currentTimeMillis();
+          if (remaining <= 0) {
+            throw new IOException("Timed out waiting for a decoded frame.");
+          }
+          try {
+            frameSyncObject.wait(remaining);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a decoded frame.");
+          }
+        }
+        frameAvailable = false;
+      }
+      surfaceTexture.updateTexImage();
+    }
+
+    void drawImage() {
+      surfaceTexture.getTransformMatrix(textureMatrix);
+      GLES20.glViewport(0, 0, width, height);
+      GLES20.glUseProgram(program);
+      GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
+      GLES20.glBindTexture(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, textureId);
+
+      int positionHandle = GLES20.glGetAttribLocation(program, "aPosition");
+      int textureCoordHandle = GLES20.glGetAttribLocation(program, "aTextureCoord");
+      int matrixHandle = GLES20.glGetUniformLocation(program, "uSTMatrix");
+
+      quad.position(0);
+      GLES20.glVertexAttribPointer(
+          positionHandle, 2, GLES20.GL_FLOAT, false, QUAD_STRIDE_BYTES, quad);
+      GLES20.glEnableVertexAttribArray(positionHandle);
+      quad.position(2);
+      GLES20.glVertexAttribPointer(
+          textureCoordHandle, 2, GLES20.GL_FLOAT, false, QUAD_STRIDE_BYTES, quad);
+      GLES20.glEnableVertexAttribArray(textureCoordHandle);
+      GLES20.glUniformMatrix4fv(matrixHandle, 1, false, textureMatrix, 0);
+
+      GLES20.glDrawArrays(GLES20.GL_TRIANGLE_STRIP, 0, 4);
+      GLES20.glFinish();
+    }
+
+    void release() {
+      surface.release();
+      surfaceTexture.release();
+      GLES20.glDeleteTextures(1, new int[] {textureId}, 0);
+      GLES20.glDeleteProgram(program);
+    }
+
+    private static int createProgram() {
+      int vertexShader = loadShader(GLES20.GL_VERTEX_SHADER, VERTEX_SHADER);
+      int fragmentShader = loadShader(GLES20.GL_FRAGMENT_SHADER, FRAGMENT_SHADER);
+      int program = GLES20.glCreateProgram();
+      GLES20.glAttachShader(program, vertexShader);
+      GLES20.glAttachShader(program, fragmentShader);
+      GLES20.glLinkProgram(program);
+      int[] linkStatus = new int[1];
+      GLES20.glGetProgramiv(program, GLES20.GL_LINK_STATUS, linkStatus, 0);
+      GLES20.glDeleteShader(vertexShader);
+      GLES20.glDeleteShader(fragmentShader);
+      if (linkStatus[0] != GLES20.GL_TRUE) {
+        String log = GLES20.glGetProgramInfoLog(program);
+        GLES20.glDeleteProgram(program);
+        throw new RuntimeException("Unable to link the video shader program: " + log);
+      }
+      return program;
+    }
+
+    private static int loadShader(int type, String source) {
+      int shader = GLES20.glCreateShader(type);
+      GLES20.glShaderSource(shader, source);
+      GLES20.glCompileShader(shader);
+      int[] compiled = new int[1];
+      GLES20.glGetShaderiv(shader, GLES20.GL_COMPILE_STATUS, compiled, 0);
+      if (compiled[0] == 0) {
+        String log = GLES20.glGetShaderInfoLog(shader);
+        GLES20.glDeleteShader(shader);
+        throw new RuntimeException("Unable to compile a video shader: " + log);
+      }
+      return shader;
+    }
+  }
+}
@@ -4,7 +4,9 @@
 
 package io.flutter.plugins.imagepicker;
 
+import static io.flutter.plugins.imagepicker.ImagePickerCache.MAP_KEY_CROP_RECT;
 import static io.flutter.plugins.imagepicker.ImagePickerCache.MAP_KEY_IMAGE_QUALITY;
+import static io.flutter.plugins.imagepicker.ImagePickerCache.MAP_KEY_OUTPUT_FORMAT;
 import static io.flutter.plugins.imagepicker.ImagePickerCache.SHARED_PREFERENCES_NAME;
 import static org.hamcrest.core.IsEqual.equalTo;
 import static org.junit.Assert.assertThat;
@@ -112,4 +114,22 @@ public class ImagePickerCacheTest {
     int defaultImageQuality = (int) resultMapWithDefaultQuality.get(cache.MAP_KEY_IMAGE_QUALITY);
     assertThat(defaultImageQuality, equalTo(100));
   }
+
+  @Test
+  public void ImageCache_ShouldBeAbleToSetAndGetOutputFormatAndCropRect() {
+    Map<String, Object> cropRect = new HashMap<>();
+    cropRect.put("x", 10);
+    cropRect.put("y", 20);
+    cropRect.put("width", 30);
+    cropRect.put("height", 40);
+    when(mockMethodCall.argument(MAP_KEY_OUTPUT_FORMAT)).thenReturn("webp");
+    when(mockMethodCall.argument(MAP_KEY_CROP_RECT)).thenReturn(cropRect);
+    ImagePickerCache cache = new ImagePickerCache(mockActivity);
+
+    cache.saveDimensionWithMethodCall(mockMethodCall);
+    Map<String, Object> resultMap = cache.getCacheMap();
+
+    assertThat(resultMap.get(MAP_KEY_OUTPUT_FORMAT), equalTo((Object) "webp"));
+    assertThat(resultMap.get(MAP_KEY_CROP_RECT), equalTo((Object) cropRect));
+  }
 }
@@ -7,8 +7,11 @@ package io.flutter.plugins.imagepicker;
 import static org.hamcrest.core.IsEqual.equalTo;
 import static org.junit.Assert.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -18,10 +21,13 @@ import android.app.Activity;
 import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
+import android.graphics.Rect;
 import android.net.Uri;
 import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel;
 import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
@@ -42,6 +48,7 @@ public class ImagePickerDelegateTest {
   @Mock FileUtils mockFileUtils;
   @Mock Intent mockIntent;
   @Mock ImagePickerCache cache;
+  @Mock ResizedImageCache mockResizedImageCache;
 
   ImagePickerDelegate.FileUriResolver mockFileUriResolver;
 
@@ -67,15 +74,16 @@ public class ImagePickerDelegateTest {
     when(mockFileUtils.getPathFromUri(any(Context.class), any(Uri.class)))
         .thenReturn("pathFromUri");
 
-    when(mockImageResizer.resizeImageIfNeeded("pathFromUri", null, null, null))
+    when(mockImageResizer.resizeImageIfNeeded("pathFromUri", null, null, null, null, null))
         .thenReturn("originalPath");
-    when(mockImageResizer.resizeImageIfNeeded("pathFromUri", null, null, IMAGE_QUALITY))
+    when(mockImageResizer.resizeImageIfNeeded(
+            "pathFromUri", null, null, IMAGE_QUALITY, null, null))
         .thenReturn("originalPath");
-    when(mockImageResizer.resizeImageIfNeeded("pathFromUri", WIDTH, HEIGHT, null))
+    when(mockImageResizer.resizeImageIfNeeded("pathFromUri", WIDTH, HEIGHT, null, null, null))
         .thenReturn("scaledPath");
-    when(mockImageResizer.resizeImageIfNeeded("pathFromUri", WIDTH, null, null))
+    when(mockImageResizer.resizeImageIfNeeded("pathFromUri", WIDTH, null, null, null, null))
         .thenReturn("scaledPath");
-    when(mockImageResizer.resizeImageIfNeeded("pathFromUri", null, HEIGHT, null))
+    when(mockImageResizer.resizeImageIfNeeded("pathFromUri", null, HEIGHT, null, null, null))
         .thenReturn("scaledPath");
 
     mockFileUriResolver = new MockFileUriResolver();
@@ -100,6 +108,49 @@ public class ImagePickerDelegateTest {
     verifyNoMoreInteractions(mockResult);
   }
 
+  @Test
+  public void
+      chooseMultiImageFromGallery_WhenHasNoExternalStoragePermission_RequestsForPermission() {
+    when(mockPermissionManager.isPermissionGranted(Manifest.permission.READ_EXTERNAL_STORAGE))
+        .thenReturn(false);
+
+    ImagePickerDelegate delegate = createDelegate();
+    delegate.chooseMultiImageFromGallery(mockMethodCall, mockResult);
+
+    verify(mockPermissionManager)
+        .askForPermission(
+            Manifest.permission.READ_EXTERNAL_STORAGE,
+            ImagePickerDelegate.REQUEST_EXTERNAL_MULTI_IMAGE_STORAGE_PERMISSION);
+  }
+
+  @Test
+  public void
+      chooseMultiImageFromGallery_WhenHasExternalStoragePermission_LaunchesChooseFromGalleryIntent() {
+    when(mockPermissionManager.isPermissionGranted(Manifest.permission.READ_EXTERNAL_STORAGE))
+        .thenReturn(true);
+
+    ImagePickerDelegate delegate = createDelegate();
+    delegate.chooseMultiImageFromGallery(mockMethodCall, mockResult);
+
+    verify(mockActivity)
+        .startActivityForResult(
+            any(Intent.class),
+            eq(ImagePickerDelegate.REQUEST_CODE_CHOOSE_MULTI_IMAGE_FROM_GALLERY));
+  }
+
+  @Test
+  public void onActivityResult_WhenMultiImagePickingCanceled_FinishesWithNull() {
+    ImagePickerDelegate delegate = createDelegateWithPendingResultAndMethodCall();
+
+    delegate.onActivityResult(
+        ImagePickerDelegate.REQUEST_CODE_CHOOSE_MULTI_IMAGE_FROM_GALLERY,
+        Activity.RESULT_CANCELED,
+        null);
+
+    verify(mockResult).success(null);
+    verifyNoMoreInteractions(mockResult);
+  }
+
   @Test
   public void chooseImageFromGallery_WhenHasNoExternalStoragePermission_RequestsForPermission() {
     when(mockPermissionManager.isPermissionGranted(Manifest.permission.READ_EXTERNAL_STORAGE))
@@ -128,6 +179,23 @@ public class ImagePickerDelegateTest {
             any(Intent.class), eq(ImagePickerDelegate.REQUEST_CODE_CHOOSE_IMAGE_FROM_GALLERY));
   }
 
+  @Test
+  public void chooseImageFromGallery_WhenCropRectIsEmpty_FinishesWithInvalidCropError() {
+    Map<String, Object> cropRect = new HashMap<>();
+    cropRect.put("x", 0);
+    cropRect.put("y", 0);
+    cropRect.put("width", 0);
+    cropRect.put("height", 100);
+    when(mockMethodCall.argument("cropRect")).thenReturn(cropRect);
+
+    ImagePickerDelegate delegate = createDelegate();
+    delegate.chooseImageFromGallery(mockMethodCall, mockResult);
+
+    verify(mockResult).error(eq("invalid_crop"), any(String.class), eq(null));
+    verifyNoMoreInteractions(mockResult);
+    verify(mockActivity, never()).startActivityForResult(any(Intent.class), anyInt());
+  }
+
   @Test
   public void takeImageWithCamera_WhenPendingResultExists_FinishesWithAlreadyActiveError() {
     ImagePickerDelegate delegate = createDelegateWithPendingResultAndMethodCall();
@@ -391,6 +459,87 @@ public class ImagePickerDelegateTest {
     verifyNoMoreInteractions(mockResult);
   }
 
+  @Test
+  public void onActivityResult_WhenImageChosenWithoutPendingResult_SavesSourceFingerprint() {
+    when(mockFileUtils.getSourceFingerprint(any(Context.class), any(Uri.class)))
+        .thenReturn("content://image|1|2");
+    ImagePickerDelegate delegate = createDelegate();
+
+    delegate.onActivityResult(
+        ImagePickerDelegate.REQUEST_CODE_CHOOSE_IMAGE_FROM_GALLERY, Activity.RESULT_OK, mockIntent);
+
+    verify(cache).saveSourceFingerprint("content://image|1|2");
+  }
+
+  @Test
+  public void retrieveLostImage_LooksUpResizedImageCacheWithPickTimeKey() {
+    Map<String, Object> cacheMap = new HashMap<>();
+    cacheMap.put(ImagePickerCache.MAP_KEY_PATH, "pathFromUri");
+    cacheMap.put(ImagePickerCache.MAP_KEY_MAX_WIDTH, WIDTH);
+    cacheMap.put(ImagePickerCache.MAP_KEY_IMAGE_QUALITY, 100);
+    when(cache.getCacheMap()).thenReturn(cacheMap);
+    when(cache.retrieveSourceFingerprint()).thenReturn("content://image|1|2");
+    // The key the image was cached under when it was picked with only a max width.
+    String pickTimeKey =
+        ResizedImageCache.keyFor("content://image|1|2", WIDTH, null, null, null, null);
+    when(mockResizedImageCache.get(pickTimeKey)).thenReturn("cachedPath");
+    ImagePickerDelegate delegate = createDelegateWithResizedImageCache();
+
+    delegate.retrieveLostImage(mockResult);
+
+    Map<String, Object> expected = new HashMap<>(cacheMap);
+    expected.put(ImagePickerCache.MAP_KEY_PATH, "cachedPath");
+    verify(mockResult).success(expected);
+    verifyNoMoreInteractions(mockImageResizer);
+  }
+
+  @Test
+  public void retrieveLostImage_AppliesSavedCropRectAndOutputFormat() {
+    Map<String, Object> cropRect = new HashMap<>();
+    cropRect.put("x", 10);
+    cropRect.put("y", 20);
+    cropRect.put("width", 30);
+    cropRect.put("height", 40);
+    Map<String, Object> cacheMap = new HashMap<>();
+    cacheMap.put(ImagePickerCache.MAP_KEY_PATH, "pathFromUri");
+    cacheMap.put(ImagePickerCache.MAP_KEY_IMAGE_QUALITY, 100);
+    cacheMap.put(ImagePickerCache.MAP_KEY_OUTPUT_FORMAT, "png");
+    cacheMap.put(ImagePickerCache.MAP_KEY_CROP_RECT, cropRect);
+    when(cache.getCacheMap()).thenReturn(cacheMap);
+    when(mockImageResizer.resizeImageIfNeeded(
+            eq("pathFromUri"),
+            (Double) isNull(),
+            (Double) isNull(),
+            eq(100),
+            eq("png"),
+            any(Rect.class)))
+        .thenReturn("croppedPath");
+    ImagePickerDelegate delegate = createDelegate();
+
+    delegate.retrieveLostImage(mockResult);
+
+    Map<String, Object> expected = new HashMap<>(cacheMap);
+    expected.put(ImagePickerCache.MAP_KEY_PATH, "croppedPath");
+    verify(mockResult).success(expected);
+  }
+
+  private ImagePickerDelegate createDelegateWithResizedImageCache() {
+    return new ImagePickerDelegate(
+        mockActivity,
+        null,
+        mockImageResizer,
+        null,
+        null,
+        cache,
+        mockPermissionManager,
+        mockIntentResolver,
+        mockFileUriResolver,
+        mockFileUtils,
+        null,
+        mockResizedImageCache,
+        null);
+  }
+
   private ImagePickerDelegate createDelegate() {
     return new ImagePickerDelegate(
         mockActivity,
@@ -29,6 +29,7 @@ public class ImagePickerPluginTest {
   private static final int SOURCE_GALLERY = 1;
   private static final String PICK_IMAGE = "pickImage";
   private static final String PICK_VIDEO = "pickVideo";
+  private static final String PICK_MULTI_IMAGE = "pickMultiImage";
 
   @Rule public ExpectedException exception = ExpectedException.none();
 
@@ -88,6 +89,14 @@ public class ImagePickerPluginTest {
     verifyZeroInteractions(mockResult);
   }
 
+  @Test
+  public void onMethodCall_WhenPickingMultiImage_InvokesChooseMultiImageFromGallery() {
+    MethodCall call = buildMethodCall(PICK_MULTI_IMAGE, SOURCE_GALLERY);
+    plugin.onMethodCall(call, mockResult);
+    verify(mockImagePickerDelegate).chooseMultiImageFromGallery(eq(call), any());
+    verifyZeroInteractions(mockResult);
+  }
+
   @Test
   public void onMethodCall_WhenSourceIsCamera_InvokesTakeImageWithCamera() {
     MethodCall call = buildMethodCall(PICK_IMAGE, SOURCE_CAMERA);
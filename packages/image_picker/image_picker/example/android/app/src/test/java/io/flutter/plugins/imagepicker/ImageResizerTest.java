@@ -6,11 +6,15 @@ package io.flutter.plugins.imagepicker;
 
 import static org.hamcrest.core.IsEqual.equalTo;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
+import android.graphics.Rect;
 import java.io.File;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
@@ -63,6 +67,25 @@ public class ImageResizerTest {
     assertThat(outoutFile, equalTo(externalDirectory.getPath() + "/scaled_pngImage.png"));
   }
 
+  @Test
+  public void onResizeImageIfNeeded_WhenOutputFormatIsWebp_ReturnWebpFile() {
+    String outoutFile =
+        resizer.resizeImageIfNeeded(
+            imageFile.getPath(), null, null, null, ImageResizer.OUTPUT_FORMAT_WEBP);
+    assertThat(outoutFile, equalTo(externalDirectory.getPath() + "/scaled_pngImage.webp"));
+  }
+
+  @Test
+  public void calculateInSampleSize_WhenNoSizeRequested_DoesNotSubsample() {
+    assertThat(ImageResizer.calculateInSampleSize(4000, 3000, null, null), equalTo(1));
+  }
+
+  @Test
+  public void calculateInSampleSize_KeepsDecodedImageLargerThanRequestedSize() {
+    assertThat(ImageResizer.calculateInSampleSize(4000, 3000, 1000.0, null), equalTo(4));
+    assertThat(ImageResizer.calculateInSampleSize(4000, 3000, 1100.0, 1000.0), equalTo(2));
+  }
+
   @Test
   public void onResizeImageIfNeeded_WhenParentDirectoryDoesNotExists_ShouldNotCrash() {
     File nonExistentDirectory = new File(externalDirectory, "/nonExistent");
@@ -70,4 +93,40 @@ public class ImageResizerTest {
     String outoutFile = invalidResizer.resizeImageIfNeeded(imageFile.getPath(), null, 50.0, null);
     assertThat(outoutFile, equalTo(nonExistentDirectory.getPath() + "/scaled_pngImage.png"));
   }
+
+  @Test
+  public void cropRectFromArguments_ReadsRectangle() {
+    Rect cropRect = ImageResizer.cropRectFromArguments(cropRectArguments(10, 20, 30, 40));
+    assertThat(cropRect, equalTo(new Rect(10, 20, 40, 60)));
+  }
+
+  @Test
+  public void cropRectFromArguments_WhenEntryIsMissing_Throws() {
+    Map<String, Object> arguments = cropRectArguments(10, 20, 30, 40);
+    arguments.remove("height");
+    assertInvalidCropRect(arguments);
+  }
+
+  @Test
+  public void cropRectFromArguments_WhenSizeIsNotPositive_Throws() {
+    assertInvalidCropRect(cropRectArguments(10, 20, 0, 40));
+    assertInvalidCropRect(cropRectArguments(10, 20, 30, -40));
+  }
+
+  private static Map<String, Object> cropRectArguments(int x, int y, int width, int height) {
+    Map<String, Object> arguments = new HashMap<>();
+    arguments.put("x", x);
+    arguments.put("y", y);
+    arguments.put("width", width);
+    arguments.put("height", height);
+    return arguments;
+  }
+
+  private static void assertInvalidCropRect(Map<String, Object> arguments) {
+    try {
+      ImageResizer.cropRectFromArguments(arguments);
+      fail("Expected an IllegalArgumentException for " + arguments);
+    } catch (IllegalArgumentException expected) {
+    }
+  }
 }
@@ -0,0 +1,136 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.imagepicker;
+
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+import android.net.Uri;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+public class MultiImageProcessorTest {
+  private static final Executor DIRECT_EXECUTOR =
+      new Executor() {
+        @Override
+        public void execute(Runnable command) {
+          command.run();
+        }
+      };
+
+  @Mock Context mockContext;
+  @Mock ImageResizer mockImageResizer;
+  @Mock FileUtils mockFileUtils;
+  @Mock MultiImageProcessor.Callback mockCallback;
+
+  Uri firstUri;
+  Uri secondUri;
+  ExecutorService workerExecutor;
+
+  @Before
+  public void setUp() {
+    MockitoAnnotations.initMocks(this);
+    firstUri = mock(Uri.class);
+    secondUri = mock(Uri.class);
+    when(mockFileUtils.getPathFromUri(mockContext, firstUri)).thenReturn("first");
+    when(mockFileUtils.getPathFromUri(mockContext, secondUri)).thenReturn("second");
+    when(mockImageResizer.estimateDecodedBytes(anyString())).thenReturn(100L);
+    when(mockImageResizer.resizeImageIfNeeded("first", null, null, null, null, null))
+        .thenReturn("scaledFirst");
+    when(mockImageResizer.resizeImageIfNeeded("second", null, null, null, null, null))
+        .thenReturn("scaledSecond");
+    workerExecutor = Executors.newFixedThreadPool(2);
+  }
+
+  @Test
+  public void process_FinishesWithPathsInPickingOrder() throws InterruptedException {
+    MultiImageProcessor processor = createProcessor();
+
+    processor.process(
+        Arrays.asList(firstUri, secondUri), null, null, null, null, null, 1000L, mockCallback);
+    awaitWorkers();
+
+    verify(mockCallback).onImageProcessed(0, "scaledFirst");
+    verify(mockCallback).onImageProcessed(1, "scaledSecond");
+    verify(mockCallback).onComplete(Arrays.asList("scaledFirst", "scaledSecond"));
+    verify(mockCallback, never()).onError(anyString(), anyString());
+  }
+
+  @Test
+  public void process_WhenImageCannotBeRead_FinishesWithError() throws InterruptedException {
+    when(mockFileUtils.getPathFromUri(mockContext, secondUri)).thenReturn(null);
+    MultiImageProcessor processor = createProcessor();
+
+    processor.process(
+        Arrays.asList(firstUri, secondUri), null, null, null, null, null, 1000L, mockCallback);
+    awaitWorkers();
+
+    verify(mockCallback)
+        .onError(eq("multi_image_processing_failed"), eq("Could not read the picked image."));
+    verify(mockCallback, never()).onComplete(any());
+  }
+
+  @Test
+  public void process_WhenNoImagesPicked_FinishesWithEmptyList() {
+    MultiImageProcessor processor = createProcessor();
+
+    processor.process(Arrays.<Uri>asList(), null, null, null, null, null, 1000L, mockCallback);
+
+    verify(mockCallback).onComplete(Arrays.<String>asList());
+    verify(mockCallback, never()).onImageProcessed(anyInt(), anyString());
+  }
+
+  @Test
+  public void memoryBudget_WhenRequestExceedsCapacity_ClampsToCapacity()
+      throws InterruptedException {
+    MultiImageProcessor.MemoryBudget budget = new MultiImageProcessor.MemoryBudget(100L);
+
+    long acquired = budget.acquire(500L);
+
+    assertThat(acquired, equalTo(100L));
+    assertThat(budget.getInUse(), equalTo(100L));
+    budget.release(acquired);
+    assertThat(budget.getInUse(), equalTo(0L));
+  }
+
+  @Test
+  public void memoryBudget_TrimsPooledBitmapsToMakeRoom() throws InterruptedException {
+    BitmapPool pool = mock(BitmapPool.class);
+    MultiImageProcessor.MemoryBudget budget = new MultiImageProcessor.MemoryBudget(100L, pool);
+
+    budget.acquire(30L);
+    budget.acquire(50L);
+
+    verify(pool).trimToSize(70L);
+    verify(pool).trimToSize(20L);
+    assertThat(budget.getInUse(), equalTo(80L));
+  }
+
+  private MultiImageProcessor createProcessor() {
+    return new MultiImageProcessor(
+        mockContext, mockImageResizer, mockFileUtils, null, workerExecutor, DIRECT_EXECUTOR);
+  }
+
+  private void awaitWorkers() throws InterruptedException {
+    workerExecutor.shutdown();
+    workerExecutor.awaitTermination(5, TimeUnit.SECONDS);
+  }
+}
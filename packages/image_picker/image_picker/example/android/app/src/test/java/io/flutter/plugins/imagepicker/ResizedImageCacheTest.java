@@ -0,0 +1,107 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.imagepicker;
+
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNot.not;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ResizedImageCacheTest {
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  File externalDirectory;
+
+  @Before
+  public void setUp() throws IOException {
+    externalDirectory = temporaryFolder.newFolder("image_picker_testing_path");
+  }
+
+  @Test
+  public void keyFor_WhenNoOptionsAreSet_ReturnsNull() {
+    assertNull(ResizedImageCache.keyFor("source|1|2", null, null, null, null));
+  }
+
+  @Test
+  public void keyFor_WhenOptionsDiffer_ReturnsDifferentKeys() {
+    String first = ResizedImageCache.keyFor("source|1|2", 100.0, null, null, null);
+    String second = ResizedImageCache.keyFor("source|1|2", 200.0, null, null, null);
+    assertThat(first, not(equalTo(second)));
+  }
+
+  @Test
+  public void keyFor_WhenImageQualityIsIgnoredByResizer_ReturnsKeyOfNoQuality() {
+    String withoutQuality = ResizedImageCache.keyFor("source|1|2", 100.0, null, null, null);
+    String withFullQuality = ResizedImageCache.keyFor("source|1|2", 100.0, null, 100, null);
+    assertThat(withFullQuality, equalTo(withoutQuality));
+  }
+
+  @Test
+  public void put_ReturnsResizedPath() throws IOException {
+    ResizedImageCache cache = new ResizedImageCache(externalDirectory, 1024);
+    String resizedPath = createImage("scaled_image.jpg", 10).getPath();
+
+    assertThat(cache.put("key", resizedPath), equalTo(resizedPath));
+    assertTrue(new File(resizedPath).exists());
+  }
+
+  @Test
+  public void get_AfterPut_ReturnsNewCopyEveryTime() throws IOException {
+    ResizedImageCache cache = new ResizedImageCache(externalDirectory, 1024);
+    String resizedPath = cache.put("key", createImage("scaled_image.jpg", 10).getPath());
+
+    String first = cache.get("key");
+    String second = cache.get("key");
+
+    assertThat(first, not(equalTo(resizedPath)));
+    assertThat(first, not(equalTo(second)));
+    assertTrue(first.endsWith(".jpg"));
+    assertThat(new File(first).length(), equalTo(10L));
+    assertThat(new File(first).getParentFile(), equalTo(externalDirectory));
+  }
+
+  @Test
+  public void get_WhenReturnedCopyIsDeleted_StillReturnsCachedImage() throws IOException {
+    ResizedImageCache cache = new ResizedImageCache(externalDirectory, 1024);
+    cache.put("key", createImage("scaled_image.jpg", 10).getPath());
+
+    new File(cache.get("key")).delete();
+
+    assertTrue(new File(cache.get("key")).exists());
+  }
+
+  @Test
+  public void put_WhenMaxSizeIsExceeded_EvictsLeastRecentlyUsedEntry() throws IOException {
+    ResizedImageCache cache = new ResizedImageCache(externalDirectory, 25);
+    cache.put("first", createImage("first.jpg", 10).getPath());
+    cache.put("second", createImage("second.jpg", 10).getPath());
+    String handedOutPath = cache.get("second");
+    cache.get("first");
+
+    cache.put("third", createImage("third.jpg", 10).getPath());
+
+    assertTrue(new File(cache.get("first")).exists());
+    assertNull(cache.get("second"));
+    // Files handed out to the app are never evicted.
+    assertTrue(new File(handedOutPath).exists());
+  }
+
+  private File createImage(String name, int sizeBytes) throws IOException {
+    File file = new File(externalDirectory, name);
+    FileOutputStream outputStream = new FileOutputStream(file);
+    outputStream.write(new byte[sizeBytes]);
+    outputStream.close();
+    return file;
+  }
+}
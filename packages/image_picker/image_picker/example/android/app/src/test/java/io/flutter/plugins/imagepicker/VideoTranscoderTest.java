@@ -0,0 +1,102 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.imagepicker;
+
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.nullable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class VideoTranscoderTest {
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void scaledSize_WhenLargerThanMaxResolution_KeepsAspectRatio() {
+    int[] size = VideoTranscoder.scaledSize(3840, 2160, 1280);
+    assertThat(size[0], equalTo(1280));
+    assertThat(size[1], equalTo(720));
+  }
+
+  @Test
+  public void scaledSize_WhenSmallerThanMaxResolution_KeepsSize() {
+    int[] size = VideoTranscoder.scaledSize(640, 480, 1280);
+    assertThat(size[0], equalTo(640));
+    assertThat(size[1], equalTo(480));
+  }
+
+  @Test
+  public void scaledSize_RoundsToEvenDimensions() {
+    int[] size = VideoTranscoder.scaledSize(1001, 501, null);
+    assertThat(size[0], equalTo(1000));
+    assertThat(size[1], equalTo(500));
+  }
+
+  @Test
+  public void optionsFromArguments_WhenNothingRequested_ReturnsNull() {
+    assertNull(VideoTranscoder.Options.fromArguments(null));
+    assertNull(VideoTranscoder.Options.fromArguments(new HashMap<String, Object>()));
+  }
+
+  @Test
+  public void optionsFromArguments_ReadsAllParameters() {
+    Map<String, Object> arguments = new HashMap<>();
+    arguments.put("maxResolution", 1920);
+    arguments.put("bitrate", 4000000);
+    arguments.put("codec", VideoTranscoder.CODEC_HEVC);
+
+    VideoTranscoder.Options options = VideoTranscoder.Options.fromArguments(arguments);
+
+    assertThat(options.maxResolution, equalTo(1920));
+    assertThat(options.bitrate, equalTo(4000000));
+    assertThat(options.mimeType(), equalTo("video/hevc"));
+  }
+
+  @Test
+  public void transcode_WhenInputCannotBeRead_ReportsErrorAndDeletesOutput() throws Exception {
+    File input = new File(temporaryFolder.getRoot(), "missing.mp4");
+    File output = temporaryFolder.newFile("output.mp4");
+    Map<String, Object> arguments = new HashMap<>();
+    arguments.put("maxResolution", 1280);
+    ExecutorService workerExecutor = Executors.newSingleThreadExecutor();
+    Executor callbackExecutor =
+        new Executor() {
+          @Override
+          public void execute(Runnable command) {
+            command.run();
+          }
+        };
+    VideoTranscoder.Callback callback = mock(VideoTranscoder.Callback.class);
+
+    new VideoTranscoder(workerExecutor, callbackExecutor)
+        .transcode(
+            input.getPath(),
+            output.getPath(),
+            VideoTranscoder.Options.fromArguments(arguments),
+            callback);
+    workerExecutor.shutdown();
+    workerExecutor.awaitTermination(5, TimeUnit.SECONDS);
+
+    verify(callback).onError(eq("video_compression_failed"), nullable(String.class));
+    verify(callback, never()).onComplete(anyString());
+    assertFalse(output.exists());
+  }
+}
@@ -9,13 +9,14 @@ import android.content.SharedPreferences;
 import android.os.Handler;
 import android.os.Looper;
 import android.util.Base64;
+import androidx.annotation.VisibleForTesting;
 import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InvalidClassException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -34,10 +35,14 @@ import java.util.concurrent.TimeUnit;
 @SuppressWarnings("unchecked")
 class MethodCallHandlerImpl implements MethodChannel.MethodCallHandler {
 
-  private static final String SHARED_PREFERENCES_NAME = "FlutterSharedPreferences";
+  static final String SHARED_PREFERENCES_NAME = "FlutterSharedPreferences";
+  static final String FLUTTER_PREFIX = "flutter.";
 
   // Fun fact: The following is a base64 encoding of the string "This is the prefix for a list."
   private static final String LIST_IDENTIFIER = "VGhpcyBpcyB0aGUgcHJlZml4IGZvciBhIGxpc3Qu";
+  // And this one of "This is the prefix for a compact list."
+  private static final String COMPACT_LIST_IDENTIFIER =
+      "VGhpcyBpcyB0aGUgcHJlZml4IGZvciBhIGNvbXBhY3QgbGlzdC4=";
   private static final String BIG_INTEGER_PREFIX = "VGhpcyBpcyB0aGUgcHJlZml4IGZvciBCaWdJbnRlZ2Vy";
   private static final String DOUBLE_PREFIX = "VGhpcyBpcyB0aGUgcHJlZml4IGZvciBEb3VibGUu";
 
@@ -86,7 +91,9 @@ class MethodCallHandlerImpl implements MethodChannel.MethodCallHandler {
           break;
         case "setString":
           String value = (String) call.argument("value");
-          if (value.startsWith(LIST_IDENTIFIER) || value.startsWith(BIG_INTEGER_PREFIX)) {
+          if (value.startsWith(LIST_IDENTIFIER)
+              || value.startsWith(COMPACT_LIST_IDENTIFIER)
+              || value.startsWith(BIG_INTEGER_PREFIX)) {
             result.error(
                 "StorageError",
                 "This string cannot be stored as it clashes with special identifier prefixes.",
@@ -97,8 +104,7 @@ class MethodCallHandlerImpl implements MethodChannel.MethodCallHandler {
           break;
         case "setStringList":
           List<String> list = call.argument("value");
-          commitAsync(
-              preferences.edit().putString(key, LIST_IDENTIFIER + encodeList(list)), result);
+          commitAsync(preferences.edit().putString(key, encodeList(list)), result);
           break;
         case "commit":
           // We've been committing the whole time.
@@ -107,6 +113,13 @@ class MethodCallHandlerImpl implements MethodChannel.MethodCallHandler {
         case "getAll":
           result.success(getAllPrefs());
           return;
+        case "get":
+          result.success(getPref(key));
+          return;
+        case "getByPrefix":
+          String prefix = call.argument("prefix");
+          result.success(getPrefsByPrefix(prefix));
+          return;
         case "remove":
           commitAsync(preferences.edit().remove(key), result);
           break;
@@ -150,10 +163,67 @@ class MethodCallHandlerImpl implements MethodChannel.MethodCallHandler {
         });
   }
 
-  private List<String> decodeList(String encodedList) throws IOException {
+  /**
+   * Encodes list in the compact format: {@link #COMPACT_LIST_IDENTIFIER} followed by every element
+   * as its length in decimal, a colon and the element itself.
+   *
+   * <p>Lists stored in the legacy format, serialized Java objects, are still read, and are
+   * replaced by the compact format the next time they are written.
+   */
+  @VisibleForTesting
+  static String encodeList(List<String> list) {
+    int capacity = COMPACT_LIST_IDENTIFIER.length();
+    for (String element : list) {
+      capacity += element.length() + 4;
+    }
+    StringBuilder builder = new StringBuilder(capacity).append(COMPACT_LIST_IDENTIFIER);
+    for (String element : list) {
+      builder.append(element.length()).append(':').append(element);
+    }
+    return builder.toString();
+  }
+
+  private static List<String> decodeCompactList(String encodedList, int start) throws IOException {
+    List<String> list = new ArrayList<>();
+    int position = start;
+    while (position < encodedList.length()) {
+      int lengthStart = position;
+      int length = 0;
+      char c;
+      while ((c = encodedList.charAt(position++)) != ':') {
+        if (c < '0' || c > '9' || position == encodedList.length() || length > 100000000) {
+          throw new IOException("Malformed list");
+        }
+        length = length * 10 + (c - '0');
+      }
+      if (position == lengthStart + 1) {
+        throw new IOException("Malformed list");
+      }
+      int end = position + length;
+      if (end > encodedList.length()) {
+        throw new IOException("Malformed list");
+      }
+      list.add(encodedList.substring(position, end));
+      position = end;
+    }
+    return list;
+  }
+
+  private static List<String> decodeLegacyList(String encodedList) throws IOException {
     ObjectInputStream stream = null;
     try {
-      stream = new ObjectInputStream(new ByteArrayInputStream(Base64.decode(encodedList, 0)));
+      stream =
+          new ObjectInputStream(new ByteArrayInputStream(Base64.decode(encodedList, 0))) {
+            // Lists were always written as an ArrayList of Strings, so nothing else is loaded.
+            @Override
+            protected Class<?> resolveClass(ObjectStreamClass desc)
+                throws IOException, ClassNotFoundException {
+              if (!ArrayList.class.getName().equals(desc.getName())) {
+                throw new InvalidClassException(desc.getName(), "Unexpected class in a list");
+              }
+              return super.resolveClass(desc);
+            }
+          };
       return (List<String>) stream.readObject();
     } catch (ClassNotFoundException e) {
       throw new IOException(e);
@@ -164,59 +234,64 @@ class MethodCallHandlerImpl implements MethodChannel.MethodCallHandler {
     }
   }
 
-  private String encodeList(List<String> list) throws IOException {
-    ObjectOutputStream stream = null;
-    try {
-      ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
-      stream = new ObjectOutputStream(byteStream);
-      stream.writeObject(list);
-      stream.flush();
-      return Base64.encodeToString(byteStream.toByteArray(), 0);
-    } finally {
-      if (stream != null) {
-        stream.close();
-      }
+  // Filter preferences to only those set by the flutter app.
+  private Map<String, Object> getAllPrefs() throws IOException {
+    return getPrefsByPrefix(FLUTTER_PREFIX);
+  }
+
+  private Object getPref(String key) throws IOException {
+    if (!key.startsWith(FLUTTER_PREFIX)) {
+      return null;
     }
+    // getAll only makes a shallow copy, the other values are not decoded.
+    Object value = preferences.getAll().get(key);
+    return value != null ? decodeValue(key, value) : null;
   }
 
-  // Filter preferences to only those set by the flutter app.
-  private Map<String, Object> getAllPrefs() throws IOException {
+  // Only returns preferences set by the flutter app, whatever the prefix.
+  private Map<String, Object> getPrefsByPrefix(String prefix) throws IOException {
     Map<String, ?> allPrefs = preferences.getAll();
     Map<String, Object> filteredPrefs = new HashMap<>();
     for (String key : allPrefs.keySet()) {
-      if (key.startsWith("flutter.")) {
-        Object value = allPrefs.get(key);
-        if (value instanceof String) {
-          String stringValue = (String) value;
-          if (stringValue.startsWith(LIST_IDENTIFIER)) {
-            value = decodeList(stringValue.substring(LIST_IDENTIFIER.length()));
-          } else if (stringValue.startsWith(BIG_INTEGER_PREFIX)) {
-            String encoded = stringValue.substring(BIG_INTEGER_PREFIX.length());
-            value = new BigInteger(encoded, Character.MAX_RADIX);
-          } else if (stringValue.startsWith(DOUBLE_PREFIX)) {
-            String doubleStr = stringValue.substring(DOUBLE_PREFIX.length());
-            value = Double.valueOf(doubleStr);
-          }
-        } else if (value instanceof Set) {
-          // This only happens for previous usage of setStringSet. The app expects a list.
-          List<String> listValue = new ArrayList<>((Set) value);
-          // Let's migrate the value too while we are at it.
-          boolean success =
-              preferences
-                  .edit()
-                  .remove(key)
-                  .putString(key, LIST_IDENTIFIER + encodeList(listValue))
-                  .commit();
-          if (!success) {
-            // If we are unable to migrate the existing preferences, it means we potentially lost them.
-            // In this case, an error from getAllPrefs() is appropriate since it will alert the app during plugin initialization.
-            throw new IOException("Could not migrate set to list");
-          }
-          value = listValue;
-        }
-        filteredPrefs.put(key, value);
+      if (key.startsWith(FLUTTER_PREFIX) && key.startsWith(prefix)) {
+        filteredPrefs.put(key, decodeValue(key, allPrefs.get(key)));
       }
     }
     return filteredPrefs;
   }
+
+  /** Returns the value the flutter app stored under key, given the value as it is persisted. */
+  Object decodeValue(String key, Object value) throws IOException {
+    if (value instanceof String) {
+      String stringValue = (String) value;
+      if (stringValue.startsWith(COMPACT_LIST_IDENTIFIER)) {
+        value = decodeCompactList(stringValue, COMPACT_LIST_IDENTIFIER.length());
+      } else if (stringValue.startsWith(LIST_IDENTIFIER)) {
+        value = decodeLegacyList(stringValue.substring(LIST_IDENTIFIER.length()));
+      } else if (stringValue.startsWith(BIG_INTEGER_PREFIX)) {
+        String encoded = stringValue.substring(BIG_INTEGER_PREFIX.length());
+        value = new BigInteger(encoded, Character.MAX_RADIX);
+      } else if (stringValue.startsWith(DOUBLE_PREFIX)) {
+        String doubleStr = stringValue.substring(DOUBLE_PREFIX.length());
+        value = Double.valueOf(doubleStr);
+      }
+    } else if (value instanceof Set) {
+      // This only happens for previous usage of setStringSet. The app expects a list.
+      List<String> listValue = new ArrayList<>((Set) value);
+      // Let's migrate the value too while we are at it.
+      boolean success =
+          preferences
+              .edit()
+              .remove(key)
+              .putString(key, encodeList(listValue))
+              .commit();
+      if (!success) {
+        // If we are unable to migrate the existing preferences, it means we potentially lost them.
+        // In this case, an error from getAllPrefs() is appropriate since it will alert the app during plugin initialization.
+        throw new IOException("Could not migrate set to list");
+      }
+      value = listValue;
+    }
+    return value;
+  }
 }
@@ -0,0 +1,113 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.sharedpreferences;
+
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import io.flutter.plugin.common.EventChannel;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Streams the changes made to the preferences of the flutter app, by the app itself, a background
+ * isolate or native code.
+ *
+ * <p>The keys changed together, e.g. by one commit, are sent as a single event: a map with a
+ * "changes" map from every changed key to its decoded value, or null if it was removed, and a
+ * "cleared" flag set when the preferences were cleared natively, in which case keys removed by
+ * the clear are not listed.
+ */
+class PreferenceChangeStreamHandler implements EventChannel.StreamHandler {
+  private final SharedPreferences preferences;
+  private final MethodCallHandlerImpl methodCallHandler;
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private final Set<String> changedKeys = new LinkedHashSet<>();
+  private boolean cleared;
+  private EventChannel.EventSink events;
+
+  private final Runnable sendChangesRunnable =
+      new Runnable() {
+        @Override
+        public void run() {
+          sendChanges();
+        }
+      };
+
+  // SharedPreferences only keeps weak references to its listeners.
+  private final SharedPreferences.OnSharedPreferenceChangeListener listener =
+      new SharedPreferences.OnSharedPreferenceChangeListener() {
+        @Override
+        public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
+          if (key == null) {
+            // Only reported by Android R and above, for Editor.clear().
+            cleared = true;
+          } else if (key.startsWith(MethodCallHandlerImpl.FLUTTER_PREFIX)) {
+            changedKeys.add(key);
+          } else {
+            return;
+          }
+          // The changes of a commit are all reported before this runs.
+          handler.removeCallbacks(sendChangesRunnable);
+          handler.post(sendChangesRunnable);
+        }
+      };
+
+  PreferenceChangeStreamHandler(
+      SharedPreferences preferences, MethodCallHandlerImpl methodCallHandler) {
+    this.preferences = preferences;
+    this.methodCallHandler = methodCallHandler;
+  }
+
+  @Override
+  public void onListen(Object arguments, EventChannel.EventSink events) {
+    this.events = events;
+    preferences.registerOnSharedPreferenceChangeListener(listener);
+  }
+
+  @Override
+  public void onCancel(Object arguments) {
+    teardown();
+  }
+
+  void teardown() {
+    preferences.unregisterOnSharedPreferenceChangeListener(listener);
+    handler.removeCallbacks(sendChangesRunnable);
+    changedKeys.clear();
+    cleared = false;
+    events = null;
+  }
+
+  private void sendChanges() {
+    if (events == null) {
+      return;
+    }
+    boolean wasCleared = cleared;
+    cleared = false;
+    // Copied first, as decoding may migrate a value and report another change right away.
+    List<String> keys = new ArrayList<>(changedKeys);
+    changedKeys.clear();
+    Map<String, ?> allPrefs = preferences.getAll();
+    Map<String, Object> changes = new HashMap<>();
+    try {
+      for (String key : keys) {
+        Object value = allPrefs.get(key);
+        changes.put(key, value != null ? methodCallHandler.decodeValue(key, value) : null);
+      }
+    } catch (IOException e) {
+      events.error("IOException encountered", "preferenceChanges", e.getMessage());
+      return;
+    }
+    Map<String, Object> event = new HashMap<>();
+    event.put("changes", changes);
+    event.put("cleared", wasCleared);
+    events.success(event);
+  }
+}
@@ -7,13 +7,18 @@ package io.flutter.plugins.sharedpreferences;
 import android.content.Context;
 import io.flutter.embedding.engine.plugins.FlutterPlugin;
 import io.flutter.plugin.common.BinaryMessenger;
+import io.flutter.plugin.common.EventChannel;
 import io.flutter.plugin.common.MethodChannel;
 
 /** SharedPreferencesPlugin */
 public class SharedPreferencesPlugin implements FlutterPlugin {
   private static final String CHANNEL_NAME = "plugins.flutter.io/shared_preferences";
+  private static final String CHANGES_CHANNEL_NAME =
+      "plugins.flutter.io/shared_preferences_changes";
   private MethodChannel channel;
   private MethodCallHandlerImpl handler;
+  private EventChannel changesChannel;
+  private PreferenceChangeStreamHandler changesHandler;
 
   @SuppressWarnings("deprecation")
   public static void registerWith(io.flutter.plugin.common.PluginRegistry.Registrar registrar) {
@@ -35,6 +40,13 @@ public class SharedPreferencesPlugin implements FlutterPlugin {
     channel = new MethodChannel(messenger, CHANNEL_NAME);
     handler = new MethodCallHandlerImpl(context);
     channel.setMethodCallHandler(handler);
+    changesChannel = new EventChannel(messenger, CHANGES_CHANNEL_NAME);
+    changesHandler =
+        new PreferenceChangeStreamHandler(
+            context.getSharedPreferences(
+                MethodCallHandlerImpl.SHARED_PREFERENCES_NAME, Context.MODE_PRIVATE),
+            handler);
+    changesChannel.setStreamHandler(changesHandler);
   }
 
   private void teardownChannel() {
@@ -42,5 +54,9 @@ public class SharedPreferencesPlugin implements FlutterPlugin {
     handler = null;
     channel.setMethodCallHandler(null);
     channel = null;
+    changesHandler.teardown();
+    changesHandler = null;
+    changesChannel.setStreamHandler(null);
+    changesChannel = null;
   }
 }
@@ -0,0 +1,140 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.sharedpreferences;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import android.content.Context;
+import android.util.Base64;
+import androidx.test.core.app.ApplicationProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class MethodCallHandlerImplTest {
+  // The base64 encoding of "This is the prefix for a list.", which starts legacy lists.
+  private static final String LIST_IDENTIFIER = "VGhpcyBpcyB0aGUgcHJlZml4IGZvciBhIGxpc3Qu";
+  private static final String COMPACT_LIST_IDENTIFIER =
+      MethodCallHandlerImpl.encodeList(Collections.<String>emptyList());
+
+  private MethodCallHandlerImpl methodCallHandler;
+
+  @Before
+  public void setUp() {
+    Context context = ApplicationProvider.getApplicationContext();
+    methodCallHandler = new MethodCallHandlerImpl(context);
+  }
+
+  @After
+  public void tearDown() {
+    methodCallHandler.teardown();
+  }
+
+  @Test
+  public void compactList_RoundTripsEmptyList() throws IOException {
+    assertRoundTrips(Collections.<String>emptyList());
+  }
+
+  @Test
+  public void compactList_RoundTripsEmptyStrings() throws IOException {
+    assertRoundTrips(Arrays.asList("", "a", "", ""));
+  }
+
+  @Test
+  public void compactList_RoundTripsDigitsAndColons() throws IOException {
+    assertRoundTrips(Arrays.asList("12:ab", ":", "3:", "007", "1:2:3"));
+  }
+
+  @Test
+  public void compactList_RoundTripsSurrogatePairs() throws IOException {
+    assertRoundTrips(Arrays.asList("\uD83D\uDE00", "a\uD83D\uDC4Db", "\u00e9t\u00e9"));
+  }
+
+  @Test
+  public void compactList_RejectsTruncatedInput() {
+    String encoded = MethodCallHandlerImpl.encodeList(Arrays.asList("abc", "defg"));
+    for (int end = COMPACT_LIST_IDENTIFIER.length() + 1; end < encoded.length(); end++) {
+      // Ends right after an element are valid, shorter lists.
+      if (end == COMPACT_LIST_IDENTIFIER.length() + "3:abc".length()) {
+        continue;
+      }
+      assertMalformed(encoded.substring(0, end));
+    }
+  }
+
+  @Test
+  public void compactList_RejectsMalformedInput() {
+    assertMalformed(COMPACT_LIST_IDENTIFIER + "x:a");
+    assertMalformed(COMPACT_LIST_IDENTIFIER + ":a");
+    assertMalformed(COMPACT_LIST_IDENTIFIER + "-1:a");
+    assertMalformed(COMPACT_LIST_IDENTIFIER + "3");
+    assertMalformed(COMPACT_LIST_IDENTIFIER + "99999999999:a");
+  }
+
+  @Test
+  public void legacyList_IsDecoded() throws IOException {
+    List<String> list = new ArrayList<>(Arrays.asList("a", "", "b:c"));
+
+    assertEquals(list, methodCallHandler.decodeValue("flutter.list", legacyList(list)));
+  }
+
+  @Test
+  public void legacyList_RejectsOtherListClasses() throws IOException {
+    assertRejectsClass(legacyList(new LinkedList<>(Arrays.asList("a"))));
+  }
+
+  @Test
+  public void legacyList_RejectsOtherElementClasses() throws IOException {
+    assertRejectsClass(legacyList(new ArrayList<>(Arrays.asList(1, 2))));
+  }
+
+  private void assertRoundTrips(List<String> list) throws IOException {
+    String encoded = MethodCallHandlerImpl.encodeList(list);
+
+    assertEquals(list, methodCallHandler.decodeValue("flutter.list", encoded));
+  }
+
+  private void assertMalformed(String encoded) {
+    try {
+      methodCallHandler.decodeValue("flutter.list", encoded);
+      fail("Expected " + encoded + " to be rejected");
+    } catch (IOException e) {
+      assertEquals("Malformed list", e.getMessage());
+    }
+  }
+
+  private void assertRejectsClass(String encoded) {
+    try {
+      methodCallHandler.decodeValue("flutter.list", encoded);
+      fail("Expected " + encoded + " to be rejected");
+    } catch (InvalidClassException e) {
+      // Expected.
+    } catch (IOException e) {
+      fail("Unexpected " + e);
+    }
+  }
+
+  private static String legacyList(Serializable list) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream stream = new ObjectOutputStream(bytes);
+    stream.writeObject(list);
+    stream.close();
+    return LIST_IDENTIFIER + Base64.encodeToString(bytes.toByteArray(), 0);
+  }
+}
@@ -0,0 +1,143 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.sharedpreferences;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import androidx.test.core.app.ApplicationProvider;
+import io.flutter.plugin.common.EventChannel;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+@RunWith(RobolectricTestRunner.class)
+public class PreferenceChangeStreamHandlerTest {
+  private SharedPreferences preferences;
+  private MethodCallHandlerImpl methodCallHandler;
+  private PreferenceChangeStreamHandler streamHandler;
+  private EventChannel.EventSink events;
+
+  @Before
+  public void setUp() {
+    Context context = ApplicationProvider.getApplicationContext();
+    preferences =
+        context.getSharedPreferences(
+            MethodCallHandlerImpl.SHARED_PREFERENCES_NAME, Context.MODE_PRIVATE);
+    methodCallHandler = new MethodCallHandlerImpl(context);
+    streamHandler = new PreferenceChangeStreamHandler(preferences, methodCallHandler);
+    events = mock(EventChannel.EventSink.class);
+    // Holds the posted events until the test runs them.
+    ShadowLooper.pauseMainLooper();
+  }
+
+  @After
+  public void tearDown() {
+    streamHandler.teardown();
+    methodCallHandler.teardown();
+    ShadowLooper.unPauseMainLooper();
+  }
+
+  @Test
+  public void sendsTheKeysOfOneCommitAsOneEvent() {
+    streamHandler.onListen(null, events);
+
+    preferences
+        .edit()
+        .putString("flutter.a", "value")
+        .putLong("flutter.b", 2)
+        .putString("native", "ignored")
+        .commit();
+    ShadowLooper.runUiThreadTasks();
+
+    Map<String, Object> changes = changes(sentEvents(1).get(0));
+    assertEquals(2, changes.size());
+    assertEquals("value", changes.get("flutter.a"));
+    assertEquals(2L, changes.get("flutter.b"));
+  }
+
+  @Test
+  public void sendsNullForRemovedKeys() {
+    preferences.edit().putString("flutter.a", "value").commit();
+    streamHandler.onListen(null, events);
+
+    preferences.edit().remove("flutter.a").commit();
+    ShadowLooper.runUiThreadTasks();
+
+    Map<String, Object> changes = changes(sentEvents(1).get(0));
+    assertTrue(changes.containsKey("flutter.a"));
+    assertNull(changes.get("flutter.a"));
+  }
+
+  @Test
+  public void ignoresChangesToOtherPreferences() {
+    streamHandler.onListen(null, events);
+
+    preferences.edit().putString("native", "ignored").commit();
+    ShadowLooper.runUiThreadTasks();
+
+    verify(events, never()).success(any());
+  }
+
+  @Test
+  public void sendsMigratedSetsWithoutLoopingOrLosingTheChange() {
+    streamHandler.onListen(null, events);
+
+    preferences
+        .edit()
+        .putStringSet("flutter.set", new HashSet<>(Collections.singletonList("a")))
+        .commit();
+    // Decoding the set migrates it, which is reported again while the first event is sent.
+    ShadowLooper.runUiThreadTasks();
+    // Sends the change made by the migration, which must not migrate again.
+    ShadowLooper.runUiThreadTasks();
+
+    List<Object> sent = sentEvents(2);
+    assertEquals(Arrays.asList("a"), changes(sent.get(0)).get("flutter.set"));
+    assertEquals(Arrays.asList("a"), changes(sent.get(1)).get("flutter.set"));
+    assertTrue(preferences.getAll().get("flutter.set") instanceof String);
+  }
+
+  @Test
+  public void stopsSendingOnceCancelled() {
+    streamHandler.onListen(null, events);
+    preferences.edit().putString("flutter.a", "value").commit();
+
+    streamHandler.onCancel(null);
+    ShadowLooper.runUiThreadTasks();
+
+    verify(events, never()).success(any());
+  }
+
+  private List<Object> sentEvents(int count) {
+    ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+    verify(events, times(count)).success(captor.capture());
+    return captor.getAllValues();
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<String, Object> changes(Object event) {
+    Map<String, Object> eventMap = (Map<String, Object>) event;
+    assertEquals(false, eventMap.get("cleared"));
+    return (Map<String, Object>) eventMap.get("changes");
+  }
+}
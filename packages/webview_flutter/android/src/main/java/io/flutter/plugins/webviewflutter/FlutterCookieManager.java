@@ -4,6 +4,7 @@
 
 package io.flutter.plugins.webviewflutter;
 
+import android.content.Context;
 import android.os.Build;
 import android.os.Build.VERSION_CODES;
 import android.webkit.CookieManager;
@@ -13,11 +14,17 @@ import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel;
 import io.flutter.plugin.common.MethodChannel.MethodCallHandler;
 import io.flutter.plugin.common.MethodChannel.Result;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 class FlutterCookieManager implements MethodCallHandler {
   private final MethodChannel methodChannel;
+  private final Context context;
 
-  FlutterCookieManager(BinaryMessenger messenger) {
+  FlutterCookieManager(BinaryMessenger messenger, Context context) {
+    this.context = context;
     methodChannel = new MethodChannel(messenger, "plugins.flutter.io/cookie_manager");
     methodChannel.setMethodCallHandler(this);
   }
@@ -28,6 +35,12 @@ class FlutterCookieManager implements MethodCallHandler {
       case "clearCookies":
         clearCookies(result);
         break;
+      case "setCookies":
+        setCookies(methodCall, result);
+        break;
+      case "getCookies":
+        getCookies(methodCall, result);
+        break;
       default:
         result.notImplemented();
     }
@@ -37,6 +50,109 @@ class FlutterCookieManager implements MethodCallHandler {
     methodChannel.setMethodCallHandler(null);
   }
 
+  private void setCookies(MethodCall methodCall, Result result) {
+    String url = methodCall.argument("url");
+    List<Object> cookies = methodCall.argument("cookies");
+    try {
+      setCookies(context, url, cookies);
+    } catch (IllegalArgumentException e) {
+      result.error("setCookies", e.getMessage(), null);
+      return;
+    }
+    result.success(null);
+  }
+
+  /**
+   * Sets the cookies for url, then writes them to storage once for the whole batch.
+   *
+   * <p>A cookie is either a Set-Cookie header value, or a map with a name and value and the
+   * optional domain, path, maxAge (in seconds), secure and httpOnly attributes. The cookies are
+   * set synchronously, so they apply to any request made afterwards, including the initial load
+   * of a WebView created right after.
+   *
+   * @throws IllegalArgumentException if a map has a name, value or attribute that would break out
+   *     of the Set-Cookie header, in which case none of the cookies are set
+   */
+  @SuppressWarnings({"unchecked", "deprecation"})
+  static void setCookies(Context context, String url, List<Object> cookies) {
+    List<String> setCookies = new ArrayList<>(cookies.size());
+    for (Object cookie : cookies) {
+      setCookies.add(
+          cookie instanceof Map ? toSetCookie((Map<String, Object>) cookie) : (String) cookie);
+    }
+    CookieManager cookieManager = CookieManager.getInstance();
+    for (String setCookie : setCookies) {
+      cookieManager.setCookie(url, setCookie);
+    }
+    if (Build.VERSION.SDK_INT >= VERSION_CODES.LOLLIPOP) {
+      cookieManager.flush();
+    } else {
+      android.webkit.CookieSyncManager.createInstance(context).sync();
+    }
+  }
+
+  // Returns the name and value of every cookie that would be sent with a request to url.
+  private static void getCookies(MethodCall methodCall, Result result) {
+    String url = methodCall.argument("url");
+    String cookieHeader = CookieManager.getInstance().getCookie(url);
+    List<Map<String, String>> cookies = new ArrayList<>();
+    if (cookieHeader != null) {
+      for (String cookie : cookieHeader.split(";")) {
+        String trimmed = cookie.trim();
+        if (trimmed.isEmpty()) {
+          continue;
+        }
+        int separator = trimmed.indexOf('=');
+        Map<String, String> nameAndValue = new HashMap<>();
+        nameAndValue.put("name", separator >= 0 ? trimmed.substring(0, separator) : trimmed);
+        nameAndValue.put("value", separator >= 0 ? trimmed.substring(separator + 1) : "");
+        cookies.add(nameAndValue);
+      }
+    }
+    result.success(cookies);
+  }
+
+  private static String toSetCookie(Map<String, Object> cookie) {
+    String name = checkCookiePart("name", cookie.get("name"), "=");
+    if (name.isEmpty()) {
+      throw new IllegalArgumentException("Cookies need a name");
+    }
+    StringBuilder setCookie =
+        new StringBuilder()
+            .append(name)
+            .append('=')
+            .append(checkCookiePart("value", cookie.get("value"), ""));
+    if (cookie.get("domain") != null) {
+      setCookie.append("; Domain=").append(checkCookiePart("domain", cookie.get("domain"), ""));
+    }
+    if (cookie.get("path") != null) {
+      setCookie.append("; Path=").append(checkCookiePart("path", cookie.get("path"), ""));
+    }
+    if (cookie.get("maxAge") != null) {
+      setCookie.append("; Max-Age=").append(((Number) cookie.get("maxAge")).longValue());
+    }
+    if (Boolean.TRUE.equals(cookie.get("secure"))) {
+      setCookie.append("; Secure");
+    }
+    if (Boolean.TRUE.equals(cookie.get("httpOnly"))) {
+      setCookie.append("; HttpOnly");
+    }
+    return setCookie.toString();
+  }
+
+  // Returns part as a string, rejecting ';' and control characters, which would end the cookie or
+  // the header, and the given extra characters.
+  private static String checkCookiePart(String field, Object part, String forbidden) {
+    String value = part != null ? part.toString() : "";
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == ';' || c < 0x20 || c == 0x7f || forbidden.indexOf(c) >= 0) {
+        throw new IllegalArgumentException("Invalid character in cookie " + field + ": " + value);
+      }
+    }
+    return value;
+  }
+
   private static void clearCookies(final Result result) {
     CookieManager cookieManager = CookieManager.getInstance();
     final boolean hasCookies = cookieManager.hasCookies();
@@ -24,15 +24,25 @@ import io.flutter.plugin.common.MethodChannel.MethodCallHandler;
 import io.flutter.plugin.common.MethodChannel.Result;
 import io.flutter.plugin.platform.PlatformView;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class FlutterWebView implements PlatformView, MethodCallHandler {
   private static final String JS_CHANNEL_NAMES_FIELD = "javascriptChannelNames";
   private final WebView webView;
   private final MethodChannel methodChannel;
   private final FlutterWebViewClient flutterWebViewClient;
+  private final PageEventStream pageEventStream;
   private final Handler platformThreadHandler;
+  private final MessagePortChannels messagePortChannels;
+  private final JavaScriptResultStream javaScriptResultStream;
+  private final Map<String, JavaScriptChannel> javaScriptChannels = new HashMap<>();
+  private ResourceInterceptor resourceInterceptor;
+  // Created on the first prefetch.
+  private ExecutorService prefetchExecutor;
 
   // Verifies that a url opened by `Window.open` has a secure url.
   private class FlutterWebChromeClient extends WebChromeClient {
@@ -86,20 +96,29 @@ public class FlutterWebView implements PlatformView, MethodCallHandler {
       BinaryMessenger messenger,
       int id,
       Map<String, Object> params,
-      View containerView) {
-
-    DisplayListenerProxy displayListenerProxy = new DisplayListenerProxy();
-    DisplayManager displayManager =
-        (DisplayManager) context.getSystemService(Context.DISPLAY_SERVICE);
-    displayListenerProxy.onPreWebViewInitialization(displayManager);
+      View containerView,
+      WebViewPool webViewPool) {
 
     Boolean usesHybridComposition = (Boolean) params.get("usesHybridComposition");
-    webView =
-        (usesHybridComposition)
-            ? new WebView(context)
-            : new InputAwareWebView(context, containerView);
-
-    displayListenerProxy.onPostWebViewInitialization(displayManager);
+    WebView pooledWebView =
+        webViewPool != null
+            ? webViewPool.take(context, usesHybridComposition, containerView)
+            : null;
+    if (pooledWebView != null) {
+      webView = pooledWebView;
+    } else {
+      DisplayListenerProxy displayListenerProxy = new DisplayListenerProxy();
+      DisplayManager displayManager =
+          (DisplayManager) context.getSystemService(Context.DISPLAY_SERVICE);
+      displayListenerProxy.onPreWebViewInitialization(displayManager);
+
+      webView =
+          (usesHybridComposition)
+              ? new WebView(context)
+              : new InputAwareWebView(context, containerView);
+
+      displayListenerProxy.onPostWebViewInitialization(displayManager);
+    }
 
     platformThreadHandler = new Handler(context.getMainLooper());
     // Allow local storage.
@@ -113,12 +132,24 @@ public class FlutterWebView implements PlatformView, MethodCallHandler {
     methodChannel = new MethodChannel(messenger, "plugins.flutter.io/webview_" + id);
     methodChannel.setMethodCallHandler(this);
 
-    flutterWebViewClient = new FlutterWebViewClient(methodChannel);
+    pageEventStream = new PageEventStream(messenger, id);
+    flutterWebViewClient =
+        new FlutterWebViewClient(methodChannel, platformThreadHandler, pageEventStream);
+    messagePortChannels = new MessagePortChannels(webView, methodChannel);
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT
+        && Boolean.TRUE.equals(params.get("chunkedJavascriptResults"))) {
+      // Added before the first page loads, as pages only see the interfaces present when they load.
+      // Only added on request, as every page loaded can call the interface.
+      javaScriptResultStream = new JavaScriptResultStream(platformThreadHandler);
+      webView.addJavascriptInterface(javaScriptResultStream, JavaScriptResultStream.INTERFACE_NAME);
+    } else {
+      javaScriptResultStream = null;
+    }
     Map<String, Object> settings = (Map<String, Object>) params.get("settings");
     if (settings != null) applySettings(settings);
 
     if (params.containsKey(JS_CHANNEL_NAMES_FIELD)) {
-      List<String> names = (List<String>) params.get(JS_CHANNEL_NAMES_FIELD);
+      List<Object> names = (List<Object>) params.get(JS_CHANNEL_NAMES_FIELD);
       if (names != null) registerJavaScriptChannelNames(names);
     }
 
@@ -128,6 +159,14 @@ public class FlutterWebView implements PlatformView, MethodCallHandler {
       String userAgent = (String) params.get("userAgent");
       updateUserAgent(userAgent);
     }
+    // Set before the initial load, so that its first request already carries them.
+    Map<String, Object> initialCookies = (Map<String, Object>) params.get("initialCookies");
+    if (initialCookies != null) {
+      FlutterCookieManager.setCookies(
+          context,
+          (String) initialCookies.get("url"),
+          (List<Object>) initialCookies.get("cookies"));
+    }
     if (params.containsKey("initialUrl")) {
       String url = (String) params.get("initialUrl");
       webView.loadUrl(url);
@@ -217,6 +256,21 @@ public class FlutterWebView implements PlatformView, MethodCallHandler {
       case "evaluateJavascript":
         evaluateJavaScript(methodCall, result);
         break;
+      case "evaluateJavascriptChunked":
+        evaluateJavaScriptChunked(methodCall, result);
+        break;
+      case "createMessagePortChannel":
+        createMessagePortChannel(methodCall, result);
+        break;
+      case "postMessagePortMessage":
+        postMessagePortMessage(methodCall, result);
+        break;
+      case "closeMessagePortChannel":
+        closeMessagePortChannel(methodCall, result);
+        break;
+      case "prefetch":
+        prefetch(methodCall, result);
+        break;
       case "addJavascriptChannels":
         addJavaScriptChannels(methodCall, result);
         break;
@@ -311,9 +365,89 @@ public class FlutterWebView implements PlatformView, MethodCallHandler {
         });
   }
 
+  private void evaluateJavaScriptChunked(MethodCall methodCall, Result result) {
+    if (javaScriptResultStream == null) {
+      result.error(
+          "evaluateJavascriptChunked",
+          "Requires Android KitKat (API 19) or higher and the chunkedJavascriptResults creation "
+              + "parameter",
+          null);
+      return;
+    }
+    String script = methodCall.argument("script");
+    if (script == null) {
+      throw new UnsupportedOperationException("JavaScript string cannot be null");
+    }
+    Integer chunkSize = methodCall.argument("chunkSize");
+    javaScriptResultStream.evaluate(
+        webView,
+        script,
+        chunkSize != null ? chunkSize : JavaScriptResultStream.DEFAULT_CHUNK_SIZE,
+        result);
+  }
+
+  private void createMessagePortChannel(MethodCall methodCall, Result result) {
+    if (!MessagePortChannels.isSupported()) {
+      result.error(
+          "createMessagePortChannel", "Message ports are not supported by this WebView", null);
+      return;
+    }
+    String name = methodCall.argument("name");
+    String targetOrigin = methodCall.argument("targetOrigin");
+    if (targetOrigin == null) {
+      result.error(
+          "createMessagePortChannel",
+          "targetOrigin is required, use \"*\" to post the channel to a page of any origin",
+          null);
+      return;
+    }
+    messagePortChannels.create(name, targetOrigin);
+    result.success(null);
+  }
+
+  private void postMessagePortMessage(MethodCall methodCall, Result result) {
+    String name = methodCall.argument("name");
+    String message = methodCall.argument("message");
+    result.success(messagePortChannels.post(name, message));
+  }
+
+  private void closeMessagePortChannel(MethodCall methodCall, Result result) {
+    messagePortChannels.close((String) methodCall.arguments);
+    result.success(null);
+  }
+
+  // Fetches the given URLs into the resource cache ahead of navigation, completing with the number
+  // of URLs that are now cached. URLs no cache rule applies to are skipped.
+  @SuppressWarnings("unchecked")
+  private void prefetch(MethodCall methodCall, final Result result) {
+    final ResourceInterceptor interceptor = resourceInterceptor;
+    if (interceptor == null) {
+      result.error("prefetch", "The resourceInterception setting is not set", null);
+      return;
+    }
+    final List<String> urls = (List<String>) methodCall.arguments;
+    if (prefetchExecutor == null) {
+      prefetchExecutor = Executors.newSingleThreadExecutor();
+    }
+    prefetchExecutor.execute(
+        new Runnable() {
+          @Override
+          public void run() {
+            final int cached = interceptor.prefetch(urls);
+            platformThreadHandler.post(
+                new Runnable() {
+                  @Override
+                  public void run() {
+                    result.success(cached);
+                  }
+                });
+          }
+        });
+  }
+
   @SuppressWarnings("unchecked")
   private void addJavaScriptChannels(MethodCall methodCall, Result result) {
-    List<String> channelNames = (List<String>) methodCall.arguments;
+    List<Object> channelNames = (List<Object>) methodCall.arguments;
     registerJavaScriptChannelNames(channelNames);
     result.success(null);
   }
@@ -323,6 +457,10 @@ public class FlutterWebView implements PlatformView, MethodCallHandler {
     List<String> channelNames = (List<String>) methodCall.arguments;
     for (String channelName : channelNames) {
       webView.removeJavascriptInterface(channelName);
+      JavaScriptChannel javaScriptChannel = javaScriptChannels.remove(channelName);
+      if (javaScriptChannel != null) {
+        javaScriptChannel.dispose();
+      }
     }
     result.success(null);
   }
@@ -364,6 +502,7 @@ public class FlutterWebView implements PlatformView, MethodCallHandler {
     result.success(webView.getScrollY());
   }
 
+  @SuppressWarnings("unchecked")
   private void applySettings(Map<String, Object> settings) {
     for (String key : settings.keySet()) {
       switch (key) {
@@ -386,9 +525,28 @@ public class FlutterWebView implements PlatformView, MethodCallHandler {
             webView.setWebContentsDebuggingEnabled(debuggingEnabled);
           }
           break;
+        case "navigationRules":
+          flutterWebViewClient.setNavigationRules(
+              NavigationRules.fromList((List<Map<String, Object>>) settings.get(key)));
+          break;
+        case "resourceInterception":
+          updateResourceInterception((Map<String, Object>) settings.get(key));
+          break;
         case "hasProgressTracking":
           flutterWebViewClient.hasProgressTracking = (boolean) settings.get(key);
           break;
+        case "progressThrottle":
+          Map<String, Object> progressThrottle = (Map<String, Object>) settings.get(key);
+          if (progressThrottle == null) {
+            flutterWebViewClient.setProgressThrottle(null, null);
+          } else {
+            Number minDelta = (Number) progressThrottle.get("minDelta");
+            Number maxEventsPerSecond = (Number) progressThrottle.get("maxEventsPerSecond");
+            flutterWebViewClient.setProgressThrottle(
+                minDelta != null ? minDelta.intValue() : 1,
+                maxEventsPerSecond != null ? maxEventsPerSecond.doubleValue() : null);
+          }
+          break;
         case "gestureNavigationEnabled":
           break;
         case "userAgent":
@@ -425,13 +583,63 @@ public class FlutterWebView implements PlatformView, MethodCallHandler {
     }
   }
 
-  private void registerJavaScriptChannelNames(List<String> channelNames) {
-    for (String channelName : channelNames) {
-      webView.addJavascriptInterface(
-          new JavaScriptChannel(methodChannel, channelName, platformThreadHandler), channelName);
+  // A channel is either its name, or a map with its name and, for a batched channel, a batch map
+  // with the optional maxDelayMillis, maxMessages and maxBufferedMessages.
+  @SuppressWarnings("unchecked")
+  private void registerJavaScriptChannelNames(List<Object> channelNames) {
+    for (Object channel : channelNames) {
+      String channelName;
+      JavaScriptChannel.BatchOptions batchOptions = null;
+      if (channel instanceof Map) {
+        Map<String, Object> channelMap = (Map<String, Object>) channel;
+        channelName = (String) channelMap.get("name");
+        Map<String, Object> batch = (Map<String, Object>) channelMap.get("batch");
+        if (batch != null) {
+          batchOptions = createBatchOptions(batch);
+        }
+      } else {
+        channelName = (String) channel;
+      }
+      JavaScriptChannel javaScriptChannel =
+          new JavaScriptChannel(methodChannel, channelName, platformThreadHandler, batchOptions);
+      webView.addJavascriptInterface(javaScriptChannel, channelName);
+      JavaScriptChannel previous = javaScriptChannels.put(channelName, javaScriptChannel);
+      if (previous != null) {
+        previous.dispose();
+      }
     }
   }
 
+  private static JavaScriptChannel.BatchOptions createBatchOptions(Map<String, Object> batch) {
+    Number maxDelayMillis = (Number) batch.get("maxDelayMillis");
+    Number maxMessages = (Number) batch.get("maxMessages");
+    Number maxBufferedMessages = (Number) batch.get("maxBufferedMessages");
+    return new JavaScriptChannel.BatchOptions(
+        maxDelayMillis != null
+            ? maxDelayMillis.longValue()
+            : JavaScriptChannel.BatchOptions.DEFAULT_MAX_DELAY_MILLIS,
+        maxMessages != null
+            ? maxMessages.intValue()
+            : JavaScriptChannel.BatchOptions.DEFAULT_MAX_MESSAGES,
+        maxBufferedMessages != null
+            ? maxBufferedMessages.intValue()
+            : JavaScriptChannel.BatchOptions.DEFAULT_MAX_BUFFERED_MESSAGES);
+  }
+
+  private void updateResourceInterception(Map<String, Object> resourceInterception) {
+    if (resourceInterception == null) {
+      resourceInterceptor = null;
+    } else {
+      Context context = webView.getContext();
+      resourceInterceptor =
+          ResourceInterceptor.fromMap(
+              resourceInterception,
+              context.getAssets(),
+              ResourceCache.getInstance(context.getCacheDir()));
+    }
+    flutterWebViewClient.setResourceInterceptor(resourceInterceptor);
+  }
+
   private void updateUserAgent(String userAgent) {
     webView.getSettings().setUserAgentString(userAgent);
   }
@@ -439,6 +647,19 @@ public class FlutterWebView implements PlatformView, MethodCallHandler {
   @Override
   public void dispose() {
     methodChannel.setMethodCallHandler(null);
+    pageEventStream.dispose();
+    flutterWebViewClient.dispose();
+    messagePortChannels.dispose();
+    if (prefetchExecutor != null) {
+      prefetchExecutor.shutdown();
+    }
+    if (javaScriptResultStream != null) {
+      javaScriptResultStream.dispose();
+    }
+    for (JavaScriptChannel javaScriptChannel : javaScriptChannels.values()) {
+      javaScriptChannel.dispose();
+    }
+    javaScriptChannels.clear();
     if (webView instanceof InputAwareWebView) {
       ((InputAwareWebView) webView).dispose();
     }
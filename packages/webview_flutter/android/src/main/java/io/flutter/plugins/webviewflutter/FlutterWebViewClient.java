@@ -8,10 +8,12 @@ import android.annotation.SuppressLint;
 import android.annotation.TargetApi;
 import android.graphics.Bitmap;
 import android.os.Build;
+import android.os.Handler;
 import android.util.Log;
 import android.view.KeyEvent;
 import android.webkit.WebResourceError;
 import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
 import android.webkit.WebView;
 import android.webkit.WebViewClient;
 import androidx.annotation.RequiresApi;
@@ -29,11 +31,22 @@ import java.util.Map;
 class FlutterWebViewClient {
   private static final String TAG = "FlutterWebViewClient";
   private final MethodChannel methodChannel;
+  private final Handler platformThreadHandler;
+  private final PageEventStream pageEventStream;
+  private ProgressThrottle progressThrottle;
   private boolean hasNavigationDelegate;
+  private NavigationRules navigationRules = NavigationRules.NONE;
+  // Read on the WebView's background threads.
+  private volatile ResourceInterceptor resourceInterceptor;
   boolean hasProgressTracking;
 
-  FlutterWebViewClient(MethodChannel methodChannel) {
+  FlutterWebViewClient(
+      MethodChannel methodChannel,
+      Handler platformThreadHandler,
+      PageEventStream pageEventStream) {
     this.methodChannel = methodChannel;
+    this.platformThreadHandler = platformThreadHandler;
+    this.pageEventStream = pageEventStream;
   }
 
   private static String errorCodeToString(int errorCode) {
@@ -77,8 +90,77 @@ class FlutterWebViewClient {
     throw new IllegalArgumentException(message);
   }
 
+  void setNavigationRules(NavigationRules navigationRules) {
+    this.navigationRules = navigationRules;
+  }
+
+  /**
+   * Coalesces progress updates, sending one only if it moved by at least minDelta and at most
+   * maxEventsPerSecond times a second, or sends every update if minDelta is null.
+   */
+  void setProgressThrottle(Integer minDelta, Double maxEventsPerSecond) {
+    if (progressThrottle != null) {
+      progressThrottle.dispose();
+      progressThrottle = null;
+    }
+    if (minDelta == null) {
+      return;
+    }
+    progressThrottle =
+        new ProgressThrottle(
+            platformThreadHandler,
+            minDelta,
+            maxEventsPerSecond != null ? maxEventsPerSecond : 0,
+            new ProgressThrottle.Listener() {
+              @Override
+              public void onProgress(int progress) {
+                sendProgress(progress);
+              }
+            });
+  }
+
+  void dispose() {
+    if (progressThrottle != null) {
+      progressThrottle.dispose();
+    }
+  }
+
+  void setResourceInterceptor(ResourceInterceptor resourceInterceptor) {
+    this.resourceInterceptor = resourceInterceptor;
+  }
+
+  @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+  WebResourceResponse shouldInterceptRequest(WebResourceRequest request) {
+    ResourceInterceptor interceptor = resourceInterceptor;
+    if (interceptor == null) {
+      return null;
+    }
+    return interceptor.intercept(
+        request.getUrl().toString(), request.getMethod(), request.getRequestHeaders());
+  }
+
+  WebResourceResponse shouldInterceptRequest(String url) {
+    ResourceInterceptor interceptor = resourceInterceptor;
+    if (interceptor == null) {
+      return null;
+    }
+    return interceptor.intercept(url, null, null);
+  }
+
   @TargetApi(Build.VERSION_CODES.LOLLIPOP)
   boolean shouldOverrideUrlLoading(WebView view, WebResourceRequest request) {
+    // Main frame navigations matched by a rule are decided right away, without a round trip to
+    // the Dart delegate and without restarting the load.
+    if (request.isForMainFrame()) {
+      switch (navigationRules.evaluate(request.getUrl().toString())) {
+        case ALLOW:
+          return false;
+        case DENY:
+          return true;
+        default:
+          break;
+      }
+    }
     if (!hasNavigationDelegate) {
       return false;
     }
@@ -99,6 +181,14 @@ class FlutterWebViewClient {
   }
 
   boolean shouldOverrideUrlLoading(WebView view, String url) {
+    switch (navigationRules.evaluate(url)) {
+      case ALLOW:
+        return false;
+      case DENY:
+        return true;
+      default:
+        break;
+    }
     if (!hasNavigationDelegate) {
       return false;
     }
@@ -115,27 +205,60 @@ class FlutterWebViewClient {
   }
 
   private void onPageStarted(WebView view, String url) {
+    if (progressThrottle != null) {
+      progressThrottle.reset();
+    }
+    if (pageEventStream.isListening()) {
+      pageEventStream.send(PageEventStream.PAGE_STARTED, url);
+      return;
+    }
     Map<String, Object> args = new HashMap<>();
     args.put("url", url);
     methodChannel.invokeMethod("onPageStarted", args);
   }
 
   private void onPageFinished(WebView view, String url) {
+    if (pageEventStream.isListening()) {
+      pageEventStream.send(PageEventStream.PAGE_FINISHED, url);
+      return;
+    }
     Map<String, Object> args = new HashMap<>();
     args.put("url", url);
     methodChannel.invokeMethod("onPageFinished", args);
   }
 
   void onLoadingProgress(int progress) {
-    if (hasProgressTracking) {
-      Map<String, Object> args = new HashMap<>();
-      args.put("progress", progress);
-      methodChannel.invokeMethod("onProgress", args);
+    if (!hasProgressTracking) {
+      return;
     }
+    if (progressThrottle != null) {
+      progressThrottle.onProgress(progress);
+    } else {
+      sendProgress(progress);
+    }
+  }
+
+  private void sendProgress(int progress) {
+    if (pageEventStream.isListening()) {
+      pageEventStream.send(PageEventStream.PROGRESS, progress);
+      return;
+    }
+    Map<String, Object> args = new HashMap<>();
+    args.put("progress", progress);
+    methodChannel.invokeMethod("onProgress", args);
   }
 
   private void onWebResourceError(
       final int errorCode, final String description, final String failingUrl) {
+    if (pageEventStream.isListening()) {
+      pageEventStream.send(
+          PageEventStream.WEB_RESOURCE_ERROR,
+          errorCode,
+          description,
+          FlutterWebViewClient.errorCodeToString(errorCode),
+          failingUrl);
+      return;
+    }
     final Map<String, Object> args = new HashMap<>();
     args.put("errorCode", errorCode);
     args.put("description", description);
@@ -178,6 +301,24 @@ class FlutterWebViewClient {
         return FlutterWebViewClient.this.shouldOverrideUrlLoading(view, request);
       }
 
+      // Only invoked before Android N, where navigation rules still apply without a delegate.
+      @Override
+      public boolean shouldOverrideUrlLoading(WebView view, String url) {
+        return FlutterWebViewClient.this.shouldOverrideUrlLoading(view, url);
+      }
+
+      @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+      @Override
+      public WebResourceResponse shouldInterceptRequest(
+          WebView view, WebResourceRequest request) {
+        return FlutterWebViewClient.this.shouldInterceptRequest(request);
+      }
+
+      @Override
+      public WebResourceResponse shouldInterceptRequest(WebView view, String url) {
+        return FlutterWebViewClient.this.shouldInterceptRequest(url);
+      }
+
       @Override
       public void onPageStarted(WebView view, String url, Bitmap favicon) {
         FlutterWebViewClient.this.onPageStarted(view, url);
@@ -223,6 +364,18 @@ class FlutterWebViewClient {
         return FlutterWebViewClient.this.shouldOverrideUrlLoading(view, url);
       }
 
+      @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+      @Override
+      public WebResourceResponse shouldInterceptRequest(
+          WebView view, WebResourceRequest request) {
+        return FlutterWebViewClient.this.shouldInterceptRequest(request);
+      }
+
+      @Override
+      public WebResourceResponse shouldInterceptRequest(WebView view, String url) {
+        return FlutterWebViewClient.this.shouldInterceptRequest(url);
+      }
+
       @Override
       public void onPageStarted(WebView view, String url, Bitmap favicon) {
         FlutterWebViewClient.this.onPageStarted(view, url);
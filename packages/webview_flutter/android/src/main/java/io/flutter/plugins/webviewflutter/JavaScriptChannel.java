@@ -8,7 +8,9 @@ import android.os.Handler;
 import android.os.Looper;
 import android.webkit.JavascriptInterface;
 import io.flutter.plugin.common.MethodChannel;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 
 /**
  * Added as a JavaScript interface to the WebView for any JavaScript channel that the Dart code sets
@@ -16,11 +18,48 @@ import java.util.HashMap;
  *
  * <p>Exposes a single method named `postMessage` to JavaScript, which sends a message over a method
  * channel to the Dart code.
+ *
+ * <p>A channel with {@link BatchOptions} buffers the messages instead and sends them as a list in
+ * a single `javascriptChannelMessages` call, once the oldest buffered message has waited for the
+ * maximum delay or the buffer holds the maximum number of messages per batch. Messages are
+ * delivered in the order they were posted. Messages posted while the buffer is full are dropped,
+ * and their number is sent with the next batch.
  */
 class JavaScriptChannel {
+  /** How the messages of a batched channel are buffered. */
+  static final class BatchOptions {
+    static final long DEFAULT_MAX_DELAY_MILLIS = 50;
+    static final int DEFAULT_MAX_MESSAGES = 100;
+    static final int DEFAULT_MAX_BUFFERED_MESSAGES = 10000;
+
+    final long maxDelayMillis;
+    final int maxMessages;
+    final int maxBufferedMessages;
+
+    BatchOptions(long maxDelayMillis, int maxMessages, int maxBufferedMessages) {
+      this.maxDelayMillis = maxDelayMillis;
+      this.maxMessages = Math.max(1, maxMessages);
+      this.maxBufferedMessages = Math.max(this.maxMessages, maxBufferedMessages);
+    }
+  }
+
   private final MethodChannel methodChannel;
   private final String javaScriptChannelName;
   private final Handler platformThreadHandler;
+  private final BatchOptions batchOptions;
+  private final Runnable flushRunnable =
+      new Runnable() {
+        @Override
+        public void run() {
+          flush();
+        }
+      };
+  // Guarded by itself. Messages are posted on the JavaScript bridge thread and sent to Dart on the
+  // platform thread.
+  private final List<String> bufferedMessages = new ArrayList<>();
+  private int droppedMessages;
+  private boolean flushScheduled;
+  private volatile boolean disposed;
 
   /**
    * @param methodChannel the Flutter WebView method channel to which JS messages are sent
@@ -30,19 +69,41 @@ class JavaScriptChannel {
    */
   JavaScriptChannel(
       MethodChannel methodChannel, String javaScriptChannelName, Handler platformThreadHandler) {
+    this(methodChannel, javaScriptChannelName, platformThreadHandler, null);
+  }
+
+  /**
+   * @param batchOptions how messages are batched, or null to send every message on its own
+   */
+  JavaScriptChannel(
+      MethodChannel methodChannel,
+      String javaScriptChannelName,
+      Handler platformThreadHandler,
+      BatchOptions batchOptions) {
     this.methodChannel = methodChannel;
     this.javaScriptChannelName = javaScriptChannelName;
     this.platformThreadHandler = platformThreadHandler;
+    this.batchOptions = batchOptions;
   }
 
   // Suppressing unused warning as this is invoked from JavaScript.
   @SuppressWarnings("unused")
   @JavascriptInterface
   public void postMessage(final String message) {
+    if (disposed) {
+      return;
+    }
+    if (batchOptions != null) {
+      bufferMessage(message);
+      return;
+    }
     Runnable postMessageRunnable =
         new Runnable() {
           @Override
           public void run() {
+            if (disposed) {
+              return;
+            }
             HashMap<String, String> arguments = new HashMap<>();
             arguments.put("channel", javaScriptChannelName);
             arguments.put("message", message);
@@ -55,4 +116,65 @@ class JavaScriptChannel {
       platformThreadHandler.post(postMessageRunnable);
     }
   }
+
+  /**
+   * Drops the buffered messages and stops sending messages, once the channel is removed or the
+   * WebView is disposed.
+   */
+  void dispose() {
+    synchronized (bufferedMessages) {
+      disposed = true;
+      platformThreadHandler.removeCallbacks(flushRunnable);
+      bufferedMessages.clear();
+      droppedMessages = 0;
+      flushScheduled = false;
+    }
+  }
+
+  private void bufferMessage(String message) {
+    synchronized (bufferedMessages) {
+      if (disposed) {
+        return;
+      }
+      if (bufferedMessages.size() >= batchOptions.maxBufferedMessages) {
+        droppedMessages++;
+        return;
+      }
+      bufferedMessages.add(message);
+      if (bufferedMessages.size() == batchOptions.maxMessages) {
+        platformThreadHandler.removeCallbacks(flushRunnable);
+        platformThreadHandler.post(flushRunnable);
+      } else if (!flushScheduled) {
+        platformThreadHandler.postDelayed(flushRunnable, batchOptions.maxDelayMillis);
+      }
+      flushScheduled = true;
+    }
+  }
+
+  // Sends everything buffered so far, in batches of at most maxMessages.
+  private void flush() {
+    List<String> messages;
+    int dropped;
+    synchronized (bufferedMessages) {
+      flushScheduled = false;
+      if (bufferedMessages.isEmpty() && droppedMessages == 0) {
+        return;
+      }
+      messages = new ArrayList<>(bufferedMessages);
+      bufferedMessages.clear();
+      dropped = droppedMessages;
+      droppedMessages = 0;
+    }
+    int start = 0;
+    do {
+      int end = Math.min(messages.size(), start + batchOptions.maxMessages);
+      HashMap<String, Object> arguments = new HashMap<>();
+      arguments.put("channel", javaScriptChannelName);
+      arguments.put("messages", new ArrayList<>(messages.subList(start, end)));
+      // Reported with the first batch sent after the messages were dropped.
+      arguments.put("droppedMessages", start == 0 ? dropped : 0);
+      methodChannel.invokeMethod("javascriptChannelMessages", arguments);
+      start = end;
+    } while (start < messages.size());
+  }
 }
@@ -0,0 +1,189 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.webviewflutter;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.webkit.JavascriptInterface;
+import android.webkit.ValueCallback;
+import android.webkit.WebView;
+import io.flutter.plugin.common.MethodChannel.Result;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import org.json.JSONObject;
+
+/**
+ * Evaluates JavaScript whose result is too large to go through evaluateJavascript in one piece.
+ *
+ * <p>The result is converted to a string in the page, with JSON.stringify unless it already is
+ * one, and streamed back in chunks through a JavaScript interface. The chunks are joined natively
+ * and sent to Dart as a single string, without the JSON quoting of evaluateJavascript results.
+ *
+ * <p>Added to the WebView as a JavaScript interface named {@link #INTERFACE_NAME} when the WebView
+ * is created with the chunkedJavascriptResults creation parameter, since interfaces are only
+ * exposed to pages loaded after they are added. Every evaluation is identified by a random id, so
+ * pages can't complete evaluations they did not run.
+ *
+ * <p>The script is run with eval to get its completion value, so evaluations fail with {@link
+ * #EVAL_BLOCKED_ERROR} on pages whose Content-Security-Policy does not allow 'unsafe-eval'.
+ * evaluateJavascript is not subject to the policy and still works on those pages.
+ */
+@TargetApi(Build.VERSION_CODES.KITKAT)
+class JavaScriptResultStream {
+  static final String INTERFACE_NAME = "FlutterWebViewResultStream";
+  static final int DEFAULT_CHUNK_SIZE = 512 * 1024;
+  static final String EVAL_BLOCKED_ERROR = "evalBlocked";
+
+  private final Handler platformThreadHandler;
+  // Guarded by itself. Chunks arrive on the JavaScript bridge thread.
+  private final Map<String, PendingResult> pendingResults = new HashMap<>();
+
+  JavaScriptResultStream(Handler platformThreadHandler) {
+    this.platformThreadHandler = platformThreadHandler;
+  }
+
+  /** Evaluates script and completes result with its result streamed in chunks of chunkSize. */
+  void evaluate(WebView webView, String script, int chunkSize, final Result result) {
+    final String id = UUID.randomUUID().toString();
+    synchronized (pendingResults) {
+      pendingResults.put(id, new PendingResult(result));
+    }
+    webView.evaluateJavascript(
+        streamingScript(id, script, Math.max(1, chunkSize)),
+        new ValueCallback<String>() {
+          @Override
+          public void onReceiveValue(String value) {
+            // The page calls the interface synchronously, so by now the result is complete unless
+            // the interface is missing from the page, e.g. when JavaScript is disabled.
+            PendingResult pendingResult;
+            synchronized (pendingResults) {
+              pendingResult = pendingResults.remove(id);
+            }
+            if (pendingResult != null) {
+              result.error(
+                  "evaluateJavascriptChunked",
+                  "The page did not stream a result; it may have been loaded before the WebView "
+                      + "was set up or have JavaScript disabled",
+                  null);
+            }
+          }
+        });
+  }
+
+  /** Fails every evaluation still waiting for its result. */
+  void dispose() {
+    synchronized (pendingResults) {
+      for (final PendingResult pendingResult : pendingResults.values()) {
+        platformThreadHandler.post(
+            new Runnable() {
+              @Override
+              public void run() {
+                pendingResult.result.error(
+                    "evaluateJavascriptChunked", "The WebView was disposed", null);
+              }
+            });
+      }
+      pendingResults.clear();
+    }
+  }
+
+  // Suppressing unused warning as this is invoked from JavaScript.
+  @SuppressWarnings("unused")
+  @JavascriptInterface
+  public void append(String id, String chunk) {
+    synchronized (pendingResults) {
+      PendingResult pendingResult = pendingResults.get(id);
+      if (pendingResult != null) {
+        pendingResult.value.append(chunk);
+      }
+    }
+  }
+
+  @SuppressWarnings("unused")
+  @JavascriptInterface
+  public void finish(String id, boolean isNull) {
+    final PendingResult pendingResult;
+    synchronized (pendingResults) {
+      pendingResult = pendingResults.remove(id);
+    }
+    if (pendingResult == null) {
+      return;
+    }
+    final String value = isNull ? null : pendingResult.value.toString();
+    platformThreadHandler.post(
+        new Runnable() {
+          @Override
+          public void run() {
+            pendingResult.result.success(value);
+          }
+        });
+  }
+
+  @SuppressWarnings("unused")
+  @JavascriptInterface
+  public void fail(String id, final String error, final boolean evalBlocked) {
+    final PendingResult pendingResult;
+    synchronized (pendingResults) {
+      pendingResult = pendingResults.remove(id);
+    }
+    if (pendingResult == null) {
+      return;
+    }
+    platformThreadHandler.post(
+        new Runnable() {
+          @Override
+          public void run() {
+            pendingResult.result.error(
+                evalBlocked ? EVAL_BLOCKED_ERROR : "evaluateJavascriptChunked", error, null);
+          }
+        });
+  }
+
+  // Evaluates script in the global scope, like evaluateJavascript, and streams its result. Chunks
+  // never end between the two halves of a surrogate pair. eval is tried on its own first, so that
+  // an EvalError thrown by the script itself is not mistaken for eval being blocked.
+  private static String streamingScript(String id, String script, int chunkSize) {
+    String quotedScript =
+        JSONObject.quote(script).replace("\u2028", "\\u2028").replace("\u2029", "\\u2029");
+    return "(function() {"
+        + "var stream = window."
+        + INTERFACE_NAME
+        + "; var id = '"
+        + id
+        + "';"
+        + "try { (0, eval)('0'); } catch (error) { stream.fail(id, String(error), true); return; }"
+        + "try {"
+        + "  var value = (0, eval)("
+        + quotedScript
+        + ");"
+        + "  if (value === undefined || value === null) { stream.finish(id, true); return; }"
+        + "  if (typeof value !== 'string') value = JSON.stringify(value);"
+        + "  if (value === undefined) { stream.finish(id, true); return; }"
+        + "  for (var start = 0; start < value.length; ) {"
+        + "    var end = Math.min(value.length, start + "
+        + chunkSize
+        + ");"
+        + "    var last = value.charCodeAt(end - 1);"
+        + "    if (end < value.length && end - start > 1"
+        + "        && last >= 0xD800 && last <= 0xDBFF) end--;"
+        + "    stream.append(id, value.substring(start, end));"
+        + "    start = end;"
+        + "  }"
+        + "  stream.finish(id, false);"
+        + "} catch (error) { stream.fail(id, String(error), false); }"
+        + "})();";
+  }
+
+  private static final class PendingResult {
+    final Result result;
+    final StringBuilder value = new StringBuilder();
+
+    PendingResult(Result result) {
+      this.result = result;
+    }
+  }
+}
@@ -0,0 +1,104 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.webviewflutter;
+
+import android.annotation.SuppressLint;
+import android.net.Uri;
+import android.webkit.WebView;
+import androidx.webkit.WebMessageCompat;
+import androidx.webkit.WebMessagePortCompat;
+import androidx.webkit.WebViewCompat;
+import androidx.webkit.WebViewFeature;
+import io.flutter.plugin.common.MethodChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Named channels between the Dart code and the page, backed by HTML5 message ports.
+ *
+ * <p>Creating a channel posts a message to the page's window whose data is the channel name and
+ * whose only port is the page's end of the channel, for the page to keep:
+ *
+ * <pre>
+ * window.addEventListener('message', function(event) {
+ *   if (event.data === 'channelName') port = event.ports[0];
+ * });
+ * </pre>
+ *
+ * <p>Messages go through the port as they are, without the JSON encoding of evaluateJavascript
+ * results or the extra thread hop of JavaScript channels. A channel only lasts as long as the page
+ * it was posted to. Must be used on the platform thread.
+ */
+@SuppressLint("RequiresFeature")
+class MessagePortChannels {
+  private final WebView webView;
+  private final MethodChannel methodChannel;
+  private final Map<String, WebMessagePortCompat> ports = new HashMap<>();
+
+  MessagePortChannels(WebView webView, MethodChannel methodChannel) {
+    this.webView = webView;
+    this.methodChannel = methodChannel;
+  }
+
+  /** Whether the WebView implementation supports message ports. */
+  static boolean isSupported() {
+    return WebViewFeature.isFeatureSupported(WebViewFeature.CREATE_WEB_MESSAGE_CHANNEL)
+        && WebViewFeature.isFeatureSupported(WebViewFeature.POST_WEB_MESSAGE)
+        && WebViewFeature.isFeatureSupported(WebViewFeature.WEB_MESSAGE_PORT_POST_MESSAGE)
+        && WebViewFeature.isFeatureSupported(WebViewFeature.WEB_MESSAGE_PORT_CLOSE)
+        && WebViewFeature.isFeatureSupported(WebViewFeature.WEB_MESSAGE_PORT_SET_MESSAGE_CALLBACK)
+        && WebViewFeature.isFeatureSupported(WebViewFeature.WEB_MESSAGE_CALLBACK_ON_MESSAGE);
+  }
+
+  /**
+   * Creates the channel named name, replacing any channel with the same name, and posts its other
+   * end to the page if its origin matches targetOrigin, or to any page if targetOrigin is "*".
+   * targetOrigin has no default, so that the port is only handed to another origin on purpose.
+   */
+  void create(final String name, String targetOrigin) {
+    close(name);
+    WebMessagePortCompat[] channel = WebViewCompat.createWebMessageChannel(webView);
+    WebMessagePortCompat port = channel[0];
+    port.setWebMessageCallback(
+        new WebMessagePortCompat.WebMessageCallbackCompat() {
+          @Override
+          public void onMessage(WebMessagePortCompat port, WebMessageCompat message) {
+            Map<String, Object> arguments = new HashMap<>();
+            arguments.put("name", name);
+            arguments.put("message", message != null ? message.getData() : null);
+            methodChannel.invokeMethod("messagePortMessage", arguments);
+          }
+        });
+    ports.put(name, port);
+    WebViewCompat.postWebMessage(
+        webView,
+        new WebMessageCompat(name, new WebMessagePortCompat[] {channel[1]}),
+        Uri.parse(targetOrigin));
+  }
+
+  /** Sends message to the page through the channel named name, returning false if there is none. */
+  boolean post(String name, String message) {
+    WebMessagePortCompat port = ports.get(name);
+    if (port == null) {
+      return false;
+    }
+    port.postMessage(new WebMessageCompat(message));
+    return true;
+  }
+
+  void close(String name) {
+    WebMessagePortCompat port = ports.remove(name);
+    if (port != null) {
+      port.close();
+    }
+  }
+
+  void dispose() {
+    for (WebMessagePortCompat port : ports.values()) {
+      port.close();
+    }
+    ports.clear();
+  }
+}
@@ -0,0 +1,139 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.webviewflutter;
+
+import android.net.Uri;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Allow and deny rules for navigations, registered by the Dart code with the navigationRules
+ * setting so that navigations they match are decided without asking the navigation delegate.
+ *
+ * <p>Each rule is a map with an {@code action} of {@code allow} or {@code deny}, a {@code type} of
+ * {@code exact}, {@code prefix}, {@code host} or {@code regex}, and the {@code pattern} to match
+ * the URL with. A {@code prefix} pattern only matches where the URL continues with a new path
+ * segment, query or fragment, or where the pattern itself ends with {@code /}, {@code ?}, {@code #}
+ * or {@code &}, so that {@code https://example.com} does not match {@code
+ * https://example.com.evil.com}. A {@code host} pattern matches the host and its subdomains, a
+ * {@code regex} pattern has to match the whole URL. Rules are evaluated in order and the first
+ * matching rule wins.
+ *
+ * <p>Like the navigation delegate, rules only decide navigations of the main frame. Subframe
+ * navigations are always allowed, except on WebView versions older than 67, which don't tell
+ * which frame a navigation targets, where rules apply to every navigation.
+ */
+class NavigationRules {
+  enum Decision {
+    ALLOW,
+    DENY,
+    /** No rule matched: the navigation delegate decides, if there is one. */
+    UNMATCHED
+  }
+
+  static final NavigationRules NONE = new NavigationRules(new ArrayList<Rule>());
+
+  private final List<Rule> rules;
+
+  private NavigationRules(List<Rule> rules) {
+    this.rules = rules;
+  }
+
+  static NavigationRules fromList(List<Map<String, Object>> rulesList) {
+    if (rulesList == null) {
+      return NONE;
+    }
+    List<Rule> rules = new ArrayList<>(rulesList.size());
+    for (Map<String, Object> rule : rulesList) {
+      rules.add(
+          new Rule(
+              parseAction((String) rule.get("action")),
+              (String) rule.get("type"),
+              (String) rule.get("pattern")));
+    }
+    return new NavigationRules(rules);
+  }
+
+  Decision evaluate(String url) {
+    if (url == null) {
+      return Decision.UNMATCHED;
+    }
+    for (Rule rule : rules) {
+      if (rule.matches(url)) {
+        return rule.decision;
+      }
+    }
+    return Decision.UNMATCHED;
+  }
+
+  private static Decision parseAction(String action) {
+    if ("allow".equals(action)) {
+      return Decision.ALLOW;
+    } else if ("deny".equals(action)) {
+      return Decision.DENY;
+    }
+    throw new IllegalArgumentException("Unknown navigation rule action: " + action);
+  }
+
+  private static final class Rule {
+    private final Decision decision;
+    private final String type;
+    private final String pattern;
+    // Compiled once, for regex rules.
+    private final Pattern regex;
+
+    Rule(Decision decision, String type, String pattern) {
+      if (pattern == null) {
+        throw new IllegalArgumentException("Navigation rules need a pattern");
+      }
+      switch (type == null ? "" : type) {
+        case "exact":
+        case "prefix":
+          this.regex = null;
+          break;
+        case "host":
+          this.regex = null;
+          pattern = pattern.toLowerCase(Locale.US);
+          break;
+        case "regex":
+          this.regex = Pattern.compile(pattern);
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown navigation rule type: " + type);
+      }
+      this.decision = decision;
+      this.type = type;
+      this.pattern = pattern;
+    }
+
+    boolean matches(String url) {
+      switch (type) {
+        case "exact":
+          return url.equals(pattern);
+        case "prefix":
+          return url.startsWith(pattern) && endsAtBoundary(url, pattern.length());
+        case "host":
+          String host = Uri.parse(url).getHost();
+          if (host == null) {
+            return false;
+          }
+          host = host.toLowerCase(Locale.US);
+          return host.equals(pattern) || host.endsWith("." + pattern);
+        default:
+          return regex.matcher(url).matches();
+      }
+    }
+
+    private boolean endsAtBoundary(String url, int end) {
+      if (end == 0 || end == url.length() || "/?#&".indexOf(pattern.charAt(end - 1)) >= 0) {
+        return true;
+      }
+      return "/?#".indexOf(url.charAt(end)) >= 0;
+    }
+  }
+}
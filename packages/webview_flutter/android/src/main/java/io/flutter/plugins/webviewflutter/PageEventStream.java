@@ -0,0 +1,73 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.webviewflutter;
+
+import io.flutter.plugin.common.BinaryMessenger;
+import io.flutter.plugin.common.EventChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sends the page events of a WebView on the event channel {@code
+ * plugins.flutter.io/webview_events_<id>}.
+ *
+ * <p>While the Dart code listens to the channel, page events are sent on it instead of as
+ * individual method calls. Every event is a list whose first element is its type:
+ *
+ * <ul>
+ *   <li>{@link #PAGE_STARTED}, url
+ *   <li>{@link #PAGE_FINISHED}, url
+ *   <li>{@link #PROGRESS}, progress
+ *   <li>{@link #WEB_RESOURCE_ERROR}, errorCode, description, errorType, failingUrl
+ * </ul>
+ *
+ * Must be used on the platform thread.
+ */
+class PageEventStream implements EventChannel.StreamHandler {
+  static final int PAGE_STARTED = 0;
+  static final int PAGE_FINISHED = 1;
+  static final int PROGRESS = 2;
+  static final int WEB_RESOURCE_ERROR = 3;
+
+  private final EventChannel eventChannel;
+  private EventChannel.EventSink events;
+
+  PageEventStream(BinaryMessenger messenger, int id) {
+    eventChannel = new EventChannel(messenger, "plugins.flutter.io/webview_events_" + id);
+    eventChannel.setStreamHandler(this);
+  }
+
+  @Override
+  public void onListen(Object arguments, EventChannel.EventSink events) {
+    this.events = events;
+  }
+
+  @Override
+  public void onCancel(Object arguments) {
+    events = null;
+  }
+
+  /** Whether events are sent on the stream rather than as method calls. */
+  boolean isListening() {
+    return events != null;
+  }
+
+  void send(int type, Object... payload) {
+    if (events == null) {
+      return;
+    }
+    List<Object> event = new ArrayList<>(payload.length + 1);
+    event.add(type);
+    for (Object value : payload) {
+      event.add(value);
+    }
+    events.success(event);
+  }
+
+  void dispose() {
+    eventChannel.setStreamHandler(null);
+    events = null;
+  }
+}
@@ -0,0 +1,91 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.webviewflutter;
+
+import android.os.Handler;
+import android.os.SystemClock;
+
+/**
+ * Coalesces the loading progress of a WebView before it is sent to Dart.
+ *
+ * <p>A progress is only sent if it differs from the last one sent by at least the minimum delta,
+ * and at most once per minimum interval; a progress held back by the interval is sent when it
+ * ends, unless a newer one replaced it. Completion (100) and a progress going backwards, which
+ * means a new page started loading, are always sent right away. A progress held back when a page
+ * starts is dropped. Must be used on the platform thread.
+ */
+class ProgressThrottle {
+  interface Listener {
+    void onProgress(int progress);
+  }
+
+  private final Handler platformThreadHandler;
+  private final int minDelta;
+  private final long minIntervalMillis;
+  private final Listener listener;
+  private final Runnable sendPendingRunnable =
+      new Runnable() {
+        @Override
+        public void run() {
+          if (pendingProgress != lastProgress) {
+            send(pendingProgress);
+          }
+        }
+      };
+  private int pendingProgress = -1;
+  private int lastProgress = -1;
+  private long lastSentAtMillis;
+
+  /**
+   * @param minDelta the smallest change in progress worth sending
+   * @param maxEventsPerSecond how often progress may be sent, or 0 for no limit
+   */
+  ProgressThrottle(
+      Handler platformThreadHandler, int minDelta, double maxEventsPerSecond, Listener listener) {
+    this.platformThreadHandler = platformThreadHandler;
+    this.minDelta = Math.max(1, minDelta);
+    this.minIntervalMillis = maxEventsPerSecond > 0 ? (long) (1000 / maxEventsPerSecond) : 0;
+    this.listener = listener;
+  }
+
+  void onProgress(int progress) {
+    pendingProgress = progress;
+    if (progress == 100 || progress < lastProgress) {
+      send(progress);
+      return;
+    }
+    if (progress - lastProgress < minDelta) {
+      return;
+    }
+    long waitMillis = lastSentAtMillis + minIntervalMillis - SystemClock.uptimeMillis();
+    if (waitMillis <= 0) {
+      send(progress);
+    } else {
+      platformThreadHandler.removeCallbacks(sendPendingRunnable);
+      platformThreadHandler.postDelayed(sendPendingRunnable, waitMillis);
+    }
+  }
+
+  /**
+   * Forgets the progress of the previous page, so that the first progress of a new one is judged
+   * on its own. Called when a page starts loading.
+   */
+  void reset() {
+    platformThreadHandler.removeCallbacks(sendPendingRunnable);
+    pendingProgress = -1;
+    lastProgress = -1;
+  }
+
+  void dispose() {
+    platformThreadHandler.removeCallbacks(sendPendingRunnable);
+  }
+
+  private void send(int progress) {
+    platformThreadHandler.removeCallbacks(sendPendingRunnable);
+    lastProgress = progress;
+    lastSentAtMillis = SystemClock.uptimeMillis();
+    listener.onProgress(progress);
+  }
+}
@@ -0,0 +1,289 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.webviewflutter;
+
+import android.util.Log;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Disk cache of the responses served by {@link ResourceInterceptor}, shared by every WebView.
+ *
+ * <p>Every response is stored in its own file, named after a hash of its URL, holding the time it
+ * was stored, its status, MIME type, encoding and headers, followed by the body. The cache is
+ * bounded by the total size of its files and evicts the least recently used responses first. All
+ * methods may be called from any thread.
+ */
+class ResourceCache {
+  private static final String TAG = "ResourceCache";
+  static final String DIRECTORY_NAME = "webview_flutter_resources";
+  static final long DEFAULT_MAX_SIZE_BYTES = 32 * 1024 * 1024;
+
+  private static ResourceCache instance;
+
+  /** A cached response. The caller owns, and has to close, the body stream. */
+  static final class Entry {
+    final long storedAtMillis;
+    final int statusCode;
+    final String reasonPhrase;
+    final String mimeType;
+    final String encoding;
+    final Map<String, String> headers;
+    final InputStream body;
+
+    Entry(
+        long storedAtMillis,
+        int statusCode,
+        String reasonPhrase,
+        String mimeType,
+        String encoding,
+        Map<String, String> headers,
+        InputStream body) {
+      this.storedAtMillis = storedAtMillis;
+      this.statusCode = statusCode;
+      this.reasonPhrase = reasonPhrase;
+      this.mimeType = mimeType;
+      this.encoding = encoding;
+      this.headers = headers;
+      this.body = body;
+    }
+  }
+
+  private final File directory;
+  // Ordered from least to most recently used.
+  private final LinkedHashMap<String, File> files = new LinkedHashMap<>(16, 0.75f, true);
+  private long sizeBytes;
+  private long maxSizeBytes;
+  private boolean loaded;
+
+  private ResourceCache(File directory, long maxSizeBytes) {
+    this.directory = directory;
+    this.maxSizeBytes = maxSizeBytes;
+  }
+
+  static synchronized ResourceCache getInstance(File cacheDirectory) {
+    if (instance == null) {
+      instance =
+          new ResourceCache(new File(cacheDirectory, DIRECTORY_NAME), DEFAULT_MAX_SIZE_BYTES);
+    }
+    return instance;
+  }
+
+  synchronized void setMaxSizeBytes(long maxSizeBytes) {
+    this.maxSizeBytes = maxSizeBytes;
+    if (loaded) {
+      trim();
+    }
+  }
+
+  /** Returns the response cached for url if it is younger than maxAgeMillis, or null. */
+  Entry get(String url, long maxAgeMillis) {
+    String key = key(url);
+    File file;
+    synchronized (this) {
+      loadIfNeeded();
+      file = files.get(key);
+      if (file == null) {
+        return null;
+      }
+    }
+    DataInputStream input = null;
+    try {
+      input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      long storedAtMillis = input.readLong();
+      if (System.currentTimeMillis() - storedAtMillis > maxAgeMillis) {
+        input.close();
+        return null;
+      }
+      int statusCode = input.readInt();
+      String reasonPhrase = input.readUTF();
+      String mimeType = input.readUTF();
+      String encoding = input.readUTF();
+      int headerCount = input.readInt();
+      Map<String, String> headers = new LinkedHashMap<>();
+      for (int i = 0; i < headerCount; i++) {
+        headers.put(input.readUTF(), input.readUTF());
+      }
+      return new Entry(
+          storedAtMillis,
+          statusCode,
+          reasonPhrase,
+          mimeType,
+          encoding.isEmpty() ? null : encoding,
+          headers,
+          input);
+    } catch (IOException e) {
+      Log.w(TAG, "Can't read cached response for " + url, e);
+      closeQuietly(input);
+      remove(key);
+      return null;
+    }
+  }
+
+  /**
+   * Stores the response for url, copying body to the cache. The body is closed afterwards.
+   *
+   * <p>Returns the file now holding the response, or null if it could not be stored.
+   */
+  File put(
+      String url,
+      int statusCode,
+      String reasonPhrase,
+      String mimeType,
+      String encoding,
+      Map<String, String> headers,
+      InputStream body) {
+    String key = key(url);
+    if (!directory.exists() && !directory.mkdirs()) {
+      closeQuietly(body);
+      return null;
+    }
+    // Written to a temporary file first so that readers never see a partial response.
+    File temporaryFile = new File(directory, key + "." + Thread.currentThread().getId() + ".tmp");
+    DataOutputStream output = null;
+    try {
+      output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)));
+      output.writeLong(System.currentTimeMillis());
+      output.writeInt(statusCode);
+      output.writeUTF(reasonPhrase != null ? reasonPhrase : "");
+      output.writeUTF(mimeType != null ? mimeType : "");
+      output.writeUTF(encoding != null ? encoding : "");
+      output.writeInt(headers.size());
+      for (Map.Entry<String, String> header : headers.entrySet()) {
+        output.writeUTF(header.getKey());
+        output.writeUTF(header.getValue());
+      }
+      byte[] buffer = new byte[8192];
+      int read;
+      while ((read = body.read(buffer)) != -1) {
+        output.write(buffer, 0, read);
+      }
+      output.close();
+    } catch (IOException e) {
+      Log.w(TAG, "Can't cache response for " + url, e);
+      closeQuietly(output);
+      temporaryFile.delete();
+      return null;
+    } finally {
+      closeQuietly(body);
+    }
+    File file = new File(directory, key);
+    synchronized (this) {
+      loadIfNeeded();
+      File previous = files.remove(key);
+      if (previous != null) {
+        sizeBytes -= previous.length();
+      }
+      if (!temporaryFile.renameTo(file)) {
+        temporaryFile.delete();
+        return null;
+      }
+      files.put(key, file);
+      sizeBytes += file.length();
+      trim();
+    }
+    return file;
+  }
+
+  /** Drops every cached response. */
+  synchronized void clear() {
+    loadIfNeeded();
+    for (File file : files.values()) {
+      file.delete();
+    }
+    files.clear();
+    sizeBytes = 0;
+  }
+
+  private synchronized void remove(String key) {
+    File file = files.remove(key);
+    if (file != null) {
+      sizeBytes -= file.length();
+      file.delete();
+    }
+  }
+
+  // Must be called while holding the lock. After a restart, responses are ordered by the time
+  // they were stored.
+  private void loadIfNeeded() {
+    if (loaded) {
+      return;
+    }
+    loaded = true;
+    File[] existingFiles = directory.listFiles();
+    if (existingFiles == null) {
+      return;
+    }
+    Arrays.sort(
+        existingFiles,
+        new Comparator<File>() {
+          @Override
+          public int compare(File a, File b) {
+            long difference = a.lastModified() - b.lastModified();
+            return difference < 0 ? -1 : (difference > 0 ? 1 : 0);
+          }
+        });
+    for (File file : existingFiles) {
+      if (file.getName().endsWith(".tmp")) {
+        file.delete();
+        continue;
+      }
+      files.put(file.getName(), file);
+      sizeBytes += file.length();
+    }
+    trim();
+  }
+
+  // Must be called while holding the lock.
+  private void trim() {
+    Iterator<File> iterator = files.values().iterator();
+    while (sizeBytes > maxSizeBytes && iterator.hasNext()) {
+      File file = iterator.next();
+      iterator.remove();
+      sizeBytes -= file.length();
+      file.delete();
+    }
+  }
+
+  private static String key(String url) {
+    try {
+      byte[] hash = MessageDigest.getInstance("SHA-1").digest(url.getBytes("UTF-8"));
+      StringBuilder builder = new StringBuilder(hash.length * 2);
+      for (byte b : hash) {
+        builder.append(Character.forDigit((b >> 4) & 0xf, 16));
+        builder.append(Character.forDigit(b & 0xf, 16));
+      }
+      return builder.toString();
+    } catch (NoSuchAlgorithmException | IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  static void closeQuietly(Closeable closeable) {
+    if (closeable == null) {
+      return;
+    }
+    try {
+      closeable.close();
+    } catch (IOException e) {
+      // Nothing left to do with the stream.
+    }
+  }
+}
@@ -0,0 +1,426 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.webviewflutter;
+
+import android.content.res.AssetManager;
+import android.net.Uri;
+import android.os.Build;
+import android.text.TextUtils;
+import android.util.Log;
+import android.webkit.CookieManager;
+import android.webkit.MimeTypeMap;
+import android.webkit.WebResourceResponse;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Serves the requests of a WebView from Flutter assets, local directories or the {@link
+ * ResourceCache}, as configured by the resourceInterception setting:
+ *
+ * <pre>
+ * {
+ *   "mappings": [{"prefix": "https://app.local/", "asset": "assets/web/"},
+ *                {"prefix": "https://files.local/", "directory": "/data/.../files"}],
+ *   "cacheRules": [{"prefix": "https://cdn.example.com/", "maxAgeSeconds": 86400,
+ *                   "cacheCredentialed": false}],
+ *   "maxCacheSizeBytes": 33554432
+ * }
+ * </pre>
+ *
+ * <p>GET requests under a mapped prefix are served from the file at the rest of their path, and
+ * fall through to the network if there is no such file. GET requests matching a cache rule are
+ * served from the cache while the cached response is younger than the rule's max age, and are
+ * otherwise fetched, cached and served natively. The first matching mapping and rule win. Called on
+ * the WebView's background threads.
+ *
+ * <p>Requests sending cookies or an Authorization header are left to the WebView unless their rule
+ * sets cacheCredentialed, as the cache is shared by every user of the app. Responses that are
+ * private or vary by cookie are served without being cached for the same reason, like errors and
+ * redirected responses, so that the WebView doesn't request them again. Conditional or range
+ * requests are left to the WebView.
+ */
+class ResourceInterceptor {
+  private static final String TAG = "ResourceInterceptor";
+  private static final int TIMEOUT_MILLIS = 15000;
+  private static final int MAX_REDIRECTS = 5;
+  // Handled by HttpURLConnection, which also decompresses the responses it fetches.
+  private static final List<String> SKIPPED_HEADERS =
+      Arrays.asList("accept-encoding", "content-encoding", "content-length", "transfer-encoding");
+  // Would make the server answer with a partial or empty response, which can't be cached.
+  private static final List<String> CONDITIONAL_HEADERS =
+      Arrays.asList(
+          "if-none-match", "if-modified-since", "if-match", "if-unmodified-since", "if-range",
+          "range");
+
+  private static final class Mapping {
+    final String prefix;
+    // Exactly one of the two is set.
+    final String assetPrefix;
+    final File directory;
+
+    Mapping(String prefix, String assetPrefix, File directory) {
+      this.prefix = prefix;
+      this.assetPrefix = assetPrefix;
+      this.directory = directory;
+    }
+  }
+
+  private static final class CacheRule {
+    final String prefix;
+    final long maxAgeMillis;
+    final boolean cacheCredentialed;
+
+    CacheRule(String prefix, long maxAgeMillis, boolean cacheCredentialed) {
+      this.prefix = prefix;
+      this.maxAgeMillis = maxAgeMillis;
+      this.cacheCredentialed = cacheCredentialed;
+    }
+  }
+
+  private final AssetManager assetManager;
+  private final ResourceCache cache;
+  private final List<Mapping> mappings;
+  private final List<CacheRule> cacheRules;
+
+  private ResourceInterceptor(
+      AssetManager assetManager,
+      ResourceCache cache,
+      List<Mapping> mappings,
+      List<CacheRule> cacheRules) {
+    this.assetManager = assetManager;
+    this.cache = cache;
+    this.mappings = mappings;
+    this.cacheRules = cacheRules;
+  }
+
+  @SuppressWarnings("unchecked")
+  static ResourceInterceptor fromMap(
+      Map<String, Object> settings, AssetManager assetManager, ResourceCache cache) {
+    List<Mapping> mappings = new ArrayList<>();
+    List<Map<String, Object>> mappingList = (List<Map<String, Object>>) settings.get("mappings");
+    if (mappingList != null) {
+      for (Map<String, Object> mapping : mappingList) {
+        String asset = (String) mapping.get("asset");
+        String directory = (String) mapping.get("directory");
+        if ((asset == null) == (directory == null)) {
+          throw new IllegalArgumentException("Mappings need exactly one of asset or directory");
+        }
+        mappings.add(
+            new Mapping(
+                (String) mapping.get("prefix"),
+                asset != null ? lookupKeyForAsset(asset) : null,
+                directory != null ? new File(directory) : null));
+      }
+    }
+    List<CacheRule> cacheRules = new ArrayList<>();
+    List<Map<String, Object>> ruleList = (List<Map<String, Object>>) settings.get("cacheRules");
+    if (ruleList != null) {
+      for (Map<String, Object> rule : ruleList) {
+        Number maxAgeSeconds = (Number) rule.get("maxAgeSeconds");
+        cacheRules.add(
+            new CacheRule(
+                (String) rule.get("prefix"),
+                maxAgeSeconds.longValue() * 1000,
+                Boolean.TRUE.equals(rule.get("cacheCredentialed"))));
+      }
+    }
+    Number maxCacheSizeBytes = (Number) settings.get("maxCacheSizeBytes");
+    if (maxCacheSizeBytes != null) {
+      cache.setMaxSizeBytes(maxCacheSizeBytes.longValue());
+    }
+    return new ResourceInterceptor(assetManager, cache, mappings, cacheRules);
+  }
+
+  /** Returns the response to serve for the request, or null to let the WebView load it. */
+  WebResourceResponse intercept(String url, String method, Map<String, String> requestHeaders) {
+    if (url == null || (method != null && !"GET".equalsIgnoreCase(method))) {
+      return null;
+    }
+    for (Mapping mapping : mappings) {
+      if (url.startsWith(mapping.prefix)) {
+        return serveMapped(mapping, url);
+      }
+    }
+    CacheRule rule = cacheRule(url);
+    if (rule == null || (!rule.cacheCredentialed && sendsCredentials(url, requestHeaders))) {
+      return null;
+    }
+    ResourceCache.Entry entry = cache.get(url, rule.maxAgeMillis);
+    if (entry == null) {
+      entry = fetch(url, rule, requestHeaders, true);
+    }
+    return entry != null ? toResponse(entry) : null;
+  }
+
+  /**
+   * Fetches and caches the given URLs that match a cache rule and are not cached yet, returning
+   * the number of URLs that are now cached. Blocks, so must not be called on the platform thread.
+   */
+  int prefetch(List<String> urls) {
+    int cached = 0;
+    for (String url : urls) {
+      CacheRule rule = cacheRule(url);
+      Map<String, String> requestHeaders = Collections.emptyMap();
+      if (rule == null || (!rule.cacheCredentialed && sendsCredentials(url, requestHeaders))) {
+        continue;
+      }
+      ResourceCache.Entry entry = cache.get(url, rule.maxAgeMillis);
+      if (entry == null) {
+        entry = fetch(url, rule, requestHeaders, false);
+      }
+      if (entry != null) {
+        ResourceCache.closeQuietly(entry.body);
+        cached++;
+      }
+    }
+    return cached;
+  }
+
+  private CacheRule cacheRule(String url) {
+    for (CacheRule rule : cacheRules) {
+      if (url.startsWith(rule.prefix)) {
+        return rule;
+      }
+    }
+    return null;
+  }
+
+  private static boolean sendsCredentials(String url, Map<String, String> requestHeaders) {
+    if (requestHeaders != null) {
+      for (String name : requestHeaders.keySet()) {
+        if ("cookie".equalsIgnoreCase(name) || "authorization".equalsIgnoreCase(name)) {
+          return true;
+        }
+      }
+    }
+    return CookieManager.getInstance().getCookie(url) != null;
+  }
+
+  private WebResourceResponse serveMapped(Mapping mapping, String url) {
+    String path = url.substring(mapping.prefix.length());
+    int end = path.length();
+    int query = path.indexOf('?');
+    int fragment = path.indexOf('#');
+    if (query >= 0) end = Math.min(end, query);
+    if (fragment >= 0) end = Math.min(end, fragment);
+    // Decoded first, so that encoded dots and slashes are caught by the checks below.
+    path = Uri.decode(path.substring(0, end));
+    try {
+      InputStream body;
+      if (mapping.assetPrefix != null) {
+        if (path.contains("..")) {
+          return null;
+        }
+        body = assetManager.open(mapping.assetPrefix + path);
+      } else {
+        File file = new File(mapping.directory, path);
+        // Keeps requests from escaping the mapped directory.
+        if (!file.getCanonicalPath().startsWith(mapping.directory.getCanonicalPath() + "/")
+            || !file.isFile()) {
+          return null;
+        }
+        body = new FileInputStream(file);
+      }
+      return new WebResourceResponse(mimeType(path), null, body);
+    } catch (IOException e) {
+      // Not a bundled file: falls through to the network.
+      return null;
+    }
+  }
+
+  /**
+   * Fetches url, caching the response if it may be. Responses that can't be cached are returned
+   * uncached if serveUncacheable is set, following their redirects, so that the WebView doesn't
+   * request them again. Returns null if the response is neither cached nor served.
+   */
+  private ResourceCache.Entry fetch(
+      String url, CacheRule rule, Map<String, String> requestHeaders, boolean serveUncacheable) {
+    HttpURLConnection connection = null;
+    // Set once the body is returned uncached, which then owns the connection.
+    boolean served = false;
+    try {
+      String location = url;
+      int redirects = 0;
+      int statusCode;
+      while (true) {
+        connection = openConnection(location, requestHeaders);
+        statusCode = connection.getResponseCode();
+        applySetCookies(connection);
+        String next = connection.getHeaderField("Location");
+        if (!serveUncacheable || !isRedirect(statusCode) || next == null) {
+          break;
+        }
+        if (++redirects > MAX_REDIRECTS) {
+          return null;
+        }
+        URL nextUrl = new URL(connection.getURL(), next);
+        if (!"http".equals(nextUrl.getProtocol()) && !"https".equals(nextUrl.getProtocol())) {
+          return null;
+        }
+        location = nextUrl.toString();
+        connection.disconnect();
+      }
+      Map<String, String> headers = new LinkedHashMap<>();
+      for (Map.Entry<String, List<String>> header : connection.getHeaderFields().entrySet()) {
+        String name = header.getKey();
+        if (name == null
+            || SKIPPED_HEADERS.contains(name.toLowerCase(Locale.US))
+            || "set-cookie".equalsIgnoreCase(name)) {
+          continue;
+        }
+        headers.put(name, TextUtils.join(", ", header.getValue()));
+      }
+      String contentType = connection.getContentType();
+      String mimeType = contentType != null ? contentType.split(";")[0].trim() : mimeType(url);
+      String encoding = charset(contentType);
+      String reasonPhrase = connection.getResponseMessage();
+      if (reasonPhrase == null) {
+        reasonPhrase = "";
+      }
+      String cacheControl = lowerCase(connection.getHeaderField("Cache-Control"));
+      String vary = lowerCase(connection.getHeaderField("Vary"));
+      if (redirects > 0
+          || statusCode != HttpURLConnection.HTTP_OK
+          || cacheControl.contains("no-store")
+          || (!rule.cacheCredentialed
+              && (cacheControl.contains("private")
+                  || vary.contains("cookie")
+                  || vary.contains("authorization")))) {
+        // WebResourceResponse can't carry a redirect, so unfollowed ones are left to the WebView.
+        if (!serveUncacheable || isRedirect(statusCode)) {
+          return null;
+        }
+        InputStream body =
+            statusCode >= HttpURLConnection.HTTP_BAD_REQUEST
+                ? connection.getErrorStream()
+                : connection.getInputStream();
+        if (body == null) {
+          body = new ByteArrayInputStream(new byte[0]);
+        }
+        served = true;
+        return new ResourceCache.Entry(
+            System.currentTimeMillis(),
+            statusCode,
+            reasonPhrase,
+            mimeType,
+            encoding,
+            headers,
+            body);
+      }
+      File file =
+          cache.put(
+              url,
+              statusCode,
+              reasonPhrase,
+              mimeType,
+              encoding,
+              headers,
+              connection.getInputStream());
+      if (file == null) {
+        return null;
+      }
+      return cache.get(url, Long.MAX_VALUE);
+    } catch (IOException e) {
+      Log.w(TAG, "Can't fetch " + url, e);
+      return null;
+    } finally {
+      if (connection != null && !served) {
+        connection.disconnect();
+      }
+    }
+  }
+
+  private static HttpURLConnection openConnection(String url, Map<String, String> requestHeaders)
+      throws IOException {
+    HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+    connection.setConnectTimeout(TIMEOUT_MILLIS);
+    connection.setReadTimeout(TIMEOUT_MILLIS);
+    connection.setInstanceFollowRedirects(false);
+    if (requestHeaders != null) {
+      for (Map.Entry<String, String> header : requestHeaders.entrySet()) {
+        String name = header.getKey().toLowerCase(Locale.US);
+        if (!SKIPPED_HEADERS.contains(name) && !CONDITIONAL_HEADERS.contains(name)) {
+          connection.setRequestProperty(header.getKey(), header.getValue());
+        }
+      }
+    }
+    String cookies = CookieManager.getInstance().getCookie(url);
+    if (cookies != null) {
+      connection.setRequestProperty("Cookie", cookies);
+    }
+    return connection;
+  }
+
+  private static void applySetCookies(HttpURLConnection connection) {
+    List<String> setCookies = connection.getHeaderFields().get("Set-Cookie");
+    if (setCookies != null) {
+      CookieManager cookieManager = CookieManager.getInstance();
+      for (String setCookie : setCookies) {
+        cookieManager.setCookie(connection.getURL().toString(), setCookie);
+      }
+    }
+  }
+
+  private static boolean isRedirect(int statusCode) {
+    return statusCode >= HttpURLConnection.HTTP_MULT_CHOICE && statusCode < 400;
+  }
+
+  private static WebResourceResponse toResponse(ResourceCache.Entry entry) {
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+      return new WebResourceResponse(
+          entry.mimeType,
+          entry.encoding,
+          entry.statusCode,
+          entry.reasonPhrase.isEmpty() ? "OK" : entry.reasonPhrase,
+          entry.headers,
+          entry.body);
+    }
+    return new WebResourceResponse(entry.mimeType, entry.encoding, entry.body);
+  }
+
+  private static String mimeType(String path) {
+    String extension = MimeTypeMap.getFileExtensionFromUrl(path);
+    String mimeType =
+        extension != null
+            ? MimeTypeMap.getSingleton().getMimeTypeFromExtension(extension.toLowerCase(Locale.US))
+            : null;
+    return mimeType != null ? mimeType : "application/octet-stream";
+  }
+
+  private static String lowerCase(String value) {
+    return value != null ? value.toLowerCase(Locale.US) : "";
+  }
+
+  private static String charset(String contentType) {
+    if (contentType == null) {
+      return null;
+    }
+    for (String parameter : contentType.split(";")) {
+      String trimmed = parameter.trim();
+      if (trimmed.toLowerCase(Locale.US).startsWith("charset=")) {
+        return trimmed.substring("charset=".length()).replace("\"", "");
+      }
+    }
+    return null;
+  }
+
+  // FlutterMain is deprecated, but FlutterLoader is not available on the stable channel yet.
+  @SuppressWarnings("deprecation")
+  private static String lookupKeyForAsset(String asset) {
+    return io.flutter.view.FlutterMain.getLookupKeyForAsset(asset);
+  }
+}
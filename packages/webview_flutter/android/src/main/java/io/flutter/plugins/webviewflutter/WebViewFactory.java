@@ -15,17 +15,24 @@ import java.util.Map;
 public final class WebViewFactory extends PlatformViewFactory {
   private final BinaryMessenger messenger;
   private final View containerView;
+  private final WebViewPool webViewPool;
 
   WebViewFactory(BinaryMessenger messenger, View containerView) {
+    this(messenger, containerView, null);
+  }
+
+  /** @param webViewPool the pool new WebViews are taken from, or null to always create them. */
+  WebViewFactory(BinaryMessenger messenger, View containerView, WebViewPool webViewPool) {
     super(StandardMessageCodec.INSTANCE);
     this.messenger = messenger;
     this.containerView = containerView;
+    this.webViewPool = webViewPool;
   }
 
   @SuppressWarnings("unchecked")
   @Override
   public PlatformView create(Context context, int id, Object args) {
     Map<String, Object> params = (Map<String, Object>) args;
-    return new FlutterWebView(context, messenger, id, params, containerView);
+    return new FlutterWebView(context, messenger, id, params, containerView, webViewPool);
   }
 }
@@ -4,6 +4,7 @@
 
 package io.flutter.plugins.webviewflutter;
 
+import android.content.Context;
 import io.flutter.embedding.engine.plugins.FlutterPlugin;
 import io.flutter.plugin.common.BinaryMessenger;
 
@@ -16,8 +17,11 @@ import io.flutter.plugin.common.BinaryMessenger;
  * package instead.
  */
 public class WebViewFlutterPlugin implements FlutterPlugin {
+  private static int webViewPoolSize = 0;
+  private static boolean webViewPoolUsesHybridComposition = false;
 
   private FlutterCookieManager flutterCookieManager;
+  private WebViewPool webViewPool;
 
   /**
    * Add an instance of this to {@link io.flutter.embedding.engine.plugins.PluginRegistry} to
@@ -33,6 +37,42 @@ public class WebViewFlutterPlugin implements FlutterPlugin {
    */
   public WebViewFlutterPlugin() {}
 
+  /**
+   * Sets how many WebViews are created ahead of time, once the platform thread is idle after the
+   * plugin is registered, and kept ready for the next WebViews to open. The first of them also
+   * initializes Chromium, which otherwise delays opening the first WebView of the process.
+   *
+   * <p>Pooled WebViews use memory while they wait, so the pool is empty by default. Must be called
+   * before the plugin is registered.
+   *
+   * <p>The pool holds virtual display WebViews. Apps using hybrid composition should call {@link
+   * #setWebViewPoolSize(int, boolean)} instead.
+   */
+  public static void setWebViewPoolSize(int size) {
+    setWebViewPoolSize(size, false);
+  }
+
+  /**
+   * Like {@link #setWebViewPoolSize(int)}, with the kind of WebView the app uses, hybrid
+   * composition or virtual display. If a WebView of the other kind is opened, the pooled ones are
+   * destroyed unused.
+   */
+  public static void setWebViewPoolSize(int size, boolean usesHybridComposition) {
+    webViewPoolSize = size;
+    webViewPoolUsesHybridComposition = usesHybridComposition;
+  }
+
+  private static WebViewPool createWebViewPool(Context context) {
+    if (webViewPoolSize <= 0) {
+      return null;
+    }
+    WebViewPool webViewPool =
+        new WebViewPool(
+            context.getApplicationContext(), webViewPoolSize, webViewPoolUsesHybridComposition);
+    webViewPool.fill();
+    return webViewPool;
+  }
+
   /**
    * Registers a plugin implementation that uses the stable {@code io.flutter.plugin.common}
    * package.
@@ -46,22 +86,31 @@ public class WebViewFlutterPlugin implements FlutterPlugin {
         .platformViewRegistry()
         .registerViewFactory(
             "plugins.flutter.io/webview",
-            new WebViewFactory(registrar.messenger(), registrar.view()));
-    new FlutterCookieManager(registrar.messenger());
+            new WebViewFactory(
+                registrar.messenger(),
+                registrar.view(),
+                createWebViewPool(registrar.context())));
+    new FlutterCookieManager(registrar.messenger(), registrar.context());
   }
 
   @Override
   public void onAttachedToEngine(FlutterPluginBinding binding) {
     BinaryMessenger messenger = binding.getBinaryMessenger();
+    webViewPool = createWebViewPool(binding.getApplicationContext());
     binding
         .getPlatformViewRegistry()
         .registerViewFactory(
-            "plugins.flutter.io/webview", new WebViewFactory(messenger, /*containerView=*/ null));
-    flutterCookieManager = new FlutterCookieManager(messenger);
+            "plugins.flutter.io/webview",
+            new WebViewFactory(messenger, /*containerView=*/ null, webViewPool));
+    flutterCookieManager = new FlutterCookieManager(messenger, binding.getApplicationContext());
   }
 
   @Override
   public void onDetachedFromEngine(FlutterPluginBinding binding) {
+    if (webViewPool != null) {
+      webViewPool.dispose();
+      webViewPool = null;
+    }
     if (flutterCookieManager == null) {
       return;
     }
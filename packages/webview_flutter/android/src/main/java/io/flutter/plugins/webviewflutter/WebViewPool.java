@@ -0,0 +1,119 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.webviewflutter;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.content.MutableContextWrapper;
+import android.hardware.display.DisplayManager;
+import android.os.Build;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.view.View;
+import android.webkit.WebView;
+import java.util.ArrayDeque;
+
+/**
+ * Keeps a few WebViews created ahead of time, so that opening a WebView does not pay for creating
+ * one, and the first WebView of the process does not pay for initializing Chromium.
+ *
+ * <p>WebViews are created one at a time while the platform thread is idle, with a {@link
+ * MutableContextWrapper} around the application context that is pointed at the platform view's
+ * context when the WebView is taken. A taken WebView is never returned: it is destroyed when its
+ * platform view is disposed, as pages can leave state behind that a reset can't reliably clear,
+ * and the pool is topped up with a fresh one instead. The pool starts with the kind of WebView it
+ * is created for, hybrid composition or virtual display, and then holds the kind last asked for.
+ * Must be used on the platform thread.
+ */
+class WebViewPool {
+  private final Context applicationContext;
+  private final int size;
+  private final ArrayDeque<WebView> webViews = new ArrayDeque<>();
+  private boolean usesHybridComposition;
+  private boolean fillScheduled;
+  private boolean disposed;
+
+  private final MessageQueue.IdleHandler fillHandler =
+      new MessageQueue.IdleHandler() {
+        @Override
+        public boolean queueIdle() {
+          if (disposed || webViews.size() >= size) {
+            fillScheduled = false;
+            return false;
+          }
+          webViews.add(createWebView(usesHybridComposition));
+          fillScheduled = webViews.size() < size;
+          return fillScheduled;
+        }
+      };
+
+  WebViewPool(Context applicationContext, int size, boolean usesHybridComposition) {
+    this.applicationContext = applicationContext;
+    this.size = size;
+    this.usesHybridComposition = usesHybridComposition;
+  }
+
+  /** Creates the missing WebViews the next times the platform thread is idle. */
+  void fill() {
+    if (disposed || fillScheduled || webViews.size() >= size) {
+      return;
+    }
+    fillScheduled = true;
+    Looper.myQueue().addIdleHandler(fillHandler);
+  }
+
+  /**
+   * Returns a pooled WebView of the given kind, now using context, or null if there is none.
+   * Schedules the pool to be topped up either way.
+   */
+  WebView take(Context context, boolean usesHybridComposition, View containerView) {
+    if (usesHybridComposition != this.usesHybridComposition) {
+      // The app uses the other kind of WebView, so the pooled ones would never be taken.
+      clear();
+      this.usesHybridComposition = usesHybridComposition;
+    }
+    WebView webView = webViews.poll();
+    fill();
+    if (webView == null) {
+      return null;
+    }
+    ((MutableContextWrapper) webView.getContext()).setBaseContext(context);
+    if (webView instanceof InputAwareWebView) {
+      ((InputAwareWebView) webView).setContainerView(containerView);
+    }
+    return webView;
+  }
+
+  void dispose() {
+    disposed = true;
+    if (fillScheduled) {
+      Looper.myQueue().removeIdleHandler(fillHandler);
+      fillScheduled = false;
+    }
+    clear();
+  }
+
+  private void clear() {
+    for (WebView webView : webViews) {
+      webView.destroy();
+    }
+    webViews.clear();
+  }
+
+  @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR1)
+  private WebView createWebView(boolean usesHybridComposition) {
+    Context context = new MutableContextWrapper(applicationContext);
+    DisplayListenerProxy displayListenerProxy = new DisplayListenerProxy();
+    DisplayManager displayManager =
+        (DisplayManager) applicationContext.getSystemService(Context.DISPLAY_SERVICE);
+    displayListenerProxy.onPreWebViewInitialization(displayManager);
+    WebView webView =
+        usesHybridComposition
+            ? new WebView(context)
+            : new InputAwareWebView(context, /*containerView=*/ null);
+    displayListenerProxy.onPostWebViewInitialization(displayManager);
+    return webView;
+  }
+}